@@ -0,0 +1,72 @@
+/**
+ * Copyright (C) 2017 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+package net.named_data.jndn.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import net.named_data.jndn.sync.DigestTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * DigestTreeBenchmark measures DigestTree.update for a new sequence number of
+ * an existing member in a ChronoSync digest tree with nMembers members, which
+ * updates the member's digest and recomputes the root digest.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DigestTreeBenchmark {
+  @Param({"10", "100", "1000"})
+  public int nMembers;
+
+  @Setup
+  public void
+  setUp()
+  {
+    for (int i = 0; i < nMembers; ++i)
+      digestTree_.update("/test/chronosync/member" + i, 1000 + i, 0);
+
+    dataPrefix_ = "/test/chronosync/member" + (nMembers / 2);
+    sessionNo_ = 1000 + nMembers / 2;
+  }
+
+  @Benchmark
+  public boolean
+  update()
+  {
+    return digestTree_.update(dataPrefix_, sessionNo_, ++sequenceNo_);
+  }
+
+  private final DigestTree digestTree_ = new DigestTree();
+  private String dataPrefix_;
+  private long sessionNo_;
+  private long sequenceNo_ = 0;
+}
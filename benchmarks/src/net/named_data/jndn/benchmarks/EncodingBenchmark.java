@@ -0,0 +1,120 @@
+/**
+ * Copyright (C) 2017 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+package net.named_data.jndn.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import net.named_data.jndn.Data;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.KeyLocatorType;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.Sha256WithRsaSignature;
+import net.named_data.jndn.encoding.EncodingException;
+import net.named_data.jndn.encoding.Tlv0_2WireFormat;
+import net.named_data.jndn.util.Blob;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * EncodingBenchmark measures encoding and decoding an Interest and a Data
+ * packet with Tlv0_2WireFormat. This calls the wire format directly since
+ * Interest.wireEncode and Data.wireEncode return a cached encoding.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EncodingBenchmark {
+  @Setup
+  public void
+  setUp()
+  {
+    interest_ = new Interest
+      (new Name("/ndn/ucla.edu/apps/lwndn-test/hello.txt/%FD%05%05%E8%0C%CE%1D"));
+    interest_.setMinSuffixComponents(2);
+    interest_.setMaxSuffixComponents(4);
+    interest_.setInterestLifetimeMilliseconds(30000);
+    interest_.setNonce(new Blob(new byte[] { 1, 2, 3, 4 }));
+    interestEncoding_ = wireFormat_.encodeInterest(interest_);
+
+    data_ = new Data
+      (new Name("/ndn/ucla.edu/apps/lwndn-test/hello.txt/%FD%05%05%E8%0C%CE%1D/%00"));
+    data_.setContent(new Blob(new byte[1000], false));
+    data_.getMetaInfo().setFreshnessPeriod(5000);
+    Sha256WithRsaSignature signature =
+      (Sha256WithRsaSignature)data_.getSignature();
+    signature.getKeyLocator().setType(KeyLocatorType.KEYNAME);
+    signature.getKeyLocator().setKeyName
+      (new Name("/testname/KEY/DSK-123/ID-CERT"));
+    signature.setSignature(new Blob(new byte[256], false));
+    dataEncoding_ = wireFormat_.encodeData(data_);
+  }
+
+  @Benchmark
+  public Blob
+  encodeInterest() { return wireFormat_.encodeInterest(interest_); }
+
+  @Benchmark
+  public Interest
+  decodeInterest() throws EncodingException
+  {
+    Interest interest = new Interest();
+    wireFormat_.decodeInterest(interest, interestEncoding_.buf());
+    return interest;
+  }
+
+  @Benchmark
+  public Blob
+  encodeData() { return wireFormat_.encodeData(data_); }
+
+  @Benchmark
+  public Data
+  decodeData() throws EncodingException
+  {
+    Data data = new Data();
+    wireFormat_.decodeData(data, dataEncoding_.buf());
+    return data;
+  }
+
+  @Benchmark
+  public Data
+  decodeDataNoCopy() throws EncodingException
+  {
+    Data data = new Data();
+    // Decode without copying the content, as Node does for a received element.
+    wireFormat_.decodeData(data, dataEncoding_.buf(), false);
+    return data;
+  }
+
+  private final Tlv0_2WireFormat wireFormat_ = Tlv0_2WireFormat.get();
+  private Interest interest_;
+  private Blob interestEncoding_;
+  private Data data_;
+  private Blob dataEncoding_;
+}
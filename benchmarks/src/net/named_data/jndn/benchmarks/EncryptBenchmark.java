@@ -0,0 +1,108 @@
+/**
+ * Copyright (C) 2017 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+package net.named_data.jndn.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import net.named_data.jndn.encrypt.algo.AesAlgorithm;
+import net.named_data.jndn.encrypt.algo.EncryptAlgorithmType;
+import net.named_data.jndn.encrypt.algo.EncryptParams;
+import net.named_data.jndn.encrypt.algo.RsaAlgorithm;
+import net.named_data.jndn.security.AesKeyParams;
+import net.named_data.jndn.security.RsaKeyParams;
+import net.named_data.jndn.util.Blob;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * EncryptBenchmark measures AesAlgorithm encrypt and decrypt of a 1000-byte
+ * payload in CBC mode, and RsaAlgorithm encrypt and decrypt of a 32-byte
+ * content key with OAEP padding, as used by the group encryption Encryptor.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EncryptBenchmark {
+  @Setup
+  public void
+  setUp() throws Exception
+  {
+    aesKey_ = AesAlgorithm.generateKey(new AesKeyParams(128)).getKeyBits();
+    aesParams_ = new EncryptParams
+      (EncryptAlgorithmType.AesCbc, AesAlgorithm.BLOCK_SIZE);
+    aesPlainData_ = new Blob(new byte[1000], false);
+    aesEncryptedData_ = AesAlgorithm.encrypt
+      (aesKey_, aesPlainData_, aesParams_);
+
+    rsaPrivateKey_ = RsaAlgorithm.generateKey(new RsaKeyParams()).getKeyBits();
+    rsaPublicKey_ = RsaAlgorithm.deriveEncryptKey(rsaPrivateKey_).getKeyBits();
+    rsaParams_ = new EncryptParams(EncryptAlgorithmType.RsaOaep);
+    rsaPlainData_ = new Blob(new byte[32], false);
+    rsaEncryptedData_ = RsaAlgorithm.encrypt
+      (rsaPublicKey_, rsaPlainData_, rsaParams_);
+  }
+
+  @Benchmark
+  public Blob
+  aesEncrypt() throws Exception
+  {
+    return AesAlgorithm.encrypt(aesKey_, aesPlainData_, aesParams_);
+  }
+
+  @Benchmark
+  public Blob
+  aesDecrypt() throws Exception
+  {
+    return AesAlgorithm.decrypt(aesKey_, aesEncryptedData_, aesParams_);
+  }
+
+  @Benchmark
+  public Blob
+  rsaEncrypt() throws Exception
+  {
+    return RsaAlgorithm.encrypt(rsaPublicKey_, rsaPlainData_, rsaParams_);
+  }
+
+  @Benchmark
+  public Blob
+  rsaDecrypt() throws Exception
+  {
+    return RsaAlgorithm.decrypt(rsaPrivateKey_, rsaEncryptedData_, rsaParams_);
+  }
+
+  private Blob aesKey_;
+  private EncryptParams aesParams_;
+  private Blob aesPlainData_;
+  private Blob aesEncryptedData_;
+  private Blob rsaPrivateKey_;
+  private Blob rsaPublicKey_;
+  private EncryptParams rsaParams_;
+  private Blob rsaPlainData_;
+  private Blob rsaEncryptedData_;
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright (C) 2017 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+package net.named_data.jndn.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import net.named_data.jndn.Data;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.security.EcdsaKeyParams;
+import net.named_data.jndn.security.KeyChain;
+import net.named_data.jndn.security.KeyParams;
+import net.named_data.jndn.security.OnDataValidationFailed;
+import net.named_data.jndn.security.OnVerified;
+import net.named_data.jndn.security.RsaKeyParams;
+import net.named_data.jndn.security.SecurityException;
+import net.named_data.jndn.security.identity.IdentityManager;
+import net.named_data.jndn.security.identity.MemoryIdentityStorage;
+import net.named_data.jndn.security.identity.MemoryPrivateKeyStorage;
+import net.named_data.jndn.security.policy.SelfVerifyPolicyManager;
+import net.named_data.jndn.util.Blob;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * KeyChainBenchmark measures KeyChain.sign and verifyData for a Data packet
+ * with an RSA or ECDSA key, using in-memory identity storage and the
+ * SelfVerifyPolicyManager.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeyChainBenchmark {
+  @Param({"RSA", "ECDSA"})
+  public String keyType;
+
+  @Setup
+  public void
+  setUp() throws SecurityException
+  {
+    // verifyData logs each call at the INFO level, which would dominate.
+    Logger.getLogger(KeyChain.class.getName()).setLevel(Level.WARNING);
+
+    MemoryIdentityStorage identityStorage = new MemoryIdentityStorage();
+    keyChain_ = new KeyChain
+      (new IdentityManager(identityStorage, new MemoryPrivateKeyStorage()),
+       new SelfVerifyPolicyManager(identityStorage));
+    KeyParams keyParams = keyType.equals("RSA") ?
+      new RsaKeyParams() : new EcdsaKeyParams();
+    certificateName_ = keyChain_.createIdentityAndCertificate
+      (new Name("/test/benchmark/" + keyType), keyParams);
+
+    data_ = new Data(new Name("/test/benchmark/data"));
+    data_.setContent(new Blob(new byte[1000], false));
+    signedData_ = new Data(data_);
+    keyChain_.sign(signedData_, certificateName_);
+  }
+
+  @Benchmark
+  public Data
+  sign() throws SecurityException
+  {
+    // sign changes the signature, so sign a copy.
+    Data data = new Data(data_);
+    keyChain_.sign(data, certificateName_);
+    return data;
+  }
+
+  @Benchmark
+  public int
+  verifyData() throws SecurityException
+  {
+    nVerified_ = 0;
+    keyChain_.verifyData(signedData_, onVerified_, onValidationFailed_);
+    if (nVerified_ != 1)
+      throw new Error("KeyChainBenchmark: verifyData did not verify");
+    return nVerified_;
+  }
+
+  private final OnVerified onVerified_ = new OnVerified() {
+    public void onVerified(Data data) { ++nVerified_; }
+  };
+  private final OnDataValidationFailed onValidationFailed_ =
+    new OnDataValidationFailed() {
+      public void onDataValidationFailed(Data data, String reason) {}
+    };
+
+  private KeyChain keyChain_;
+  private Name certificateName_;
+  private Data data_;
+  private Data signedData_;
+  private int nVerified_;
+}
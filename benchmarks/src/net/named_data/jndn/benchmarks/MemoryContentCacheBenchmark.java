@@ -0,0 +1,109 @@
+/**
+ * Copyright (C) 2017 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+package net.named_data.jndn.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import net.named_data.jndn.Data;
+import net.named_data.jndn.Face;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.InterestFilter;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.transport.LoopbackForwarder;
+import net.named_data.jndn.transport.LoopbackTransport;
+import net.named_data.jndn.util.Blob;
+import net.named_data.jndn.util.MemoryContentCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * MemoryContentCacheBenchmark measures answering an Interest from a
+ * MemoryContentCache which holds cacheSize Data packets. The Face only passes
+ * the sent encoding to the Blackhole so that the benchmark measures the cache.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MemoryContentCacheBenchmark {
+  /**
+   * A Face which passes each sent encoding to a Blackhole instead of a
+   * transport.
+   */
+  private static class BlackholeFace extends Face {
+    public BlackholeFace()
+    {
+      // The transport is not connected since send is overridden.
+      super(new LoopbackTransport(),
+            new LoopbackTransport.ConnectionInfo(new LoopbackForwarder()));
+    }
+
+    public void
+    send(Blob encoding) { blackhole_.consume(encoding); }
+
+    public Blackhole blackhole_;
+  }
+
+  @Param({"10", "100", "1000"})
+  public int cacheSize;
+
+  @Setup
+  public void
+  setUp()
+  {
+    // Don't clean up during the benchmark.
+    contentCache_ = new MemoryContentCache(face_, 1e9);
+    for (int i = 0; i < cacheSize; ++i) {
+      Data data = new Data(new Name("/test/cache").appendSegment(i));
+      data.setContent(new Blob(new byte[100], false));
+      data.getMetaInfo().setFreshnessPeriod(1e9);
+      contentCache_.add(data);
+    }
+
+    prefix_ = new Name("/test/cache");
+    filter_ = new InterestFilter(prefix_);
+    interest_ = new Interest
+      (new Name("/test/cache").appendSegment(cacheSize / 2));
+  }
+
+  @Benchmark
+  public void
+  hit(Blackhole blackhole)
+  {
+    face_.blackhole_ = blackhole;
+    contentCache_.onInterest(prefix_, interest_, face_, 0, filter_);
+  }
+
+  private final BlackholeFace face_ = new BlackholeFace();
+  private MemoryContentCache contentCache_;
+  private Name prefix_;
+  private InterestFilter filter_;
+  private Interest interest_;
+}
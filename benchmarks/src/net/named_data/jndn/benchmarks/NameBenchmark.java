@@ -0,0 +1,92 @@
+/**
+ * Copyright (C) 2017 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+package net.named_data.jndn.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import net.named_data.jndn.Name;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * NameBenchmark measures parsing a Name URI and comparing, matching and
+ * hashing names which share a long prefix, as when searching a table.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NameBenchmark {
+  @Setup
+  public void
+  setUp()
+  {
+    name_ = new Name(URI);
+    // A different Name object with the same value, so equals can't use ==.
+    sameName_ = new Name(URI);
+    // Differ only in the last component.
+    otherName_ = new Name(URI).getPrefix(-1).append("%01");
+    prefix_ = name_.getPrefix(4);
+  }
+
+  @Benchmark
+  public Name
+  parse() { return new Name(URI); }
+
+  @Benchmark
+  public String
+  toUri() { return name_.toUri(); }
+
+  @Benchmark
+  public int
+  compare() { return name_.compare(otherName_); }
+
+  @Benchmark
+  public boolean
+  equals() { return name_.equals(sameName_); }
+
+  @Benchmark
+  public boolean
+  match() { return prefix_.match(name_); }
+
+  @Benchmark
+  public int
+  hashCodeOfNewName()
+  {
+    // Use a new Name so that a cached hash code is not reused.
+    return new Name(name_).hashCode();
+  }
+
+  private static final String URI =
+    "/ndn/edu/ucla/remap/demo/ndn-js-test/hello.txt/%FDU%8D%9DM/%00";
+
+  private Name name_;
+  private Name sameName_;
+  private Name otherName_;
+  private Name prefix_;
+}
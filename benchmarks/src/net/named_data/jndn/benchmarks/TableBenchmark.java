@@ -0,0 +1,112 @@
+/**
+ * Copyright (C) 2017 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+package net.named_data.jndn.benchmarks;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import net.named_data.jndn.Data;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.InterestFilter;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.encoding.EncodingException;
+import net.named_data.jndn.impl.InterestFilterTable;
+import net.named_data.jndn.impl.PendingInterestTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * TableBenchmark measures the lookups which Node does for each received
+ * packet: finding the pending interest table entries for a Data packet and the
+ * interest filter table entries for an Interest, with tableSize other entries
+ * in the table which don't match.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TableBenchmark {
+  @Param({"10", "100", "1000"})
+  public int tableSize;
+
+  @Setup
+  public void
+  setUp()
+  {
+    for (int i = 0; i < tableSize; ++i) {
+      pendingInterestTable_.add
+        (++lastEntryId_, new Interest(new Name("/test/pit").appendSegment(i)),
+         null, null, null);
+      interestFilterTable_.setInterestFilter
+        (++lastEntryId_,
+         new InterestFilter(new Name("/test/filter").appendSegment(i)), null,
+         null);
+    }
+
+    targetInterest_ = new Interest(new Name("/test/target"));
+    targetData_ = new Data(new Name("/test/target/1"));
+    filterInterest_ = new Interest
+      (new Name("/test/filter").appendSegment(tableSize / 2).append("data"));
+  }
+
+  /**
+   * Add a pending interest and extract it for the matching Data, which
+   * checks every entry in the table.
+   */
+  @Benchmark
+  public ArrayList<PendingInterestTable.Entry>
+  pendingInterestTableExtract() throws EncodingException
+  {
+    pendingInterestTable_.add
+      (++lastEntryId_, targetInterest_, null, null, null);
+    ArrayList<PendingInterestTable.Entry> entries =
+      new ArrayList<PendingInterestTable.Entry>();
+    pendingInterestTable_.extractEntriesForExpressedInterest
+      (targetData_, entries);
+    return entries;
+  }
+
+  @Benchmark
+  public ArrayList
+  interestFilterTableMatch()
+  {
+    ArrayList matchedFilters = new ArrayList();
+    interestFilterTable_.getMatchedFilters(filterInterest_, matchedFilters);
+    return matchedFilters;
+  }
+
+  private final PendingInterestTable pendingInterestTable_ =
+    new PendingInterestTable();
+  private final InterestFilterTable interestFilterTable_ =
+    new InterestFilterTable();
+  private long lastEntryId_ = 0;
+  private Interest targetInterest_;
+  private Data targetData_;
+  private Interest filterInterest_;
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright (C) 2017 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+
+package net.named_data.jndn.completable;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import net.named_data.jndn.Data;
+import net.named_data.jndn.FaceEventLoop;
+import net.named_data.jndn.FetchFuture;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.NetworkNack;
+
+/**
+ * CompletableFetch adapts FaceEventLoop.fetchAsync to a CompletableFuture. No
+ * thread waits for the result. The CompletableFuture is completed by the
+ * FaceEventLoop thread when the Data, a timeout or a network Nack is received,
+ * so a dependent stage which may block should use an async method such as
+ * thenApplyAsync. Cancelling the CompletableFuture cancels the fetch. For
+ * example:
+ *
+ * CompletableFetch.fetch(loop, new Interest(new Name("/example/data")))
+ *   .thenAccept(data -> System.out.println(data.getName().toUri()));
+ *
+ * On Java 21 or later, the blocking FaceEventLoop.fetch can also be called
+ * directly from virtual threads.
+ */
+public class CompletableFetch {
+  /**
+   * Queue the Interest to be expressed by the loop thread and return
+   * immediately.
+   * @param loop The started FaceEventLoop.
+   * @param interest The Interest to express. This copies the Interest.
+   * @return A CompletableFuture which completes with the Data, or completes
+   * exceptionally with an IOException if the Interest times out or receives a
+   * network Nack, or if the loop is stopped first.
+   * @throws Error If the loop is not running.
+   */
+  public static CompletableFuture<Data>
+  fetch(FaceEventLoop loop, Interest interest)
+  {
+    Completion completion = new Completion();
+    loop.fetchAsync(interest, completion);
+    return completion.result_;
+  }
+
+  /**
+   * A Completion is a FetchFuture which passes its result to a
+   * CompletableFuture.
+   */
+  private static class Completion extends FetchFuture {
+    public Completion()
+    {
+      // If the application cancels the CompletableFuture, cancel the fetch so
+      // that a late Data is ignored.
+      result_.whenComplete((data, ex) -> {
+        if (result_.isCancelled())
+          cancel(false);
+      });
+    }
+
+    protected void
+    onCompleted()
+    {
+      if (isCancelled())
+        result_.cancel(false);
+      else if (getData() != null)
+        result_.complete(getData());
+      else {
+        NetworkNack networkNack = getNetworkNack();
+        if (networkNack != null)
+          result_.completeExceptionally(new IOException
+            ("Received a network Nack with reason " + networkNack.getReason()));
+        else
+          result_.completeExceptionally
+            (new IOException("The Interest timed out"));
+      }
+    }
+
+    public final CompletableFuture<Data> result_ = new CompletableFuture<>();
+  }
+}
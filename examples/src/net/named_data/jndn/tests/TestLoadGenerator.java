@@ -0,0 +1,491 @@
+/**
+ * Copyright (C) 2017 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+package net.named_data.jndn.tests;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import net.named_data.jndn.Data;
+import net.named_data.jndn.Face;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.InterestFilter;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.OnData;
+import net.named_data.jndn.OnInterestCallback;
+import net.named_data.jndn.OnTimeout;
+import net.named_data.jndn.ThreadPoolFace;
+import net.named_data.jndn.encoding.ElementListener;
+import net.named_data.jndn.encoding.ElementReader;
+import net.named_data.jndn.transport.AsyncTcpTransport;
+import net.named_data.jndn.transport.LoopbackForwarder;
+import net.named_data.jndn.transport.LoopbackTransport;
+import net.named_data.jndn.transport.TcpTransport;
+import net.named_data.jndn.transport.UdpTransport;
+import net.named_data.jndn.util.Blob;
+import net.named_data.jndn.util.Common;
+import net.named_data.jndn.util.LatencyHistogram;
+import net.named_data.jndn.util.Metrics;
+import net.named_data.jndn.util.MetricsRecorder;
+
+/**
+ * TestLoadGenerator measures the Interest/Data throughput and round-trip time
+ * through a Face with a local producer, without NFD. For the TCP and UDP
+ * transports, the producer and consumer faces connect to a minimal relay in
+ * this process which forwards each packet from one face to the other faces.
+ * The consumer keeps a window of outstanding Interests, optionally paced at a
+ * target rate. After a warm-up, this prints the throughput, the RTT
+ * percentiles from a MetricsRecorder, the timeouts and the garbage collections
+ * during the measurement. Set the options as system properties, for example:
+ *
+ * mvn -q test -DclassName=TestLoadGenerator -Dtransport=tcp -Dwindow=50
+ *
+ * transport: loopback (Face with LoopbackTransport), tcp (Face with
+ *   TcpTransport), udp (Face with UdpTransport), async-tcp (ThreadPoolFace
+ *   with AsyncTcpTransport) or all. The default is all.
+ * duration: The measurement time in seconds. The default is 10.
+ * warmup: The warm-up time in seconds. The default is 3.
+ * window: The maximum number of outstanding Interests. The default is 100.
+ * rate: The target Interests per second, or 0 to send whenever the window is
+ *   open. The default is 0.
+ * payload: The Data content size in bytes. The default is 1000.
+ */
+public class TestLoadGenerator {
+  /**
+   * Producer answers each Interest with a Data packet of the same name and a
+   * shared content.
+   */
+  private static class Producer implements OnInterestCallback {
+    public Producer(int payloadSize)
+    {
+      content_ = new Blob(new byte[payloadSize], false);
+    }
+
+    public void
+    onInterest
+      (Name prefix, Interest interest, Face face, long interestFilterId,
+       InterestFilter filter)
+    {
+      Data data = new Data(interest.getName());
+      data.setContent(content_);
+      try {
+        face.putData(data);
+      } catch (IOException ex) {
+        System.out.println("putData error: " + ex.getMessage());
+      }
+    }
+
+    private final Blob content_;
+  }
+
+  /**
+   * Consumer counts the received Data packets and timeouts, and the number of
+   * outstanding Interests. The counters are atomic since ThreadPoolFace calls
+   * the callbacks in the thread pool.
+   */
+  private static class Consumer implements OnData, OnTimeout {
+    public void
+    onData(Interest interest, Data data)
+    {
+      nData_.incrementAndGet();
+      nOutstanding_.decrementAndGet();
+    }
+
+    public void
+    onTimeout(Interest interest)
+    {
+      nTimeouts_.incrementAndGet();
+      nOutstanding_.decrementAndGet();
+    }
+
+    public final AtomicLong nData_ = new AtomicLong();
+    public final AtomicLong nTimeouts_ = new AtomicLong();
+    public final AtomicLong nOutstanding_ = new AtomicLong();
+  }
+
+  /**
+   * TcpRelay accepts TCP connections on a local port and forwards each
+   * received element to the other connections.
+   */
+  private static class TcpRelay implements Runnable {
+    public TcpRelay() throws IOException
+    {
+      server_ = ServerSocketChannel.open();
+      server_.socket().bind(new InetSocketAddress("localhost", 0));
+      startDaemon(this);
+    }
+
+    public final int
+    getPort() { return server_.socket().getLocalPort(); }
+
+    public void
+    run()
+    {
+      try {
+        while (true) {
+          final SocketChannel channel = server_.accept();
+          synchronized (channels_) {
+            channels_.add(channel);
+          }
+          startDaemon(new Runnable() {
+            public void run() { readLoop(channel); }
+          });
+        }
+      } catch (IOException ex) {
+        // close() was called.
+      }
+    }
+
+    public final void
+    close() throws IOException
+    {
+      server_.close();
+      synchronized (channels_) {
+        for (int i = 0; i < channels_.size(); ++i)
+          channels_.get(i).close();
+      }
+    }
+
+    private void
+    readLoop(final SocketChannel channel)
+    {
+      ElementReader elementReader = new ElementReader(new ElementListener() {
+        public void onReceivedElement(ByteBuffer element) {
+          forward(element, channel);
+        }
+      });
+      ByteBuffer inputBuffer = ByteBuffer.allocate(Common.MAX_NDN_PACKET_SIZE);
+      try {
+        while (channel.read(inputBuffer) >= 0) {
+          inputBuffer.flip();
+          elementReader.onReceivedData(inputBuffer);
+          inputBuffer.clear();
+        }
+      } catch (Exception ex) {
+        // The channel was closed.
+      }
+    }
+
+    private void
+    forward(ByteBuffer element, SocketChannel fromChannel)
+    {
+      synchronized (channels_) {
+        for (int i = 0; i < channels_.size(); ++i) {
+          SocketChannel channel = channels_.get(i);
+          if (channel == fromChannel)
+            continue;
+
+          ByteBuffer data = element.duplicate();
+          try {
+            while (data.hasRemaining())
+              channel.write(data);
+          } catch (IOException ex) {
+            // Ignore a closed channel.
+          }
+        }
+      }
+    }
+
+    private final ServerSocketChannel server_;
+    private final List<SocketChannel> channels_ = new ArrayList<SocketChannel>();
+  }
+
+  /**
+   * UdpRelay receives datagrams on a local port and forwards each one to the
+   * other peers it has received a datagram from.
+   */
+  private static class UdpRelay implements Runnable {
+    public UdpRelay() throws IOException
+    {
+      channel_ = DatagramChannel.open();
+      channel_.socket().bind(new InetSocketAddress("localhost", 0));
+      startDaemon(this);
+    }
+
+    public final int
+    getPort() { return channel_.socket().getLocalPort(); }
+
+    public void
+    run()
+    {
+      ByteBuffer datagram = ByteBuffer.allocate(Common.MAX_NDN_PACKET_SIZE);
+      try {
+        while (true) {
+          datagram.clear();
+          SocketAddress fromPeer = channel_.receive(datagram);
+          datagram.flip();
+          if (!peers_.contains(fromPeer))
+            peers_.add(fromPeer);
+
+          for (int i = 0; i < peers_.size(); ++i) {
+            if (!peers_.get(i).equals(fromPeer))
+              channel_.send(datagram.duplicate(), peers_.get(i));
+          }
+        }
+      } catch (IOException ex) {
+        // close() was called.
+      }
+    }
+
+    public final void
+    close() throws IOException { channel_.close(); }
+
+    private final DatagramChannel channel_;
+    // Only used by the relay thread.
+    private final List<SocketAddress> peers_ = new ArrayList<SocketAddress>();
+  }
+
+  private static void
+  startDaemon(Runnable runnable)
+  {
+    Thread thread = new Thread(runnable);
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Get the total count and time of the garbage collections so far.
+   * @return An array of the count and the time in milliseconds.
+   */
+  private static long[]
+  getGarbageCollections()
+  {
+    long[] result = new long[] { 0, 0 };
+    List<GarbageCollectorMXBean> collectors =
+      ManagementFactory.getGarbageCollectorMXBeans();
+    for (int i = 0; i < collectors.size(); ++i) {
+      result[0] += Math.max(0, collectors.get(i).getCollectionCount());
+      result[1] += Math.max(0, collectors.get(i).getCollectionTime());
+    }
+    return result;
+  }
+
+  /**
+   * Express Interests for the given time, keeping at most window Interests
+   * outstanding and pacing them at rate if it is not 0. If processFaces is not
+   * null, call processEvents on each face in the loop.
+   */
+  private static void
+  runConsumer
+    (Face consumerFace, Consumer consumer, Face[] processFaces,
+     double seconds, int window, int rate, Name prefix, long[] sequenceNo)
+    throws Exception
+  {
+    long now = System.nanoTime();
+    long endTime = now + (long)(seconds * 1e9);
+    long intervalNanoseconds = rate > 0 ? 1000000000L / rate : 0;
+    long nextSendTime = now;
+    while (now < endTime) {
+      while (consumer.nOutstanding_.get() < window &&
+             (rate <= 0 || now >= nextSendTime)) {
+        Interest interest = new Interest
+          (new Name(prefix).appendSequenceNumber(++sequenceNo[0]), 4000);
+        interest.setMustBeFresh(false);
+        consumer.nOutstanding_.incrementAndGet();
+        consumerFace.expressInterest(interest, consumer, consumer);
+        nextSendTime += intervalNanoseconds;
+      }
+
+      if (processFaces != null) {
+        for (int i = 0; i < processFaces.length; ++i)
+          processFaces[i].processEvents();
+      }
+      else
+        // ThreadPoolFace calls the callbacks in the thread pool.
+        Thread.yield();
+      now = System.nanoTime();
+    }
+  }
+
+  private static void
+  runLoadTest
+    (String transport, double warmupSeconds, double seconds, int window,
+     int rate, int payloadSize) throws Exception
+  {
+    Face producerFace;
+    Face consumerFace;
+    LoopbackForwarder forwarder = null;
+    LoopbackTransport producerLoopbackTransport = null;
+    TcpRelay tcpRelay = null;
+    UdpRelay udpRelay = null;
+    ScheduledExecutorService threadPool = null;
+    ScheduledExecutorService ioThreadPool = null;
+
+    if (transport.equals("loopback")) {
+      forwarder = new LoopbackForwarder();
+      producerLoopbackTransport = new LoopbackTransport();
+      producerFace = new Face
+        (producerLoopbackTransport,
+         new LoopbackTransport.ConnectionInfo(forwarder));
+      consumerFace = new Face
+        (new LoopbackTransport(), new LoopbackTransport.ConnectionInfo(forwarder));
+    }
+    else if (transport.equals("tcp")) {
+      tcpRelay = new TcpRelay();
+      producerFace = new Face
+        (new TcpTransport(),
+         new TcpTransport.ConnectionInfo("localhost", tcpRelay.getPort()));
+      consumerFace = new Face
+        (new TcpTransport(),
+         new TcpTransport.ConnectionInfo("localhost", tcpRelay.getPort()));
+    }
+    else if (transport.equals("udp")) {
+      udpRelay = new UdpRelay();
+      producerFace = new Face
+        (new UdpTransport(),
+         new UdpTransport.ConnectionInfo("localhost", udpRelay.getPort()));
+      consumerFace = new Face
+        (new UdpTransport(),
+         new UdpTransport.ConnectionInfo("localhost", udpRelay.getPort()));
+    }
+    else if (transport.equals("async-tcp")) {
+      tcpRelay = new TcpRelay();
+      threadPool = Executors.newScheduledThreadPool(4);
+      // AsyncTcpTransport.send waits for the previous write to complete, so
+      // use a separate pool for the channel completion handlers. Otherwise the
+      // face tasks which are waiting in send can use all the threads.
+      ioThreadPool = Executors.newScheduledThreadPool(2);
+      producerFace = new ThreadPoolFace
+        (threadPool, new AsyncTcpTransport(ioThreadPool),
+         new AsyncTcpTransport.ConnectionInfo("localhost", tcpRelay.getPort()));
+      consumerFace = new ThreadPoolFace
+        (threadPool, new AsyncTcpTransport(ioThreadPool),
+         new AsyncTcpTransport.ConnectionInfo("localhost", tcpRelay.getPort()));
+    }
+    else
+      throw new Error("Unrecognized transport " + transport);
+    Face[] processFaces = threadPool == null ?
+      new Face[] { consumerFace, producerFace } : null;
+
+    Name prefix = new Name("/test/load");
+    producerFace.setInterestFilter(prefix, new Producer(payloadSize));
+    // Express an Interest to connect the producer face. This also lets the UDP
+    // relay learn the producer's address.
+    producerFace.expressInterest
+      (new Interest(new Name("/test/hello"), 100.0), new OnData() {
+        public void onData(Interest interest, Data data) {}
+      });
+    if (forwarder != null)
+      forwarder.addRoute(prefix, producerLoopbackTransport);
+    // Wait for the connection.
+    long waitEndTime = System.currentTimeMillis() + 500;
+    while (System.currentTimeMillis() < waitEndTime) {
+      if (processFaces != null)
+        producerFace.processEvents();
+      Thread.sleep(5);
+    }
+
+    MetricsRecorder metrics = new MetricsRecorder();
+    consumerFace.setMetrics(metrics);
+    Consumer consumer = new Consumer();
+    long[] sequenceNo = new long[] { 0 };
+
+    runConsumer
+      (consumerFace, consumer, processFaces, warmupSeconds, window, rate,
+       prefix, sequenceNo);
+
+    // Start the measurement, leaving the warm-up Interests outstanding.
+    metrics.reset();
+    long startData = consumer.nData_.get();
+    long startTimeouts = consumer.nTimeouts_.get();
+    long[] startGarbageCollections = getGarbageCollections();
+    runConsumer
+      (consumerFace, consumer, processFaces, seconds, window, rate, prefix,
+       sequenceNo);
+    long nData = consumer.nData_.get() - startData;
+    long nTimeouts = consumer.nTimeouts_.get() - startTimeouts;
+    long[] garbageCollections = getGarbageCollections();
+    MetricsRecorder.Snapshot snapshot = metrics.getSnapshot();
+
+    // Let the outstanding Interests finish before closing.
+    long drainEndTime = System.currentTimeMillis() + 5000;
+    while (consumer.nOutstanding_.get() > 0 &&
+           System.currentTimeMillis() < drainEndTime) {
+      if (processFaces != null) {
+        for (int i = 0; i < processFaces.length; ++i)
+          processFaces[i].processEvents();
+      }
+      Thread.sleep(1);
+    }
+
+    consumerFace.shutdown();
+    producerFace.shutdown();
+    if (threadPool != null) {
+      // AsyncTcpTransport does not close its channel, so leave the relay
+      // connections open. Otherwise the pending read completes on a shut down
+      // thread pool.
+      threadPool.shutdown();
+      ioThreadPool.shutdown();
+    }
+    else if (tcpRelay != null)
+      tcpRelay.close();
+    if (udpRelay != null)
+      udpRelay.close();
+
+    LatencyHistogram rtt = snapshot.getHistogram(Metrics.Timer.INTEREST_RTT);
+    System.out.println
+      (transport + ": " + Math.round(nData / seconds) + " Data/s, RTT ms" +
+       " p50 " + rtt.getValueAtPercentile(50) / 1e6 +
+       " p99 " + rtt.getValueAtPercentile(99) / 1e6 +
+       " p999 " + rtt.getValueAtPercentile(99.9) / 1e6 +
+       " max " + rtt.getMax() / 1e6 +
+       ", timeouts " + nTimeouts +
+       ", GC " + (garbageCollections[0] - startGarbageCollections[0]) +
+       " collections " + (garbageCollections[1] - startGarbageCollections[1]) +
+       " ms");
+  }
+
+  public static void
+  main(String[] args)
+  {
+    try {
+      String transport = System.getProperty("transport", "all");
+      double seconds = Double.parseDouble(System.getProperty("duration", "10"));
+      double warmupSeconds = Double.parseDouble
+        (System.getProperty("warmup", "3"));
+      int window = Integer.parseInt(System.getProperty("window", "100"));
+      int rate = Integer.parseInt(System.getProperty("rate", "0"));
+      int payloadSize = Integer.parseInt(System.getProperty("payload", "1000"));
+
+      String[] transports = transport.equals("all") ?
+        new String[] { "loopback", "tcp", "udp", "async-tcp" } :
+        new String[] { transport };
+      System.out.println
+        ("window " + window + ", rate " + (rate > 0 ? "" + rate : "unlimited") +
+         ", payload " + payloadSize + " bytes, " + seconds + " s");
+      for (int i = 0; i < transports.length; ++i)
+        runLoadTest
+          (transports[i], warmupSeconds, seconds, window, rate, payloadSize);
+    }
+    catch (Exception e) {
+      System.out.println("exception: " + e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,155 @@
+/**
+ * Copyright (C) 2017 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+package net.named_data.jndn.tests;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Message;
+import net.named_data.jndn.encoding.EncodingException;
+import net.named_data.jndn.encoding.ProtobufTlv;
+import net.named_data.jndn.tests.FibEntryProto.FibEntryMessage;
+import net.named_data.jndn.tests.RibEntryProto.RibEntryMessage;
+import net.named_data.jndn.util.Blob;
+
+/**
+ * Benchmark ProtobufTlv.encode and decode with the FibEntry and RibEntry
+ * messages which are used for the NFD management datasets.
+ */
+public class TestProtobufTlvBenchmark {
+  private static double
+  getNowSeconds()
+  {
+    return System.currentTimeMillis() / 1000.0;
+  }
+
+  private static FibEntryMessage
+  makeFibEntryMessage()
+  {
+    FibEntryMessage.Builder builder = FibEntryMessage.newBuilder();
+    builder.getFibEntryBuilder().setPhone(FibEntryMessage.PhoneType.WORK);
+    builder.getFibEntryBuilder().getNameBuilder()
+            .addComponent(ByteString.copyFromUtf8("ndn"))
+            .addComponent(ByteString.copyFromUtf8("edu"))
+            .addComponent(ByteString.copyFromUtf8("ucla"));
+    for (int i = 0; i < 4; ++i)
+      builder.getFibEntryBuilder().addNextHopRecordsBuilder()
+              .setFaceId(256 + i)
+              .setCost(10 * i);
+    return builder.build();
+  }
+
+  private static RibEntryMessage
+  makeRibEntryMessage()
+  {
+    RibEntryMessage.Builder builder = RibEntryMessage.newBuilder();
+    // A typical rib/list dataset has many entries.
+    for (int iEntry = 0; iEntry < 10; ++iEntry) {
+      RibEntryMessage.RibEntry.Builder entry = builder.addRibEntryBuilder();
+      entry.getNameBuilder()
+              .addComponent(ByteString.copyFromUtf8("ndn"))
+              .addComponent(ByteString.copyFromUtf8("prefix" + iEntry));
+      for (int i = 0; i < 2; ++i)
+        entry.addRoutesBuilder()
+              .setFaceId(256 + i)
+              .setOrigin(0)
+              .setCost(10 * i)
+              .setFlags(1)
+              .setExpirationPeriod(3600000);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Loop to encode the message nIterations times.
+   * @param nIterations The number of iterations.
+   * @param message The message to encode.
+   * @param encoding Set encoding[0] to the encoding.
+   * @return The number of seconds for all iterations.
+   */
+  private static double
+  benchmarkEncodeSeconds(int nIterations, Message message, Blob[] encoding)
+  {
+    double start = getNowSeconds();
+    for (int i = 0; i < nIterations; ++i)
+      encoding[0] = ProtobufTlv.encode(message);
+    double finish = getNowSeconds();
+
+    return finish - start;
+  }
+
+  /**
+   * Loop to decode the encoding nIterations times into a new builder from
+   * prototype.
+   * @param nIterations The number of iterations.
+   * @param prototype The default instance of the message type.
+   * @param encoding The encoding to decode.
+   * @return The number of seconds for all iterations.
+   */
+  private static double
+  benchmarkDecodeSeconds(int nIterations, Message prototype, Blob encoding)
+    throws EncodingException
+  {
+    double start = getNowSeconds();
+    for (int i = 0; i < nIterations; ++i) {
+      Message.Builder builder = prototype.newBuilderForType();
+      ProtobufTlv.decode(builder, encoding);
+      builder.build();
+    }
+    double finish = getNowSeconds();
+
+    return finish - start;
+  }
+
+  /**
+   * Call benchmarkEncodeSeconds and benchmarkDecodeSeconds and print the
+   * results to System.out.
+   * @param label The message label to print.
+   * @param message The message to encode and decode.
+   * @param nIterations The number of iterations.
+   */
+  private static void
+  benchmarkEncodeDecode(String label, Message message, int nIterations)
+    throws EncodingException
+  {
+    Blob[] encoding = new Blob[1];
+    // Warm up so that the codec is cached and the JIT has compiled the loop.
+    benchmarkEncodeSeconds(nIterations / 2, message, encoding);
+    benchmarkDecodeSeconds
+      (nIterations / 2, message.getDefaultInstanceForType(), encoding[0]);
+
+    double duration = benchmarkEncodeSeconds(nIterations, message, encoding);
+    System.out.println("Encode " + label + " (" + encoding[0].size() +
+      " bytes): Duration sec, Hz: " + duration + ", " + (nIterations / duration));
+
+    duration = benchmarkDecodeSeconds
+      (nIterations, message.getDefaultInstanceForType(), encoding[0]);
+    System.out.println("Decode " + label + " (" + encoding[0].size() +
+      " bytes): Duration sec, Hz: " + duration + ", " + (nIterations / duration));
+  }
+
+  public static void
+  main(String[] args)
+  {
+    try {
+      benchmarkEncodeDecode("FibEntry", makeFibEntryMessage(), 500000);
+      benchmarkEncodeDecode("RibEntry", makeRibEntryMessage(), 100000);
+    } catch (EncodingException e) {
+      System.out.println(e.getMessage());
+    }
+  }
+}
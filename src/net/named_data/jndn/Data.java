@@ -124,6 +124,7 @@ public class Data implements ChangeCountable, SignatureHolder {
   public void
   wireDecode(Blob input, WireFormat wireFormat) throws EncodingException
   {
+    checkNotFrozen();
     int[] signedPortionBeginOffset = new int[1];
     int[] signedPortionEndOffset = new int[1];
     wireFormat.decodeData
@@ -308,6 +309,7 @@ public class Data implements ChangeCountable, SignatureHolder {
   public Data
   setName(Name name)
   {
+    checkNotFrozen();
     name_.set(name == null ? new Name() : new Name(name));
     ++changeCount_;
     return this;
@@ -321,6 +323,7 @@ public class Data implements ChangeCountable, SignatureHolder {
   public final Data
   setMetaInfo(MetaInfo metaInfo)
   {
+    checkNotFrozen();
     metaInfo_.set(metaInfo == null ? new MetaInfo() : new MetaInfo(metaInfo));
     ++changeCount_;
     return this;
@@ -329,6 +332,7 @@ public class Data implements ChangeCountable, SignatureHolder {
   public final Data
   setContent(Blob content)
   {
+    checkNotFrozen();
     content_ = (content == null ? new Blob() : content);
     ++changeCount_;
     return this;
@@ -357,6 +361,13 @@ public class Data implements ChangeCountable, SignatureHolder {
   public final long
   getChangeCount()
   {
+    if (frozen_) {
+      // The name and MetaInfo are also frozen, so only check the signature.
+      if (signature_.checkChanged())
+        ++changeCount_;
+      return changeCount_;
+    }
+
     // Make sure each of the checkChanged is called.
     boolean changed = signature_.checkChanged();
     changed = name_.checkChanged() || changed;
@@ -368,6 +379,45 @@ public class Data implements ChangeCountable, SignatureHolder {
     return changeCount_;
   }
 
+  /**
+   * Make the name, MetaInfo and content of this Data read-only so that a later
+   * call to setName or another method which changes them throws an Error.
+   * After this, getChangeCount() only checks the signature for changes, so
+   * that getDefaultWireEncoding() and getFullName() return the cached values
+   * with less overhead. The signature is not frozen so that the Data can still
+   * be signed. This is useful for a Data packet which is shared and only read,
+   * for example when matching it against many Interests. To change the Data,
+   * make a copy with new Data(data) which is not frozen.
+   * @return This Data so that you can chain calls.
+   */
+  public final Data
+  freeze()
+  {
+    if (frozen_)
+      return this;
+
+    getName().freeze();
+    getMetaInfo().freeze();
+    // Update the change count and the cached values before skipping the checks.
+    getDefaultWireEncoding();
+    frozen_ = true;
+    return this;
+  }
+
+  /**
+   * Check if freeze() was called.
+   * @return True if this Data is frozen.
+   */
+  public final boolean
+  isFrozen() { return frozen_; }
+
+  private void
+  checkNotFrozen()
+  {
+    if (frozen_)
+      throw new Error("Cannot change a frozen Data");
+  }
+
   private void
   setDefaultWireEncoding
     (SignedBlob defaultWireEncoding, WireFormat defaultWireEncodingFormat)
@@ -391,4 +441,5 @@ public class Data implements ChangeCountable, SignatureHolder {
   private WireFormat defaultWireEncodingFormat_;
   private long getDefaultWireEncodingChangeCount_ = 0;
   private long changeCount_ = 0;
+  private boolean frozen_ = false;
 }
@@ -0,0 +1,461 @@
+/**
+ * Copyright (C) 2017 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+package net.named_data.jndn;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import net.named_data.jndn.encoding.WireFormat;
+import net.named_data.jndn.security.SecurityException;
+import net.named_data.jndn.transport.Transport;
+
+/**
+ * DispatchFace extends Face to call the application callbacks such as onData
+ * and onInterest according to a DispatchPolicy. Unlike ThreadPoolFace, this
+ * sends the Interest or registration in the calling thread, and uses one
+ * adapter object per expressed Interest instead of a wrapper per callback and
+ * a Runnable per event. With DispatchPolicy.AFFINITY, the callbacks for
+ * Interests under the same name prefix are called in order by one serial lane
+ * of the thread pool. The thread pool is also used to schedule the Interest
+ * timeouts, so the transport should be an async transport like
+ * AsyncTcpTransport which uses the same thread pool.
+ */
+public class DispatchFace extends Face {
+  /**
+   * A DispatchPolicy specifies how DispatchFace calls the application
+   * callbacks.
+   */
+  public enum DispatchPolicy {
+    /**
+     * Call the callbacks directly in the thread which received the packet
+     * (the transport's I/O thread). The callbacks must not block.
+     */
+    DIRECT,
+
+    /**
+     * Call the callbacks in the thread pool, serially for all packets whose
+     * names have the same prefix, so that the callbacks for one stream are
+     * called in order. Different prefixes are called concurrently.
+     */
+    AFFINITY,
+
+    /**
+     * Submit each callback to the thread pool with no ordering.
+     */
+    POOLED
+  }
+
+  /**
+   * Create a new DispatchFace for communication with an NDN hub with the given
+   * Transport object and connectionInfo.
+   * @param threadPool The thread pool used to call the callbacks and to
+   * schedule the Interest timeouts.
+   * @param dispatchPolicy The DispatchPolicy for calling the callbacks.
+   * @param nAffinityLanes For DispatchPolicy.AFFINITY, the number of serial
+   * lanes. Each name prefix is assigned to a lane by its hash code.
+   * @param affinityPrefixLength For DispatchPolicy.AFFINITY, the number of
+   * leading name components which identify a stream, or -1 to use all but
+   * the last component (such as a segment number).
+   * @param transport A Transport object used for communication.
+   * @param connectionInfo A Transport.ConnectionInfo to be used to connect to
+   * the transport.
+   */
+  public DispatchFace
+    (ScheduledExecutorService threadPool, DispatchPolicy dispatchPolicy,
+     int nAffinityLanes, int affinityPrefixLength, Transport transport,
+     Transport.ConnectionInfo connectionInfo)
+  {
+    super(transport, connectionInfo);
+    threadPool_ = threadPool;
+    dispatchPolicy_ = dispatchPolicy;
+    affinityPrefixLength_ = affinityPrefixLength;
+
+    if (dispatchPolicy == DispatchPolicy.AFFINITY) {
+      if (nAffinityLanes <= 0)
+        throw new Error("DispatchFace: nAffinityLanes must be positive");
+      lanes_ = new SerialExecutor[nAffinityLanes];
+      for (int i = 0; i < nAffinityLanes; ++i)
+        lanes_[i] = new SerialExecutor(threadPool);
+    }
+    else
+      lanes_ = null;
+  }
+
+  /**
+   * Create a new DispatchFace with DEFAULT_AFFINITY_LANES, using all but the
+   * last name component as the affinity prefix.
+   * @param threadPool The thread pool used to call the callbacks and to
+   * schedule the Interest timeouts.
+   * @param dispatchPolicy The DispatchPolicy for calling the callbacks.
+   * @param transport A Transport object used for communication.
+   * @param connectionInfo A Transport.ConnectionInfo to be used to connect to
+   * the transport.
+   */
+  public DispatchFace
+    (ScheduledExecutorService threadPool, DispatchPolicy dispatchPolicy,
+     Transport transport, Transport.ConnectionInfo connectionInfo)
+  {
+    this(threadPool, dispatchPolicy, DEFAULT_AFFINITY_LANES, -1, transport,
+         connectionInfo);
+  }
+
+  /**
+   * Get the DispatchPolicy given to the constructor.
+   * @return The DispatchPolicy.
+   */
+  public final DispatchPolicy
+  getDispatchPolicy() { return dispatchPolicy_; }
+
+  /**
+   * Override to send the Interest in the calling thread and to call the
+   * supplied onData, onTimeout and onNetworkNack according to the
+   * DispatchPolicy. See Face.expressInterest for calling details.
+   */
+  public long
+  expressInterest
+    (Interest interest, OnData onData, OnTimeout onTimeout,
+     OnNetworkNack onNetworkNack, WireFormat wireFormat) throws IOException
+  {
+    long pendingInterestId = node_.getNextEntryId();
+
+    if (dispatchPolicy_ == DispatchPolicy.DIRECT)
+      // Node calls the callbacks directly and logs exceptions.
+      node_.expressInterest
+        (pendingInterestId, interest, onData, onTimeout, onNetworkNack,
+         wireFormat, this);
+    else {
+      PendingInterestDispatcher dispatcher = new PendingInterestDispatcher
+        (getExecutor(interest.getName()), onData, onTimeout, onNetworkNack);
+      // This copies the interest as required by Node.expressInterest.
+      node_.expressInterest
+        (pendingInterestId, interest, dispatcher,
+         onTimeout == null ? null : dispatcher,
+         onNetworkNack == null ? null : dispatcher, wireFormat, this);
+    }
+
+    return pendingInterestId;
+  }
+
+  /**
+   * Override to send the Interest in the calling thread and to call the
+   * supplied onData, onTimeout and onNetworkNack according to the
+   * DispatchPolicy. See Face.expressInterest for calling details.
+   */
+  public long
+  expressInterest
+    (Name name, Interest interestTemplate, OnData onData, OnTimeout onTimeout,
+     OnNetworkNack onNetworkNack, WireFormat wireFormat) throws IOException
+  {
+    return expressInterest
+      (getInterestCopy(name, interestTemplate), onData, onTimeout,
+       onNetworkNack, wireFormat);
+  }
+
+  /**
+   * Override to send the registration in the calling thread and to call the
+   * supplied callbacks according to the DispatchPolicy. See
+   * Face.registerPrefix for calling details.
+   */
+  public long
+  registerPrefix
+    (Name prefix, OnInterestCallback onInterest,
+     OnRegisterFailed onRegisterFailed, OnRegisterSuccess onRegisterSuccess,
+     ForwardingFlags flags, WireFormat wireFormat)
+    throws IOException, SecurityException
+  {
+    if (dispatchPolicy_ != DispatchPolicy.DIRECT) {
+      if (onInterest != null)
+        onInterest = new InterestDispatcher(onInterest);
+      RegisterDispatcher registerDispatcher = new RegisterDispatcher
+        (getExecutor(prefix), onRegisterFailed, onRegisterSuccess);
+      onRegisterFailed = registerDispatcher;
+      if (onRegisterSuccess != null)
+        onRegisterSuccess = registerDispatcher;
+    }
+
+    return super.registerPrefix
+      (prefix, onInterest, onRegisterFailed, onRegisterSuccess, flags,
+       wireFormat);
+  }
+
+  /**
+   * Override to call the supplied onInterest according to the DispatchPolicy.
+   * See Face.setInterestFilter for calling details.
+   */
+  public long
+  setInterestFilter(InterestFilter filter, OnInterestCallback onInterest)
+  {
+    if (dispatchPolicy_ != DispatchPolicy.DIRECT)
+      onInterest = new InterestDispatcher(onInterest);
+
+    return super.setInterestFilter(filter, onInterest);
+  }
+
+  /**
+   * Override to schedule in the thread pool to call callback.run() after the
+   * given delay. Even though this is public, it is not part of the public API
+   * of Face.
+   * @param delayMilliseconds The delay in milliseconds.
+   * @param callback This calls callback.run() after the delay.
+   */
+  public void
+  callLater(double delayMilliseconds, final Runnable callback)
+  {
+    threadPool_.schedule
+      (new Runnable() {
+        public void run() {
+          // Need to catch and log exceptions at this async entry point.
+          try {
+            callback.run();
+          } catch (Throwable ex) {
+            logger_.log(Level.SEVERE, null, ex);
+          }
+        }
+       },
+       (long)delayMilliseconds, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * A SerialExecutor runs its tasks one at a time in the order they were
+   * executed, using the thread pool.
+   */
+  private static class SerialExecutor implements Executor, Runnable {
+    public SerialExecutor(Executor threadPool)
+    {
+      threadPool_ = threadPool;
+    }
+
+    public void
+    execute(Runnable task)
+    {
+      synchronized (tasks_) {
+        tasks_.add(task);
+        if (isScheduled_)
+          return;
+        isScheduled_ = true;
+      }
+      threadPool_.execute(this);
+    }
+
+    public void
+    run()
+    {
+      while (true) {
+        Runnable task;
+        synchronized (tasks_) {
+          task = tasks_.poll();
+          if (task == null) {
+            isScheduled_ = false;
+            return;
+          }
+        }
+
+        task.run();
+      }
+    }
+
+    private final Executor threadPool_;
+    private final ArrayDeque<Runnable> tasks_ = new ArrayDeque<Runnable>();
+    private boolean isScheduled_ = false;
+  }
+
+  /**
+   * A PendingInterestDispatcher is the onData, onTimeout and onNetworkNack
+   * for one expressed Interest. Node calls at most one of them, so this holds
+   * the arguments and runs itself in the executor.
+   */
+  private static class PendingInterestDispatcher
+    implements OnData, OnTimeout, OnNetworkNack, Runnable {
+    public PendingInterestDispatcher
+      (Executor executor, OnData onData, OnTimeout onTimeout,
+       OnNetworkNack onNetworkNack)
+    {
+      executor_ = executor;
+      onData_ = onData;
+      onTimeout_ = onTimeout;
+      onNetworkNack_ = onNetworkNack;
+    }
+
+    public void
+    onData(Interest interest, Data data)
+    {
+      interest_ = interest;
+      data_ = data;
+      executor_.execute(this);
+    }
+
+    public void
+    onTimeout(Interest interest)
+    {
+      interest_ = interest;
+      executor_.execute(this);
+    }
+
+    public void
+    onNetworkNack(Interest interest, NetworkNack networkNack)
+    {
+      interest_ = interest;
+      networkNack_ = networkNack;
+      executor_.execute(this);
+    }
+
+    public void
+    run()
+    {
+      // Need to catch and log exceptions at this async entry point.
+      try {
+        if (data_ != null)
+          onData_.onData(interest_, data_);
+        else if (networkNack_ != null)
+          onNetworkNack_.onNetworkNack(interest_, networkNack_);
+        else
+          onTimeout_.onTimeout(interest_);
+      } catch (Throwable ex) {
+        logger_.log(Level.SEVERE, "Error in the expressInterest callback", ex);
+      }
+    }
+
+    private final Executor executor_;
+    private final OnData onData_;
+    private final OnTimeout onTimeout_;
+    private final OnNetworkNack onNetworkNack_;
+    private Interest interest_;
+    private Data data_;
+    private NetworkNack networkNack_;
+  }
+
+  /**
+   * An InterestDispatcher is the onInterest for an interest filter which
+   * calls the application's onInterest in the executor for each Interest.
+   */
+  private class InterestDispatcher implements OnInterestCallback {
+    public InterestDispatcher(OnInterestCallback onInterest)
+    {
+      onInterest_ = onInterest;
+    }
+
+    public void
+    onInterest
+      (final Name prefix, final Interest interest, final Face face,
+       final long interestFilterId, final InterestFilter filter)
+    {
+      getExecutor(interest.getName()).execute(new Runnable() {
+        public void run() {
+          // Need to catch and log exceptions at this async entry point.
+          try {
+            onInterest_.onInterest
+              (prefix, interest, face, interestFilterId, filter);
+          } catch (Throwable ex) {
+            logger_.log(Level.SEVERE, "Error in onInterest", ex);
+          }
+        }
+      });
+    }
+
+    private final OnInterestCallback onInterest_;
+  }
+
+  /**
+   * A RegisterDispatcher is the onRegisterFailed and onRegisterSuccess for one
+   * registerPrefix. Node calls only one of them.
+   */
+  private static class RegisterDispatcher
+    implements OnRegisterFailed, OnRegisterSuccess, Runnable {
+    public RegisterDispatcher
+      (Executor executor, OnRegisterFailed onRegisterFailed,
+       OnRegisterSuccess onRegisterSuccess)
+    {
+      executor_ = executor;
+      onRegisterFailed_ = onRegisterFailed;
+      onRegisterSuccess_ = onRegisterSuccess;
+    }
+
+    public void
+    onRegisterFailed(Name prefix)
+    {
+      prefix_ = prefix;
+      executor_.execute(this);
+    }
+
+    public void
+    onRegisterSuccess(Name prefix, long registeredPrefixId)
+    {
+      prefix_ = prefix;
+      registeredPrefixId_ = registeredPrefixId;
+      isSuccess_ = true;
+      executor_.execute(this);
+    }
+
+    public void
+    run()
+    {
+      // Need to catch and log exceptions at this async entry point.
+      try {
+        if (isSuccess_)
+          onRegisterSuccess_.onRegisterSuccess(prefix_, registeredPrefixId_);
+        else
+          onRegisterFailed_.onRegisterFailed(prefix_);
+      } catch (Throwable ex) {
+        logger_.log(Level.SEVERE, "Error in the registerPrefix callback", ex);
+      }
+    }
+
+    private final Executor executor_;
+    private final OnRegisterFailed onRegisterFailed_;
+    private final OnRegisterSuccess onRegisterSuccess_;
+    private Name prefix_;
+    private long registeredPrefixId_;
+    private boolean isSuccess_ = false;
+  }
+
+  /**
+   * Get the executor for callbacks of a packet with the given name.
+   * @param name The packet name.
+   * @return The serial lane for the name's affinity prefix if the policy is
+   * AFFINITY, otherwise the thread pool.
+   */
+  private Executor
+  getExecutor(Name name)
+  {
+    if (lanes_ == null)
+      return threadPool_;
+
+    int prefixLength = affinityPrefixLength_ < 0 ?
+      name.size() - 1 : Math.min(affinityPrefixLength_, name.size());
+    // Imitate Name.hashCode without making a prefix Name.
+    int hashCode = 0;
+    for (int i = 0; i < prefixLength; ++i)
+      hashCode = 37 * hashCode + name.get(i).hashCode();
+
+    return lanes_[(hashCode & 0x7fffffff) % lanes_.length];
+  }
+
+  public static final int DEFAULT_AFFINITY_LANES = 16;
+
+  private final ScheduledExecutorService threadPool_;
+  private final DispatchPolicy dispatchPolicy_;
+  private final SerialExecutor[] lanes_;
+  private final int affinityPrefixLength_;
+  private static final Logger logger_ = Logger.getLogger
+    (DispatchFace.class.getName());
+}
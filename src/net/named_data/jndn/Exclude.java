@@ -1,6 +1,7 @@
 /**
  * Copyright (C) 2013-2017 Regents of the University of California.
  * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ * @author: excludeRange from ndn-cxx https://github.com/named-data/ndn-cxx/blob/master/src/exclude.cpp
  *
  * This program is free software: you can redistribute it and/or modify
  * it under the terms of the GNU Lesser General Public License as published by
@@ -20,10 +21,18 @@
 package net.named_data.jndn;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import net.named_data.jndn.util.ChangeCountable;
 
 /**
- * An Exclude holds an Array of Exclude.Entry.
+ * An Exclude holds an Array of Exclude.Entry. The entries are kept as
+ * appended (or decoded) so that the wire encoding is unchanged. To match a
+ * component, the Exclude also keeps the excluded components as sorted,
+ * non-overlapping ranges, which are computed from the entries when needed and
+ * searched with a binary search. excludeOne, excludeBefore, excludeAfter and
+ * excludeRange insert into the ranges, merging overlapping ranges, and set the
+ * entries to the canonical form.
  */
 public class Exclude implements ChangeCountable {
   public enum Type {
@@ -114,6 +123,7 @@ public class Exclude implements ChangeCountable {
   public final Exclude
   appendAny()
   {
+    checkNotFrozen();
     entries_.add(new Entry());
     ++changeCount_;
     return this;
@@ -128,6 +138,7 @@ public class Exclude implements ChangeCountable {
   public final Exclude
   appendComponent(Name.Component component)
   {
+    checkNotFrozen();
     entries_.add(new Entry(component));
     ++changeCount_;
     return this;
@@ -139,6 +150,7 @@ public class Exclude implements ChangeCountable {
   public final void
   clear()
   {
+    checkNotFrozen();
     entries_.clear();
     ++changeCount_;
   }
@@ -152,55 +164,77 @@ public class Exclude implements ChangeCountable {
   public boolean
   matches(Name.Component component)
   {
-    for (int i = 0; i < entries_.size(); ++i) {
-      if (get(i).getType() == Exclude.Type.ANY) {
-        Entry lowerBound = null;
-        if (i > 0)
-          lowerBound = get(i - 1);
-
-        // Find the upper bound, possibly skipping over multiple ANY in a row.
-        int iUpperBound;
-        Entry upperBound = null;
-        for (iUpperBound = i + 1; iUpperBound < entries_.size(); ++iUpperBound) {
-          if (get(iUpperBound).getType() == Exclude.Type.COMPONENT) {
-            upperBound = get(iUpperBound);
-            break;
-          }
-        }
+    Ranges ranges = getRanges();
+    int i = ranges.findLowAtOrBefore(component);
+    if (i < 0)
+      // The component is before the first range.
+      return false;
 
-        // If lowerBound != null, we already checked component equals lowerBound on the last pass.
-        // If upperBound != null, we will check component equals upperBound on the next pass.
-        if (upperBound != null) {
-          if (lowerBound != null) {
-            if (component.compare(lowerBound.getComponent()) > 0 &&
-                component.compare(upperBound.getComponent()) < 0)
-              return true;
-          }
-          else {
-            if (component.compare(upperBound.getComponent()) < 0)
-              return true;
-          }
-
-          // Make i equal iUpperBound on the next pass.
-          i = iUpperBound - 1;
-        }
-        else {
-          if (lowerBound != null) {
-            if (component.compare(lowerBound.getComponent()) > 0)
-              return true;
-          }
-          else
-            // entries_ has only ANY.
-            return true;
-        }
-      }
-      else {
-        if (component.equals(get(i).getComponent()))
-          return true;
-      }
+    Name.Component high = ranges.highs_[i];
+    return high == null || component.compare(high) <= 0;
+  }
+
+  /**
+   * Exclude the given component, merging with existing ranges if needed. This
+   * sets the entries to the canonical form, sorted without overlapping ranges.
+   * @param component The component to exclude.
+   * @return This Exclude so that you can chain calls to update values.
+   */
+  public final Exclude
+  excludeOne(Name.Component component)
+  {
+    return insertRange(component, component);
+  }
+
+  /**
+   * Exclude all components up to and including the given component, merging
+   * with existing ranges if needed. This sets the entries to the canonical
+   * form, sorted without overlapping ranges.
+   * @param to The last component in the exclude range.
+   * @return This Exclude so that you can chain calls to update values.
+   */
+  public final Exclude
+  excludeBefore(Name.Component to)
+  {
+    return insertRange(null, to);
+  }
+
+  /**
+   * Exclude all components starting from and including the given component,
+   * merging with existing ranges if needed. This sets the entries to the
+   * canonical form, sorted without overlapping ranges.
+   * @param from The first component in the exclude range.
+   * @return This Exclude so that you can chain calls to update values.
+   */
+  public final Exclude
+  excludeAfter(Name.Component from)
+  {
+    return insertRange(from, null);
+  }
+
+  /**
+   * Exclude all components in the range beginning at "from" and ending at
+   * "to", including both, merging with existing ranges if needed. This sets
+   * the entries to the canonical form, sorted without overlapping ranges.
+   * @param from The first component in the exclude range.
+   * @param to The last component in the exclude range.
+   * @return This Exclude so that you can chain calls to update values.
+   * @throws Error If from is not less than to.
+   */
+  public final Exclude
+  excludeRange(Name.Component from, Name.Component to)
+  {
+    if (from.compare(to) >= 0) {
+      if (from.compare(to) == 0)
+        throw new Error
+          ("excludeRange: from == to. To exclude a single component, use excludeOne.");
+      else
+        throw new Error
+          ("excludeRange: from must be less than to. Invalid range: [" +
+           from.toEscapedString() + ", " + to.toEscapedString() + "]");
     }
 
-    return false;
+    return insertRange(from, to);
   }
 
   /**
@@ -236,6 +270,213 @@ public class Exclude implements ChangeCountable {
   public final long
   getChangeCount() { return changeCount_; }
 
+  /**
+   * Make this Exclude read-only so that a later call to appendAny or another
+   * method which changes it throws an Error. To change it, make a copy with
+   * new Exclude(exclude) which is not frozen.
+   */
+  public final void
+  freeze() { frozen_ = true; }
+
+  /**
+   * Check if freeze() was called.
+   * @return True if this Exclude is frozen.
+   */
+  public final boolean
+  isFrozen() { return frozen_; }
+
+  /**
+   * Ranges holds the excluded components as sorted, non-overlapping closed
+   * ranges. A null low means the range has no lower bound, and a null high
+   * means the range has no upper bound. This is not changed after it is
+   * created so that matches can use it without a lock.
+   */
+  private static class Ranges {
+    public Ranges(ArrayList<Name.Component[]> ranges, long changeCount)
+    {
+      lows_ = new Name.Component[ranges.size()];
+      highs_ = new Name.Component[ranges.size()];
+      for (int i = 0; i < ranges.size(); ++i) {
+        lows_[i] = ranges.get(i)[0];
+        highs_[i] = ranges.get(i)[1];
+      }
+      changeCount_ = changeCount;
+    }
+
+    /**
+     * Find the last range whose low is less than or equal to the component.
+     * @param component The component to search for.
+     * @return The index of the range, or -1 if the component is before the
+     * first range.
+     */
+    public final int
+    findLowAtOrBefore(Name.Component component)
+    {
+      int result = -1;
+      int lower = 0;
+      int upper = lows_.length - 1;
+      while (lower <= upper) {
+        int middle = (lower + upper) >>> 1;
+        if (lows_[middle] == null || lows_[middle].compare(component) <= 0) {
+          result = middle;
+          lower = middle + 1;
+        }
+        else
+          upper = middle - 1;
+      }
+
+      return result;
+    }
+
+    public final Name.Component[] lows_;
+    public final Name.Component[] highs_;
+    public final long changeCount_;
+  }
+
+  /**
+   * Get the Ranges for the current entries, computing them if the entries
+   * have changed.
+   * @return The Ranges.
+   */
+  private Ranges
+  getRanges()
+  {
+    Ranges ranges = ranges_;
+    if (ranges != null && ranges.changeCount_ == changeCount_)
+      return ranges;
+
+    // Each COMPONENT excludes itself, and each run of ANY excludes the
+    // components between the COMPONENT entries on either side. The entries
+    // may not be sorted.
+    ArrayList<Name.Component[]> rangeList = new ArrayList<Name.Component[]>();
+    int i = 0;
+    while (i < entries_.size()) {
+      if (entries_.get(i).getType() == Type.COMPONENT) {
+        Name.Component component = entries_.get(i).getComponent();
+        rangeList.add(new Name.Component[] { component, component });
+        ++i;
+        continue;
+      }
+
+      int iEnd = i;
+      while (iEnd < entries_.size() &&
+             entries_.get(iEnd).getType() == Type.ANY)
+        ++iEnd;
+      Name.Component low = i > 0 ? entries_.get(i - 1).getComponent() : null;
+      Name.Component high =
+        iEnd < entries_.size() ? entries_.get(iEnd).getComponent() : null;
+      // If low is not less than high, only low and high are excluded, which
+      // are already added as COMPONENT entries.
+      if (low == null || high == null || low.compare(high) < 0)
+        rangeList.add(new Name.Component[] { low, high });
+      i = iEnd;
+    }
+
+    Collections.sort(rangeList, lowComparator_);
+    ranges = new Ranges(mergeRanges(rangeList), changeCount_);
+    ranges_ = ranges;
+    return ranges;
+  }
+
+  /**
+   * Insert the range into the Ranges, merge overlapping ranges and set the
+   * entries to the canonical form of the result.
+   * @param low The first component of the range, or null for no lower bound.
+   * @param high The last component of the range, or null for no upper bound.
+   * @return This Exclude.
+   */
+  private Exclude
+  insertRange(Name.Component low, Name.Component high)
+  {
+    checkNotFrozen();
+    Ranges ranges = getRanges();
+
+    ArrayList<Name.Component[]> rangeList =
+      new ArrayList<Name.Component[]>(ranges.lows_.length + 1);
+    for (int i = 0; i < ranges.lows_.length; ++i)
+      rangeList.add(new Name.Component[] { ranges.lows_[i], ranges.highs_[i] });
+    // Insert after the ranges with the same or lower low to keep it sorted.
+    int iInsert = low == null ? 0 : ranges.findLowAtOrBefore(low) + 1;
+    rangeList.add(iInsert, new Name.Component[] { low, high });
+    rangeList = mergeRanges(rangeList);
+
+    entries_.clear();
+    for (int i = 0; i < rangeList.size(); ++i) {
+      Name.Component rangeLow = rangeList.get(i)[0];
+      Name.Component rangeHigh = rangeList.get(i)[1];
+      if (rangeLow != null)
+        entries_.add(new Entry(rangeLow));
+      if (rangeLow == null || rangeHigh == null || !rangeLow.equals(rangeHigh)) {
+        entries_.add(new Entry());
+        if (rangeHigh != null)
+          entries_.add(new Entry(rangeHigh));
+      }
+    }
+    ++changeCount_;
+
+    ranges_ = new Ranges(rangeList, changeCount_);
+    return this;
+  }
+
+  /**
+   * Merge the ranges which overlap or touch.
+   * @param sortedRanges The ranges sorted by low, where null is first.
+   * @return A new list of the merged ranges.
+   */
+  private static ArrayList<Name.Component[]>
+  mergeRanges(ArrayList<Name.Component[]> sortedRanges)
+  {
+    ArrayList<Name.Component[]> result = new ArrayList<Name.Component[]>();
+    Name.Component[] current = null;
+    for (int i = 0; i < sortedRanges.size(); ++i) {
+      Name.Component[] range = sortedRanges.get(i);
+      if (current == null) {
+        current = new Name.Component[] { range[0], range[1] };
+        continue;
+      }
+
+      if (current[1] == null)
+        // The current range has no upper bound, so it includes the rest.
+        break;
+      if (range[0] == null || range[0].compare(current[1]) <= 0) {
+        // The range overlaps or touches the current range.
+        if (range[1] == null || range[1].compare(current[1]) > 0)
+          current[1] = range[1];
+      }
+      else {
+        result.add(current);
+        current = new Name.Component[] { range[0], range[1] };
+      }
+    }
+    if (current != null)
+      result.add(current);
+
+    return result;
+  }
+
+  private void
+  checkNotFrozen()
+  {
+    if (frozen_)
+      throw new Error("Cannot change a frozen Exclude");
+  }
+
   private final ArrayList<Entry> entries_;
   private long changeCount_ = 0;
+  private boolean frozen_ = false;
+  private Ranges ranges_ = null;
+
+  private static final Comparator<Name.Component[]> lowComparator_ =
+    new Comparator<Name.Component[]>() {
+      public int
+      compare(Name.Component[] range1, Name.Component[] range2)
+      {
+        // A null low has no lower bound, so it is first.
+        if (range1[0] == null)
+          return range2[0] == null ? 0 : -1;
+        if (range2[0] == null)
+          return 1;
+        return range1[0].compare(range2[0]);
+      }
+    };
 }
@@ -19,16 +19,22 @@
 
 package net.named_data.jndn;
 
+import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.Executor;
 import net.named_data.jndn.encoding.EncodingException;
 import net.named_data.jndn.encoding.WireFormat;
 import net.named_data.jndn.security.KeyChain;
 import net.named_data.jndn.security.SecurityException;
 import net.named_data.jndn.transport.TcpTransport;
 import net.named_data.jndn.transport.Transport;
+import net.named_data.jndn.transport.UnixTransport;
 import net.named_data.jndn.util.Blob;
 import net.named_data.jndn.util.Common;
+import net.named_data.jndn.util.DataCache;
+import net.named_data.jndn.util.Metrics;
 
 /**
  * The Face class provides the main methods for NDN communication.
@@ -70,13 +76,21 @@ public class Face {
   }
 
   /**
-   * Create a new Face for communication with an NDN hub at "localhost" using the
-   * default port 6363 and the default TcpTransport.
+   * Create a new Face for communication with the local NDN hub. If this Java
+   * version supports Unix-domain sockets and the NFD socket file
+   * UnixTransport.DEFAULT_FILE_PATH exists, then use a UnixTransport. Otherwise
+   * use the default TcpTransport to "localhost" with the default port 6363.
    */
   public Face()
   {
-    node_ = new Node
-      (new TcpTransport(), new TcpTransport.ConnectionInfo("localhost", 6363));
+    if (UnixTransport.getIsSupported() &&
+        new File(UnixTransport.DEFAULT_FILE_PATH).exists())
+      node_ = new Node
+        (new UnixTransport(),
+         new UnixTransport.ConnectionInfo(UnixTransport.DEFAULT_FILE_PATH));
+    else
+      node_ = new Node
+        (new TcpTransport(), new TcpTransport.ConnectionInfo("localhost", 6363));
   }
 
   /**
@@ -742,6 +756,78 @@ public class Face {
     node_.removePendingInterest(pendingInterestId);
   }
 
+  /**
+   * Enable or disable Interest aggregation. When enabled, if expressInterest is
+   * called with an Interest which has the same name and selectors as one
+   * already sent on this face that has not been satisfied or expired, the
+   * Interest is not sent again. Instead, every matching caller's onData or
+   * onNetworkNack is called from the one received Data or network Nack. Each
+   * caller's onTimeout is still called according to its own Interest lifetime
+   * and, if its lifetime is longer than the sent Interest, the Interest is
+   * sent again when the sent one expires. This is disabled by default.
+   * @param interestAggregation True to enable Interest aggregation.
+   */
+  public void
+  setInterestAggregation(boolean interestAggregation)
+  {
+    node_.setInterestAggregation(interestAggregation);
+  }
+
+  /**
+   * Check if Interest aggregation is enabled.
+   * @return True if setInterestAggregation(true) was called.
+   */
+  public boolean
+  getInterestAggregation() { return node_.getInterestAggregation(); }
+
+  /**
+   * Enable a consumer-side cache of received Data packets, or disable it.
+   * When enabled, expressInterest first checks the cache and, if a cached Data
+   * satisfies the Interest (including its ChildSelector, Exclude and
+   * MustBeFresh), calls onData before returning without sending the Interest.
+   * Otherwise the Data received for the Interest is added to the cache. The
+   * least recently used Data is evicted when the cache is full. Use
+   * getDataCache() to get the hit and miss counts. This is disabled by default.
+   * @param maxBytes The maximum total size in bytes of the cached Data packets.
+   * If 0, disable the Data cache. This replaces any existing cache.
+   */
+  public void
+  setDataCacheCapacity(long maxBytes)
+  {
+    node_.setDataCacheCapacity(maxBytes);
+  }
+
+  /**
+   * Get the Data cache enabled by setDataCacheCapacity.
+   * @return The DataCache, or null if the Data cache is disabled.
+   */
+  public DataCache
+  getDataCache() { return node_.getDataCache(); }
+
+  /**
+   * Set the Metrics which is updated on the packet processing paths, for
+   * example with the number of Interests sent, Data and Nacks received,
+   * timeouts, the pending interest table size, the Interest round-trip time,
+   * the callback execution time and the bytes sent and received by the
+   * transport. To collect the values, use a MetricsRecorder and call its
+   * getSnapshot, or use your own subclass of Metrics. By default, this is
+   * Metrics.NONE which ignores the updates.
+   * @param metrics The Metrics object, or Metrics.NONE to not record.
+   */
+  public void
+  setMetrics(Metrics metrics)
+  {
+    node_.setMetrics(metrics);
+  }
+
+  /**
+   * Get the Metrics given to setMetrics.
+   * @return The Metrics object, which is Metrics.NONE if setMetrics was not
+   * called.
+   */
+  public Metrics
+  getMetrics() { return node_.getMetrics(); }
+
   /**
    * Set the KeyChain and certificate name used to sign command interests
    * (e.g. for registerPrefix).
@@ -1217,6 +1303,85 @@ public class Face {
        WireFormat.getDefaultWireFormat());
   }
 
+  /**
+   * Register each prefix in the list with the connected NDN hub, as with
+   * registerPrefix, and call onComplete when all have succeeded or failed. To
+   * register with NFD, you must first call setCommandSigningInfo. This makes
+   * the command interests in order, signs them (in parallel if signingExecutor
+   * is not null), then pipelines them to the forwarder keeping at most
+   * maxInFlight commands waiting for a response, instead of waiting for each
+   * response before sending the next command.
+   * @param prefixes The list of Name for the prefixes to register. This copies
+   * each Name.
+   * (Use List without generics so it works with older Java compilers.)
+   * @param onInterest If not null, this creates an interest filter for each
+   * prefix which is registered, as with registerPrefix.
+   * NOTE: The library will log any exceptions thrown by this callback, but for
+   * better error handling the callback should catch and properly handle any
+   * exceptions.
+   * @param onComplete This calls onComplete.onRegisterPrefixesComplete
+   * (registeredPrefixes, failedPrefixes) when a response or failure has been
+   * received for every prefix.
+   * NOTE: The library will log any exceptions thrown by this callback, but for
+   * better error handling the callback should catch and properly handle any
+   * exceptions.
+   * @param flags The flags for finer control of which interests are forwarded
+   * to the application.
+   * @param maxInFlight The maximum number of command interests waiting for a
+   * response.
+   * @param signingExecutor If not null, use this to sign the command interests
+   * in parallel. This waits for the signing, so the calling thread must not be
+   * one of the executor's threads. If null, sign in the calling thread.
+   * @param wireFormat A WireFormat object used to encode the message.
+   * @return An array of the registered prefix IDs, in the order of prefixes,
+   * which can be used with removeRegisteredPrefix.
+   */
+  public long[]
+  registerPrefixes
+    (List prefixes, OnInterestCallback onInterest,
+     OnRegisterPrefixesComplete onComplete, ForwardingFlags flags,
+     int maxInFlight, Executor signingExecutor, WireFormat wireFormat)
+  {
+    long[] registeredPrefixIds = new long[prefixes.size()];
+    for (int i = 0; i < registeredPrefixIds.length; ++i)
+      registeredPrefixIds[i] = node_.getNextEntryId();
+
+    node_.registerPrefixes
+      (registeredPrefixIds, prefixes, onInterest, onComplete, flags,
+       maxInFlight, signingExecutor, wireFormat, commandKeyChain_,
+       commandCertificateName_, this);
+
+    return registeredPrefixIds;
+  }
+
+  /**
+   * Register each prefix in the list with the connected NDN hub, as with
+   * registerPrefix, and call onComplete when all have succeeded or failed.
+   * This signs in the calling thread, keeps at most
+   * DEFAULT_REGISTER_MAX_IN_FLIGHT commands waiting for a response, and uses
+   * the default ForwardingFlags and WireFormat. See registerPrefixes with all
+   * the arguments for details.
+   * @param prefixes The list of Name for the prefixes to register. This copies
+   * each Name.
+   * (Use List without generics so it works with older Java compilers.)
+   * @param onInterest If not null, this creates an interest filter for each
+   * prefix which is registered.
+   * @param onComplete This calls onComplete.onRegisterPrefixesComplete
+   * (registeredPrefixes, failedPrefixes) when a response or failure has been
+   * received for every prefix.
+   * @return An array of the registered prefix IDs, in the order of prefixes,
+   * which can be used with removeRegisteredPrefix.
+   */
+  public long[]
+  registerPrefixes
+    (List prefixes, OnInterestCallback onInterest,
+     OnRegisterPrefixesComplete onComplete)
+  {
+    return registerPrefixes
+      (prefixes, onInterest, onComplete, new ForwardingFlags(),
+       DEFAULT_REGISTER_MAX_IN_FLIGHT, null, WireFormat.getDefaultWireFormat());
+  }
+
   /**
    * Remove the registered prefix entry with the registeredPrefixId from the
    * registered prefix table. This does not affect another registered prefix with
@@ -1428,6 +1593,11 @@ public class Face {
     }
   }
 
+  /**
+   * The default maxInFlight for registerPrefixes.
+   */
+  public static final int DEFAULT_REGISTER_MAX_IN_FLIGHT = 16;
+
   protected final Node node_;
   protected KeyChain commandKeyChain_ = null;
   protected Name commandCertificateName_ = new Name();
@@ -0,0 +1,282 @@
+/**
+ * Copyright (C) 2017 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+package net.named_data.jndn;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A FaceEventLoop owns a Face and runs a dedicated thread which calls
+ * processEvents and expresses the Interests given to fetch and fetchAsync.
+ * Since only this thread uses the Face, any number of application threads
+ * (including virtual threads) can call the blocking fetch with straight-line
+ * code. Each waiting thread parks on its FetchFuture, so there is no executor
+ * or spinning per request. For example:
+ *
+ * FaceEventLoop loop = new FaceEventLoop(new Face("localhost"));
+ * loop.start();
+ * Data data = loop.fetch(new Interest(new Name("/example/data")));
+ *
+ * Other uses of the Face, such as registerPrefix, should be done before start
+ * or in a callback called by the loop thread.
+ *
+ * Since Face.processEvents does not block, the thread is a polling loop. When
+ * there is nothing to express, it waits up to POLL_INTERVAL_NANOSECONDS before
+ * calling processEvents again, so an idle loop wakes about 1000 times per
+ * second and a received packet may wait that long to be processed. fetchAsync
+ * wakes the thread immediately.
+ */
+public class FaceEventLoop implements Runnable {
+  /**
+   * Create a FaceEventLoop for the face. You must call start().
+   * @param face The Face which is used only by the loop thread after start.
+   */
+  public FaceEventLoop(Face face)
+  {
+    face_ = face;
+  }
+
+  /**
+   * Start the loop thread as a daemon thread. If already started, do nothing.
+   */
+  public synchronized void
+  start()
+  {
+    if (thread_ != null)
+      return;
+
+    isRunning_ = true;
+    thread_ = new Thread(this, "FaceEventLoop");
+    thread_.setDaemon(true);
+    thread_.start();
+  }
+
+  /**
+   * Stop the loop thread and wait for it to finish. This does not shut down
+   * the Face. Fetches which have not completed are completed as timed out, so
+   * that a thread waiting in fetch returns null.
+   * @throws InterruptedException If interrupted while waiting for the thread.
+   */
+  public void
+  stop() throws InterruptedException
+  {
+    Thread thread;
+    synchronized (this) {
+      thread = thread_;
+      thread_ = null;
+      isRunning_ = false;
+    }
+    if (thread != null) {
+      LockSupport.unpark(thread);
+      thread.join();
+    }
+  }
+
+  /**
+   * Queue the Interest to be expressed by the loop thread and return
+   * immediately.
+   * @param interest The Interest to express. This copies the Interest.
+   * @return A FetchFuture which completes when the Data, a timeout or a
+   * network Nack is received, or as timed out if the loop is stopped.
+   * @throws Error If the loop is not running.
+   */
+  public FetchFuture
+  fetchAsync(Interest interest)
+  {
+    return fetchAsync(interest, new FetchFuture());
+  }
+
+  /**
+   * Queue the Interest to be expressed by the loop thread and return
+   * immediately. This is the same as fetchAsync(interest) except that the
+   * result is given to the supplied future, which may be a subclass that
+   * overrides onCompleted.
+   * @param interest The Interest to express. This copies the Interest.
+   * @param future A new FetchFuture which has not been completed.
+   * @return The given future.
+   * @throws Error If the loop is not running.
+   */
+  public FetchFuture
+  fetchAsync(Interest interest, FetchFuture future)
+  {
+    if (!isRunning_)
+      throw new Error
+        ("FaceEventLoop.fetchAsync: The loop is not running. Call start().");
+
+    requests_.add(new Request(new Interest(interest), future));
+    if (!isRunning_) {
+      // stop was called concurrently and may have already drained the queue.
+      timeOutRequests();
+      return future;
+    }
+
+    // Wake up the loop thread if it is idle.
+    Thread thread = thread_;
+    if (thread != null)
+      LockSupport.unpark(thread);
+
+    return future;
+  }
+
+  /**
+   * Express the Interest and wait for the result.
+   * @param interest The Interest to express. This copies the Interest.
+   * @return The received Data, or null if the Interest timed out or received
+   * a network Nack, or if the loop was stopped. Use fetchAsync to get the
+   * reason.
+   * @throws Error If the loop is not running.
+   * @throws InterruptedException If the calling thread is interrupted while
+   * waiting.
+   */
+  public Data
+  fetch(Interest interest) throws InterruptedException
+  {
+    FetchFuture future = fetchAsync(interest);
+    try {
+      return future.get();
+    } catch (ExecutionException ex) {
+      return null;
+    }
+  }
+
+  /**
+   * Get the Face given to the constructor.
+   * @return The Face.
+   */
+  public final Face
+  getFace() { return face_; }
+
+  /**
+   * Run the loop. This is called by the thread made by start. When stopped,
+   * this completes all fetches which have not completed as timed out.
+   */
+  public void
+  run()
+  {
+    while (isRunning_) {
+      boolean expressed = false;
+      while (true) {
+        Request request = requests_.poll();
+        if (request == null)
+          break;
+        expressed = true;
+
+        try {
+          outstanding_.add(request);
+          face_.expressInterest(request.interest_, request, request, request);
+        } catch (Throwable ex) {
+          logger_.log(Level.SEVERE, "Error in expressInterest", ex);
+          outstanding_.remove(request);
+          request.future_.onTimeout(request.interest_);
+        }
+      }
+
+      try {
+        face_.processEvents();
+      } catch (Throwable ex) {
+        // Need to catch and log exceptions at this async entry point.
+        logger_.log(Level.SEVERE, "Error in processEvents", ex);
+      }
+
+      if (!expressed && requests_.isEmpty())
+        // fetchAsync unparks this thread, so only the receive is delayed.
+        LockSupport.parkNanos(POLL_INTERVAL_NANOSECONDS);
+    }
+
+    // The Face is no longer processed, so pending Interests won't complete.
+    for (Iterator<Request> i = outstanding_.iterator(); i.hasNext(); ) {
+      Request request = i.next();
+      i.remove();
+      request.future_.onTimeout(request.interest_);
+    }
+    timeOutRequests();
+  }
+
+  /**
+   * Remove all queued requests and complete their futures as timed out.
+   */
+  private void
+  timeOutRequests()
+  {
+    while (true) {
+      Request request = requests_.poll();
+      if (request == null)
+        break;
+      request.future_.onTimeout(request.interest_);
+    }
+  }
+
+  /**
+   * A Request holds a queued Interest and its future. It is passed as the
+   * callbacks to expressInterest so that the loop thread can remove it from
+   * outstanding_ before completing the future.
+   */
+  private class Request implements OnData, OnTimeout, OnNetworkNack {
+    public Request(Interest interest, FetchFuture future)
+    {
+      interest_ = interest;
+      future_ = future;
+    }
+
+    public void
+    onData(Interest interest, Data data)
+    {
+      outstanding_.remove(this);
+      future_.onData(interest, data);
+    }
+
+    public void
+    onTimeout(Interest interest)
+    {
+      outstanding_.remove(this);
+      future_.onTimeout(interest);
+    }
+
+    public void
+    onNetworkNack(Interest interest, NetworkNack networkNack)
+    {
+      outstanding_.remove(this);
+      future_.onNetworkNack(interest, networkNack);
+    }
+
+    public final Interest interest_;
+    public final FetchFuture future_;
+  }
+
+  /**
+   * The maximum time that the idle loop waits before calling processEvents.
+   */
+  public static final long POLL_INTERVAL_NANOSECONDS = 1000000L;
+
+  private final Face face_;
+  private final ConcurrentLinkedQueue<Request> requests_ =
+    new ConcurrentLinkedQueue<Request>();
+  // The expressed requests which have not completed. Only the loop thread
+  // uses this.
+  private final HashSet<Request> outstanding_ = new HashSet<Request>();
+  private volatile Thread thread_ = null;
+  private volatile boolean isRunning_ = false;
+  private static final Logger logger_ = Logger.getLogger
+    (FaceEventLoop.class.getName());
+}
@@ -0,0 +1,200 @@
+/**
+ * Copyright (C) 2017 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+package net.named_data.jndn;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A FetchFuture is the Future result of expressing an Interest. It implements
+ * OnData, OnTimeout and OnNetworkNack so that it can be passed as the callbacks
+ * to Face.expressInterest, and it completes when the first of them is called.
+ * A thread which calls get() waits using java.util.concurrent parking (not a
+ * monitor), so it is suitable for a large number of waiting threads. See
+ * FaceEventLoop.fetchAsync.
+ */
+public class FetchFuture
+  implements Future<Data>, OnData, OnTimeout, OnNetworkNack {
+  /**
+   * Complete this future with the Data.
+   * @param interest The Interest which was expressed.
+   * @param data The received Data.
+   */
+  public void
+  onData(Interest interest, Data data)
+  {
+    if (!state_.compareAndSet(PENDING, DATA))
+      return;
+    data_ = data;
+    done_.countDown();
+    onCompleted();
+  }
+
+  /**
+   * Complete this future with a timeout.
+   * @param interest The Interest which was expressed.
+   */
+  public void
+  onTimeout(Interest interest)
+  {
+    if (!state_.compareAndSet(PENDING, TIMED_OUT))
+      return;
+    done_.countDown();
+    onCompleted();
+  }
+
+  /**
+   * Complete this future with a network Nack.
+   * @param interest The Interest which was expressed.
+   * @param networkNack The received network Nack.
+   */
+  public void
+  onNetworkNack(Interest interest, NetworkNack networkNack)
+  {
+    if (!state_.compareAndSet(PENDING, NETWORK_NACK))
+      return;
+    networkNack_ = networkNack;
+    done_.countDown();
+    onCompleted();
+  }
+
+  /**
+   * Mark this future as cancelled and release any waiting threads. This does
+   * not remove the pending Interest, which will still time out.
+   * @param mayInterruptIfRunning This is ignored.
+   * @return False if this future has already completed, otherwise true.
+   */
+  public boolean
+  cancel(boolean mayInterruptIfRunning)
+  {
+    if (!state_.compareAndSet(PENDING, CANCELLED))
+      return false;
+    done_.countDown();
+    onCompleted();
+    return true;
+  }
+
+  public boolean
+  isCancelled() { return state_.get() == CANCELLED; }
+
+  public boolean
+  isDone() { return done_.getCount() == 0; }
+
+  /**
+   * Wait until this future completes and return the Data.
+   * @return The received Data.
+   * @throws InterruptedException If the waiting thread is interrupted.
+   * @throws ExecutionException If the Interest timed out or received a network
+   * Nack. The cause is an IOException with the reason.
+   * @throws java.util.concurrent.CancellationException If this future was
+   * cancelled.
+   */
+  public Data
+  get() throws InterruptedException, ExecutionException
+  {
+    done_.await();
+    return getResult();
+  }
+
+  /**
+   * Wait until this future completes or the timeout and return the Data.
+   * @param timeout The maximum time to wait.
+   * @param unit The unit of timeout.
+   * @return The received Data.
+   * @throws InterruptedException If the waiting thread is interrupted.
+   * @throws ExecutionException If the Interest timed out or received a network
+   * Nack. The cause is an IOException with the reason.
+   * @throws TimeoutException If this future did not complete within timeout.
+   */
+  public Data
+  get(long timeout, TimeUnit unit)
+    throws InterruptedException, ExecutionException, TimeoutException
+  {
+    if (!done_.await(timeout, unit))
+      throw new TimeoutException("FetchFuture.get: The wait timed out");
+    return getResult();
+  }
+
+  /**
+   * Check if the Interest timed out.
+   * @return True if this completed with onTimeout.
+   */
+  public final boolean
+  getIsTimedOut() { return state_.get() == TIMED_OUT; }
+
+  /**
+   * Get the network Nack if one was received.
+   * @return The NetworkNack, or null if this did not complete with
+   * onNetworkNack.
+   */
+  public final NetworkNack
+  getNetworkNack() { return networkNack_; }
+
+  /**
+   * Get the Data if one was received, without waiting.
+   * @return The Data, or null if this did not complete with onData.
+   */
+  public final Data
+  getData() { return data_; }
+
+  /**
+   * This is called once by the thread which completes this future, after
+   * threads waiting in get() are released. The default does nothing. A subclass
+   * can override this to pass the result to another completion mechanism, for
+   * example a CompletableFuture. This must not block since it may be called by
+   * the FaceEventLoop thread.
+   */
+  protected void
+  onCompleted()
+  {
+  }
+
+  private Data
+  getResult() throws ExecutionException
+  {
+    int state = state_.get();
+    if (state == DATA)
+      return data_;
+    if (state == CANCELLED)
+      throw new java.util.concurrent.CancellationException();
+    if (state == NETWORK_NACK)
+      throw new ExecutionException(new IOException
+        ("Received a network Nack with reason " + networkNack_.getReason()));
+    throw new ExecutionException(new IOException("The Interest timed out"));
+  }
+
+  private static final int PENDING = 0;
+  private static final int DATA = 1;
+  private static final int TIMED_OUT = 2;
+  private static final int NETWORK_NACK = 3;
+  private static final int CANCELLED = 4;
+
+  // Only the callback or cancel which changes state_ from PENDING completes
+  // this future. The winner writes its field before countDown, and get reads
+  // it after await, which establishes the happens-before relation.
+  private final AtomicInteger state_ = new AtomicInteger(PENDING);
+  private volatile Data data_ = null;
+  private volatile NetworkNack networkNack_ = null;
+  private final CountDownLatch done_ = new CountDownLatch(1);
+}
@@ -20,7 +20,6 @@
 package net.named_data.jndn;
 
 import java.nio.ByteBuffer;
-import java.util.Random;
 
 import net.named_data.jndn.encoding.EncodingException;
 import net.named_data.jndn.encoding.WireFormat;
@@ -29,6 +28,7 @@ import net.named_data.jndn.lp.LpPacket;
 import net.named_data.jndn.util.Blob;
 import net.named_data.jndn.util.ChangeCountable;
 import net.named_data.jndn.util.ChangeCounter;
+import net.named_data.jndn.util.Common;
 import net.named_data.jndn.util.SignedBlob;
 
 /**
@@ -157,6 +157,7 @@ public class Interest implements ChangeCountable {
   wireDecodeHelper
     (ByteBuffer input, WireFormat wireFormat, boolean copy) throws EncodingException
   {
+    checkNotFrozen();
     int[] signedPortionBeginOffset = new int[1];
     int[] signedPortionEndOffset = new int[1];
     wireFormat.decodeInterest
@@ -322,6 +323,8 @@ public class Interest implements ChangeCountable {
       // Decode the link object from linkWireEncoding_.
       Link link = new Link();
       link.wireDecode(linkWireEncoding_, linkWireEncodingFormat_);
+      if (frozen_)
+        link.freeze();
       link_.set(link);
 
       // Clear linkWireEncoding_ since it is now managed by the link object.
@@ -396,6 +399,7 @@ public class Interest implements ChangeCountable {
   public final Interest
   setName(Name name)
   {
+    checkNotFrozen();
     name_.set(name == null ? new Name() : new Name(name));
     ++changeCount_;
     return this;
@@ -410,6 +414,7 @@ public class Interest implements ChangeCountable {
   public final Interest
   setMinSuffixComponents(int minSuffixComponents)
   {
+    checkNotFrozen();
     minSuffixComponents_ = minSuffixComponents;
     ++changeCount_;
     return this;
@@ -424,6 +429,7 @@ public class Interest implements ChangeCountable {
   public final Interest
   setMaxSuffixComponents(int maxSuffixComponents)
   {
+    checkNotFrozen();
     maxSuffixComponents_ = maxSuffixComponents;
     ++changeCount_;
     return this;
@@ -437,6 +443,7 @@ public class Interest implements ChangeCountable {
   public final Interest
   setChildSelector(int childSelector)
   {
+    checkNotFrozen();
     childSelector_ = childSelector;
     ++changeCount_;
     return this;
@@ -451,6 +458,7 @@ public class Interest implements ChangeCountable {
   public final Interest
   setMustBeFresh(boolean mustBeFresh)
   {
+    checkNotFrozen();
     mustBeFresh_ = mustBeFresh;
     ++changeCount_;
     return this;
@@ -465,6 +473,7 @@ public class Interest implements ChangeCountable {
   public final Interest
   setInterestLifetimeMilliseconds(double interestLifetimeMilliseconds)
   {
+    checkNotFrozen();
     interestLifetimeMilliseconds_ = interestLifetimeMilliseconds;
     ++changeCount_;
     return this;
@@ -477,6 +486,7 @@ public class Interest implements ChangeCountable {
   public final Interest
   setNonce(Blob nonce)
   {
+    checkNotFrozen();
     nonce_ = (nonce == null ? new Blob() : nonce);
     // Set getNonceChangeCount_ so that the next call to getNonce() won't
     //   clear nonce_.
@@ -496,6 +506,7 @@ public class Interest implements ChangeCountable {
   public final Interest
   setKeyLocator(KeyLocator keyLocator)
   {
+    checkNotFrozen();
     keyLocator_.set(keyLocator == null ? new KeyLocator() : new KeyLocator(keyLocator));
     ++changeCount_;
     return this;
@@ -512,6 +523,7 @@ public class Interest implements ChangeCountable {
   public final Interest
   setExclude(Exclude exclude)
   {
+    checkNotFrozen();
     exclude_.set(exclude == null ? new Exclude() : new Exclude(exclude));
     ++changeCount_;
     return this;
@@ -530,6 +542,7 @@ public class Interest implements ChangeCountable {
   public final Interest
   setLinkWireEncoding(Blob encoding, WireFormat wireFormat)
   {
+    checkNotFrozen();
     linkWireEncoding_ = encoding;
     linkWireEncodingFormat_ = wireFormat;
 
@@ -573,6 +586,7 @@ public class Interest implements ChangeCountable {
   public final Interest
   setSelectedDelegationIndex(int selectedDelegationIndex)
   {
+    checkNotFrozen();
     selectedDelegationIndex_ = selectedDelegationIndex;
     ++changeCount_;
     return this;
@@ -601,13 +615,14 @@ public class Interest implements ChangeCountable {
   public final void
   refreshNonce()
   {
+    checkNotFrozen();
     Blob currentNonce = getNonce();
     if (currentNonce.size() == 0)
       return;
 
     ByteBuffer newNonce = ByteBuffer.allocate(currentNonce.size());
     while (true) {
-      random_.nextBytes(newNonce.array());
+      Common.getNonceSource().nextBytes(newNonce.array());
       if (!newNonce.equals(currentNonce.buf()))
         break;
     }
@@ -628,22 +643,7 @@ public class Interest implements ChangeCountable {
   public final boolean
   matchesName(Name name)
   {
-    if (!getName().match(name))
-      return false;
-
-    if (minSuffixComponents_ >= 0 &&
-        // Add 1 for the implicit digest.
-        !(name.size() + 1 - getName().size() >= minSuffixComponents_))
-      return false;
-    if (maxSuffixComponents_ >= 0 &&
-        // Add 1 for the implicit digest.
-        !(name.size() + 1 - getName().size() <= maxSuffixComponents_))
-      return false;
-    if (getExclude().size() > 0 && name.size() > getName().size() &&
-        getExclude().matches(name.get(getName().size())))
-      return false;
-
-    return true;
+    return new InterestMatcher(this).matchesName(name);
   }
 
   /**
@@ -660,71 +660,8 @@ public class Interest implements ChangeCountable {
   public final boolean
   matchesData(Data data, WireFormat wireFormat) throws EncodingException
   {
-    // Imitate ndn-cxx Interest::matchesData.
-    int interestNameLength = getName().size();
-    Name dataName = data.getName();
-    int fullNameLength = dataName.size() + 1;
-
-    // Check MinSuffixComponents.
-    boolean hasMinSuffixComponents = getMinSuffixComponents() >= 0;
-    int minSuffixComponents = 
-      hasMinSuffixComponents ? getMinSuffixComponents() : 0;
-    if (!(interestNameLength + minSuffixComponents <= fullNameLength))
-      return false;
-
-    // Check MaxSuffixComponents.
-    boolean hasMaxSuffixComponents = getMaxSuffixComponents() >= 0;
-    if (hasMaxSuffixComponents &&
-        !(interestNameLength + getMaxSuffixComponents() >= fullNameLength))
-      return false;
-
-    // Check the prefix.
-    if (interestNameLength == fullNameLength) {
-      if (getName().get(-1).isImplicitSha256Digest()) {
-        if (!getName().equals(data.getFullName(wireFormat)))
-          return false;
-      }
-      else
-        // The Interest Name is the same length as the Data full Name, but the
-        //   last component isn't a digest so there's no possibility of matching.
-        return false;
-    }
-    else {
-      // The Interest Name should be a strict prefix of the Data full Name,
-      if (!getName().isPrefixOf(dataName))
-        return false;
-    }
-
-    // Check the Exclude.
-    // The Exclude won't be violated if the Interest Name is the same as the
-    //   Data full Name.
-    if (getExclude().size() > 0 && fullNameLength > interestNameLength) {
-      if (interestNameLength == fullNameLength - 1) {
-        // The component to exclude is the digest.
-        if (getExclude().matches
-            (data.getFullName(wireFormat).get(interestNameLength)))
-          return false;
-      }
-      else {
-        // The component to exclude is not the digest.
-        if (getExclude().matches(dataName.get(interestNameLength)))
-          return false;
-      }
-    }
-
-    // Check the KeyLocator.
-    KeyLocator publisherPublicKeyLocator = getKeyLocator();
-    if (publisherPublicKeyLocator.getType() != KeyLocatorType.NONE) {
-      Signature signature = data.getSignature();
-      if (!KeyLocator.canGetFromSignature(signature))
-        // No KeyLocator in the Data packet.
-        return false;
-      if (!publisherPublicKeyLocator.equals
-          (KeyLocator.getFromSignature(signature)))
-        return false;
-    }
-
-    return true;
+    return new InterestMatcher(this).matchesData
+      (new InterestMatcher.Candidate(data, wireFormat));
   }
 
   /**
@@ -776,6 +713,10 @@ public class Interest implements ChangeCountable {
   public final long
   getChangeCount()
   {
+    if (frozen_)
+      // The child objects are also frozen, so there is no need to check them.
+      return changeCount_;
+
     // Make sure each of the checkChanged is called.
     boolean changed = name_.checkChanged();
     changed = keyLocator_.checkChanged() || changed;
@@ -788,6 +729,49 @@ public class Interest implements ChangeCountable {
     return changeCount_;
   }
 
+  /**
+   * Make this Interest read-only so that a later call to setName or another
+   * method which changes it throws an Error. This also freezes the Name,
+   * KeyLocator, Exclude and Link, so that getChangeCount() no longer needs to
+   * check them for changes and getNonce() and getDefaultWireEncoding() return
+   * the cached values directly. This is useful for an Interest which is shared
+   * and only read, for example when matching it against many Data packets.
+   * To change the Interest, make a copy with new Interest(interest) which is
+   * not frozen.
+   * @return This Interest so that you can chain calls.
+   */
+  public final Interest
+  freeze()
+  {
+    if (frozen_)
+      return this;
+
+    getName().freeze();
+    getKeyLocator().freeze();
+    getExclude().freeze();
+    if (link_.get() != null)
+      ((Link)link_.get()).freeze();
+    // Update the change count and the cached values before skipping the checks.
+    getNonce();
+    getDefaultWireEncoding();
+    frozen_ = true;
+    return this;
+  }
+
+  /**
+   * Check if freeze() was called.
+   * @return True if this Interest is frozen.
+   */
+  public final boolean
+  isFrozen() { return frozen_; }
+
+  private void
+  checkNotFrozen()
+  {
+    if (frozen_)
+      throw new Error("Cannot change a frozen Interest");
+  }
+
   private void
   setDefaultWireEncoding
     (SignedBlob defaultWireEncoding, WireFormat defaultWireEncodingFormat)
@@ -818,5 +802,5 @@ public class Interest implements ChangeCountable {
   private WireFormat defaultWireEncodingFormat_;
   private long getDefaultWireEncodingChangeCount_ = 0;
   private long changeCount_ = 0;
-  private static final Random random_ = new Random();
+  private boolean frozen_ = false;
 }
@@ -0,0 +1,232 @@
+/**
+ * Copyright (C) 2017 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+package net.named_data.jndn;
+
+import net.named_data.jndn.encoding.EncodingException;
+import net.named_data.jndn.encoding.WireFormat;
+
+/**
+ * An InterestMatcher holds the selector values of an Interest, computed once,
+ * to check if many names or Data packets satisfy the Interest. For example,
+ * the pending interest table keeps an InterestMatcher for each entry to check
+ * an incoming Data packet. To check one Data packet against many
+ * InterestMatchers, make an InterestMatcher.Candidate for the Data so that
+ * the full name with the implicit digest is computed at most once. The
+ * Interest must not be changed after creating the InterestMatcher.
+ */
+public class InterestMatcher {
+  /**
+   * A Candidate holds a Data packet to check against one or more
+   * InterestMatchers. The Data packet's full name is computed the first time
+   * it is needed and then reused.
+   */
+  public static class Candidate {
+    /**
+     * Create a Candidate for the Data packet, using the given wire format for
+     * the full name.
+     * @param data The Data packet. This does not copy it, and you must not
+     * change it while using this Candidate.
+     * @param wireFormat A WireFormat object used to encode the Data packet to
+     * get its full name.
+     */
+    public Candidate(Data data, WireFormat wireFormat)
+    {
+      data_ = data;
+      wireFormat_ = wireFormat;
+    }
+
+    /**
+     * Create a Candidate for the Data packet, using the default wire format
+     * for the full name.
+     * @param data The Data packet. This does not copy it, and you must not
+     * change it while using this Candidate.
+     */
+    public Candidate(Data data)
+    {
+      this(data, WireFormat.getDefaultWireFormat());
+    }
+
+    /**
+     * Get the Data packet given to the constructor.
+     * @return The Data packet.
+     */
+    public final Data
+    getData() { return data_; }
+
+    /**
+     * Get the Data packet's full name, computing it only on the first call.
+     * @return The full name. You must not change the Name object.
+     * @throws EncodingException For error encoding the Data packet.
+     */
+    public final Name
+    getFullName() throws EncodingException
+    {
+      if (fullName_ == null)
+        fullName_ = data_.getFullName(wireFormat_);
+
+      return fullName_;
+    }
+
+    private final Data data_;
+    private final WireFormat wireFormat_;
+    private Name fullName_ = null;
+  }
+
+  /**
+   * Create an InterestMatcher for the given Interest.
+   * @param interest The Interest. This does not copy it, and you must not
+   * change it while using this InterestMatcher.
+   */
+  public InterestMatcher(Interest interest)
+  {
+    interest_ = interest;
+    name_ = interest.getName();
+    nameSize_ = name_.size();
+    nameHasImplicitDigest_ =
+      nameSize_ > 0 && name_.get(-1).isImplicitSha256Digest();
+
+    // Add 1 to the Data name size for the implicit digest.
+    int minSuffixComponents = interest.getMinSuffixComponents();
+    minFullNameSize_ = nameSize_ + (minSuffixComponents >= 0 ?
+      minSuffixComponents : 0);
+    int maxSuffixComponents = interest.getMaxSuffixComponents();
+    maxFullNameSize_ = maxSuffixComponents >= 0 ?
+      nameSize_ + maxSuffixComponents : Integer.MAX_VALUE;
+
+    exclude_ = interest.getExclude().size() > 0 ? interest.getExclude() : null;
+    keyLocator_ = interest.getKeyLocator().getType() != KeyLocatorType.NONE ?
+      interest.getKeyLocator() : null;
+  }
+
+  /**
+   * Get the Interest given to the constructor.
+   * @return The Interest.
+   */
+  public final Interest
+  getInterest() { return interest_; }
+
+  /**
+   * Check if the Interest's name matches the given name (using Name.match)
+   * and the given name also conforms to the interest selectors. This is the
+   * same as Interest.matchesName.
+   * @param name The name to check.
+   * @return True if the name and interest selectors match, otherwise false.
+   */
+  public final boolean
+  matchesName(Name name)
+  {
+    int fullNameSize = name.size() + 1;
+    if (fullNameSize < minFullNameSize_ || fullNameSize > maxFullNameSize_)
+      return false;
+    if (!name_.match(name))
+      return false;
+    if (exclude_ != null && name.size() > nameSize_ &&
+        exclude_.matches(name.get(nameSize_)))
+      return false;
+
+    return true;
+  }
+
+  /**
+   * Check if the candidate's Data packet can satisfy the Interest. This is the
+   * same as Interest.matchesData, except that the Data packet's full name is
+   * computed at most once for the Candidate.
+   * @param candidate The Candidate with the Data packet to check.
+   * @return True if the Data packet can satisfy the Interest.
+   * @throws EncodingException For error encoding the Data packet to get its
+   * full name.
+   */
+  public final boolean
+  matchesData(Candidate candidate) throws EncodingException
+  {
+    // Imitate ndn-cxx Interest::matchesData.
+    Data data = candidate.getData();
+    Name dataName = data.getName();
+    int fullNameSize = dataName.size() + 1;
+
+    // Check MinSuffixComponents and MaxSuffixComponents.
+    if (fullNameSize < minFullNameSize_ || fullNameSize > maxFullNameSize_)
+      return false;
+
+    // Check the prefix.
+    if (nameSize_ == fullNameSize) {
+      // The Interest name is the same length as the Data full name, so it can
+      // only match if the last component is the digest.
+      if (!nameHasImplicitDigest_ || !name_.equals(candidate.getFullName()))
+        return false;
+    }
+    else {
+      // The Interest name should be a strict prefix of the Data full name.
+      if (!name_.match(dataName))
+        return false;
+    }
+
+    // Check the Exclude. The Exclude won't be violated if the Interest name is
+    // the same as the Data full name.
+    if (exclude_ != null && fullNameSize > nameSize_) {
+      if (nameSize_ == fullNameSize - 1) {
+        // The component to exclude is the digest.
+        if (exclude_.matches(candidate.getFullName().get(nameSize_)))
+          return false;
+      }
+      else {
+        // The component to exclude is not the digest.
+        if (exclude_.matches(dataName.get(nameSize_)))
+          return false;
+      }
+    }
+
+    // Check the KeyLocator.
+    if (keyLocator_ != null) {
+      Signature signature = data.getSignature();
+      if (!KeyLocator.canGetFromSignature(signature))
+        // No KeyLocator in the Data packet.
+        return false;
+      if (!keyLocator_.equals(KeyLocator.getFromSignature(signature)))
+        return false;
+    }
+
+    return true;
+  }
+
+  /**
+   * Check if the given Data packet can satisfy the Interest, using the
+   * default wire format to get the full name if needed. To check the same
+   * Data packet against many InterestMatchers, use matchesData(Candidate).
+   * @param data The Data packet to check.
+   * @return True if the Data packet can satisfy the Interest.
+   * @throws EncodingException For error encoding the Data packet to get its
+   * full name.
+   */
+  public final boolean
+  matchesData(Data data) throws EncodingException
+  {
+    return matchesData(new Candidate(data));
+  }
+
+  private final Interest interest_;
+  private final Name name_;
+  private final int nameSize_;
+  private final boolean nameHasImplicitDigest_;
+  private final int minFullNameSize_;
+  private final int maxFullNameSize_;
+  private final Exclude exclude_; /**< null if the Exclude is empty. */
+  private final KeyLocator keyLocator_; /**< null if the type is NONE. */
+}
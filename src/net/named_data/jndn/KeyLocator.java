@@ -54,6 +54,7 @@ public class KeyLocator implements ChangeCountable {
   public final void
   setType(KeyLocatorType type)
   {
+    checkNotFrozen();
     type_ = type;
     ++changeCount_;
   }
@@ -61,6 +62,7 @@ public class KeyLocator implements ChangeCountable {
   public final void
   setKeyData(Blob keyData)
   {
+    checkNotFrozen();
     keyData_ = (keyData == null ? new Blob() : keyData);
     ++changeCount_;
   }
@@ -68,6 +70,7 @@ public class KeyLocator implements ChangeCountable {
   public final void
   setKeyName(Name keyName)
   {
+    checkNotFrozen();
     keyName_.set(keyName == null ? new Name() : new Name(keyName));
     ++changeCount_;
   }
@@ -78,6 +81,7 @@ public class KeyLocator implements ChangeCountable {
   public final void
   clear()
   {
+    checkNotFrozen();
     type_ = KeyLocatorType.NONE;
     keyData_ = new Blob();
     keyName_.set(new Name());
@@ -164,6 +168,10 @@ public class KeyLocator implements ChangeCountable {
   public final long
   getChangeCount()
   {
+    if (frozen_)
+      // The key name is also frozen, so there is no need to check it.
+      return changeCount_;
+
     if (keyName_.checkChanged())
       // A child object has changed, so update the change count.
       ++changeCount_;
@@ -171,6 +179,38 @@ public class KeyLocator implements ChangeCountable {
     return changeCount_;
   }
 
+  /**
+   * Make this KeyLocator and its key name read-only so that a later call to
+   * setType or another method which changes it throws an Error. After this,
+   * getChangeCount() does not check the key name for changes. To change it,
+   * make a copy with new KeyLocator(keyLocator) which is not frozen.
+   */
+  public final void
+  freeze()
+  {
+    if (frozen_)
+      return;
+
+    getKeyName().freeze();
+    // Update the change count from the key name before skipping the check.
+    getChangeCount();
+    frozen_ = true;
+  }
+
+  /**
+   * Check if freeze() was called.
+   * @return True if this KeyLocator is frozen.
+   */
+  public final boolean
+  isFrozen() { return frozen_; }
+
+  private void
+  checkNotFrozen()
+  {
+    if (frozen_)
+      throw new Error("Cannot change a frozen KeyLocator");
+  }
+
   private KeyLocatorType type_ = KeyLocatorType.NONE;
   private Blob keyData_ = new Blob(); /**< A Blob for the key data as follows:
     * If type_ is KeyLocatorType.KEY_LOCATOR_DIGEST, the digest data.
@@ -179,4 +219,5 @@ public class KeyLocator implements ChangeCountable {
     new ChangeCounter(new Name()); /**< The key name (only used if
                                         type_ KeyLocatorType.KEYNAME.) */
   private long changeCount_ = 0;
+  private boolean frozen_ = false;
 }
@@ -87,6 +87,7 @@ public class MetaInfo implements ChangeCountable {
   public final void
   setType(ContentType type)
   {
+    checkNotFrozen();
     type_ = type;
     ++changeCount_;
   }
@@ -101,6 +102,7 @@ public class MetaInfo implements ChangeCountable {
   public final void
   setOtherTypeCode(int otherTypeCode)
   {
+    checkNotFrozen();
     if (otherTypeCode < 0)
       throw new Error("MetaInfo other type code must be non-negative");
 
@@ -111,6 +113,7 @@ public class MetaInfo implements ChangeCountable {
   public final void
   setFreshnessPeriod(double freshnessPeriod)
   {
+    checkNotFrozen();
     freshnessPeriod_ = freshnessPeriod;
     ++changeCount_;
   }
@@ -128,6 +131,7 @@ public class MetaInfo implements ChangeCountable {
   public final void
   setFinalBlockId(Name.Component finalBlockId)
   {
+    checkNotFrozen();
     finalBlockId_ = (finalBlockId == null ? new Name.Component() : finalBlockId);
     ++changeCount_;
   }
@@ -148,9 +152,32 @@ public class MetaInfo implements ChangeCountable {
   public final long
   getChangeCount() { return changeCount_; }
 
+  /**
+   * Make this MetaInfo read-only so that a later call to setType or another
+   * method which changes it throws an Error. To change it, make a copy with
+   * new MetaInfo(metaInfo) which is not frozen.
+   */
+  public final void
+  freeze() { frozen_ = true; }
+
+  /**
+   * Check if freeze() was called.
+   * @return True if this MetaInfo is frozen.
+   */
+  public final boolean
+  isFrozen() { return frozen_; }
+
+  private void
+  checkNotFrozen()
+  {
+    if (frozen_)
+      throw new Error("Cannot change a frozen MetaInfo");
+  }
+
   private ContentType type_ = ContentType.BLOB; /**< default is ContentType.BLOB. */
   private int otherTypeCode_ = -1;
   private double freshnessPeriod_ = -1; /**< -1 for none */
   private Name.Component finalBlockId_ = new Name.Component(); /**< size 0 for none */
   private long changeCount_ = 0;
+  private boolean frozen_ = false;
 }
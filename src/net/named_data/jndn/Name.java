@@ -624,6 +624,11 @@ public class Name implements ChangeCountable, Comparable {
   Name(Name name)
   {
     components_ = new ArrayList<Component>(name.components_);
+    if (name.haveHashCode_ && name.hashCodeChangeCount_ == name.changeCount_) {
+      // The components are the same, so reuse the hash code.
+      hashCode_ = name.hashCode_;
+      haveHashCode_ = true;
+    }
   }
 
   /**
@@ -754,6 +759,7 @@ public class Name implements ChangeCountable, Comparable {
   public final void
   clear()
   {
+    checkNotFrozen();
     components_.clear();
     ++changeCount_;
   }
@@ -790,6 +796,7 @@ public class Name implements ChangeCountable, Comparable {
   public final Name
   append(Component component)
   {
+    checkNotFrozen();
     components_.add(component);
     ++changeCount_;
     return this;
@@ -1041,6 +1048,9 @@ public class Name implements ChangeCountable, Comparable {
 
   public int hashCode()
   {
+    if (frozen_ && haveHashCode_)
+      return hashCode_;
+
     if (hashCodeChangeCount_ != getChangeCount()) {
       // The values have changed, so the previous hash code is invalidated.
       haveHashCode_ = false;
@@ -1338,6 +1348,30 @@ public class Name implements ChangeCountable, Comparable {
   public final long
   getChangeCount() { return changeCount_; }
 
+  /**
+   * Make this Name read-only so that a later call to append, clear or another
+   * method which changes it throws an Error. This is useful for a Name which
+   * is shared, such as the name of a frozen Interest or Data. Since the
+   * components don't change, hashCode() returns the cached value without
+   * checking the change count. To change the name, make a copy with
+   * new Name(name) which is not frozen.
+   */
+  public final void
+  freeze()
+  {
+    if (hashCodeChangeCount_ != changeCount_)
+      // Make hashCode() recompute instead of using the fast path.
+      haveHashCode_ = false;
+    frozen_ = true;
+  }
+
+  /**
+   * Check if freeze() was called.
+   * @return True if this Name is frozen.
+   */
+  public final boolean
+  isFrozen() { return frozen_; }
+
   /**
    * Make a Blob value by decoding the escapedString between beginOffset and
    * endOffset according to the NDN URI Scheme. If the escaped string is
@@ -1552,8 +1586,16 @@ public class Name implements ChangeCountable, Comparable {
     return result;
   }
 
+  private void
+  checkNotFrozen()
+  {
+    if (frozen_)
+      throw new Error("Cannot change a frozen Name");
+  }
+
   private final ArrayList<Component> components_;
   private long changeCount_ = 0;
+  private boolean frozen_ = false;
   private boolean haveHashCode_ = false;
   private int hashCode_;
   private long hashCodeChangeCount_ = 0;
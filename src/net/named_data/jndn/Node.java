@@ -22,8 +22,11 @@ package net.named_data.jndn;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import net.named_data.jndn.encoding.ElementListener;
@@ -33,21 +36,26 @@ import net.named_data.jndn.encoding.WireFormat;
 import net.named_data.jndn.encoding.tlv.Tlv;
 import net.named_data.jndn.encoding.tlv.TlvDecoder;
 import net.named_data.jndn.impl.DelayedCallTable;
+import net.named_data.jndn.impl.InterestAggregationTable;
 import net.named_data.jndn.impl.InterestFilterTable;
 import net.named_data.jndn.impl.PendingInterestTable;
 import net.named_data.jndn.impl.RegisteredPrefixTable;
 import net.named_data.jndn.lp.LpPacket;
+import net.named_data.jndn.lp.LpReassembler;
 import net.named_data.jndn.security.KeyChain;
 import net.named_data.jndn.security.SecurityException;
+import net.named_data.jndn.transport.PacketListener;
 import net.named_data.jndn.transport.Transport;
 import net.named_data.jndn.util.Blob;
 import net.named_data.jndn.util.CommandInterestGenerator;
 import net.named_data.jndn.util.Common;
+import net.named_data.jndn.util.DataCache;
+import net.named_data.jndn.util.Metrics;
 
 /**
  * The Node class implements internal functionality for the Face class.
  */
-public class Node implements ElementListener {
+public class Node implements ElementListener, PacketListener {
   /**
    * Create a new Node for communication with an NDN hub with the given
    * Transport object and connectionInfo.
@@ -94,6 +102,27 @@ public class Node implements ElementListener {
      final WireFormat wireFormat, final Face face)
      throws IOException
   {
+    DataCache dataCache = dataCache_;
+    if (dataCache != null) {
+      Data data = dataCache.find(interestCopy);
+      if (data != null) {
+        // A cache hit, so call onData now without sending. The cached Data is
+        // frozen, so give the application its own copy as for a received Data.
+        data = new Data(data);
+        Metrics metrics = metrics_;
+        metrics.increment(Metrics.Counter.DATA_CACHE_HITS);
+        long startTime = metrics.startTimer();
+        try {
+          onData.onData(interestCopy, data);
+        } catch (Throwable ex) {
+          metrics.increment(Metrics.Counter.CALLBACK_ERRORS);
+          logger_.log(Level.SEVERE, "Error in onData", ex);
+        }
+        metrics.stopTimer(Metrics.Timer.CALLBACK_TIME, startTime);
+        return;
+      }
+    }
+
     // Set the nonce in our copy of the Interest so it is saved in the PIT.
     interestCopy.setNonce(nonceTemplate_);
     interestCopy.refreshNonce();
@@ -198,6 +227,75 @@ public class Node implements ElementListener {
     pendingInterestTable_.removePendingInterest(pendingInterestId);
   }
 
+  /**
+   * Enable or disable Interest aggregation. When enabled, an Interest with the
+   * same name and selectors as one already sent which has not been satisfied
+   * or expired is not sent again. Instead its callbacks are called from the
+   * same Data or network Nack, while each caller's own timeout is preserved.
+   * This is disabled by default.
+   * @param interestAggregation True to enable Interest aggregation.
+   */
+  public final void
+  setInterestAggregation(boolean interestAggregation)
+  {
+    if (interestAggregation) {
+      if (interestAggregationTable_ == null)
+        interestAggregationTable_ = new InterestAggregationTable();
+    }
+    else
+      interestAggregationTable_ = null;
+  }
+
+  /**
+   * Check if Interest aggregation is enabled.
+   * @return True if setInterestAggregation(true) was called.
+   */
+  public final boolean
+  getInterestAggregation() { return interestAggregationTable_ != null; }
+
+  /**
+   * Set the capacity of the Data cache which is checked by expressInterest
+   * before sending an Interest, and which holds the Data received for pending
+   * Interests. This replaces any existing cache.
+   * @param maxBytes The maximum total size in bytes of the cached Data packets.
+   * If 0, disable the Data cache.
+   */
+  public final void
+  setDataCacheCapacity(long maxBytes)
+  {
+    dataCache_ = (maxBytes > 0 ? new DataCache(maxBytes) : null);
+  }
+
+  /**
+   * Get the Data cache set by setDataCacheCapacity.
+   * @return The DataCache, or null if the Data cache is disabled.
+   */
+  public final DataCache
+  getDataCache() { return dataCache_; }
+
+  /**
+   * Set the Metrics which this updates for sent and received packets, timeouts,
+   * callbacks and the sizes of the internal tables, and pass it to the
+   * transport to record the bytes sent and received.
+   * @param metrics The Metrics object, or Metrics.NONE to not record.
+   */
+  public final void
+  setMetrics(Metrics metrics)
+  {
+    metrics_ = metrics;
+    pendingInterestTable_.setMetrics(metrics);
+    delayedCallTable_.setMetrics(metrics);
+    transport_.setMetrics(metrics);
+  }
+
+  /**
+   * Get the Metrics given to setMetrics.
+   * @return The Metrics object, which is Metrics.NONE if setMetrics was not
+   * called.
+   */
+  public final Metrics
+  getMetrics() { return metrics_; }
+
   /**
    * Append a timestamp component and a random value component to interest's
    * name. Then use the keyChain and certificateName to sign the interest. If
@@ -261,6 +359,117 @@ public class Node implements ElementListener {
        wireFormat, face);
   }
 
+  /**
+   * Register each prefix with the connected forwarder as with registerPrefix,
+   * and call onComplete when all have succeeded or failed. This makes the
+   * command interests in the order of prefixes, signs them (in parallel if
+   * signingExecutor is not null), then sends them in order while keeping at
+   * most maxInFlight commands waiting for a response. Since this waits for the
+   * signing, it should not be called from a thread of signingExecutor.
+   * @param registeredPrefixIds The getNextEntryId() for each registered prefix
+   * ID, in the order of prefixes, which Face got so it could return them to
+   * the caller.
+   * @param prefixes The list of Name for the prefixes to register. This copies
+   * each Name.
+   * @param onInterest If not null, this creates an interest filter for each
+   * prefix which succeeds, as with registerPrefix.
+   * @param onComplete This calls onComplete.onRegisterPrefixesComplete
+   * (registeredPrefixes, failedPrefixes) when all responses are received.
+   * @param flags The flags for each registration.
+   * @param maxInFlight The maximum number of command interests waiting for a
+   * response.
+   * @param signingExecutor If not null, use this to sign the command interests
+   * in parallel. If null, sign in the calling thread.
+   * @param wireFormat A WireFormat object used to encode the message.
+   * @param commandKeyChain The KeyChain object for signing interests.
+   * @param commandCertificateName The certificate name for signing interests.
+   * @param face The face which is passed to the onInterest callback. If
+   * onInterest is null, this is ignored.
+   */
+  public final void
+  registerPrefixes
+    (long[] registeredPrefixIds, List prefixes, OnInterestCallback onInterest,
+     OnRegisterPrefixesComplete onComplete, ForwardingFlags flags,
+     int maxInFlight, Executor signingExecutor, WireFormat wireFormat,
+     final KeyChain commandKeyChain, final Name commandCertificateName,
+     Face face)
+  {
+    checkCommandSigningInfo(commandKeyChain, commandCertificateName);
+    if (maxInFlight <= 0)
+      throw new Error("registerPrefixes: maxInFlight must be positive");
+
+    Name[] prefixCopies = new Name[prefixes.size()];
+    for (int i = 0; i < prefixCopies.length; ++i)
+      prefixCopies[i] = new Name((Name)prefixes.get(i));
+
+    boolean faceIsLocal;
+    try {
+      faceIsLocal = isLocal();
+    } catch (IOException ex) {
+      logger_.log(Level.INFO,
+        "Register prefixes failed: Error attempting to determine if the face is local: {0}", ex);
+      try {
+        onComplete.onRegisterPrefixesComplete
+          (new ArrayList(), new ArrayList(Arrays.asList(prefixCopies)));
+      } catch (Throwable exception) {
+        logger_.log(Level.SEVERE, "Error in onRegisterPrefixesComplete", exception);
+      }
+      return;
+    }
+
+    // Get the timestamps in order. A failed command is set to null.
+    final Interest[] commandInterests = new Interest[prefixCopies.length];
+    for (int i = 0; i < commandInterests.length; ++i) {
+      commandInterests[i] = makeRegisterCommandInterest
+        (prefixCopies[i], flags, faceIsLocal);
+      commandInterestGenerator_.appendTimestampAndRandom(commandInterests[i]);
+    }
+
+    if (signingExecutor == null) {
+      for (int i = 0; i < commandInterests.length; ++i) {
+        if (!signCommandInterest
+            (commandInterests[i], commandKeyChain, commandCertificateName))
+          commandInterests[i] = null;
+      }
+    }
+    else {
+      final CountDownLatch signedLatch =
+        new CountDownLatch(commandInterests.length);
+      for (int i = 0; i < commandInterests.length; ++i) {
+        final int index = i;
+        signingExecutor.execute(new Runnable() {
+          public void run() {
+            try {
+              if (!signCommandInterest
+                  (commandInterests[index], commandKeyChain,
+                   commandCertificateName))
+                commandInterests[index] = null;
+            } finally {
+              signedLatch.countDown();
+            }
+          }
+        });
+      }
+
+      boolean interrupted = false;
+      while (true) {
+        try {
+          signedLatch.await();
+          break;
+        } catch (InterruptedException ex) {
+          // Finish waiting since the signing tasks use commandInterests.
+          interrupted = true;
+        }
+      }
+      if (interrupted)
+        Thread.currentThread().interrupt();
+    }
+
+    new RegisterPrefixesBatch
+      (this, commandInterests, prefixCopies, registeredPrefixIds, onInterest,
+       onComplete, maxInFlight, wireFormat, face).sendNext();
+  }
+
   /**
    * Remove the registered prefix entry with the registeredPrefixId from the
    * registered prefix table. This does not affect another registered prefix with
@@ -322,6 +531,12 @@ public class Node implements ElementListener {
   public final void
   putData(Data data, WireFormat wireFormat) throws IOException
   {
+    metrics_.increment(Metrics.Counter.DATA_SENT);
+    if (transport_.isPacketTransport()) {
+      transport_.sendData(data);
+      return;
+    }
+
     Blob encoding = data.wireEncode(wireFormat);
     if (encoding.size() > getMaxNdnPacketSize())
       throw new Error
@@ -376,6 +591,23 @@ public class Node implements ElementListener {
   getConnectionInfo() { return connectionInfo_; }
 
   public final void onReceivedElement(ByteBuffer element) throws EncodingException
+  {
+    try {
+      decodeAndProcessElement(element);
+    } catch (EncodingException ex) {
+      metrics_.increment(Metrics.Counter.DECODE_ERRORS);
+      throw ex;
+    }
+  }
+
+  /**
+   * Decode the element as an LpPacket, Interest or Data and process it. This is
+   * called by onReceivedElement.
+   * @param element The received element.
+   * @throws EncodingException For invalid encoding.
+   */
+  private void
+  decodeAndProcessElement(ByteBuffer element) throws EncodingException
   {
     LpPacket lpPacket = null;
     if (element.get(0) == Tlv.LpPacket_LpPacket) {
@@ -384,6 +616,15 @@ public class Node implements ElementListener {
       // Set copy false so that the fragment is a slice which will be copied below.
       // The header fields are all integers and don't need to be copied.
       TlvWireFormat.get().decodeLpPacket(lpPacket, element, false);
+      if (lpPacket.isFragmented()) {
+        // This copies the fragment. Wait until all fragments are received.
+        lpPacket = lpReassembler_.receive(lpPacket);
+        if (lpPacket == null)
+          return;
+      }
+      if (lpPacket.getFragmentWireEncoding().isNull())
+        // There is no network-layer packet, for example an IDLE packet.
+        return;
       element = lpPacket.getFragmentWireEncoding().buf();
     }
 
@@ -418,17 +659,26 @@ public class Node implements ElementListener {
           // We got a Nack but not for an Interest, so drop the packet.
           return;
 
+        Metrics metrics = metrics_;
+        metrics.increment(Metrics.Counter.NACKS_RECEIVED);
+        InterestAggregationTable aggregationTable = interestAggregationTable_;
+        if (aggregationTable != null)
+          aggregationTable.remove(interest);
+
         ArrayList<PendingInterestTable.Entry> pitEntries =
           new ArrayList<PendingInterestTable.Entry>();
         pendingInterestTable_.extractEntriesForNackInterest(interest, pitEntries);
         for (int i = 0; i < pitEntries.size(); ++i) {
           PendingInterestTable.Entry pendingInterest = pitEntries.get(i);
+          long startTime = metrics.startTimer();
           try {
             pendingInterest.getOnNetworkNack().onNetworkNack
               (pendingInterest.getInterest(), networkNack);
           } catch (Throwable ex) {
+            metrics.increment(Metrics.Counter.CALLBACK_ERRORS);
             logger_.log(Level.SEVERE, "Error in onNack", ex);
           }
+          metrics.stopTimer(Metrics.Timer.CALLBACK_TIME, startTime);
         }
 
         // We have processed the network Nack packet.
@@ -437,36 +687,88 @@ public class Node implements ElementListener {
     }
 
     // Now process as Interest or Data.
-    if (interest != null) {
-      // Quickly lock and get all interest filter callbacks which match.
-      ArrayList matchedFilters = new ArrayList();
-      interestFilterTable_.getMatchedFilters(interest, matchedFilters);
-
-      // The lock on interestFilterTable_ is released, so call the callbacks.
-      for (int i = 0; i < matchedFilters.size(); ++i) {
-        InterestFilterTable.Entry entry =
-          (InterestFilterTable.Entry)matchedFilters.get(i);
-        try {
-          entry.getOnInterest().onInterest
-           (entry.getFilter().getPrefix(), interest, entry.getFace(),
-            entry.getInterestFilterId(), entry.getFilter());
-        } catch (Throwable ex) {
-          logger_.log(Level.SEVERE, "Error in onInterest", ex);
-        }
+    if (interest != null)
+      onReceivedInterest(interest);
+    else if (data != null)
+      onReceivedData(data);
+  }
+
+  /**
+   * Call the onInterest callbacks of the interest filters which match the
+   * received Interest. This is called by onReceivedElement after decoding, or
+   * directly by a transport where isPacketTransport() is true.
+   * @param interest The received Interest.
+   */
+  public final void
+  onReceivedInterest(Interest interest)
+  {
+    Metrics metrics = metrics_;
+    metrics.increment(Metrics.Counter.INTERESTS_RECEIVED);
+
+    // Quickly lock and get all interest filter callbacks which match.
+    ArrayList matchedFilters = new ArrayList();
+    interestFilterTable_.getMatchedFilters(interest, matchedFilters);
+
+    // The lock on interestFilterTable_ is released, so call the callbacks.
+    for (int i = 0; i < matchedFilters.size(); ++i) {
+      InterestFilterTable.Entry entry =
+        (InterestFilterTable.Entry)matchedFilters.get(i);
+      long startTime = metrics.startTimer();
+      try {
+        entry.getOnInterest().onInterest
+         (entry.getFilter().getPrefix(), interest, entry.getFace(),
+          entry.getInterestFilterId(), entry.getFilter());
+      } catch (Throwable ex) {
+        metrics.increment(Metrics.Counter.CALLBACK_ERRORS);
+        logger_.log(Level.SEVERE, "Error in onInterest", ex);
       }
+      metrics.stopTimer(Metrics.Timer.CALLBACK_TIME, startTime);
     }
-    else if (data != null) {
-      ArrayList<PendingInterestTable.Entry> pitEntries =
-        new ArrayList<PendingInterestTable.Entry>();
-      pendingInterestTable_.extractEntriesForExpressedInterest(data, pitEntries);
-      for (int i = 0; i < pitEntries.size(); ++i) {
-        PendingInterestTable.Entry pendingInterest = pitEntries.get(i);
-        try {
-          pendingInterest.getOnData().onData(pendingInterest.getInterest(), data);
-        } catch (Throwable ex) {
-          logger_.log(Level.SEVERE, "Error in onData", ex);
-        }
+  }
+
+  /**
+   * Remove the pending interests which match the received Data and call their
+   * onData callbacks. This is called by onReceivedElement after decoding, or
+   * directly by a transport where isPacketTransport() is true.
+   * @param data The received Data.
+   * @throws EncodingException For error encoding the Data to match an Interest
+   * with an implicit digest.
+   */
+  public final void
+  onReceivedData(Data data) throws EncodingException
+  {
+    Metrics metrics = metrics_;
+    metrics.increment(Metrics.Counter.DATA_RECEIVED);
+
+    ArrayList<PendingInterestTable.Entry> pitEntries =
+      new ArrayList<PendingInterestTable.Entry>();
+    pendingInterestTable_.extractEntriesForExpressedInterest(data, pitEntries);
+    InterestAggregationTable aggregationTable = interestAggregationTable_;
+    if (aggregationTable != null)
+      aggregationTable.removeForData(data);
+    if (pitEntries.size() == 0)
+      metrics.increment(Metrics.Counter.DATA_UNSOLICITED);
+    DataCache dataCache = dataCache_;
+    if (dataCache != null && pitEntries.size() > 0)
+      // Only cache Data which was requested.
+      dataCache.add(data);
+    for (int i = 0; i < pitEntries.size(); ++i) {
+      PendingInterestTable.Entry pendingInterest = pitEntries.get(i);
+      long startTime = metrics.startTimer();
+      if (startTime != 0 && pendingInterest.getExpressTime() != 0)
+        // Both times were read from the clock. An entry added before a
+        // recording Metrics was set has no express time, and the start time
+        // is 0 if setMetrics(Metrics.NONE) was called while it was pending.
+        metrics.record
+          (Metrics.Timer.INTEREST_RTT,
+           startTime - pendingInterest.getExpressTime());
+      try {
+        pendingInterest.getOnData().onData(pendingInterest.getInterest(), data);
+      } catch (Throwable ex) {
+        metrics.increment(Metrics.Counter.CALLBACK_ERRORS);
+        logger_.log(Level.SEVERE, "Error in onData", ex);
       }
+      metrics.stopTimer(Metrics.Timer.CALLBACK_TIME, startTime);
     }
   }
 
@@ -537,8 +839,13 @@ public class Node implements ElementListener {
   private void
   processInterestTimeout(PendingInterestTable.Entry pendingInterest)
   {
-    if (pendingInterestTable_.removeEntry(pendingInterest))
+    if (pendingInterestTable_.removeEntry(pendingInterest)) {
+      Metrics metrics = metrics_;
+      metrics.increment(Metrics.Counter.INTEREST_TIMEOUTS);
+      long startTime = metrics.startTimer();
       pendingInterest.callTimeout();
+      metrics.stopTimer(Metrics.Timer.CALLBACK_TIME, startTime);
+    }
   }
 
   /**
@@ -588,17 +895,290 @@ public class Node implements ElementListener {
     }
 
     // Special case: For timeoutPrefix_ we don't actually send the interest.
-    if (!timeoutPrefix_.match(interestCopy.getName())) {
-      Blob encoding = interestCopy.wireEncode(wireFormat);
-      if (encoding.size() > getMaxNdnPacketSize())
-        throw new Error
-          ("The encoded interest size exceeds the maximum limit getMaxNdnPacketSize()");
-      transport_.send(encoding.buf());
+    if (!timeoutPrefix_.match(interestCopy.getName()))
+      sendOrAggregateInterest(pendingInterest, interestCopy, wireFormat, face);
+  }
+
+  /**
+   * If Interest aggregation is enabled and an identical Interest was already
+   * sent and has not expired, make pendingInterest share it instead of sending
+   * interest. If the sent Interest expires before interest would, schedule
+   * reexpressInterest for when it expires so that the caller's timeout is
+   * preserved. Otherwise, send interest and remember it in the aggregation
+   * table.
+   * @param pendingInterest The PIT entry.
+   * @param interest The Interest to send.
+   * @param wireFormat A WireFormat object used to encode the message.
+   * @param face The face which has the callLater method.
+   * @throws IOException For I/O error in sending the interest.
+   * @throws Error If the encoded interest size exceeds getMaxNdnPacketSize().
+   */
+  private void
+  sendOrAggregateInterest
+    (final PendingInterestTable.Entry pendingInterest, Interest interest,
+     final WireFormat wireFormat, final Face face) throws IOException
+  {
+    InterestAggregationTable aggregationTable = interestAggregationTable_;
+    if (aggregationTable != null) {
+      double now = Common.getNowMilliseconds();
+      double lifetime = interest.getInterestLifetimeMilliseconds();
+      if (lifetime < 0.0)
+        lifetime = 4000.0;
+      double expirationTime = now + lifetime;
+
+      InterestAggregationTable.Record record = aggregationTable.find
+        (interest, now);
+      if (record != null) {
+        metrics_.increment(Metrics.Counter.INTERESTS_AGGREGATED);
+        pendingInterest.setSentInterest(record.getInterest());
+        if (expirationTime > record.getExpirationTime()) {
+          final double remainingMilliseconds =
+            expirationTime - record.getExpirationTime();
+          face.callLater
+            (record.getExpirationTime() - now,
+             new Runnable() {
+               public void run() {
+                 reexpressInterest
+                   (pendingInterest, remainingMilliseconds, wireFormat, face);
+               }
+             });
+        }
+        return;
+      }
+
+      aggregationTable.add(interest, expirationTime, now);
+    }
+
+    pendingInterest.setSentInterest(interest);
+    metrics_.increment(Metrics.Counter.INTERESTS_SENT);
+    if (transport_.isPacketTransport()) {
+      // The transport takes interest without encoding.
+      transport_.sendInterest(interest);
+      return;
+    }
+
+    Blob encoding = interest.wireEncode(wireFormat);
+    if (encoding.size() > getMaxNdnPacketSize())
+      throw new Error
+        ("The encoded interest size exceeds the maximum limit getMaxNdnPacketSize()");
+    transport_.send(encoding.buf());
+  }
+
+  /**
+   * This is called when the aggregated Interest which pendingInterest shared
+   * has expired but pendingInterest has not. Unless pendingInterest was already
+   * satisfied or removed, send or aggregate a copy of its Interest with a new
+   * nonce and the remaining lifetime.
+   */
+  private void
+  reexpressInterest
+    (PendingInterestTable.Entry pendingInterest, double remainingMilliseconds,
+     WireFormat wireFormat, Face face)
+  {
+    if (pendingInterest.getIsRemoved())
+      return;
+
+    Interest interest = new Interest(pendingInterest.getInterest());
+    interest.setInterestLifetimeMilliseconds(remainingMilliseconds);
+    interest.refreshNonce();
+    try {
+      sendOrAggregateInterest(pendingInterest, interest, wireFormat, face);
+    } catch (IOException ex) {
+      logger_.log(Level.SEVERE, "Error re-expressing an aggregated Interest", ex);
+    }
+  }
+
+  private static void
+  checkCommandSigningInfo(KeyChain commandKeyChain, Name commandCertificateName)
+  {
+    if (commandKeyChain == null)
+      throw new Error
+        ("registerPrefix: The command KeyChain has not been set. You must call setCommandSigningInfo.");
+    if (commandCertificateName.size() == 0)
+      throw new Error
+        ("registerPrefix: The command certificate name has not been set. You must call setCommandSigningInfo.");
+  }
+
+  /**
+   * Make the rib/register command interest for the prefix, without the
+   * command interest timestamp and signature.
+   * @param prefix The prefix to register.
+   * @param flags The forwarding flags.
+   * @param faceIsLocal True to use /localhost, false to use /localhop.
+   * @return The new command Interest.
+   */
+  private static Interest
+  makeRegisterCommandInterest
+    (Name prefix, ForwardingFlags flags, boolean faceIsLocal)
+  {
+    ControlParameters controlParameters = new ControlParameters();
+    controlParameters.setName(prefix);
+    controlParameters.setForwardingFlags(flags);
+
+    Interest commandInterest = new Interest();
+    if (faceIsLocal) {
+      commandInterest.setName(new Name("/localhost/nfd/rib/register"));
+      // The interest is answered by the local host, so set a short timeout.
+      commandInterest.setInterestLifetimeMilliseconds(2000.0);
+    }
+    else {
+      commandInterest.setName(new Name("/localhop/nfd/rib/register"));
+      // The host is remote, so set a longer timeout.
+      commandInterest.setInterestLifetimeMilliseconds(4000.0);
+    }
+
+    // NFD only accepts TlvWireFormat packets.
+    commandInterest.getName().append(controlParameters.wireEncode(TlvWireFormat.get()));
+    return commandInterest;
+  }
+
+  /**
+   * Sign the command interest which already has the timestamp, logging any
+   * error.
+   * @return True for success, false if signing failed.
+   */
+  private static boolean
+  signCommandInterest
+    (Interest commandInterest, KeyChain keyChain, Name certificateName)
+  {
+    try {
+      keyChain.sign(commandInterest, certificateName, TlvWireFormat.get());
+      return true;
+    } catch (Throwable ex) {
+      logger_.log(Level.INFO,
+        "Register prefix failed: Error signing the command interest: {0}", ex);
+      return false;
     }
   }
 
   private enum ConnectStatus { UNCONNECTED, CONNECT_REQUESTED, CONNECT_COMPLETE }
 
+  /**
+   * A RegisterPrefixesBatch sends the signed command interests of
+   * registerPrefixes in order, keeping at most maxInFlight waiting for a
+   * response, and collects the results. It is the onRegisterFailed and
+   * onRegisterSuccess for each RegisterResponse.
+   */
+  private static class RegisterPrefixesBatch
+    implements OnRegisterFailed, OnRegisterSuccess {
+    public RegisterPrefixesBatch
+      (Node parent, Interest[] commandInterests, Name[] prefixes,
+       long[] registeredPrefixIds, OnInterestCallback onInterest,
+       OnRegisterPrefixesComplete onComplete, int maxInFlight,
+       WireFormat wireFormat, Face face)
+    {
+      parent_ = parent;
+      commandInterests_ = commandInterests;
+      prefixes_ = prefixes;
+      registeredPrefixIds_ = registeredPrefixIds;
+      onInterest_ = onInterest;
+      onComplete_ = onComplete;
+      maxInFlight_ = maxInFlight;
+      wireFormat_ = wireFormat;
+      face_ = face;
+    }
+
+    public void
+    onRegisterFailed(Name prefix)
+    {
+      synchronized (this) {
+        failedPrefixes_.add(prefix);
+        --nInFlight_;
+      }
+      sendNext();
+    }
+
+    public void
+    onRegisterSuccess(Name prefix, long registeredPrefixId)
+    {
+      synchronized (this) {
+        registeredPrefixes_.add(prefix);
+        --nInFlight_;
+      }
+      sendNext();
+    }
+
+    /**
+     * Send command interests until maxInFlight are waiting. If all responses
+     * have been received, call onComplete.
+     */
+    public void
+    sendNext()
+    {
+      while (true) {
+        int index;
+        List registeredPrefixes = null;
+        List failedPrefixes = null;
+        synchronized (this) {
+          if (nextIndex_ >= commandInterests_.length || nInFlight_ >= maxInFlight_) {
+            if (nInFlight_ > 0 || nextIndex_ < commandInterests_.length ||
+                isComplete_)
+              return;
+            isComplete_ = true;
+            index = -1;
+            // Give the application copies which a late response can't change.
+            registeredPrefixes = Collections.unmodifiableList
+              (new ArrayList(registeredPrefixes_));
+            failedPrefixes = Collections.unmodifiableList
+              (new ArrayList(failedPrefixes_));
+          }
+          else {
+            index = nextIndex_++;
+            if (commandInterests_[index] == null) {
+              // Signing failed.
+              failedPrefixes_.add(prefixes_[index]);
+              continue;
+            }
+            ++nInFlight_;
+          }
+        }
+
+        if (index < 0) {
+          try {
+            onComplete_.onRegisterPrefixesComplete
+              (registeredPrefixes, failedPrefixes);
+          } catch (Throwable ex) {
+            logger_.log(Level.SEVERE, "Error in onRegisterPrefixesComplete", ex);
+          }
+          return;
+        }
+
+        RegisterResponse response = new RegisterResponse
+          (new RegisterResponse.Info
+            (prefixes_[index], this, this, registeredPrefixIds_[index],
+             onInterest_, face_),
+           parent_);
+        try {
+          parent_.expressInterest
+            (parent_.getNextEntryId(), commandInterests_[index], response,
+             response, null, wireFormat_, face_);
+        } catch (IOException ex) {
+          logger_.log(Level.INFO,
+            "Register prefix failed: Error sending the register prefix interest to the forwarder: {0}", ex);
+          synchronized (this) {
+            failedPrefixes_.add(prefixes_[index]);
+            --nInFlight_;
+          }
+        }
+      }
+    }
+
+    private final Node parent_;
+    private final Interest[] commandInterests_;
+    private final Name[] prefixes_;
+    private final long[] registeredPrefixIds_;
+    private final OnInterestCallback onInterest_;
+    private final OnRegisterPrefixesComplete onComplete_;
+    private final int maxInFlight_;
+    private final WireFormat wireFormat_;
+    private final Face face_;
+    private final ArrayList registeredPrefixes_ = new ArrayList();
+    private final ArrayList failedPrefixes_ = new ArrayList();
+    private int nextIndex_ = 0;
+    private int nInFlight_ = 0;
+    private boolean isComplete_ = false;
+  }
+
   private static class RegisterResponse implements OnData, OnTimeout {
     public RegisterResponse(Info info, Node parent)
     {
@@ -661,6 +1241,15 @@ public class Node implements ElementListener {
             // Remove the related interest filter we just added.
             parent_.unsetInterestFilter(interestFilterId);
 
+          if (info_.onRegisterFailed_ instanceof RegisterPrefixesBatch) {
+            // The batch waits for a result for each prefix, so report it as
+            // failed since it is not registered.
+            try {
+              info_.onRegisterFailed_.onRegisterFailed(info_.prefix_);
+            } catch (Throwable ex) {
+              logger_.log(Level.SEVERE, "Error in onRegisterFailed", ex);
+            }
+          }
           return;
         }
       }
@@ -756,18 +1345,7 @@ public class Node implements ElementListener {
      Name commandCertificateName, WireFormat wireFormat, Face face)
     throws SecurityException
   {
-    if (commandKeyChain == null)
-      throw new Error
-        ("registerPrefix: The command KeyChain has not been set. You must call setCommandSigningInfo.");
-    if (commandCertificateName.size() == 0)
-      throw new Error
-        ("registerPrefix: The command certificate name has not been set. You must call setCommandSigningInfo.");
-
-    ControlParameters controlParameters = new ControlParameters();
-    controlParameters.setName(prefix);
-    controlParameters.setForwardingFlags(flags);
-
-    Interest commandInterest = new Interest();
+    checkCommandSigningInfo(commandKeyChain, commandCertificateName);
 
     // Determine whether to use remote prefix registration.
     boolean faceIsLocal;
@@ -784,19 +1362,8 @@ public class Node implements ElementListener {
       return;
     }
 
-    if (faceIsLocal) {
-      commandInterest.setName(new Name("/localhost/nfd/rib/register"));
-      // The interest is answered by the local host, so set a short timeout.
-      commandInterest.setInterestLifetimeMilliseconds(2000.0);
-    }
-    else {
-      commandInterest.setName(new Name("/localhop/nfd/rib/register"));
-      // The host is remote, so set a longer timeout.
-      commandInterest.setInterestLifetimeMilliseconds(4000.0);
-    }
-
-    // NFD only accepts TlvWireFormat packets.
-    commandInterest.getName().append(controlParameters.wireEncode(TlvWireFormat.get()));
+    Interest commandInterest = makeRegisterCommandInterest
+      (prefix, flags, faceIsLocal);
     makeCommandInterest
       (commandInterest, commandKeyChain, commandCertificateName,
        TlvWireFormat.get());
@@ -833,6 +1400,12 @@ public class Node implements ElementListener {
   private final RegisteredPrefixTable registeredPrefixTable_ =
     new RegisteredPrefixTable(interestFilterTable_);
   private final DelayedCallTable delayedCallTable_ = new DelayedCallTable();
+  private final LpReassembler lpReassembler_ = new LpReassembler();
+  // This is null if Interest aggregation is disabled.
+  private volatile InterestAggregationTable interestAggregationTable_ = null;
+  // This is null if the Data cache is disabled.
+  private volatile DataCache dataCache_ = null;
+  private volatile Metrics metrics_ = Metrics.NONE;
   // Use ArrayList without generics so it works with older Java compilers.
   private final List onConnectedCallbacks_ =
     Collections.synchronizedList(new ArrayList()); // Runnable
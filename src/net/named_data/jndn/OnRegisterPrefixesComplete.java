@@ -0,0 +1,40 @@
+/**
+ * Copyright (C) 2017 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+package net.named_data.jndn;
+
+import java.util.List;
+
+/**
+ * A class implements OnRegisterPrefixesComplete if it has
+ * onRegisterPrefixesComplete, called by Face.registerPrefixes when all the
+ * registrations have succeeded or failed.
+ */
+public interface OnRegisterPrefixesComplete {
+  /**
+   * Face.registerPrefixes calls onRegisterPrefixesComplete when it has
+   * received a response or failure for every prefix.
+   * @param registeredPrefixes The list of Name for the prefixes which were
+   * registered, in the order of the responses. NOTE: You must not change the
+   * Name objects - if you need to change them then make a copy.
+   * @param failedPrefixes The list of Name for the prefixes which failed to
+   * register.
+   * (Use List without generics so it works with older Java compilers.)
+   */
+  void onRegisterPrefixesComplete(List registeredPrefixes, List failedPrefixes);
+}
@@ -23,6 +23,7 @@ import java.nio.ByteBuffer;
 import net.named_data.jndn.util.DynamicByteBuffer;
 import net.named_data.jndn.encoding.tlv.TlvStructureDecoder;
 import net.named_data.jndn.util.Common;
+import net.named_data.jndn.util.Metrics;
 
 /**
  * A ElementReader lets you call onReceivedData multiple times which
@@ -53,6 +54,24 @@ public class ElementReader {
   public void
   onReceivedData(ByteBuffer data) throws EncodingException
   {
+    onReceivedData(data, Metrics.NONE);
+  }
+
+  /**
+   * Continue to read data until the end of an element, then call
+   * elementListener.onReceivedElement(element), and update the metrics with
+   * the number of bytes received and any decoding error. Otherwise this is the
+   * same as onReceivedData(data).
+   * @param data The input data containing bytes of the element to read.
+   * This reads from position() to limit(), but does not change the position.
+   * @param metrics The Metrics to update, typically Transport.getMetrics().
+   * @throws EncodingException For invalid encoding.
+   */
+  public void
+  onReceivedData(ByteBuffer data, Metrics metrics) throws EncodingException
+  {
+    metrics.add(Metrics.Counter.BYTES_RECEIVED, data.remaining());
+
     // We may repeatedly set data to a slice as we read elements.
     data = data.slice();
 
@@ -78,6 +97,7 @@ public class ElementReader {
         usePartialData_ = false;
         tlvStructureDecoder_ = new TlvStructureDecoder();
 
+        metrics.increment(Metrics.Counter.DECODE_ERRORS);
         throw ex;
       }
 
@@ -124,6 +144,7 @@ public class ElementReader {
           usePartialData_ = false;
           tlvStructureDecoder_ = new TlvStructureDecoder();
 
+          metrics.increment(Metrics.Counter.DECODE_ERRORS);
           throw new EncodingException
             ("The incoming packet exceeds the maximum limit Face.getMaxNdnPacketSize()");
         }
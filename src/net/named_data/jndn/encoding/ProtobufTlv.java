@@ -28,6 +28,7 @@ import com.google.protobuf.Message;
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 import net.named_data.jndn.Name;
 import net.named_data.jndn.encoding.tlv.TlvDecoder;
 import net.named_data.jndn.encoding.tlv.TlvEncoder;
@@ -45,6 +46,10 @@ import net.named_data.jndn.util.Blob;
  *
  * Protobuf has no "outer" message type, so you need to put your TLV message
  * inside an outer "typeless" message.
+ *
+ * The fields of each message type are read from its Descriptor once and cached,
+ * so that encoding and decoding many messages of the same type don't repeat the
+ * Descriptor queries.
  */
 public class ProtobufTlv {
   /**
@@ -115,63 +120,152 @@ public class ProtobufTlv {
     return name;
   }
 
+  /**
+   * A MessageCodec holds the FieldCodec for each field of a message type, in
+   * the order of the Descriptor fields. It is made once for each Descriptor by
+   * getMessageCodec and cached so that encoding and decoding don't need to
+   * query the Descriptor and FieldDescriptor objects for each message.
+   */
+  private static class MessageCodec {
+    public MessageCodec(Descriptor descriptor)
+    {
+      List fields = descriptor.getFields();
+      fields_ = new FieldCodec[fields.size()];
+      for (int i = 0; i < fields_.length; ++i)
+        fields_[i] = new FieldCodec((FieldDescriptor)fields.get(i));
+    }
+
+    public final FieldCodec[] fields_;
+  }
+
+  /**
+   * A FieldCodec holds the values precomputed from a FieldDescriptor.
+   */
+  private static class FieldCodec {
+    public FieldCodec(FieldDescriptor field)
+    {
+      field_ = field;
+      tlvType_ = field.getNumber();
+      type_ = field.getType();
+      isRepeated_ = field.isRepeated();
+      isOptional_ = field.isOptional();
+      messageType_ = (type_ == Type.MESSAGE ? field.getMessageType() : null);
+    }
+
+    /**
+     * Get the MessageCodec of the field's message type. This is fetched when
+     * first needed so that a recursive message type doesn't recurse forever
+     * while making the codec.
+     */
+    public final MessageCodec
+    getMessageCodec()
+    {
+      MessageCodec messageCodec = messageCodec_;
+      if (messageCodec == null) {
+        messageCodec = ProtobufTlv.getMessageCodec(messageType_);
+        messageCodec_ = messageCodec;
+      }
+      return messageCodec;
+    }
+
+    public final FieldDescriptor field_;
+    public final int tlvType_;
+    public final Type type_;
+    public final boolean isRepeated_;
+    public final boolean isOptional_;
+    private final Descriptor messageType_;
+    private volatile MessageCodec messageCodec_ = null;
+  }
+
+  /**
+   * Get the cached MessageCodec for the descriptor, making it if needed.
+   */
+  private static MessageCodec
+  getMessageCodec(Descriptor descriptor)
+  {
+    MessageCodec codec = codecs_.get(descriptor);
+    if (codec == null) {
+      codec = new MessageCodec(descriptor);
+      MessageCodec existing = codecs_.putIfAbsent(descriptor, codec);
+      if (existing != null)
+        codec = existing;
+    }
+    return codec;
+  }
+
   private static void
   encodeMessageValue(Message message, TlvEncoder encoder)
+  {
+    encodeMessageValue
+      (message, getMessageCodec(message.getDescriptorForType()), encoder);
+  }
+
+  private static void
+  encodeMessageValue(Message message, MessageCodec codec, TlvEncoder encoder)
   {
     // Note: We can't use ListFields because it sorts by field number.
-    Descriptor descriptor = message.getDescriptorForType();
     // Go in reverse so that we encode backwards.
-    List fields = descriptor.getFields();
-    for (int i = fields.size() - 1; i >= 0; --i) {
-      FieldDescriptor field = (FieldDescriptor)fields.get(i);
+    FieldCodec[] fields = codec.fields_;
+    for (int i = fields.length - 1; i >= 0; --i) {
+      FieldCodec field = fields[i];
 
-      int tlvType = field.getNumber();
-
-      int valueCount = 0;
-      if (field.isRepeated())
-        valueCount = message.getRepeatedFieldCount(field);
-      else {
-        if (message.hasField(field))
-          valueCount = 1;
+      if (field.isRepeated_) {
+        // Get the whole list at once instead of calling getRepeatedField for
+        // each value.
+        List values = (List)message.getField(field.field_);
+        // Reverse so that we encode backwards.
+        for (int iValue = values.size() - 1; iValue >= 0; --iValue)
+          encodeFieldValue(field, values.get(iValue), encoder);
       }
+      else if (message.hasField(field.field_))
+        encodeFieldValue(field, message.getField(field.field_), encoder);
+    }
+  }
 
-      // Reverse so that we encode backwards.
-      for (int iValue = valueCount - 1; iValue >= 0; --iValue) {
-        Object value;
-        if (field.isRepeated())
-          value = message.getRepeatedField(field, iValue);
-        else
-          value = message.getField(field);
+  /**
+   * This is a helper for encodeMessageValue. Encode a single value of the
+   * field.
+   */
+  private static void
+  encodeFieldValue(FieldCodec field, Object value, TlvEncoder encoder)
+  {
+    int tlvType = field.tlvType_;
 
-        if (field.getType() == Type.MESSAGE) {
-          int saveLength = encoder.getLength();
+    switch (field.type_) {
+      case MESSAGE: {
+        int saveLength = encoder.getLength();
 
-          // Encode backwards.
-          encodeMessageValue((Message)value, encoder);
-          encoder.writeTypeAndLength(tlvType, encoder.getLength() - saveLength);
-        }
-        else if (field.getType() == Type.UINT32)
-          encoder.writeNonNegativeIntegerTlv(tlvType, (Integer)value);
-        else if (field.getType() == Type.UINT64)
-          encoder.writeNonNegativeIntegerTlv(tlvType, (Long)value);
-        else if (field.getType() == Type.ENUM) {
-          int intValue = ((EnumValueDescriptor)value).getNumber();
-          if (intValue < 0)
-            throw new Error("ProtobufTlv.encode: ENUM value may not be negative");
-          encoder.writeNonNegativeIntegerTlv(tlvType, intValue);
-        }
-        else if (field.getType() == Type.BYTES)
-          encoder.writeBlobTlv(tlvType, ((ByteString)value).asReadOnlyByteBuffer());
-        else if (field.getType() == Type.STRING)
-          // Use Blob to UTF-8 encode and get a ByteBuffer.
-          encoder.writeBlobTlv(tlvType, new Blob((String)value).buf());
-        else if (field.getType() == Type.BOOL) {
-          if ((boolean)(Boolean)value)
-            encoder.writeTypeAndLength(tlvType, 0);
-        }
-        else
-          throw new Error("ProtobufTlv.encode: Unknown field type");
+        // Encode backwards.
+        encodeMessageValue((Message)value, field.getMessageCodec(), encoder);
+        encoder.writeTypeAndLength(tlvType, encoder.getLength() - saveLength);
+        break;
+      }
+      case UINT32:
+        encoder.writeNonNegativeIntegerTlv(tlvType, (Integer)value);
+        break;
+      case UINT64:
+        encoder.writeNonNegativeIntegerTlv(tlvType, (Long)value);
+        break;
+      case ENUM: {
+        int intValue = ((EnumValueDescriptor)value).getNumber();
+        if (intValue < 0)
+          throw new Error("ProtobufTlv.encode: ENUM value may not be negative");
+        encoder.writeNonNegativeIntegerTlv(tlvType, intValue);
+        break;
       }
+      case BYTES:
+        encoder.writeBlobTlv(tlvType, ((ByteString)value).asReadOnlyByteBuffer());
+        break;
+      case STRING:
+        // Use Blob to UTF-8 encode and get a ByteBuffer.
+        encoder.writeBlobTlv(tlvType, new Blob((String)value).buf());
+        break;
+      case BOOL:
+        if ((boolean)(Boolean)value)
+          encoder.writeTypeAndLength(tlvType, 0);
+        break;
+      default:
+        throw new Error("ProtobufTlv.encode: Unknown field type");
     }
   }
 
@@ -179,78 +273,101 @@ public class ProtobufTlv {
   decodeMessageValue(Message.Builder message, TlvDecoder decoder, int endOffset)
     throws EncodingException
   {
-    Descriptor descriptor = message.getDescriptorForType();
+    decodeMessageValue
+      (message, getMessageCodec(message.getDescriptorForType()), decoder,
+       endOffset);
+  }
 
-    for (FieldDescriptor field : descriptor.getFields()) {
-      int tlvType = field.getNumber();
+  private static void
+  decodeMessageValue
+    (Message.Builder message, MessageCodec codec, TlvDecoder decoder,
+     int endOffset)
+    throws EncodingException
+  {
+    FieldCodec[] fields = codec.fields_;
+    for (int i = 0; i < fields.length; ++i) {
+      FieldCodec field = fields[i];
+      int tlvType = field.tlvType_;
 
-      if (field.isOptional() && !decoder.peekType(tlvType, endOffset))
+      if (field.isOptional_ && !decoder.peekType(tlvType, endOffset))
           continue;
 
-      if (field.isRepeated()) {
+      if (field.isRepeated_) {
         while (decoder.peekType(tlvType, endOffset)) {
-          if (field.getType() == Type.MESSAGE) {
-            Message.Builder innerMessage = message.newBuilderForField(field);
-
-            int innerEndOffset = decoder.readNestedTlvsStart(tlvType);
-            decodeMessageValue(innerMessage, decoder, innerEndOffset);
-            decoder.finishNestedTlvs(innerEndOffset);
-
-            message.addRepeatedField(field, innerMessage.build());
-          }
+          if (field.type_ == Type.MESSAGE)
+            message.addRepeatedField
+              (field.field_, decodeInnerMessage(message, field, decoder));
           else
             message.addRepeatedField
-              (field, decodeFieldValue(field, tlvType, decoder, endOffset));
+              (field.field_, decodeFieldValue(field, decoder, endOffset));
         }
       }
       else {
-        if (field.getType() == Type.MESSAGE) {
-          Message.Builder innerMessage = message.newBuilderForField(field);
-
-          int innerEndOffset = decoder.readNestedTlvsStart(tlvType);
-          decodeMessageValue(innerMessage, decoder, innerEndOffset);
-          decoder.finishNestedTlvs(innerEndOffset);
-
-          message.setField(field, innerMessage.build());
-        }
+        if (field.type_ == Type.MESSAGE)
+          message.setField
+            (field.field_, decodeInnerMessage(message, field, decoder));
         else
           message.setField
-            (field, decodeFieldValue(field, tlvType, decoder, endOffset));
+            (field.field_, decodeFieldValue(field, decoder, endOffset));
       }
     }
   }
 
   /**
-   * This is a helper for decodeMessageValue. Decode a single field and return
-   * the value. Assume the field type is not Type.MESSAGE.
+   * This is a helper for decodeMessageValue. Decode the nested TLV of a field
+   * with Type.MESSAGE and return the built message.
+   */
+  private static Message
+  decodeInnerMessage
+    (Message.Builder message, FieldCodec field, TlvDecoder decoder)
+      throws EncodingException
+  {
+    Message.Builder innerMessage = message.newBuilderForField(field.field_);
+
+    int innerEndOffset = decoder.readNestedTlvsStart(field.tlvType_);
+    decodeMessageValue
+      (innerMessage, field.getMessageCodec(), decoder, innerEndOffset);
+    decoder.finishNestedTlvs(innerEndOffset);
+
+    return innerMessage.build();
+  }
+
+  /**
+   * This is a helper for decodeMessageValue. Decode a single value of the
+   * field and return it. Assume the field type is not Type.MESSAGE.
    */
   private static Object
-  decodeFieldValue
-    (FieldDescriptor field, int tlvType, TlvDecoder decoder, int endOffset)
+  decodeFieldValue(FieldCodec field, TlvDecoder decoder, int endOffset)
       throws EncodingException
   {
-    if (field.getType() == Type.UINT32)
-      return (int)decoder.readNonNegativeIntegerTlv(tlvType);
-    else if (field.getType() == Type.UINT64)
-      return decoder.readNonNegativeIntegerTlv(tlvType);
-    else if (field.getType() == Type.ENUM)
-      return field.getEnumType().findValueByNumber
-        ((int)decoder.readNonNegativeIntegerTlv(tlvType));
-    else if (field.getType() == Type.BYTES)
-      return ByteString.copyFrom(decoder.readBlobTlv(tlvType));
-    else if (field.getType() == Type.STRING) {
-      try {
-        ByteBuffer byteBuffer = decoder.readBlobTlv(tlvType);
-        // Use Blob to get the byte array.
-        return new String(new Blob(byteBuffer, false).getImmutableArray(), "UTF-8");
-      } catch (UnsupportedEncodingException ex) {
-        // We don't expect this to happen.
-        throw new Error("UTF-8 decoder not supported: " + ex.getMessage());
-      }
+    int tlvType = field.tlvType_;
+
+    switch (field.type_) {
+      case UINT32:
+        return (int)decoder.readNonNegativeIntegerTlv(tlvType);
+      case UINT64:
+        return decoder.readNonNegativeIntegerTlv(tlvType);
+      case ENUM:
+        return field.field_.getEnumType().findValueByNumber
+          ((int)decoder.readNonNegativeIntegerTlv(tlvType));
+      case BYTES:
+        return ByteString.copyFrom(decoder.readBlobTlv(tlvType));
+      case STRING:
+        try {
+          ByteBuffer byteBuffer = decoder.readBlobTlv(tlvType);
+          // Use Blob to get the byte array.
+          return new String(new Blob(byteBuffer, false).getImmutableArray(), "UTF-8");
+        } catch (UnsupportedEncodingException ex) {
+          // We don't expect this to happen.
+          throw new Error("UTF-8 decoder not supported: " + ex.getMessage());
+        }
+      case BOOL:
+        return decoder.readBooleanTlv(tlvType, endOffset);
+      default:
+        throw new Error("ProtobufTlv.decode: Unknown field type");
     }
-    else if (field.getType() == Type.BOOL)
-      return decoder.readBooleanTlv(tlvType, endOffset);
-    else
-      throw new Error("ProtobufTlv.decode: Unknown field type");
   }
+
+  private static final ConcurrentHashMap<Descriptor, MessageCodec> codecs_ =
+    new ConcurrentHashMap<Descriptor, MessageCodec>();
 }
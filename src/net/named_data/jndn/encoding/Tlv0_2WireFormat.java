@@ -20,7 +20,6 @@
 package net.named_data.jndn.encoding;
 
 import java.nio.ByteBuffer;
-import java.util.Random;
 
 import net.named_data.jndn.ContentType;
 import net.named_data.jndn.ControlParameters;
@@ -51,6 +50,7 @@ import net.named_data.jndn.NetworkNack;
 import net.named_data.jndn.encrypt.Schedule;
 import net.named_data.jndn.security.ValidityPeriod;
 import net.named_data.jndn.util.Blob;
+import net.named_data.jndn.util.Common;
 
 /**
  * A Tlv0_2WireFormat implements the WireFormat interface for encoding and
@@ -126,7 +126,7 @@ public class Tlv0_2WireFormat extends WireFormat {
     {
       // This is the most common case. Generate a nonce.
       ByteBuffer nonce = ByteBuffer.allocate(4);
-      random_.nextBytes(nonce.array());
+      Common.getNonceSource().nextBytes(nonce.array());
       encoder.writeBlobTlv(Tlv.Nonce, nonce);
     }
     else if (interest.getNonce().size() < 4) {
@@ -135,8 +135,9 @@ public class Tlv0_2WireFormat extends WireFormat {
       nonce.put(interest.getNonce().buf());
 
       // Generate random bytes for remaining bytes in the nonce.
-      for (int i = 0; i < 4 - interest.getNonce().size(); ++i)
-        nonce.put((byte)random_.nextInt());
+      byte[] randomBytes = new byte[4 - interest.getNonce().size()];
+      Common.getNonceSource().nextBytes(randomBytes);
+      nonce.put(randomBytes);
 
       nonce.flip();
       encoder.writeBlobTlv(Tlv.Nonce, nonce);
@@ -494,6 +495,64 @@ public class Tlv0_2WireFormat extends WireFormat {
     return new Blob(encoder.getOutput(), false);
   }
 
+  /**
+   * Encode lpPacket as an NDN-TLV LpPacket and return the encoding. This
+   * encodes the Sequence, FragIndex, FragCount, Nack and IncomingFaceId header
+   * fields and the fragment. The Sequence is encoded as a fixed-width 64-bit
+   * integer as required by NDNLPv2.
+   * @param lpPacket The LpPacket object to encode.
+   * @return A Blob containing the encoding.
+   */
+  public Blob
+  encodeLpPacket(LpPacket lpPacket)
+  {
+    Blob fragment = lpPacket.getFragmentWireEncoding();
+    TlvEncoder encoder = new TlvEncoder
+      (64 + (fragment.isNull() ? 0 : fragment.size()));
+    int saveLength = encoder.getLength();
+
+    // Encode backwards. The fragment is the last field.
+    if (!fragment.isNull())
+      encoder.writeBlobTlv(Tlv.LpPacket_Fragment, fragment.buf());
+
+    for (int i = lpPacket.countHeaderFields() - 1; i >= 0; --i) {
+      Object field = lpPacket.getHeaderField(i);
+      if (field instanceof IncomingFaceId)
+        encoder.writeNonNegativeIntegerTlv
+          (Tlv.LpPacket_IncomingFaceId, ((IncomingFaceId)field).getFaceId());
+      else if (field instanceof NetworkNack) {
+        NetworkNack networkNack = (NetworkNack)field;
+        int saveNackLength = encoder.getLength();
+        if (networkNack.getReason() == NetworkNack.Reason.OTHER_CODE)
+          encoder.writeNonNegativeIntegerTlv
+            (Tlv.LpPacket_NackReason, networkNack.getOtherReasonCode());
+        else if (networkNack.getReason() != NetworkNack.Reason.NONE)
+          encoder.writeNonNegativeIntegerTlv
+            (Tlv.LpPacket_NackReason,
+             networkNack.getReason().getNumericType());
+        encoder.writeTypeAndLength
+          (Tlv.LpPacket_Nack, encoder.getLength() - saveNackLength);
+      }
+    }
+
+    if (lpPacket.getFragCount() >= 0)
+      encoder.writeNonNegativeIntegerTlv
+        (Tlv.LpPacket_FragCount, lpPacket.getFragCount());
+    if (lpPacket.getFragIndex() >= 0)
+      encoder.writeNonNegativeIntegerTlv
+        (Tlv.LpPacket_FragIndex, lpPacket.getFragIndex());
+    if (lpPacket.getSequence() >= 0) {
+      ByteBuffer sequence = ByteBuffer.allocate(8);
+      sequence.putLong(0, lpPacket.getSequence());
+      encoder.writeBlobTlv(Tlv.LpPacket_Sequence, sequence);
+    }
+
+    encoder.writeTypeAndLength
+      (Tlv.LpPacket_LpPacket, encoder.getLength() - saveLength);
+
+    return new Blob(encoder.getOutput(), false);
+  }
+
   /**
    * Decode input as an NDN-TLV LpPacket and set the fields of the lpPacket object.
    * @param lpPacket The LpPacket object whose fields are updated.
@@ -552,6 +611,14 @@ public class Tlv0_2WireFormat extends WireFormat {
 
         lpPacket.addHeaderField(networkNack);
       }
+      else if (fieldType == Tlv.LpPacket_Sequence) {
+        // The Sequence is a fixed-width integer, but we accept any length.
+        lpPacket.setSequence(decoder.readNonNegativeInteger(fieldLength));
+      }
+      else if (fieldType == Tlv.LpPacket_FragIndex)
+        lpPacket.setFragIndex(decoder.readNonNegativeInteger(fieldLength));
+      else if (fieldType == Tlv.LpPacket_FragCount)
+        lpPacket.setFragCount(decoder.readNonNegativeInteger(fieldLength));
       else if (fieldType == Tlv.LpPacket_IncomingFaceId) {
         IncomingFaceId incomingFaceId = new IncomingFaceId();
         incomingFaceId.setFaceId(decoder.readNonNegativeInteger(fieldLength));
@@ -1344,6 +1411,5 @@ public class Tlv0_2WireFormat extends WireFormat {
     decoder.finishNestedTlvs(endOffset);
   }
 
-  private static final Random random_ = new Random();
   private static Tlv0_2WireFormat instance_ = new Tlv0_2WireFormat();
 }
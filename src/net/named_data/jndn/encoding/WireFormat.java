@@ -549,6 +549,21 @@ public class WireFormat {
       ("encodeSignatureValue is not implemented");
   }
 
+  /**
+   * Encode lpPacket and return the encoding. Your derived class should
+   * override.
+   * @param lpPacket The LpPacket object to encode.
+   * @return A Blob containing the encoding.
+   * @throws UnsupportedOperationException for unimplemented if the derived
+   * class does not override.
+   */
+  public Blob
+  encodeLpPacket(LpPacket lpPacket)
+  {
+    throw new UnsupportedOperationException
+      ("encodeLpPacket is not implemented");
+  }
+
   /**
    * Decode input as an LpPacket and set the fields of the lpPacket object. Your
    * derived class should override.
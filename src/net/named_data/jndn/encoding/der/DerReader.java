@@ -0,0 +1,344 @@
+/**
+ * Copyright (C) 2017 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+package net.named_data.jndn.encoding.der;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * A DerReader reads DER-encoded elements in place from an input buffer,
+ * without building the tree of DerNode objects that DerNode.parse makes. It
+ * moves like a cursor through the nested elements in the same way that
+ * TlvDecoder reads nested NDN-TLV: readNestedStart enters a SEQUENCE and
+ * returns its end offset, peekType checks the next element, readValue returns
+ * a slice of the value without copying, and finishNested skips to the end of
+ * the SEQUENCE. Use this to extract only the needed fields of a certificate or
+ * key. Use DerNode when you need the tree, for example to encode.
+ */
+public class DerReader {
+  /**
+   * Create a new DerReader to read the input.
+   * @param input The input ByteBuffer whose position and limit are set to the
+   * desired bytes to read. This calls input.duplicate(), but does not copy
+   * the underlying buffer whose contents must remain valid during the life of
+   * this object.
+   */
+  public
+  DerReader(ByteBuffer input)
+  {
+    input_ = input.duplicate();
+  }
+
+  /**
+   * Read the type and length of the element at the input buffer position,
+   * expecting the type to be expectedType, and return the length. Update the
+   * input buffer position to the start of the value.
+   * @param expectedType The expected type, a value from DerNodeType.
+   * @return The length of the value.
+   * @throws DerDecodingException if did not get the expected type, or the
+   * length exceeds the buffer length or is not supported.
+   */
+  public final int
+  readTypeAndLength(int expectedType) throws DerDecodingException
+  {
+    try {
+      int type = (int)input_.get() & 0xff;
+      if (type != expectedType)
+        throw new DerDecodingException
+          ("DerReader: Expected DER type " + expectedType + " but got " + type);
+
+      int length = (int)input_.get() & 0xff;
+      if ((length & 0x80) != 0) {
+        // The long format.
+        int nLengthBytes = length & 0x7f;
+        if (nLengthBytes == 0 || nLengthBytes > 4)
+          throw new DerDecodingException
+            ("DerReader: Unsupported DER length format");
+        length = 0;
+        for (int i = 0; i < nLengthBytes; ++i)
+          length = (length << 8) + ((int)input_.get() & 0xff);
+        if (length < 0)
+          throw new DerDecodingException("DerReader: The DER length is too large");
+      }
+
+      if (length > input_.remaining())
+        throw new DerDecodingException
+          ("DerReader: The DER length exceeds the buffer length");
+      return length;
+    } catch (BufferUnderflowException ex) {
+      throw new DerDecodingException("DerReader: Read past the end of the input");
+    }
+  }
+
+  /**
+   * Read the type and length of a constructed element such as a SEQUENCE,
+   * expecting the type to be expectedType. Return the input buffer position
+   * (offset) of the end of the element, which is used to read the optional
+   * nested elements. After reading the nested elements, call finishNested.
+   * @param expectedType The expected type, such as DerNodeType.Sequence.
+   * @return The input buffer position (offset) of the end of the element.
+   * @throws DerDecodingException if did not get the expected type, or the
+   * length exceeds the buffer length.
+   */
+  public final int
+  readNestedStart(int expectedType) throws DerDecodingException
+  {
+    return readTypeAndLength(expectedType) + input_.position();
+  }
+
+  /**
+   * Call this after reading the needed nested elements to skip the remaining
+   * elements up to endOffset.
+   * @param endOffset The offset of the end of the element, returned by
+   * readNestedStart.
+   * @throws DerDecodingException if the nested elements went past endOffset.
+   */
+  public final void
+  finishNested(int endOffset) throws DerDecodingException
+  {
+    if (input_.position() > endOffset)
+      throw new DerDecodingException
+        ("DerReader: The nested DER elements exceed the parent length");
+    input_.position(endOffset);
+  }
+
+  /**
+   * Check if the type of the element at the input buffer position is
+   * expectedType. However, if the input buffer position is greater than or
+   * equal to endOffset, then return false. Do not update the input buffer
+   * position.
+   * @param expectedType The expected type, a value from DerNodeType.
+   * @param endOffset The offset of the end of the parent element, returned by
+   * readNestedStart.
+   * @return True if the type of the next element is expectedType.
+   */
+  public final boolean
+  peekType(int expectedType, int endOffset)
+  {
+    if (input_.position() >= endOffset)
+      // No more nested elements to look at.
+      return false;
+    else
+      return ((int)input_.get(input_.position()) & 0xff) == expectedType;
+  }
+
+  /**
+   * Check if there is another element before endOffset.
+   * @param endOffset The offset of the end of the parent element, returned by
+   * readNestedStart.
+   * @return True if the input buffer position is less than endOffset.
+   */
+  public final boolean
+  hasMore(int endOffset) { return input_.position() < endOffset; }
+
+  /**
+   * Read an element of expectedType and return its value. Update the input
+   * buffer position.
+   * @param expectedType The expected type, a value from DerNodeType.
+   * @return A slice of the input buffer for the value. This does not copy the
+   * bytes.
+   * @throws DerDecodingException if did not get the expected type, or the
+   * length exceeds the buffer length.
+   */
+  public final ByteBuffer
+  readValue(int expectedType) throws DerDecodingException
+  {
+    int length = readTypeAndLength(expectedType);
+    int beginOffset = input_.position();
+    input_.position(beginOffset + length);
+    return getSlice(beginOffset, beginOffset + length);
+  }
+
+  /**
+   * Read the next element of any type and return its whole encoding, including
+   * the type and length. Update the input buffer position.
+   * @return A slice of the input buffer for the element. This does not copy the
+   * bytes.
+   * @throws DerDecodingException if the length exceeds the buffer length.
+   */
+  public final ByteBuffer
+  readElement() throws DerDecodingException
+  {
+    int beginOffset = input_.position();
+    skip();
+    return getSlice(beginOffset, input_.position());
+  }
+
+  /**
+   * Skip the next element of any type. Update the input buffer position.
+   * @throws DerDecodingException if the length exceeds the buffer length.
+   */
+  public final void
+  skip() throws DerDecodingException
+  {
+    if (!input_.hasRemaining())
+      throw new DerDecodingException("DerReader: Read past the end of the input");
+    int length = readTypeAndLength((int)input_.get(input_.position()) & 0xff);
+    input_.position(input_.position() + length);
+  }
+
+  /**
+   * Read an OBJECT IDENTIFIER element and return its string representation.
+   * Update the input buffer position.
+   * @return The OID string, for example "1.2.840.113549.1.1.1".
+   * @throws DerDecodingException for an invalid encoding.
+   */
+  public final String
+  readOid() throws DerDecodingException
+  {
+    int length = readTypeAndLength(DerNodeType.ObjectIdentifier);
+    if (length == 0)
+      throw new DerDecodingException("DerReader: The OID is empty");
+    int endOffset = input_.position() + length;
+
+    StringBuilder result = new StringBuilder();
+    boolean isFirst = true;
+    while (input_.position() < endOffset) {
+      int value = 0;
+      int b;
+      do {
+        if (input_.position() >= endOffset)
+          throw new DerDecodingException("DerReader: Incomplete OID component");
+        b = (int)input_.get() & 0xff;
+        value = (value << 7) + (b & 0x7f);
+      } while ((b & 0x80) != 0);
+
+      if (isFirst) {
+        // The first byte has the first two numbers.
+        result.append(value / 40).append('.').append(value % 40);
+        isFirst = false;
+      }
+      else
+        result.append('.').append(value);
+    }
+
+    return result.toString();
+  }
+
+  /**
+   * Read a BOOLEAN element and return its value. Update the input buffer
+   * position.
+   * @return The boolean value.
+   * @throws DerDecodingException for an invalid encoding.
+   */
+  public final boolean
+  readBoolean() throws DerDecodingException
+  {
+    if (readTypeAndLength(DerNodeType.Boolean) != 1)
+      throw new DerDecodingException("DerReader: The BOOLEAN length is not 1");
+    return input_.get() != 0;
+  }
+
+  /**
+   * Read a GeneralizedTime element in the format YYYYMMDDhhmmssZ (as encoded
+   * by DerNode.DerGeneralizedTime) and return the time. Update the input
+   * buffer position.
+   * @return The time as milliseconds since 1/1/1970 UTC.
+   * @throws DerDecodingException for an invalid encoding.
+   */
+  public final double
+  readGeneralizedTime() throws DerDecodingException
+  {
+    int length = readTypeAndLength(DerNodeType.GeneralizedTime);
+    int offset = input_.position();
+    input_.position(offset + length);
+    if (length != 15 || input_.get(offset + 14) != 'Z')
+      throw new DerDecodingException
+        ("DerReader: Unsupported GeneralizedTime format");
+
+    int year = readDigits(offset, 4);
+    int month = readDigits(offset + 4, 2);
+    int day = readDigits(offset + 6, 2);
+    int hour = readDigits(offset + 8, 2);
+    int minute = readDigits(offset + 10, 2);
+    int second = readDigits(offset + 12, 2);
+    if (month < 1 || month > 12 || day < 1 || day > 31 || hour > 23 ||
+        minute > 59 || second > 60)
+      throw new DerDecodingException
+        ("DerReader: The GeneralizedTime is out of range");
+
+    return (double)
+      (((daysSince1970(year, month, day) * 24 + hour) * 60 + minute) * 60 +
+       second) * 1000;
+  }
+
+  /**
+   * Get the input buffer position.
+   * @return The input buffer position.
+   */
+  public final int
+  getOffset() { return input_.position(); }
+
+  /**
+   * Set the input buffer position.
+   * @param offset The new input buffer position.
+   */
+  public final void
+  seek(int offset) { input_.position(offset); }
+
+  /**
+   * Return a slice of the input for the given offset range.
+   * @param beginOffset The offset in the input of the beginning of the slice.
+   * @param endOffset The offset in the input of the end of the slice.
+   * @return The bytes in the value as a slice on the buffer. This is not a
+   * copy of the bytes in the input buffer.
+   */
+  public final ByteBuffer
+  getSlice(int beginOffset, int endOffset)
+  {
+    ByteBuffer result = input_.duplicate();
+    result.limit(endOffset);
+    result.position(beginOffset);
+    return result.slice();
+  }
+
+  private int
+  readDigits(int offset, int nDigits) throws DerDecodingException
+  {
+    int result = 0;
+    for (int i = 0; i < nDigits; ++i) {
+      int digit = input_.get(offset + i) - '0';
+      if (digit < 0 || digit > 9)
+        throw new DerDecodingException
+          ("DerReader: Invalid digit in GeneralizedTime");
+      result = result * 10 + digit;
+    }
+    return result;
+  }
+
+  /**
+   * Get the number of days from 1970-01-01 to the date in the proleptic
+   * Gregorian calendar.
+   */
+  private static long
+  daysSince1970(int year, int month, int day)
+  {
+    // Count the year from March so that the leap day is at the end.
+    long y = (month <= 2 ? year - 1 : year);
+    long era = (y >= 0 ? y : y - 399) / 400;
+    long yearOfEra = y - era * 400;
+    long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 +
+      day - 1;
+    long dayOfEra =
+      yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+    return era * 146097 + dayOfEra - 719468;
+  }
+
+  private final ByteBuffer input_;
+}
@@ -127,6 +127,14 @@ public class Tlv {
   public static final int Encrypt_BlackIntervalList = 142;
   public static final int Encrypt_Schedule = 143;
 
+  // For the compact ChronoSync2013 sync state encoding.
+  public static final int SyncState_SyncStateMsg = 160;
+  public static final int SyncState_SyncState = 161;
+  public static final int SyncState_Name = 162;
+  public static final int SyncState_Session = 163;
+  public static final int SyncState_Seq = 164;
+  public static final int SyncState_ApplicationInfo = 165;
+
   public static final int ValidityPeriod_ValidityPeriod = 253;
   public static final int ValidityPeriod_NotBefore = 254;
   public static final int ValidityPeriod_NotAfter = 255;
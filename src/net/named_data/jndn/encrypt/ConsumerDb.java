@@ -20,6 +20,8 @@
 
 package net.named_data.jndn.encrypt;
 
+import java.util.Iterator;
+import java.util.Map;
 import net.named_data.jndn.Name;
 import net.named_data.jndn.util.Blob;
 
@@ -62,6 +64,25 @@ public abstract class ConsumerDb {
   public abstract void
   addKey(Name keyName, Blob keyBlob) throws ConsumerDb.Error;
 
+  /**
+   * Add all the keys in the map to the database. This base implementation
+   * calls addKey for each entry. A subclass may override to add all the keys
+   * in one transaction.
+   * @param keys The map where the key is the Name of the key and the value is
+   * the Blob of the encoded key. (Use Map without generics so it works with
+   * older Java compilers.)
+   * @throws ConsumerDb.Error if a key with the same keyName already exists in
+   * the database, or other database error.
+   */
+  public void
+  addKeys(Map keys) throws ConsumerDb.Error
+  {
+    for (Iterator i = keys.entrySet().iterator(); i.hasNext(); ) {
+      Map.Entry entry = (Map.Entry)i.next();
+      addKey((Name)entry.getKey(), (Blob)entry.getValue());
+    }
+  }
+
   /**
    * Delete the key with keyName from the database. If there is no key with
    * keyName, do nothing.
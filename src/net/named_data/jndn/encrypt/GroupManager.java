@@ -24,6 +24,7 @@ import net.named_data.jndn.encrypt.algo.Encryptor;
 import java.security.NoSuchAlgorithmException;
 import java.security.spec.InvalidKeySpecException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
@@ -185,6 +186,35 @@ public class GroupManager {
       (scheduleName, cert.getPublicKeyName(), cert.getPublicKeyInfo().getKeyDer());
   }
 
+  /**
+   * Add new members with the given memberCertificates into a schedule named
+   * scheduleName. This decodes all the certificates first, then adds the
+   * members to the database with GroupManagerDb.addMembers which may write
+   * them in one transaction.
+   * @param scheduleName The schedule name.
+   * @param memberCertificates The List of Data with each member's certificate.
+   * (Use List without generics so it works with older Java compilers.)
+   * @throws GroupManagerDb.Error If there's no schedule named scheduleName, if
+   * a member's identity name already exists, or other database error.
+   * @throws DerDecodingException for error decoding a memberCertificate as a
+   * certificate.
+   */
+  public final void
+  addMembers(String scheduleName, List memberCertificates)
+    throws GroupManagerDb.Error, DerDecodingException
+  {
+    // Use a LinkedHashMap to add the members in the given order.
+    Map memberKeys = new LinkedHashMap();
+    for (int i = 0; i < memberCertificates.size(); ++i) {
+      IdentityCertificate cert = new IdentityCertificate
+        ((Data)memberCertificates.get(i));
+      memberKeys.put
+        (cert.getPublicKeyName(), cert.getPublicKeyInfo().getKeyDer());
+    }
+
+    database_.addMembers(scheduleName, memberKeys);
+  }
+
   /**
    * Remove a member with the given identity name. If there is no member with
    * the identity name, then do nothing.
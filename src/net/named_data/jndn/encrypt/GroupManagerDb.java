@@ -20,6 +20,7 @@
 
 package net.named_data.jndn.encrypt;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import net.named_data.jndn.Name;
@@ -171,6 +172,27 @@ public abstract class GroupManagerDb {
   public abstract void
   addMember(String scheduleName, Name keyName, Blob key) throws GroupManagerDb.Error;
 
+  /**
+   * Add new members with the given keys into a schedule named scheduleName.
+   * This base implementation calls addMember for each entry. A subclass may
+   * override to add all the members in one transaction.
+   * @param scheduleName The schedule name.
+   * @param memberKeys The map where the key is the Name of the member's key and
+   * the value is the Blob of the public key DER, as returned by
+   * getScheduleMembers. (Use Map without generics so it works with older Java
+   * compilers.)
+   * @throws GroupManagerDb.Error If there's no schedule named scheduleName, if
+   * a member's identity name already exists, or other database error.
+   */
+  public void
+  addMembers(String scheduleName, Map memberKeys) throws GroupManagerDb.Error
+  {
+    for (Iterator i = memberKeys.entrySet().iterator(); i.hasNext(); ) {
+      Map.Entry entry = (Map.Entry)i.next();
+      addMember(scheduleName, (Name)entry.getKey(), (Blob)entry.getValue());
+    }
+  }
+
   /**
    * Change the name of the schedule for the given member's identity name.
    * @param identity The member's identity name.
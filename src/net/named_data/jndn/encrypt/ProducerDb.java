@@ -20,6 +20,8 @@
 
 package net.named_data.jndn.encrypt;
 
+import java.util.Iterator;
+import java.util.Map;
 import net.named_data.jndn.util.Blob;
 
 /**
@@ -71,6 +73,25 @@ public abstract class ProducerDb {
   public abstract void
   addContentKey(double timeSlot, Blob key) throws ProducerDb.Error;
 
+  /**
+   * Add all the content keys in the map to the database. This base
+   * implementation calls addContentKey for each entry. A subclass may override
+   * to add all the keys in one transaction.
+   * @param keys The map where the key is the Double time slot as milliseconds
+   * since Jan 1, 1970 UTC and the value is the Blob of the encoded key. (Use
+   * Map without generics so it works with older Java compilers.)
+   * @throws ProducerDb.Error if a key for the same hour already exists in the
+   * database, or other database error.
+   */
+  public void
+  addContentKeys(Map keys) throws ProducerDb.Error
+  {
+    for (Iterator i = keys.entrySet().iterator(); i.hasNext(); ) {
+      Map.Entry entry = (Map.Entry)i.next();
+      addContentKey((Double)entry.getKey(), (Blob)entry.getValue());
+    }
+  }
+
   /**
    * Delete the content key for the hour covering timeSlot. If there is no key
    * for the time slot, do nothing.
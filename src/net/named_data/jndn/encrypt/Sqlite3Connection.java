@@ -0,0 +1,182 @@
+/**
+ * Copyright (C) 2017 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+package net.named_data.jndn.encrypt;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Iterator;
+
+/**
+ * Sqlite3Connection wraps the JDBC Connection which is shared by the methods of
+ * Sqlite3GroupManagerDb, Sqlite3ProducerDb and Sqlite3ConsumerDb. It opens the
+ * database in write-ahead log (WAL) mode, keeps one PreparedStatement for each
+ * SQL string so that it is compiled only once, and supports nested
+ * transactions so that a batch of updates is written with one commit instead
+ * of one commit per update.
+ */
+class Sqlite3Connection {
+  /**
+   * Open the SQLite3 file and set the journal mode to WAL.
+   * @param databaseFilePath The path of the SQLite file.
+   * @throws SQLException for a database error.
+   */
+  public Sqlite3Connection(String databaseFilePath) throws SQLException
+  {
+    connection_ = DriverManager.getConnection("jdbc:sqlite:" + databaseFilePath);
+
+    Statement statement = connection_.createStatement();
+    // Use "try/finally instead of "try-with-resources" or "using" which are
+    // not supported before Java 7.
+    try {
+      // In WAL mode, a commit appends to the log instead of rewriting the
+      // database pages, and synchronous=NORMAL only syncs at checkpoints. This
+      // is still safe against corruption. (An in-memory database ignores it.)
+      statement.execute("PRAGMA journal_mode=WAL");
+      statement.execute("PRAGMA synchronous=NORMAL");
+    } finally {
+      statement.close();
+    }
+  }
+
+  /**
+   * Create a new Statement. The caller must close it.
+   * @return The new Statement.
+   * @throws SQLException for a database error.
+   */
+  public final Statement
+  createStatement() throws SQLException
+  {
+    return connection_.createStatement();
+  }
+
+  /**
+   * Get the cached PreparedStatement for the sql, creating it if needed. The
+   * parameters are cleared. The caller should close the ResultSet of a query
+   * but must not close the returned statement.
+   * @param sql The SQL string, which should be one of the constant strings in
+   * the Sqlite3*DbBase classes.
+   * @return The PreparedStatement.
+   * @throws SQLException for a database error.
+   */
+  public final PreparedStatement
+  prepareStatement(String sql) throws SQLException
+  {
+    PreparedStatement statement = statements_.get(sql);
+    if (statement != null) {
+      try {
+        statement.clearParameters();
+        return statement;
+      } catch (SQLException ex) {
+        // The org.sqlite.JDBC driver finalizes a statement whose execution
+        // failed (for example from a constraint violation), so that it can't
+        // be reused. Prepare it again.
+        try {
+          statement.close();
+        } catch (SQLException ignored) {}
+      }
+    }
+
+    statement = connection_.prepareStatement(sql);
+    statements_.put(sql, statement);
+    return statement;
+  }
+
+  /**
+   * Begin a transaction. If a transaction is already in progress, this only
+   * increments the nesting level so that the updates are written by the
+   * matching outermost commitTransaction().
+   * @throws SQLException for a database error.
+   */
+  public final void
+  beginTransaction() throws SQLException
+  {
+    if (transactionDepth_ == 0)
+      connection_.setAutoCommit(false);
+    ++transactionDepth_;
+  }
+
+  /**
+   * End the transaction started by beginTransaction(). If this is the
+   * outermost transaction, commit the updates. If there is no transaction in
+   * progress (for example because of rollbackTransaction()), do nothing.
+   * @throws SQLException for a database error.
+   */
+  public final void
+  commitTransaction() throws SQLException
+  {
+    if (transactionDepth_ == 0)
+      return;
+
+    --transactionDepth_;
+    if (transactionDepth_ == 0) {
+      try {
+        connection_.commit();
+      } finally {
+        connection_.setAutoCommit(true);
+      }
+    }
+  }
+
+  /**
+   * Discard all updates of the transaction in progress, including enclosing
+   * nested transactions, and return to auto-commit mode. If there is no
+   * transaction in progress, do nothing.
+   * @throws SQLException for a database error.
+   */
+  public final void
+  rollbackTransaction() throws SQLException
+  {
+    if (transactionDepth_ == 0)
+      return;
+
+    transactionDepth_ = 0;
+    try {
+      connection_.rollback();
+    } finally {
+      connection_.setAutoCommit(true);
+    }
+  }
+
+  /**
+   * Close the cached statements and the connection.
+   * @throws SQLException for a database error.
+   */
+  public final void
+  close() throws SQLException
+  {
+    try {
+      for (Iterator<PreparedStatement> i = statements_.values().iterator();
+           i.hasNext(); )
+        i.next().close();
+      statements_.clear();
+    } finally {
+      connection_.close();
+    }
+  }
+
+  private final Connection connection_;
+  private final HashMap<String, PreparedStatement> statements_ =
+    new HashMap<String, PreparedStatement>();
+  private int transactionDepth_ = 0;
+}
@@ -20,12 +20,12 @@
 
 package net.named_data.jndn.encrypt;
 
-import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import net.named_data.jndn.Name;
@@ -34,7 +34,10 @@ import net.named_data.jndn.util.Blob;
 
 /**
  * Sqlite3ConsumerDb extends ConsumerDb to implement the storage of decryption
- * keys for the consumer using SQLite3.
+ * keys for the consumer using SQLite3. The database is opened in write-ahead
+ * log mode and each prepared statement is compiled once and reused. Use
+ * addKeys or beginTransaction/commitTransaction to write many updates with one
+ * commit.
  * @note This class is an experimental feature. The API may change.
  */
 public class Sqlite3ConsumerDb extends Sqlite3ConsumerDbBase {
@@ -55,7 +58,7 @@ public class Sqlite3ConsumerDb extends Sqlite3ConsumerDbBase {
     }
 
     try {
-      database_ = DriverManager.getConnection("jdbc:sqlite:" + databaseFilePath);
+      database_ = new Sqlite3Connection(databaseFilePath);
 
       Statement statement = database_.createStatement();
       // Use "try/finally instead of "try-with-resources" or "using" which are
@@ -88,13 +91,12 @@ public class Sqlite3ConsumerDb extends Sqlite3ConsumerDbBase {
         (1, keyName.wireEncode(TlvWireFormat.get()).getImmutableArray());
 
       Blob key = new Blob();
+      ResultSet result = statement.executeQuery();
       try {
-        ResultSet result = statement.executeQuery();
-
         if (result.next())
           key = new Blob(result.getBytes(1), false);
       } finally {
-        statement.close();
+        result.close();
       }
 
       return key;
@@ -120,17 +122,41 @@ public class Sqlite3ConsumerDb extends Sqlite3ConsumerDbBase {
         (1, keyName.wireEncode(TlvWireFormat.get()).getImmutableArray());
       statement.setBytes(2, keyBlob.getImmutableArray());
 
-      try {
-        statement.executeUpdate();
-      } finally {
-        statement.close();
-      }
+      statement.executeUpdate();
     } catch (SQLException exception) {
       throw new ConsumerDb.Error
         ("Sqlite3ConsumerDb.addKey: SQLite error: " + exception);
     }
   }
 
+  /**
+   * Add all the keys in the map to the database in one transaction. If there
+   * is an error, none of the keys are added.
+   * @param keys The map where the key is the Name of the key and the value is
+   * the Blob of the encoded key. (Use Map without generics so it works with
+   * older Java compilers.)
+   * @throws ConsumerDb.Error if a key with the same keyName already exists in
+   * the database, or other database error.
+   */
+  public void
+  addKeys(Map keys) throws ConsumerDb.Error
+  {
+    beginTransaction();
+    boolean isCommitted = false;
+    try {
+      for (Iterator i = keys.entrySet().iterator(); i.hasNext(); ) {
+        Map.Entry entry = (Map.Entry)i.next();
+        addKey((Name)entry.getKey(), (Blob)entry.getValue());
+      }
+
+      commitTransaction();
+      isCommitted = true;
+    } finally {
+      if (!isCommitted)
+        rollbackTransaction();
+    }
+  }
+
   /**
    * Delete the key with keyName from the database. If there is no key with
    * keyName, do nothing.
@@ -145,16 +171,75 @@ public class Sqlite3ConsumerDb extends Sqlite3ConsumerDbBase {
       statement.setBytes
         (1, keyName.wireEncode(TlvWireFormat.get()).getImmutableArray());
 
-      try {
-        statement.executeUpdate();
-      } finally {
-        statement.close();
-      }
+      statement.executeUpdate();
     } catch (SQLException exception) {
       throw new ConsumerDb.Error
         ("Sqlite3ConsumerDb.deleteKey: SQLite error: " + exception);
     }
   }
 
-  Connection database_ = null;
+  /**
+   * Begin a transaction so that the following updates are written with one
+   * commit by the matching commitTransaction(). Transactions may be nested, in
+   * which case only the outermost commitTransaction() writes the updates.
+   * @throws ConsumerDb.Error for a database error.
+   */
+  public final void
+  beginTransaction() throws ConsumerDb.Error
+  {
+    try {
+      database_.beginTransaction();
+    } catch (SQLException exception) {
+      throw new ConsumerDb.Error
+        ("Sqlite3ConsumerDb.beginTransaction: SQLite error: " + exception);
+    }
+  }
+
+  /**
+   * Commit the transaction started by beginTransaction().
+   * @throws ConsumerDb.Error for a database error.
+   */
+  public final void
+  commitTransaction() throws ConsumerDb.Error
+  {
+    try {
+      database_.commitTransaction();
+    } catch (SQLException exception) {
+      throw new ConsumerDb.Error
+        ("Sqlite3ConsumerDb.commitTransaction: SQLite error: " + exception);
+    }
+  }
+
+  /**
+   * Discard the updates of the transaction started by beginTransaction(),
+   * including any enclosing transactions.
+   * @throws ConsumerDb.Error for a database error.
+   */
+  public final void
+  rollbackTransaction() throws ConsumerDb.Error
+  {
+    try {
+      database_.rollbackTransaction();
+    } catch (SQLException exception) {
+      throw new ConsumerDb.Error
+        ("Sqlite3ConsumerDb.rollbackTransaction: SQLite error: " + exception);
+    }
+  }
+
+  /**
+   * Close the database. After this, this object should not be used.
+   * @throws ConsumerDb.Error for a database error.
+   */
+  public final void
+  close() throws ConsumerDb.Error
+  {
+    try {
+      database_.close();
+    } catch (SQLException exception) {
+      throw new ConsumerDb.Error
+        ("Sqlite3ConsumerDb.close: SQLite error: " + exception);
+    }
+  }
+
+  Sqlite3Connection database_ = null;
 }
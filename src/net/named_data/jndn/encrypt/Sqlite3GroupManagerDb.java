@@ -20,14 +20,13 @@
 
 package net.named_data.jndn.encrypt;
 
-import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
@@ -39,7 +38,10 @@ import net.named_data.jndn.util.Blob;
 
 /**
  * Sqlite3GroupManagerDb extends GroupManagerDb to implement the storage of
- * data used by the GroupManager using SQLite3.
+ * data used by the GroupManager using SQLite3. The database is opened in
+ * write-ahead log mode and each prepared statement is compiled once and reused.
+ * Use addMembers or beginTransaction/commitTransaction to write many updates
+ * with one commit.
  * @note This class is an experimental feature. The API may change.
  */
 public class Sqlite3GroupManagerDb extends Sqlite3GroupManagerDbBase {
@@ -60,7 +62,7 @@ public class Sqlite3GroupManagerDb extends Sqlite3GroupManagerDbBase {
     }
 
     try {
-      database_ = DriverManager.getConnection("jdbc:sqlite:" + databaseFilePath);
+      database_ = new Sqlite3Connection(databaseFilePath);
 
       Statement statement = database_.createStatement();
       // Use "try/finally instead of "try-with-resources" or "using" which are
@@ -96,15 +98,14 @@ public class Sqlite3GroupManagerDb extends Sqlite3GroupManagerDbBase {
         (SELECT_hasSchedule);
       statement.setString(1, name);
 
+      ResultSet result = statement.executeQuery();
       try {
-        ResultSet result = statement.executeQuery();
-
         if (result.next())
           return true;
         else
           return false;
       } finally {
-        statement.close();
+        result.close();
       }
     } catch (SQLException exception) {
       throw new GroupManagerDb.Error("Sqlite3GroupManagerDb.hasSchedule: SQLite error: " + exception);
@@ -126,13 +127,12 @@ public class Sqlite3GroupManagerDb extends Sqlite3GroupManagerDbBase {
       PreparedStatement statement = database_.prepareStatement
         (SELECT_listAllScheduleNames);
 
+      ResultSet result = statement.executeQuery();
       try {
-        ResultSet result = statement.executeQuery();
-
         while (result.next())
           list.add(result.getString(1));
       } finally {
-        statement.close();
+        result.close();
       }
     } catch (SQLException exception) {
       throw new GroupManagerDb.Error("Sqlite3GroupManagerDb.listAllScheduleNames: SQLite error: " + exception);
@@ -157,9 +157,8 @@ public class Sqlite3GroupManagerDb extends Sqlite3GroupManagerDbBase {
       statement.setString(1, name);
 
       Schedule schedule = new Schedule();
+      ResultSet result = statement.executeQuery();
       try {
-        ResultSet result = statement.executeQuery();
-
         if (result.next()) {
           try {
             schedule.wireDecode(new Blob(result.getBytes(1), false));
@@ -173,7 +172,7 @@ public class Sqlite3GroupManagerDb extends Sqlite3GroupManagerDbBase {
           throw new GroupManagerDb.Error
             ("Sqlite3GroupManagerDb.getSchedule: Cannot get the result from the database");
       } finally {
-        statement.close();
+        result.close();
       }
 
       return schedule;
@@ -203,9 +202,8 @@ public class Sqlite3GroupManagerDb extends Sqlite3GroupManagerDbBase {
         (SELECT_getScheduleMembers);
       statement.setString(1, name);
 
+      ResultSet result = statement.executeQuery();
       try {
-        ResultSet result = statement.executeQuery();
-
         while (result.next()) {
           Name keyName = new Name();
           try {
@@ -219,7 +217,7 @@ public class Sqlite3GroupManagerDb extends Sqlite3GroupManagerDbBase {
           map.put(keyName, new Blob(result.getBytes(2), false));
         }
       } finally {
-        statement.close();
+        result.close();
       }
     } catch (SQLException exception) {
       throw new GroupManagerDb.Error("Sqlite3GroupManagerDb.getScheduleMembers: SQLite error: " + exception);
@@ -246,11 +244,7 @@ public class Sqlite3GroupManagerDb extends Sqlite3GroupManagerDbBase {
       statement.setString(1, name);
       statement.setBytes(2, schedule.wireEncode().getImmutableArray());
 
-      try {
-        statement.executeUpdate();
-      } finally {
-        statement.close();
-      }
+      statement.executeUpdate();
     } catch (SQLException exception) {
       throw new GroupManagerDb.Error
         ("Sqlite3GroupManagerDb.addSchedule: SQLite error: " + exception);
@@ -270,6 +264,9 @@ public class Sqlite3GroupManagerDb extends Sqlite3GroupManagerDbBase {
     if (scheduleId == -1)
       return;
 
+    // Delete the members and the schedule in one commit.
+    beginTransaction();
+    boolean isCommitted = false;
     try {
       // First delete the members. We don't use FOREIGN KEY because some SQLite
       // implementations don's support it.
@@ -277,24 +274,22 @@ public class Sqlite3GroupManagerDb extends Sqlite3GroupManagerDbBase {
         (DELETE_deleteScheduleMembers);
       membersStatement.setInt(1, scheduleId);
 
-      try {
-        membersStatement.executeUpdate();
-      } finally {
-        membersStatement.close();
-      }
+      membersStatement.executeUpdate();
 
       PreparedStatement statement = database_.prepareStatement
         (DELETE_deleteSchedule);
       statement.setInt(1, scheduleId);
 
-      try {
-        statement.executeUpdate();
-      } finally {
-        statement.close();
-      }
+      statement.executeUpdate();
+
+      commitTransaction();
+      isCommitted = true;
     } catch (SQLException exception) {
       throw new GroupManagerDb.Error
         ("Sqlite3GroupManagerDb.deleteSchedule: SQLite error: " + exception);
+    } finally {
+      if (!isCommitted)
+        rollbackTransaction();
     }
   }
 
@@ -317,11 +312,7 @@ public class Sqlite3GroupManagerDb extends Sqlite3GroupManagerDbBase {
       statement.setString(1, newName);
       statement.setString(2, oldName);
 
-      try {
-        statement.executeUpdate();
-      } finally {
-        statement.close();
-      }
+      statement.executeUpdate();
     } catch (SQLException exception) {
       throw new GroupManagerDb.Error
         ("Sqlite3GroupManagerDb.renameSchedule: SQLite error: " + exception);
@@ -350,11 +341,7 @@ public class Sqlite3GroupManagerDb extends Sqlite3GroupManagerDbBase {
       statement.setBytes(1, schedule.wireEncode().getImmutableArray());
       statement.setString(2, name);
 
-      try {
-        statement.executeUpdate();
-      } finally {
-        statement.close();
-      }
+      statement.executeUpdate();
     } catch (SQLException exception) {
       throw new GroupManagerDb.Error
         ("Sqlite3GroupManagerDb.updateSchedule: SQLite error: " + exception);
@@ -378,15 +365,14 @@ public class Sqlite3GroupManagerDb extends Sqlite3GroupManagerDbBase {
       statement.setBytes
         (1, identity.wireEncode(TlvWireFormat.get()).getImmutableArray());
 
+      ResultSet result = statement.executeQuery();
       try {
-        ResultSet result = statement.executeQuery();
-
         if (result.next())
           return true;
         else
           return false;
       } finally {
-        statement.close();
+        result.close();
       }
     } catch (SQLException exception) {
       throw new GroupManagerDb.Error("Sqlite3GroupManagerDb.hasMember: SQLite error: " + exception);
@@ -408,9 +394,8 @@ public class Sqlite3GroupManagerDb extends Sqlite3GroupManagerDbBase {
       PreparedStatement statement = database_.prepareStatement
         (SELECT_listAllMembers);
 
+      ResultSet result = statement.executeQuery();
       try {
-        ResultSet result = statement.executeQuery();
-
         while (result.next()) {
           Name identity = new Name();
           try {
@@ -424,7 +409,7 @@ public class Sqlite3GroupManagerDb extends Sqlite3GroupManagerDbBase {
           list.add(identity);
         }
       } finally {
-        statement.close();
+        result.close();
       }
     } catch (SQLException exception) {
       throw new GroupManagerDb.Error("Sqlite3GroupManagerDb.listAllMembers: SQLite error: " + exception);
@@ -449,16 +434,15 @@ public class Sqlite3GroupManagerDb extends Sqlite3GroupManagerDbBase {
       statement.setBytes
         (1, identity.wireEncode(TlvWireFormat.get()).getImmutableArray());
 
+      ResultSet result = statement.executeQuery();
       try {
-        ResultSet result = statement.executeQuery();
-
         if (result.next())
           return result.getString(1);
         else
           throw new GroupManagerDb.Error
             ("Sqlite3GroupManagerDb.getMemberSchedule: Cannot get the result from the database");
       } finally {
-        statement.close();
+        result.close();
       }
     } catch (SQLException exception) {
       throw new GroupManagerDb.Error
@@ -482,26 +466,46 @@ public class Sqlite3GroupManagerDb extends Sqlite3GroupManagerDbBase {
     if (scheduleId == -1)
       throw new GroupManagerDb.Error("The schedule does not exist");
 
-    // Needs to be changed in the future.
-    Name memberName = keyName.getPrefix(-1);
-
     try {
-      PreparedStatement statement = database_.prepareStatement
-        (INSERT_addMember);
-      statement.setInt(1, scheduleId);
-      statement.setBytes
-        (2, memberName.wireEncode(TlvWireFormat.get()).getImmutableArray());
-      statement.setBytes
-        (3, keyName.wireEncode(TlvWireFormat.get()).getImmutableArray());
-      statement.setBytes(4, key.getImmutableArray());
+      insertMember(scheduleId, keyName, key);
+    } catch (SQLException exception) {
+      throw new GroupManagerDb.Error("Sqlite3GroupManagerDb.addMember: SQLite error: " + exception);
+    }
+  }
 
-      try {
-        statement.executeUpdate();
-      } finally {
-        statement.close();
+  /**
+   * Add new members with the given keys into a schedule named scheduleName in
+   * one transaction. If there is an error, none of the members are added.
+   * @param scheduleName The schedule name.
+   * @param memberKeys The map where the key is the Name of the member's key and
+   * the value is the Blob of the public key DER, as returned by
+   * getScheduleMembers. (Use Map without generics so it works with older Java
+   * compilers.)
+   * @throws GroupManagerDb.Error If there's no schedule named scheduleName, if
+   * a member's identity name already exists, or other database error.
+   */
+  public void
+  addMembers(String scheduleName, Map memberKeys) throws GroupManagerDb.Error
+  {
+    int scheduleId = getScheduleId(scheduleName);
+    if (scheduleId == -1)
+      throw new GroupManagerDb.Error("The schedule does not exist");
+
+    beginTransaction();
+    boolean isCommitted = false;
+    try {
+      for (Iterator i = memberKeys.entrySet().iterator(); i.hasNext(); ) {
+        Map.Entry entry = (Map.Entry)i.next();
+        insertMember(scheduleId, (Name)entry.getKey(), (Blob)entry.getValue());
       }
+
+      commitTransaction();
+      isCommitted = true;
     } catch (SQLException exception) {
-      throw new GroupManagerDb.Error("Sqlite3GroupManagerDb.addMember: SQLite error: " + exception);
+      throw new GroupManagerDb.Error("Sqlite3GroupManagerDb.addMembers: SQLite error: " + exception);
+    } finally {
+      if (!isCommitted)
+        rollbackTransaction();
     }
   }
 
@@ -528,11 +532,7 @@ public class Sqlite3GroupManagerDb extends Sqlite3GroupManagerDbBase {
       statement.setBytes
         (2, identity.wireEncode(TlvWireFormat.get()).getImmutableArray());
 
-      try {
-        statement.executeUpdate();
-      } finally {
-        statement.close();
-      }
+      statement.executeUpdate();
     } catch (SQLException exception) {
       throw new GroupManagerDb.Error
         ("Sqlite3GroupManagerDb.updateMemberSchedule: SQLite error: " + exception);
@@ -554,11 +554,7 @@ public class Sqlite3GroupManagerDb extends Sqlite3GroupManagerDbBase {
       statement.setBytes
         (1, identity.wireEncode(TlvWireFormat.get()).getImmutableArray());
 
-      try {
-        statement.executeUpdate();
-      } finally {
-        statement.close();
-      }
+      statement.executeUpdate();
     } catch (SQLException exception) {
       throw new GroupManagerDb.Error
         ("Sqlite3GroupManagerDb.deleteMember: SQLite error: " + exception);
@@ -579,15 +575,14 @@ public class Sqlite3GroupManagerDb extends Sqlite3GroupManagerDbBase {
         (SELECT_getScheduleId);
       statement.setString(1, name);
 
+      ResultSet result = statement.executeQuery();
       try {
-        ResultSet result = statement.executeQuery();
-
         if (result.next())
           return result.getInt(1);
         else
           return -1;
       } finally {
-        statement.close();
+        result.close();
       }
     } catch (SQLException exception) {
       throw new GroupManagerDb.Error
@@ -595,5 +590,93 @@ public class Sqlite3GroupManagerDb extends Sqlite3GroupManagerDbBase {
     }
   }
 
-  Connection database_ = null;
+  /**
+   * Begin a transaction so that the following updates are written with one
+   * commit by the matching commitTransaction(). Transactions may be nested, in
+   * which case only the outermost commitTransaction() writes the updates.
+   * @throws GroupManagerDb.Error for a database error.
+   */
+  public final void
+  beginTransaction() throws GroupManagerDb.Error
+  {
+    try {
+      database_.beginTransaction();
+    } catch (SQLException exception) {
+      throw new GroupManagerDb.Error
+        ("Sqlite3GroupManagerDb.beginTransaction: SQLite error: " + exception);
+    }
+  }
+
+  /**
+   * Commit the transaction started by beginTransaction().
+   * @throws GroupManagerDb.Error for a database error.
+   */
+  public final void
+  commitTransaction() throws GroupManagerDb.Error
+  {
+    try {
+      database_.commitTransaction();
+    } catch (SQLException exception) {
+      throw new GroupManagerDb.Error
+        ("Sqlite3GroupManagerDb.commitTransaction: SQLite error: " + exception);
+    }
+  }
+
+  /**
+   * Discard the updates of the transaction started by beginTransaction(),
+   * including any enclosing transactions.
+   * @throws GroupManagerDb.Error for a database error.
+   */
+  public final void
+  rollbackTransaction() throws GroupManagerDb.Error
+  {
+    try {
+      database_.rollbackTransaction();
+    } catch (SQLException exception) {
+      throw new GroupManagerDb.Error
+        ("Sqlite3GroupManagerDb.rollbackTransaction: SQLite error: " + exception);
+    }
+  }
+
+  /**
+   * Close the database. After this, this object should not be used.
+   * @throws GroupManagerDb.Error for a database error.
+   */
+  public final void
+  close() throws GroupManagerDb.Error
+  {
+    try {
+      database_.close();
+    } catch (SQLException exception) {
+      throw new GroupManagerDb.Error
+        ("Sqlite3GroupManagerDb.close: SQLite error: " + exception);
+    }
+  }
+
+  /**
+   * Insert the member row for keyName into the schedule with scheduleId. The
+   * member's identity name is keyName.getPrefix(-1).
+   * @param scheduleId The ID of the schedule from getScheduleId.
+   * @param keyName The name of the key.
+   * @param key A Blob of the public key DER.
+   * @throws SQLException for a database error.
+   */
+  private void
+  insertMember(int scheduleId, Name keyName, Blob key) throws SQLException
+  {
+    // Needs to be changed in the future.
+    Name memberName = keyName.getPrefix(-1);
+
+    PreparedStatement statement = database_.prepareStatement(INSERT_addMember);
+    statement.setInt(1, scheduleId);
+    statement.setBytes
+      (2, memberName.wireEncode(TlvWireFormat.get()).getImmutableArray());
+    statement.setBytes
+      (3, keyName.wireEncode(TlvWireFormat.get()).getImmutableArray());
+    statement.setBytes(4, key.getImmutableArray());
+
+    statement.executeUpdate();
+  }
+
+  Sqlite3Connection database_ = null;
 }
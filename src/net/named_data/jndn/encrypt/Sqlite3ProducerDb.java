@@ -20,12 +20,12 @@
 
 package net.named_data.jndn.encrypt;
 
-import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import net.named_data.jndn.util.Blob;
@@ -33,7 +33,10 @@ import net.named_data.jndn.util.Blob;
 /**
  * Sqlite3ProducerDb extends ProducerDb to implement storage of keys for the
  * producer using SQLite3. It contains one table that maps time slots (to the
- * nearest hour) to the content key created for that time slot.
+ * nearest hour) to the content key created for that time slot. The database is
+ * opened in write-ahead log mode and each prepared statement is compiled once
+ * and reused. Use addContentKeys or beginTransaction/commitTransaction to write
+ * many updates with one commit.
  * @note This class is an experimental feature. The API may change.
  */
 public class Sqlite3ProducerDb extends Sqlite3ProducerDbBase {
@@ -54,7 +57,7 @@ public class Sqlite3ProducerDb extends Sqlite3ProducerDbBase {
     }
 
     try {
-      database_ = DriverManager.getConnection("jdbc:sqlite:" + databaseFilePath);
+      database_ = new Sqlite3Connection(databaseFilePath);
 
       Statement statement = database_.createStatement();
       // Use "try/finally instead of "try-with-resources" or "using" which are
@@ -87,15 +90,14 @@ public class Sqlite3ProducerDb extends Sqlite3ProducerDbBase {
         (SELECT_hasContentKey);
       statement.setInt(1, fixedTimeSlot);
 
+      ResultSet result = statement.executeQuery();
       try {
-        ResultSet result = statement.executeQuery();
-
         if (result.next())
           return true;
         else
           return false;
       } finally {
-        statement.close();
+        result.close();
       }
     } catch (SQLException exception) {
       throw new ProducerDb.Error("Sqlite3ProducerDb.hasContentKey: SQLite error: " + exception);
@@ -119,16 +121,15 @@ public class Sqlite3ProducerDb extends Sqlite3ProducerDbBase {
         (SELECT_getContentKey);
       statement.setInt(1, fixedTimeSlot);
 
+      ResultSet result = statement.executeQuery();
       try {
-        ResultSet result = statement.executeQuery();
-
         if (result.next())
           return new Blob(result.getBytes(1), false);
         else
           throw new ProducerDb.Error
             ("Sqlite3ProducerDb.getContentKey: Cannot get the key from the database");
       } finally {
-        statement.close();
+        result.close();
       }
     } catch (SQLException exception) {
       throw new ProducerDb.Error
@@ -154,17 +155,41 @@ public class Sqlite3ProducerDb extends Sqlite3ProducerDbBase {
       statement.setInt(1, fixedTimeSlot);
       statement.setBytes(2, key.getImmutableArray());
 
-      try {
-        statement.executeUpdate();
-      } finally {
-        statement.close();
-      }
+      statement.executeUpdate();
     } catch (SQLException exception) {
       throw new ProducerDb.Error
         ("Sqlite3ProducerDb.addContentKey: SQLite error: " + exception);
     }
   }
 
+  /**
+   * Add all the content keys in the map to the database in one transaction. If
+   * there is an error, none of the keys are added.
+   * @param keys The map where the key is the Double time slot as milliseconds
+   * since Jan 1, 1970 UTC and the value is the Blob of the encoded key. (Use
+   * Map without generics so it works with older Java compilers.)
+   * @throws ProducerDb.Error if a key for the same hour already exists in the
+   * database, or other database error.
+   */
+  public void
+  addContentKeys(Map keys) throws ProducerDb.Error
+  {
+    beginTransaction();
+    boolean isCommitted = false;
+    try {
+      for (Iterator i = keys.entrySet().iterator(); i.hasNext(); ) {
+        Map.Entry entry = (Map.Entry)i.next();
+        addContentKey((Double)entry.getKey(), (Blob)entry.getValue());
+      }
+
+      commitTransaction();
+      isCommitted = true;
+    } finally {
+      if (!isCommitted)
+        rollbackTransaction();
+    }
+  }
+
   /**
    * Delete the content key for the hour covering timeSlot. If there is no key
    * for the time slot, do nothing.
@@ -181,16 +206,75 @@ public class Sqlite3ProducerDb extends Sqlite3ProducerDbBase {
         (DELETE_deleteContentKey);
       statement.setInt(1, fixedTimeSlot);
 
-      try {
-        statement.executeUpdate();
-      } finally {
-        statement.close();
-      }
+      statement.executeUpdate();
     } catch (SQLException exception) {
       throw new ProducerDb.Error
         ("Sqlite3ProducerDb.deleteContentKey: SQLite error: " + exception);
     }
   }
 
-  Connection database_ = null;
+  /**
+   * Begin a transaction so that the following updates are written with one
+   * commit by the matching commitTransaction(). Transactions may be nested, in
+   * which case only the outermost commitTransaction() writes the updates.
+   * @throws ProducerDb.Error for a database error.
+   */
+  public final void
+  beginTransaction() throws ProducerDb.Error
+  {
+    try {
+      database_.beginTransaction();
+    } catch (SQLException exception) {
+      throw new ProducerDb.Error
+        ("Sqlite3ProducerDb.beginTransaction: SQLite error: " + exception);
+    }
+  }
+
+  /**
+   * Commit the transaction started by beginTransaction().
+   * @throws ProducerDb.Error for a database error.
+   */
+  public final void
+  commitTransaction() throws ProducerDb.Error
+  {
+    try {
+      database_.commitTransaction();
+    } catch (SQLException exception) {
+      throw new ProducerDb.Error
+        ("Sqlite3ProducerDb.commitTransaction: SQLite error: " + exception);
+    }
+  }
+
+  /**
+   * Discard the updates of the transaction started by beginTransaction(),
+   * including any enclosing transactions.
+   * @throws ProducerDb.Error for a database error.
+   */
+  public final void
+  rollbackTransaction() throws ProducerDb.Error
+  {
+    try {
+      database_.rollbackTransaction();
+    } catch (SQLException exception) {
+      throw new ProducerDb.Error
+        ("Sqlite3ProducerDb.rollbackTransaction: SQLite error: " + exception);
+    }
+  }
+
+  /**
+   * Close the database. After this, this object should not be used.
+   * @throws ProducerDb.Error for a database error.
+   */
+  public final void
+  close() throws ProducerDb.Error
+  {
+    try {
+      database_.close();
+    } catch (SQLException exception) {
+      throw new ProducerDb.Error
+        ("Sqlite3ProducerDb.close: SQLite error: " + exception);
+    }
+  }
+
+  Sqlite3Connection database_ = null;
 }
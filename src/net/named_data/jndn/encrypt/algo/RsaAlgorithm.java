@@ -24,6 +24,7 @@
 package net.named_data.jndn.encrypt.algo;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.security.InvalidKeyException;
 import java.security.KeyFactory;
 import java.security.KeyPair;
@@ -34,7 +35,6 @@ import java.security.spec.InvalidKeySpecException;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.security.spec.RSAPublicKeySpec;
 import java.security.spec.X509EncodedKeySpec;
-import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.crypto.BadPaddingException;
@@ -42,7 +42,8 @@ import javax.crypto.Cipher;
 import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.NoSuchPaddingException;
 import net.named_data.jndn.encoding.der.DerDecodingException;
-import net.named_data.jndn.encoding.der.DerNode;
+import net.named_data.jndn.encoding.der.DerNodeType;
+import net.named_data.jndn.encoding.der.DerReader;
 import net.named_data.jndn.encrypt.DecryptKey;
 import net.named_data.jndn.encrypt.EncryptKey;
 import net.named_data.jndn.security.RsaKeyParams;
@@ -89,21 +90,26 @@ public class RsaAlgorithm {
   {
     // Decode the PKCS #8 private key. (We don't use RSAPrivateCrtKey because
     // the Android library doesn't have an easy way to decode into it.)
-    DerNode parsedNode = DerNode.parse(keyBits.buf(), 0);
-    List pkcs8Children = parsedNode.getChildren();
-    List algorithmIdChildren = DerNode.getSequence(pkcs8Children, 1).getChildren();
-    String oidString = "" + ((DerNode.DerOid)algorithmIdChildren.get(0)).toVal();
-    Blob rsaPrivateKeyDer = ((DerNode)pkcs8Children.get(2)).getPayload();
+    // PrivateKeyInfo is SEQUENCE { INTEGER, SEQUENCE { OID, ... }, OCTET STRING }.
+    DerReader reader = new DerReader(keyBits.buf());
+    reader.readNestedStart(DerNodeType.Sequence);
+    reader.skip();
+    int algorithmIdEndOffset = reader.readNestedStart(DerNodeType.Sequence);
+    String oidString = reader.readOid();
+    reader.finishNested(algorithmIdEndOffset);
+    ByteBuffer rsaPrivateKeyDer = reader.readValue(DerNodeType.OctetString);
 
     final String RSA_ENCRYPTION_OID = "1.2.840.113549.1.1.1";
     if (!oidString.equals(RSA_ENCRYPTION_OID))
       throw new DerDecodingException("The PKCS #8 private key is not RSA_ENCRYPTION");
 
-    // Decode the PKCS #1 RSAPrivateKey.
-    parsedNode = DerNode.parse(rsaPrivateKeyDer.buf(), 0);
-    List rsaPrivateKeyChildren = parsedNode.getChildren();
-    Blob modulus = ((DerNode)rsaPrivateKeyChildren.get(1)).getPayload();
-    Blob publicExponent = ((DerNode)rsaPrivateKeyChildren.get(2)).getPayload();
+    // Decode the PKCS #1 RSAPrivateKey which is
+    // SEQUENCE { INTEGER version, INTEGER modulus, INTEGER publicExponent, ... }.
+    reader = new DerReader(rsaPrivateKeyDer);
+    reader.readNestedStart(DerNodeType.Sequence);
+    reader.skip();
+    Blob modulus = new Blob(reader.readValue(DerNodeType.Integer), false);
+    Blob publicExponent = new Blob(reader.readValue(DerNodeType.Integer), false);
 
     java.security.PublicKey publicKey = keyFactory_.generatePublic(new RSAPublicKeySpec
       (new BigInteger(modulus.getImmutableArray()),
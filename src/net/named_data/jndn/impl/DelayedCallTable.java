@@ -21,6 +21,7 @@ package net.named_data.jndn.impl;
 
 import java.util.ArrayList;
 import net.named_data.jndn.util.Common;
+import net.named_data.jndn.util.Metrics;
 
 /**
  * DelayedCallTable is an internal class used by the Node implementation of
@@ -48,6 +49,7 @@ public class DelayedCallTable {
     // Element i is the greatest less than or equal to
     // entry.getCallTime(), so insert after it.
     table_.add(i + 1, entry);
+    metrics_.setGauge(Metrics.Gauge.DELAYED_CALLS, table_.size());
   }
 
   /**
@@ -73,6 +75,7 @@ public class DelayedCallTable {
           // It is not time to call the entry at the front of the list, so finish.
           break;
         table_.remove(0);
+        metrics_.setGauge(Metrics.Gauge.DELAYED_CALLS, table_.size());
       }
 
       // The lock on table_ is removed, so call the callback.
@@ -80,6 +83,17 @@ public class DelayedCallTable {
     }
   }
 
+  /**
+   * Set the Metrics which this updates with the number of entries.
+   * @param metrics The Metrics object.
+   */
+  public synchronized final void
+  setMetrics(Metrics metrics)
+  {
+    metrics_ = metrics;
+    metrics_.setGauge(Metrics.Gauge.DELAYED_CALLS, table_.size());
+  }
+
   /**
    * Entry holds the callback and other fields for an entry in the delayed call
    * table.
@@ -117,6 +131,7 @@ public class DelayedCallTable {
   }
 
   private final ArrayList<Entry> table_ = new ArrayList<Entry>();
+  private Metrics metrics_ = Metrics.NONE;
   // This is to force an import of net.named_data.jndn.util.
   private static Common dummyCommon_ = new Common();
 }
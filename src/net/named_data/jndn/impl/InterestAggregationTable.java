@@ -0,0 +1,245 @@
+/**
+ * Copyright (C) 2017 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+package net.named_data.jndn.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import net.named_data.jndn.Data;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.encoding.EncodingException;
+
+/**
+ * An InterestAggregationTable is an internal class to hold the Interests which
+ * Node has sent and which have not yet been satisfied or expired, so that an
+ * identical Interest (same name and selectors) can share the outstanding one
+ * instead of being sent again.
+ */
+public class InterestAggregationTable {
+  /**
+   * A Record holds an Interest which was sent and when it expires upstream.
+   */
+  public static class Record {
+    public Record(Interest interest, double expirationTime)
+    {
+      interest_ = interest;
+      expirationTime_ = expirationTime;
+    }
+
+    /**
+     * Get the Interest which was sent.
+     * @return The Interest. NOTE: You must not change the interest object.
+     */
+    public final Interest
+    getInterest() { return interest_; }
+
+    /**
+     * Get the time when the sent Interest expires.
+     * @return The expiration time in milliseconds since 1/1/1970.
+     */
+    public final double
+    getExpirationTime() { return expirationTime_; }
+
+    private final Interest interest_;
+    private final double expirationTime_;
+  }
+
+  /**
+   * Find the record of a sent Interest with the same name and selectors as
+   * interest which has not expired.
+   * @param interest The Interest to search for.
+   * @param now The current time in milliseconds since 1/1/1970.
+   * @return The Record, or null if not found.
+   */
+  public synchronized final Record
+  find(Interest interest, double now)
+  {
+    ArrayList<Record> records = table_.get(interest.getName());
+    if (records == null)
+      return null;
+
+    for (int i = records.size() - 1; i >= 0; --i) {
+      Record record = records.get(i);
+      if (now >= record.expirationTime_)
+        records.remove(i);
+      else if (isSameInterest(record.interest_, interest))
+        return record;
+    }
+    if (records.isEmpty())
+      table_.remove(interest.getName());
+
+    return null;
+  }
+
+  /**
+   * Add a record for the sent Interest, replacing any record for the same
+   * name and selectors.
+   * @param interest The Interest which was sent. This does not copy it.
+   * @param expirationTime The time when the sent Interest expires.
+   * @param now The current time in milliseconds since 1/1/1970.
+   */
+  public synchronized final void
+  add(Interest interest, double expirationTime, double now)
+  {
+    if (now >= nextSweepTime_) {
+      removeExpired(now);
+      nextSweepTime_ = now + SWEEP_INTERVAL_MILLISECONDS;
+    }
+
+    ArrayList<Record> records = table_.get(interest.getName());
+    if (records == null) {
+      records = new ArrayList<Record>();
+      table_.put(interest.getName(), records);
+    }
+    else {
+      for (int i = records.size() - 1; i >= 0; --i) {
+        if (isSameInterest(records.get(i).interest_, interest))
+          records.remove(i);
+      }
+    }
+
+    records.add(new Record(interest, expirationTime));
+  }
+
+  /**
+   * Remove the records whose Interest matches the Data, since the upstream
+   * Interest is now satisfied.
+   * @param data The received Data.
+   */
+  public synchronized final void
+  removeForData(Data data)
+  {
+    if (table_.isEmpty())
+      return;
+
+    Name dataName = data.getName();
+    for (int prefixSize = dataName.size(); prefixSize >= 0; --prefixSize) {
+      Name prefix = dataName.getPrefix(prefixSize);
+      ArrayList<Record> records = table_.get(prefix);
+      if (records == null)
+        continue;
+
+      for (int i = records.size() - 1; i >= 0; --i) {
+        try {
+          if (records.get(i).interest_.matchesData(data))
+            records.remove(i);
+        } catch (Exception ex) {
+          // Don't expect an error computing the implicit digest, so remove.
+          records.remove(i);
+        }
+      }
+      if (records.isEmpty())
+        table_.remove(prefix);
+    }
+  }
+
+  /**
+   * Remove the record for the Interest with the same name and selectors, for
+   * example when a network Nack is received for it.
+   * @param interest The Interest to search for.
+   */
+  public synchronized final void
+  remove(Interest interest)
+  {
+    ArrayList<Record> records = table_.get(interest.getName());
+    if (records == null)
+      return;
+
+    for (int i = records.size() - 1; i >= 0; --i) {
+      if (isSameInterest(records.get(i).interest_, interest))
+        records.remove(i);
+    }
+    if (records.isEmpty())
+      table_.remove(interest.getName());
+  }
+
+  /**
+   * Get the number of records, including expired records which have not been
+   * removed.
+   * @return The number of records.
+   */
+  public synchronized final int
+  size()
+  {
+    int count = 0;
+    for (Iterator<ArrayList<Record>> i = table_.values().iterator();
+         i.hasNext(); )
+      count += i.next().size();
+    return count;
+  }
+
+  /**
+   * Check if the Interests have the same name and selectors, so that Data
+   * for one satisfies the other, and the same Link and selected delegation so
+   * that they are forwarded the same way. This ignores the nonce and lifetime.
+   * This is also used by LoopbackForwarder to aggregate Interests.
+   * @param interest1 The first Interest.
+   * @param interest2 The second Interest.
+   * @return True if one Interest can be aggregated with the other.
+   */
+  public static boolean
+  isSameInterest(Interest interest1, Interest interest2)
+  {
+    if (!(interest1.getName().equals(interest2.getName()) &&
+          interest1.getMinSuffixComponents() == interest2.getMinSuffixComponents() &&
+          interest1.getMaxSuffixComponents() == interest2.getMaxSuffixComponents() &&
+          interest1.getChildSelector() == interest2.getChildSelector() &&
+          interest1.getMustBeFresh() == interest2.getMustBeFresh() &&
+          interest1.getExclude().size() == interest2.getExclude().size() &&
+          (interest1.getExclude().size() == 0 ||
+           interest1.getExclude().toUri().equals(interest2.getExclude().toUri())) &&
+          interest1.getKeyLocator().equals(interest2.getKeyLocator()) &&
+          interest1.getSelectedDelegationIndex() ==
+            interest2.getSelectedDelegationIndex() &&
+          interest1.hasLink() == interest2.hasLink()))
+      return false;
+
+    if (!interest1.hasLink())
+      return true;
+    try {
+      return interest1.getLinkWireEncoding().equals
+        (interest2.getLinkWireEncoding());
+    } catch (EncodingException ex) {
+      // Don't aggregate an Interest whose Link can't be encoded.
+      return false;
+    }
+  }
+
+  private void
+  removeExpired(double now)
+  {
+    for (Iterator<ArrayList<Record>> i = table_.values().iterator();
+         i.hasNext(); ) {
+      ArrayList<Record> records = i.next();
+      for (int j = records.size() - 1; j >= 0; --j) {
+        if (now >= records.get(j).expirationTime_)
+          records.remove(j);
+      }
+      if (records.isEmpty())
+        i.remove();
+    }
+  }
+
+  private static final double SWEEP_INTERVAL_MILLISECONDS = 1000.0;
+
+  private final HashMap<Name, ArrayList<Record>> table_ =
+    new HashMap<Name, ArrayList<Record>>();
+  private double nextSweepTime_ = 0;
+}
@@ -24,11 +24,13 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import net.named_data.jndn.Interest;
 import net.named_data.jndn.Data;
+import net.named_data.jndn.InterestMatcher;
 import net.named_data.jndn.OnData;
 import net.named_data.jndn.OnNetworkNack;
 import net.named_data.jndn.OnTimeout;
 import net.named_data.jndn.encoding.EncodingException;
 import net.named_data.jndn.util.Common;
+import net.named_data.jndn.util.Metrics;
 import net.named_data.jndn.util.SignedBlob;
 
 /**
@@ -51,6 +53,8 @@ public class PendingInterestTable {
     {
       pendingInterestId_ = pendingInterestId;
       interest_ = interest;
+      matcher_ = new InterestMatcher(interest);
+      sentInterest_ = interest;
       onData_ = onData;
       onTimeout_ = onTimeout;
       onNetworkNack_ = onNetworkNack;
@@ -71,6 +75,30 @@ public class PendingInterestTable {
     public final Interest
     getInterest() { return interest_; }
 
+    /**
+     * Get the InterestMatcher which was created from the interest given to the
+     * constructor.
+     * @return The InterestMatcher.
+     */
+    public final InterestMatcher
+    getMatcher() { return matcher_; }
+
+    /**
+     * Get the Interest which was sent on the wire for this entry. This is the
+     * interest given to the constructor unless Interest aggregation made this
+     * entry share an Interest sent for another entry.
+     * @return The sent Interest. NOTE: You must not change the interest object.
+     */
+    public final Interest
+    getSentInterest() { return sentInterest_; }
+
+    /**
+     * Set the Interest which was sent on the wire for this entry.
+     * @param sentInterest The sent Interest. This does not copy it.
+     */
+    public final void
+    setSentInterest(Interest sentInterest) { sentInterest_ = sentInterest; }
+
     /**
      * Get the OnData callback given to the constructor.
      * @return The OnData callback.
@@ -85,6 +113,14 @@ public class PendingInterestTable {
     public final OnNetworkNack
     getOnNetworkNack() { return onNetworkNack_; }
 
+    /**
+     * Get the time when this entry was added to the pending interest table.
+     * @return The Metrics.startTimer() value from when the entry was added, or
+     * 0 if the metrics did not read the clock.
+     */
+    public final long
+    getExpressTime() { return expressTime_; }
+
     /**
      * Set the isRemoved flag which is returned by getIsRemoved().
      */
@@ -115,11 +151,14 @@ public class PendingInterestTable {
     }
 
     private final Interest interest_;
+    private final InterestMatcher matcher_;
+    private volatile Interest sentInterest_;
     private final long pendingInterestId_; /**< A unique identifier for this entry so it can be deleted */
     private final OnData onData_;
     private final OnTimeout onTimeout_;
     private final OnNetworkNack onNetworkNack_;
     private boolean isRemoved_ = false;
+    private long expressTime_ = 0;
   }
 
   /**
@@ -153,7 +192,9 @@ public class PendingInterestTable {
 
     Entry entry = new Entry
       (pendingInterestId, interestCopy, onData, onTimeout, onNetworkNack);
+    entry.expressTime_ = metrics_.startTimer();
     table_.add(entry);
+    metrics_.setGauge(Metrics.Gauge.PENDING_INTERESTS, table_.size());
     return entry;
   }
 
@@ -169,11 +210,13 @@ public class PendingInterestTable {
   extractEntriesForExpressedInterest(Data data, ArrayList<Entry> entries)
     throws EncodingException
   {
+    // The candidate computes the Data full name at most once for all entries.
+    InterestMatcher.Candidate candidate = new InterestMatcher.Candidate(data);
     // Go backwards through the list so we can remove entries.
     for (int i = table_.size() - 1; i >= 0; --i) {
       Entry pendingInterest = table_.get(i);
 
-      if (pendingInterest.getInterest().matchesData(data)) {
+      if (pendingInterest.getMatcher().matchesData(candidate)) {
         entries.add(table_.get(i));
         // We let the callback from callLater call _processInterestTimeout, but
         // for efficiency, mark this as removed so that it returns right away.
@@ -181,6 +224,7 @@ public class PendingInterestTable {
         pendingInterest.setIsRemoved();
       }
     }
+    metrics_.setGauge(Metrics.Gauge.PENDING_INTERESTS, table_.size());
   }
 
   /**
@@ -207,8 +251,9 @@ public class PendingInterestTable {
         continue;
 
       // wireEncode returns the encoding cached when the interest was sent (if
-      // it was the default wire encoding).
-      if (pendingInterest.getInterest().wireEncode().equals(encoding)) {
+      // it was the default wire encoding). With Interest aggregation, the sent
+      // Interest may be shared with other entries.
+      if (pendingInterest.getSentInterest().wireEncode().equals(encoding)) {
         entries.add(table_.get(i));
         // We let the callback from callLater call _processInterestTimeout, but
         // for efficiency, mark this as removed so that it returns right away.
@@ -216,6 +261,7 @@ public class PendingInterestTable {
         pendingInterest.setIsRemoved();
       }
     }
+    metrics_.setGauge(Metrics.Gauge.PENDING_INTERESTS, table_.size());
   }
 
   /**
@@ -241,6 +287,7 @@ public class PendingInterestTable {
         table_.remove(i);
       }
     }
+    metrics_.setGauge(Metrics.Gauge.PENDING_INTERESTS, table_.size());
 
     if (count == 0)
       logger_.log
@@ -275,13 +322,26 @@ public class PendingInterestTable {
 
     if (table_.remove(pendingInterest)) {
       pendingInterest.setIsRemoved();
+      metrics_.setGauge(Metrics.Gauge.PENDING_INTERESTS, table_.size());
       return true;
     }
     else
       return false;
   }
 
+  /**
+   * Set the Metrics which this updates with the number of entries.
+   * @param metrics The Metrics object.
+   */
+  public synchronized final void
+  setMetrics(Metrics metrics)
+  {
+    metrics_ = metrics;
+    metrics_.setGauge(Metrics.Gauge.PENDING_INTERESTS, table_.size());
+  }
+
   private final ArrayList<Entry> table_ = new ArrayList<Entry>();
+  private Metrics metrics_ = Metrics.NONE;
   private final ArrayList<Long> removeRequests_ = new ArrayList<Long>();
   private static final Logger logger_ = Logger.getLogger
     (PendingInterestTable.class.getName());
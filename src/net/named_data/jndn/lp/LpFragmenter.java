@@ -0,0 +1,90 @@
+/**
+ * Copyright (C) 2017 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+package net.named_data.jndn.lp;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import net.named_data.jndn.encoding.TlvWireFormat;
+import net.named_data.jndn.util.Blob;
+import net.named_data.jndn.util.Common;
+
+/**
+ * An LpFragmenter splits an encoded network-layer packet into NDNLPv2
+ * LpPacket fragments which each fit in a given MTU. Each fragment has a
+ * consecutive Sequence number and the FragIndex and FragCount header fields so
+ * that the receiver (for example NFD or an LpReassembler) can reassemble it.
+ * This is an internal class which the application normally would not use.
+ * http://redmine.named-data.net/projects/nfd/wiki/NDNLPv2
+ */
+public class LpFragmenter {
+  /**
+   * Split packet into LpPacket fragments where each encoding is no larger than
+   * mtu.
+   * @param packet The buffer with the encoded network-layer packet. This reads
+   * from position() to limit(), but does not change the position.
+   * @param mtu The maximum size of each encoded LpPacket. This must be greater
+   * than MAX_HEADER_SIZE.
+   * @return A list of Blob with the encoded LpPacket fragments, in order.
+   * (Use List without generics so it works with older Java compilers.)
+   * @throws Error if mtu is too small.
+   */
+  public List
+  fragment(ByteBuffer packet, int mtu)
+  {
+    int maxPayloadSize = mtu - MAX_HEADER_SIZE;
+    if (maxPayloadSize <= 0)
+      throw new Error("LpFragmenter: The MTU " + mtu + " is too small");
+
+    int packetSize = packet.remaining();
+    int fragCount = (packetSize + maxPayloadSize - 1) / maxPayloadSize;
+    long firstSequence;
+    synchronized (this) {
+      firstSequence = nextSequence_;
+      nextSequence_ += fragCount;
+    }
+
+    ArrayList fragments = new ArrayList(fragCount);
+    LpPacket lpPacket = new LpPacket();
+    for (int fragIndex = 0; fragIndex < fragCount; ++fragIndex) {
+      int start = packet.position() + fragIndex * maxPayloadSize;
+      ByteBuffer payload = packet.duplicate();
+      payload.position(start);
+      payload.limit(Math.min(start + maxPayloadSize, packet.limit()));
+
+      lpPacket.setSequence(firstSequence + fragIndex);
+      lpPacket.setFragIndex(fragIndex);
+      lpPacket.setFragCount(fragCount);
+      lpPacket.setFragmentWireEncoding(new Blob(payload, false));
+      fragments.add(TlvWireFormat.get().encodeLpPacket(lpPacket));
+    }
+
+    return fragments;
+  }
+
+  /**
+   * The maximum number of bytes which the LpPacket type and length, the
+   * Sequence, FragIndex and FragCount fields, and the Fragment type and length
+   * add to the fragment payload.
+   */
+  public static final int MAX_HEADER_SIZE = 38;
+
+  // Start at a random sequence number, leaving room so that it never wraps.
+  private long nextSequence_ = Common.getRandom().nextLong() & 0x3fffffffffffffffL;
+}
@@ -53,6 +53,37 @@ public class LpPacket {
   public Object
   getHeaderField(int index) { return headerFields_.get(index); }
 
+  /**
+   * Get the Sequence header field used for fragmentation.
+   * @return The sequence number, or -1 if not specified.
+   */
+  public long
+  getSequence() { return sequence_; }
+
+  /**
+   * Get the FragIndex header field.
+   * @return The zero-based index of this fragment, or -1 if not specified
+   * (which means 0).
+   */
+  public long
+  getFragIndex() { return fragIndex_; }
+
+  /**
+   * Get the FragCount header field.
+   * @return The number of fragments in the network-layer packet, or -1 if not
+   * specified (which means 1).
+   */
+  public long
+  getFragCount() { return fragCount_; }
+
+  /**
+   * Check if this is one fragment of a network-layer packet which was split
+   * into more than one LpPacket.
+   * @return True if FragCount is greater than 1.
+   */
+  public final boolean
+  isFragmented() { return fragCount_ > 1; }
+
   /**
    * Remove all header fields and set the fragment to an isNull Blob.
    */
@@ -61,6 +92,9 @@ public class LpPacket {
   {
      headerFields_ = new ArrayList();
      fragmentWireEncoding_ = new Blob();
+     sequence_ = -1;
+     fragIndex_ = -1;
+     fragCount_ = -1;
   }
 
   /**
@@ -82,6 +116,31 @@ public class LpPacket {
   public void
   addHeaderField(Object headerField) { headerFields_.add(headerField); }
 
+  /**
+   * Set the Sequence header field.
+   * @param sequence The sequence number, or -1 for not specified.
+   */
+  public void
+  setSequence(long sequence) { sequence_ = sequence; }
+
+  /**
+   * Set the FragIndex header field.
+   * @param fragIndex The zero-based index of this fragment, or -1 for not
+   * specified.
+   */
+  public void
+  setFragIndex(long fragIndex) { fragIndex_ = fragIndex; }
+
+  /**
+   * Set the FragCount header field.
+   * @param fragCount The number of fragments, or -1 for not specified.
+   */
+  public void
+  setFragCount(long fragCount) { fragCount_ = fragCount; }
+
   private ArrayList headerFields_ = new ArrayList();
   private Blob fragmentWireEncoding_ = new Blob();
+  private long sequence_ = -1;
+  private long fragIndex_ = -1;
+  private long fragCount_ = -1;
 }
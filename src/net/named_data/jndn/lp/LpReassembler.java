@@ -0,0 +1,183 @@
+/**
+ * Copyright (C) 2017 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+package net.named_data.jndn.lp;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import net.named_data.jndn.encoding.EncodingException;
+import net.named_data.jndn.util.Blob;
+import net.named_data.jndn.util.Common;
+
+/**
+ * An LpReassembler collects NDNLPv2 LpPacket fragments and returns the
+ * network-layer packet when all the fragments have been received. The number
+ * of partially received packets is bounded, and a partial packet is dropped if
+ * its fragments are not all received within the timeout. This is an internal
+ * class which the application normally would not use.
+ * http://redmine.named-data.net/projects/nfd/wiki/NDNLPv2
+ */
+public class LpReassembler {
+  /**
+   * Create an LpReassembler with the given limits.
+   * @param maxPartialPackets The maximum number of partially received packets.
+   * When a fragment of a new packet is received and this is reached, the
+   * oldest partial packet is dropped.
+   * @param timeoutMilliseconds The time from receiving the first fragment of a
+   * packet until the partial packet is dropped.
+   */
+  public LpReassembler(int maxPartialPackets, double timeoutMilliseconds)
+  {
+    maxPartialPackets_ = maxPartialPackets;
+    timeoutMilliseconds_ = timeoutMilliseconds;
+  }
+
+  /**
+   * Create an LpReassembler with DEFAULT_MAX_PARTIAL_PACKETS and
+   * DEFAULT_TIMEOUT_MILLISECONDS.
+   */
+  public LpReassembler()
+  {
+    this(DEFAULT_MAX_PARTIAL_PACKETS, DEFAULT_TIMEOUT_MILLISECONDS);
+  }
+
+  /**
+   * Add the fragment in lpPacket. This copies the fragment wire encoding, so
+   * it may be a slice of a buffer which the caller reuses.
+   * @param lpPacket The received LpPacket where isFragmented() is true.
+   * @return An LpPacket with the header fields of the first fragment and the
+   * reassembled network-layer packet as the fragment wire encoding, or null if
+   * more fragments are needed or the fragment is a duplicate.
+   * @throws EncodingException If the Sequence is missing or FragIndex is out
+   * of range.
+   */
+  public synchronized LpPacket
+  receive(LpPacket lpPacket) throws EncodingException
+  {
+    long fragIndex = Math.max(lpPacket.getFragIndex(), 0);
+    long fragCount = lpPacket.getFragCount();
+    if (lpPacket.getSequence() < 0)
+      throw new EncodingException
+        ("LpReassembler: The fragmented LpPacket has no Sequence");
+    if (fragIndex >= fragCount || fragCount > MAX_FRAG_COUNT)
+      throw new EncodingException
+        ("LpReassembler: The LpPacket FragIndex or FragCount is out of range");
+
+    double now = Common.getNowMilliseconds();
+    removeExpired(now);
+
+    // All fragments of a packet have the same first sequence number.
+    Long key = lpPacket.getSequence() - fragIndex;
+    PartialPacket partialPacket = partialPackets_.get(key);
+    if (partialPacket == null) {
+      if (partialPackets_.size() >= maxPartialPackets_) {
+        // Drop the oldest.
+        Iterator iterator = partialPackets_.values().iterator();
+        iterator.next();
+        iterator.remove();
+      }
+
+      partialPacket = new PartialPacket
+        ((int)fragCount, now + timeoutMilliseconds_);
+      partialPackets_.put(key, partialPacket);
+    }
+    else if (partialPacket.fragments_.length != fragCount) {
+      // The FragCount doesn't match the other fragments, so drop the packet.
+      partialPackets_.remove(key);
+      return null;
+    }
+
+    int index = (int)fragIndex;
+    if (partialPacket.fragments_[index] != null)
+      // A duplicate.
+      return null;
+
+    Blob fragment = lpPacket.getFragmentWireEncoding();
+    partialPacket.fragments_[index] = new Blob(fragment.buf(), true);
+    partialPacket.totalSize_ += fragment.size();
+    if (index == 0)
+      partialPacket.firstLpPacket_ = lpPacket;
+    ++partialPacket.nReceived_;
+    if (partialPacket.nReceived_ < partialPacket.fragments_.length)
+      return null;
+
+    partialPackets_.remove(key);
+    ByteBuffer packet = ByteBuffer.allocate(partialPacket.totalSize_);
+    for (int i = 0; i < partialPacket.fragments_.length; ++i)
+      packet.put(partialPacket.fragments_[i].buf());
+    packet.flip();
+
+    LpPacket result = partialPacket.firstLpPacket_;
+    result.setFragmentWireEncoding(new Blob(packet, false));
+    result.setFragIndex(-1);
+    result.setFragCount(-1);
+    return result;
+  }
+
+  /**
+   * Get the number of packets for which some but not all fragments have been
+   * received. This does not remove expired partial packets.
+   * @return The number of partial packets.
+   */
+  public synchronized int
+  getPartialPacketCount() { return partialPackets_.size(); }
+
+  private static class PartialPacket {
+    public PartialPacket(int fragCount, double expirationTime)
+    {
+      fragments_ = new Blob[fragCount];
+      expirationTime_ = expirationTime;
+    }
+
+    public final Blob[] fragments_;
+    public final double expirationTime_;
+    public int nReceived_ = 0;
+    public int totalSize_ = 0;
+    public LpPacket firstLpPacket_ = null;
+  }
+
+  private void
+  removeExpired(double now)
+  {
+    // The entries are in order of creation, and so also of expiration time.
+    Iterator iterator = partialPackets_.entrySet().iterator();
+    while (iterator.hasNext()) {
+      PartialPacket partialPacket =
+        (PartialPacket)((Map.Entry)iterator.next()).getValue();
+      if (partialPacket.expirationTime_ > now)
+        break;
+      iterator.remove();
+    }
+  }
+
+  public static final int DEFAULT_MAX_PARTIAL_PACKETS = 100;
+  public static final double DEFAULT_TIMEOUT_MILLISECONDS = 500.0;
+  /**
+   * The maximum FragCount which is accepted, to bound the memory of a partial
+   * packet.
+   */
+  public static final int MAX_FRAG_COUNT = 400;
+
+  private final int maxPartialPackets_;
+  private final double timeoutMilliseconds_;
+  // The key is the Sequence of the first fragment.
+  private final LinkedHashMap<Long, PartialPacket> partialPackets_ =
+    new LinkedHashMap<Long, PartialPacket>();
+}
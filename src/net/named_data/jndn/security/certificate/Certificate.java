@@ -23,6 +23,7 @@ package net.named_data.jndn.security.certificate;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.TimeZone;
@@ -34,9 +35,10 @@ import net.named_data.jndn.encoding.WireFormat;
 import net.named_data.jndn.encoding.der.DerDecodingException;
 import net.named_data.jndn.encoding.der.DerEncodingException;
 import net.named_data.jndn.encoding.der.DerNode;
-import net.named_data.jndn.encoding.der.DerNode.DerBoolean;
 import net.named_data.jndn.encoding.der.DerNode.DerGeneralizedTime;
 import net.named_data.jndn.encoding.der.DerNode.DerSequence;
+import net.named_data.jndn.encoding.der.DerNodeType;
+import net.named_data.jndn.encoding.der.DerReader;
 import net.named_data.jndn.security.UnrecognizedKeyFormatException;
 import net.named_data.jndn.util.Blob;
 import net.named_data.jndn.util.Common;
@@ -96,14 +98,17 @@ public class Certificate extends Data {
   public final void
   addSubjectDescription(CertificateSubjectDescription description)
   {
+    checkNotFrozen();
     subjectDescriptionList_.add(description);
   }
 
-  // List of CertificateSubjectDescription.
+  // List of CertificateSubjectDescription. If frozen, the list is read-only.
   public final List
   getSubjectDescriptionList()
   {
-    return subjectDescriptionList_;
+    return isFrozen() ?
+      Collections.unmodifiableList(subjectDescriptionList_) :
+      subjectDescriptionList_;
   }
 
   /**
@@ -113,19 +118,22 @@ public class Certificate extends Data {
   public final void
   addExtension(CertificateExtension extension)
   {
+    checkNotFrozen();
     extensionList_.add(extension);
   }
 
-  // List of CertificateExtension.
+  // List of CertificateExtension. If frozen, the list is read-only.
   public final List
   getExtensionList()
   {
-    return extensionList_;
+    return isFrozen() ?
+      Collections.unmodifiableList(extensionList_) : extensionList_;
   }
 
   public final void
   setNotBefore(double notBefore)
   {
+    checkNotFrozen();
     notBefore_ = notBefore;
   }
 
@@ -138,6 +146,7 @@ public class Certificate extends Data {
   public final void
   setNotAfter(double notAfter)
   {
+    checkNotFrozen();
     notAfter_ = notAfter;
   }
 
@@ -150,6 +159,7 @@ public class Certificate extends Data {
   public final void
   setPublicKeyInfo(PublicKey key)
   {
+    checkNotFrozen();
     key_ = key;
   }
 
@@ -243,7 +253,9 @@ public class Certificate extends Data {
   private void
   decode() throws DerDecodingException
   {
-    DerNode parsedNode = DerNode.parse(getContent().buf());
+    // Read the fields in place without building a DerNode tree.
+    DerReader reader = new DerReader(getContent().buf());
+    int rootEndOffset = reader.readNestedStart(DerNodeType.Sequence);
 
     // We need to ensure that there are:
     //   validity (notBefore, notAfter)
@@ -251,25 +263,28 @@ public class Certificate extends Data {
     //   public key
     //   (optional) extension list
 
-    List rootChildren = parsedNode.getChildren();
     // 1st: validity info
-    List validityChildren = DerNode.getSequence(rootChildren, 0).getChildren();
-    notBefore_ = (Double)((DerGeneralizedTime)validityChildren.get(0)).toVal();
-    notAfter_ = (Double)((DerGeneralizedTime)validityChildren.get(1)).toVal();
+    int validityEndOffset = reader.readNestedStart(DerNodeType.Sequence);
+    notBefore_ = reader.readGeneralizedTime();
+    notAfter_ = reader.readGeneralizedTime();
+    reader.finishNested(validityEndOffset);
 
     // 2nd: subjectList
-    List subjectChildren = DerNode.getSequence(rootChildren, 1).getChildren();
-    for (int i = 0; i < subjectChildren.size(); ++i) {
-      DerSequence sd = DerNode.getSequence(subjectChildren, i);
-      List descriptionChildren = sd.getChildren();
-      String oidStr = (String)((DerNode)descriptionChildren.get(0)).toVal();
-      String value = "" + ((Blob)((DerNode)descriptionChildren.get(1)).toVal());
+    int subjectEndOffset = reader.readNestedStart(DerNodeType.Sequence);
+    while (reader.hasMore(subjectEndOffset)) {
+      int descriptionEndOffset = reader.readNestedStart(DerNodeType.Sequence);
+      String oidStr = reader.readOid();
+      String value = "" + new Blob
+        (reader.readValue(DerNodeType.PrintableString), false);
+      reader.finishNested(descriptionEndOffset);
 
       addSubjectDescription(new CertificateSubjectDescription(oidStr, value));
     }
+    reader.finishNested(subjectEndOffset);
 
     // 3rd: public key
-    Blob publicKeyInfo = ((DerNode)rootChildren.get(2)).encode();
+    // The content Blob is immutable, so the key can share its buffer.
+    Blob publicKeyInfo = new Blob(reader.readElement(), false);
     try {
       key_ = new PublicKey(publicKeyInfo);
     }
@@ -277,18 +292,21 @@ public class Certificate extends Data {
       throw new DerDecodingException(ex.getMessage());
     }
 
-    if (rootChildren.size() > 3) {
-      List extensionChildren = DerNode.getSequence(rootChildren, 3).getChildren();
-      for (int i = 0; i < extensionChildren.size(); ++i) {
-        DerSequence extInfo = DerNode.getSequence(extensionChildren, i);
+    if (reader.peekType(DerNodeType.Sequence, rootEndOffset)) {
+      int extensionEndOffset = reader.readNestedStart(DerNodeType.Sequence);
+      while (reader.hasMore(extensionEndOffset)) {
+        int extInfoEndOffset = reader.readNestedStart(DerNodeType.Sequence);
+        String oidStr = reader.readOid();
+        boolean isCritical = reader.readBoolean();
+        Blob value = new Blob(reader.readValue(DerNodeType.OctetString), false);
+        reader.finishNested(extInfoEndOffset);
 
-        List children = extInfo.getChildren();
-        String oidStr = (String)((DerNode)children.get(0)).toVal();
-        boolean isCritical = (Boolean)((DerBoolean)children.get(1)).toVal();
-        Blob value = (Blob)((DerNode)children.get(2)).toVal();
         addExtension(new CertificateExtension(oidStr, isCritical, value));
       }
+      reader.finishNested(extensionEndOffset);
     }
+
+    reader.finishNested(rootEndOffset);
   }
 
   public String
@@ -334,6 +352,13 @@ public class Certificate extends Data {
     return s;
   }
 
+  private void
+  checkNotFrozen()
+  {
+    if (isFrozen())
+      throw new Error("Cannot change a frozen Certificate");
+  }
+
   // Use ArrayList without generics so it works with older Java compilers.
   private final ArrayList subjectDescriptionList_ = new ArrayList(); // of CertificateSubjectDescription
   private final ArrayList extensionList_ = new ArrayList();          // of CertificateExtension
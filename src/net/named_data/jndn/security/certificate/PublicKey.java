@@ -24,9 +24,10 @@ import java.security.KeyFactory;
 import java.security.NoSuchAlgorithmException;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.X509EncodedKeySpec;
-import java.util.List;
 import net.named_data.jndn.encoding.der.DerDecodingException;
 import net.named_data.jndn.encoding.der.DerNode;
+import net.named_data.jndn.encoding.der.DerNodeType;
+import net.named_data.jndn.encoding.der.DerReader;
 import net.named_data.jndn.security.DigestAlgorithm;
 import net.named_data.jndn.security.KeyType;
 import net.named_data.jndn.security.UnrecognizedDigestAlgorithmException;
@@ -54,11 +55,11 @@ public class PublicKey {
     // Get the public key OID.
     String oidString = null;
     try {
-      DerNode parsedNode = DerNode.parse(keyDer.buf(), 0);
-      List rootChildren = parsedNode.getChildren();
-      List algorithmIdChildren =
-        DerNode.getSequence(rootChildren, 0).getChildren();
-      oidString = "" + ((DerNode)algorithmIdChildren.get(0)).toVal();
+      // SubjectPublicKeyInfo is SEQUENCE { SEQUENCE { OID, ... }, BIT STRING }.
+      DerReader reader = new DerReader(keyDer.buf());
+      reader.readNestedStart(DerNodeType.Sequence);
+      reader.readNestedStart(DerNodeType.Sequence);
+      oidString = reader.readOid();
     }
     catch (DerDecodingException ex) {
       throw new UnrecognizedKeyFormatException
@@ -0,0 +1,581 @@
+/**
+ * Copyright (C) 2017 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+package net.named_data.jndn.security.identity;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.encoding.der.DerDecodingException;
+import net.named_data.jndn.security.KeyType;
+import net.named_data.jndn.security.SecurityException;
+import net.named_data.jndn.security.certificate.IdentityCertificate;
+import net.named_data.jndn.util.Blob;
+
+/**
+ * CachedIdentityStorage extends IdentityStorage to keep the results of the
+ * frequent lookups of another IdentityStorage (such as BasicIdentityStorage or
+ * MemoryIdentityStorage) in memory. The signing and verification paths call
+ * doesKeyExist, getKey, getCertificate and the getDefault methods for each
+ * packet, so this avoids a database query each time. Each cache is bounded by
+ * a maximum number of entries, with the least recently used entry evicted
+ * first. The add, setDefault and delete methods are passed to the underlying
+ * storage and remove the affected cache entries. All updates must be made
+ * through this object, not directly to the underlying storage, or else the
+ * cache can return stale results. Use getHitCount and getMissCount to monitor
+ * the cache.
+ */
+public class CachedIdentityStorage extends IdentityStorage {
+  /**
+   * Create a CachedIdentityStorage in front of the given storage, where each
+   * cache has at most DEFAULT_MAX_ENTRIES entries.
+   * @param storage The underlying IdentityStorage.
+   */
+  public CachedIdentityStorage(IdentityStorage storage)
+  {
+    this(storage, DEFAULT_MAX_ENTRIES);
+  }
+
+  /**
+   * Create a CachedIdentityStorage in front of the given storage.
+   * @param storage The underlying IdentityStorage.
+   * @param maxEntries The maximum number of entries in each cache (keys,
+   * certificates, etc.).
+   */
+  public CachedIdentityStorage(IdentityStorage storage, int maxEntries)
+  {
+    if (maxEntries <= 0)
+      throw new IllegalArgumentException
+        ("CachedIdentityStorage: maxEntries must be positive");
+
+    storage_ = storage;
+    keyExists_ = new LruMap<Name, Boolean>(maxEntries);
+    keys_ = new LruMap<Name, Blob>(maxEntries);
+    certificateExists_ = new LruMap<Name, Boolean>(maxEntries);
+    certificates_ = new LruMap<Name, IdentityCertificate>(maxEntries);
+    defaultKeyNames_ = new LruMap<Name, Name>(maxEntries);
+    defaultCertificateNames_ = new LruMap<Name, Name>(maxEntries);
+  }
+
+  /**
+   * Get the underlying IdentityStorage given to the constructor.
+   * @return The underlying IdentityStorage.
+   */
+  public final IdentityStorage
+  getStorage() { return storage_; }
+
+  /**
+   * Check if the specified identity already exists. This is not cached.
+   * @param identityName The identity name.
+   * @return True if the identity exists, otherwise false.
+   */
+  public boolean
+  doesIdentityExist(Name identityName) throws SecurityException
+  {
+    return storage_.doesIdentityExist(identityName);
+  }
+
+  /**
+   * Add a new identity. Do nothing if the identity already exists.
+   * @param identityName The identity name to be added.
+   */
+  public void
+  addIdentity(Name identityName) throws SecurityException
+  {
+    storage_.addIdentity(identityName);
+  }
+
+  /**
+   * Revoke the identity, and clear the cache.
+   * @return True if the identity was revoked, false if not.
+   */
+  public synchronized boolean
+  revokeIdentity() throws SecurityException
+  {
+    clear();
+    return storage_.revokeIdentity();
+  }
+
+  /**
+   * Check if the specified key already exists, using the cached result if
+   * available.
+   * @param keyName The name of the key.
+   * @return true if the key exists, otherwise false.
+   */
+  public synchronized boolean
+  doesKeyExist(Name keyName) throws SecurityException
+  {
+    if (keys_.containsKey(keyName)) {
+      ++hitCount_;
+      return true;
+    }
+    Boolean exists = keyExists_.get(keyName);
+    if (exists != null) {
+      ++hitCount_;
+      return exists;
+    }
+
+    ++missCount_;
+    boolean result = storage_.doesKeyExist(keyName);
+    keyExists_.put(new Name(keyName), result);
+    return result;
+  }
+
+  /**
+   * Add a public key to the identity storage, and remove cached information
+   * about the key.
+   * @param keyName The name of the public key to be added.
+   * @param keyType Type of the public key to be added.
+   * @param publicKeyDer A blob of the public key DER to be added.
+   */
+  public synchronized void
+  addKey(Name keyName, KeyType keyType, Blob publicKeyDer)
+    throws SecurityException
+  {
+    removeKey(keyName);
+    storage_.addKey(keyName, keyType, publicKeyDer);
+  }
+
+  /**
+   * Get the public key DER blob from the identity storage, using the cached
+   * result if available.
+   * @param keyName The name of the requested public key.
+   * @return The DER Blob.
+   * @throws SecurityException if the key doesn't exist.
+   */
+  public synchronized Blob
+  getKey(Name keyName) throws SecurityException
+  {
+    Blob key = keys_.get(keyName);
+    if (key != null) {
+      ++hitCount_;
+      return key;
+    }
+
+    ++missCount_;
+    key = storage_.getKey(keyName);
+    // A Blob is immutable, so we can return the same object.
+    keys_.put(new Name(keyName), key);
+    return key;
+  }
+
+  /**
+   * Activate a key.  If a key is marked as inactive, its private part will not
+   * be used in packet signing.
+   * @param keyName The name of the key.
+   */
+  public void
+  activateKey(Name keyName) throws SecurityException
+  {
+    storage_.activateKey(keyName);
+  }
+
+  /**
+   * Deactivate a key. If a key is marked as inactive, its private part will not
+   * be used in packet signing.
+   * @param keyName The name of the key.
+   */
+  public void
+  deactivateKey(Name keyName) throws SecurityException
+  {
+    storage_.deactivateKey(keyName);
+  }
+
+  /**
+   * Check if the specified certificate already exists, using the cached result
+   * if available.
+   * @param certificateName The name of the certificate.
+   * @return True if the certificate exists, otherwise false.
+   */
+  public synchronized boolean
+  doesCertificateExist(Name certificateName) throws SecurityException
+  {
+    if (certificates_.containsKey(certificateName)) {
+      ++hitCount_;
+      return true;
+    }
+    Boolean exists = certificateExists_.get(certificateName);
+    if (exists != null) {
+      ++hitCount_;
+      return exists;
+    }
+
+    ++missCount_;
+    boolean result = storage_.doesCertificateExist(certificateName);
+    certificateExists_.put(new Name(certificateName), result);
+    return result;
+  }
+
+  /**
+   * Add a certificate to the identity storage, and remove cached information
+   * about the certificate and its key.
+   * @param certificate The certificate to be added.  This makes a copy of the
+   * certificate.
+   */
+  public synchronized void
+  addCertificate(IdentityCertificate certificate) throws SecurityException
+  {
+    removeCertificate(certificate.getName());
+    // The underlying storage also adds the certificate's key.
+    removeKey(certificate.getPublicKeyName());
+    storage_.addCertificate(certificate);
+  }
+
+  /**
+   * Get a certificate from the identity storage, using the cached certificate
+   * if available.
+   * @param certificateName The name of the requested certificate.
+   * @return A new copy of the requested certificate.
+   * @throws SecurityException if the certificate doesn't exist.
+   */
+  public synchronized IdentityCertificate
+  getCertificate(Name certificateName) throws SecurityException
+  {
+    IdentityCertificate certificate = certificates_.get(certificateName);
+    if (certificate != null)
+      ++hitCount_;
+    else {
+      ++missCount_;
+      certificate = storage_.getCertificate(certificateName);
+      certificates_.put(new Name(certificateName), certificate);
+    }
+
+    // Return a copy so that the caller can't modify the cached certificate.
+    try {
+      return new IdentityCertificate(certificate);
+    } catch (DerDecodingException ex) {
+      // We don't expect this since it was already decoded.
+      throw new SecurityException
+        ("CachedIdentityStorage.getCertificate: Error copying the certificate: " +
+         ex);
+    }
+  }
+
+  /**
+   * Get the TPM locator associated with this storage.
+   * @return The TPM locator.
+   * @throws SecurityException if the TPM locator doesn't exist.
+   */
+  public String
+  getTpmLocator() throws SecurityException
+  {
+    return storage_.getTpmLocator();
+  }
+
+  /*****************************************
+   *           Get/Set Default             *
+   *****************************************/
+
+  /**
+   * Get the default identity, using the cached result if available.
+   * @return The name of default identity.
+   * @throws SecurityException if the default identity is not set.
+   */
+  public synchronized Name
+  getDefaultIdentity() throws SecurityException
+  {
+    if (defaultIdentity_ != null)
+      ++hitCount_;
+    else {
+      ++missCount_;
+      defaultIdentity_ = new Name(storage_.getDefaultIdentity());
+    }
+
+    return new Name(defaultIdentity_);
+  }
+
+  /**
+   * Get the default key name for the specified identity, using the cached
+   * result if available.
+   * @param identityName The identity name.
+   * @return The default key name.
+   * @throws SecurityException if the default key name for the identity is not set.
+   */
+  public synchronized Name
+  getDefaultKeyNameForIdentity(Name identityName) throws SecurityException
+  {
+    Name keyName = defaultKeyNames_.get(identityName);
+    if (keyName != null)
+      ++hitCount_;
+    else {
+      ++missCount_;
+      keyName = new Name(storage_.getDefaultKeyNameForIdentity(identityName));
+      defaultKeyNames_.put(new Name(identityName), keyName);
+    }
+
+    return new Name(keyName);
+  }
+
+  /**
+   * Get the default certificate name for the specified key, using the cached
+   * result if available.
+   * @param keyName The key name.
+   * @return The default certificate name.
+   * @throws SecurityException if the default certificate name for the key name
+   * is not set.
+   */
+  public synchronized Name
+  getDefaultCertificateNameForKey(Name keyName) throws SecurityException
+  {
+    Name certificateName = defaultCertificateNames_.get(keyName);
+    if (certificateName != null)
+      ++hitCount_;
+    else {
+      ++missCount_;
+      certificateName = new Name
+        (storage_.getDefaultCertificateNameForKey(keyName));
+      defaultCertificateNames_.put(new Name(keyName), certificateName);
+    }
+
+    return new Name(certificateName);
+  }
+
+  /**
+   * Append all the identity names to the nameList. This is not cached.
+   * @param nameList Append result names to nameList.
+   * @param isDefault If true, add only the default identity name. If false, add
+   * only the non-default identity names.
+   */
+  public void
+  getAllIdentities(ArrayList nameList, boolean isDefault)
+    throws SecurityException
+  {
+    storage_.getAllIdentities(nameList, isDefault);
+  }
+
+  /**
+   * Append all the key names of a particular identity to the nameList. This is
+   * not cached.
+   * @param identityName The identity name to search for.
+   * @param nameList Append result names to nameList.
+   * @param isDefault If true, add only the default key name. If false, add only
+   * the non-default key names.
+   */
+  public void
+  getAllKeyNamesOfIdentity
+    (Name identityName, ArrayList nameList, boolean isDefault)
+    throws SecurityException
+  {
+    storage_.getAllKeyNamesOfIdentity(identityName, nameList, isDefault);
+  }
+
+  /**
+   * Append all the certificate names of a particular key name to the nameList.
+   * This is not cached.
+   * @param keyName The key name to search for.
+   * @param nameList Append result names to nameList.
+   * @param isDefault If true, add only the default certificate name. If false,
+   * add only the non-default certificate names.
+   */
+  public void
+  getAllCertificateNamesOfKey
+    (Name keyName, ArrayList nameList, boolean isDefault)
+    throws SecurityException
+  {
+    storage_.getAllCertificateNamesOfKey(keyName, nameList, isDefault);
+  }
+
+  /**
+   * Set the default identity, and remove the cached default identity.
+   * @param identityName The default identity name.
+   */
+  public synchronized void
+  setDefaultIdentity(Name identityName) throws SecurityException
+  {
+    defaultIdentity_ = null;
+    storage_.setDefaultIdentity(identityName);
+  }
+
+  /**
+   * Set a key as the default key of an identity, and remove the cached default
+   * key name for the identity.
+   * @param keyName The name of the key.
+   * @param identityNameCheck The identity name to check that the keyName
+   * contains the same identity name. If an empty name, it is ignored.
+   */
+  public synchronized void
+  setDefaultKeyNameForIdentity(Name keyName, Name identityNameCheck)
+    throws SecurityException
+  {
+    defaultKeyNames_.remove(keyName.getPrefix(-1));
+    storage_.setDefaultKeyNameForIdentity(keyName, identityNameCheck);
+  }
+
+  /**
+   * Set the default certificate name for the key, and remove the cached
+   * default certificate name for the key.
+   * @param keyName The key name.
+   * @param certificateName The certificate name.
+   */
+  public synchronized void
+  setDefaultCertificateNameForKey(Name keyName, Name certificateName)
+    throws SecurityException
+  {
+    defaultCertificateNames_.remove(keyName);
+    storage_.setDefaultCertificateNameForKey(keyName, certificateName);
+  }
+
+  /*****************************************
+   *            Delete Methods             *
+   *****************************************/
+
+  /**
+   * Delete a certificate, and remove cached information about it.
+   * @param certificateName The certificate name.
+   */
+  public synchronized void
+  deleteCertificateInfo(Name certificateName) throws SecurityException
+  {
+    removeCertificate(certificateName);
+    // The certificate may have been a default.
+    defaultCertificateNames_.clear();
+    storage_.deleteCertificateInfo(certificateName);
+  }
+
+  /**
+   * Delete a public key and related certificates, and remove cached
+   * information about them.
+   * @param keyName The key name.
+   */
+  public synchronized void
+  deletePublicKeyInfo(Name keyName) throws SecurityException
+  {
+    removeKey(keyName);
+    // We don't know the names of the deleted certificates.
+    certificateExists_.clear();
+    certificates_.clear();
+    defaultKeyNames_.clear();
+    defaultCertificateNames_.clear();
+    storage_.deletePublicKeyInfo(keyName);
+  }
+
+  /**
+   * Delete an identity and related public keys and certificates, and clear the
+   * cache.
+   * @param identity The identity name.
+   */
+  public synchronized void
+  deleteIdentityInfo(Name identity) throws SecurityException
+  {
+    clear();
+    storage_.deleteIdentityInfo(identity);
+  }
+
+  /**
+   * Remove all entries from the cache. This does not reset the hit and miss
+   * counts. Call this if the underlying storage was modified directly.
+   */
+  public final synchronized void
+  clear()
+  {
+    keyExists_.clear();
+    keys_.clear();
+    certificateExists_.clear();
+    certificates_.clear();
+    defaultKeyNames_.clear();
+    defaultCertificateNames_.clear();
+    defaultIdentity_ = null;
+  }
+
+  /**
+   * Get the number of lookups which were answered from the cache.
+   * @return The hit count.
+   */
+  public final synchronized long
+  getHitCount() { return hitCount_; }
+
+  /**
+   * Get the number of lookups which had to call the underlying storage.
+   * @return The miss count.
+   */
+  public final synchronized long
+  getMissCount() { return missCount_; }
+
+  /**
+   * Get the fraction of lookups which were answered from the cache.
+   * @return The hit count divided by the total number of lookups, or 0 if
+   * there were no lookups.
+   */
+  public final synchronized double
+  getHitRate()
+  {
+    long total = hitCount_ + missCount_;
+    return total == 0 ? 0.0 : (double)hitCount_ / total;
+  }
+
+  /**
+   * Reset the hit and miss counts to zero.
+   */
+  public final synchronized void
+  resetCounts()
+  {
+    hitCount_ = 0;
+    missCount_ = 0;
+  }
+
+  public static final int DEFAULT_MAX_ENTRIES = 1000;
+
+  /**
+   * LruMap extends LinkedHashMap in access order to remove the least recently
+   * used entry when the size exceeds maxEntries.
+   */
+  private static class LruMap<K, V> extends LinkedHashMap<K, V> {
+    public LruMap(int maxEntries)
+    {
+      super(16, 0.75f, true);
+      maxEntries_ = maxEntries;
+    }
+
+    protected boolean
+    removeEldestEntry(Map.Entry<K, V> eldest)
+    {
+      return size() > maxEntries_;
+    }
+
+    private final int maxEntries_;
+  }
+
+  private void
+  removeKey(Name keyName)
+  {
+    keyExists_.remove(keyName);
+    keys_.remove(keyName);
+  }
+
+  private void
+  removeCertificate(Name certificateName)
+  {
+    certificateExists_.remove(certificateName);
+    certificates_.remove(certificateName);
+  }
+
+  private final IdentityStorage storage_;
+  private final LruMap<Name, Boolean> keyExists_;
+  private final LruMap<Name, Blob> keys_;
+  private final LruMap<Name, Boolean> certificateExists_;
+  private final LruMap<Name, IdentityCertificate> certificates_;
+  /**< The map key is the identity name. The value is the default key name. */
+  private final LruMap<Name, Name> defaultKeyNames_;
+  /**< The map key is the key name. The value is the default certificate name. */
+  private final LruMap<Name, Name> defaultCertificateNames_;
+  private Name defaultIdentity_ = null;
+  private long hitCount_ = 0;
+  private long missCount_ = 0;
+}
@@ -21,29 +21,71 @@
 
 package net.named_data.jndn.security.policy;
 
-import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import net.named_data.jndn.Name;
-import net.named_data.jndn.encoding.EncodingException;
+import net.named_data.jndn.encoding.der.DerDecodingException;
 import net.named_data.jndn.security.certificate.IdentityCertificate;
-import net.named_data.jndn.util.Blob;
+import net.named_data.jndn.util.Common;
 
 /**
  * A CertificateCache is used to save other users' certificate during
- * verification.
+ * verification. The cache holds decoded certificates (including the parsed
+ * public key) so that a lookup does not decode the certificate again. It is
+ * safe to use from multiple threads. The cache holds at most
+ * getMaxCertificates() certificates and evicts the least recently used. A
+ * certificate is removed when the current time is past its notAfter time.
  */
 public class CertificateCache {
+  /**
+   * Create a CertificateCache to hold at most maxCertificates certificates.
+   * @param maxCertificates The maximum number of certificates.
+   */
+  public CertificateCache(int maxCertificates)
+  {
+    maxCertificates_ = maxCertificates;
+  }
+
+  /**
+   * Create a CertificateCache to hold at most DEFAULT_MAX_CERTIFICATES
+   * certificates.
+   */
+  public CertificateCache()
+  {
+    maxCertificates_ = DEFAULT_MAX_CERTIFICATES;
+  }
+
   /**
    * Insert the certificate into the cache. Assumes the timestamp is not yet
-   * removed from the name.
-   * @param certificate The certificate to copy and insert.
+   * removed from the name. If the cache is full, this evicts the least recently
+   * used certificate.
+   * @param certificate The certificate to copy and insert. This caches a frozen
+   * copy, so the caller may still modify the given certificate.
    */
   public void
   insertCertificate(IdentityCertificate certificate)
   {
+    IdentityCertificate certificateCopy;
+    try {
+      certificateCopy = new IdentityCertificate(certificate);
+    } catch (DerDecodingException ex) {
+      Logger.getLogger(CertificateCache.class.getName()).log(Level.SEVERE, null, ex);
+      throw new Error(ex.getMessage());
+    }
+    certificateCopy.freeze();
+
     Name certName = certificate.getName().getPrefix(-1);
-    cache_.put(certName.toUri(), certificate.wireEncode());
+    synchronized (cache_) {
+      cache_.put(certName, certificateCopy);
+
+      Iterator<IdentityCertificate> i = cache_.values().iterator();
+      while (cache_.size() > maxCertificates_ && i.hasNext()) {
+        i.next();
+        i.remove();
+      }
+    }
   }
 
   /**
@@ -54,31 +96,35 @@ public class CertificateCache {
   public void
   deleteCertificate(Name certificateName)
   {
-    cache_.remove(certificateName.toUri());
+    synchronized (cache_) {
+      cache_.remove(certificateName);
+    }
   }
 
   /**
-   * Fetch a certificate from the cache.
+   * Fetch a certificate from the cache. If the certificate is past its notAfter
+   * time, remove it and return null.
    * @param certificateName The name of the certificate to remove. Assumes there
    * is no timestamp in the name.
-   * @return A new copy of the IdentityCertificate, or null if not found.
+   * @return The cached IdentityCertificate, or null if not found. The returned
+   * certificate is frozen and shared with other callers (see Data.freeze). If
+   * you need to change it then make a copy.
    */
   public IdentityCertificate
   getCertificate(Name certificateName)
   {
-    Blob certData = (Blob)cache_.get(certificateName.toUri());
-    if (certData == null)
-      return null;
+    synchronized (cache_) {
+      IdentityCertificate certificate = cache_.get(certificateName);
+      if (certificate == null)
+        return null;
 
-    IdentityCertificate cert = new IdentityCertificate();
-    try {
-      cert.wireDecode(certData.buf());
-    } catch (EncodingException ex) {
-      Logger.getLogger(CertificateCache.class.getName()).log(Level.SEVERE, null, ex);
-      throw new Error(ex.getMessage());
-    }
+      if (Common.getNowMilliseconds() > certificate.getNotAfter()) {
+        cache_.remove(certificateName);
+        return null;
+      }
 
-    return cert;
+      return certificate;
+    }
   }
 
   /**
@@ -87,10 +133,36 @@ public class CertificateCache {
   public void
   reset()
   {
-    cache_.clear();
+    synchronized (cache_) {
+      cache_.clear();
+    }
   }
 
-  // The key is the certificate name URI. The value is the wire encoding Blob.
-  // Use HashMap without generics so it works with older Java compilers.
-  private final HashMap cache_ = new HashMap();
+  /**
+   * Get the number of certificates in the cache, including expired
+   * certificates which have not been removed by getCertificate.
+   * @return The number of certificates.
+   */
+  public int
+  size()
+  {
+    synchronized (cache_) {
+      return cache_.size();
+    }
+  }
+
+  /**
+   * Get the maximum number of certificates given to the constructor.
+   * @return The maximum number of certificates.
+   */
+  public final int
+  getMaxCertificates() { return maxCertificates_; }
+
+  public static final int DEFAULT_MAX_CERTIFICATES = 1000;
+
+  private final int maxCertificates_;
+  // The key is the certificate name without the timestamp. The value is the
+  // decoded certificate. The map is in access order, least recently used first.
+  private final LinkedHashMap<Name, IdentityCertificate> cache_ =
+    new LinkedHashMap<Name, IdentityCertificate>(16, 0.75f, true);
 }
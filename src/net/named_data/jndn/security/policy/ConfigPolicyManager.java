@@ -28,6 +28,9 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
@@ -500,88 +503,197 @@ public class ConfigPolicyManager extends PolicyManager {
     getCertificate(Name certificateName)
     {
       // Assume the timestamp is already removed.
-      return certificateCache_.getCertificate(certificateName);
+      return (IdentityCertificate)anchors_.get(certificateName);
     }
 
-    public void
+    public synchronized void
     addDirectory(String directoryName, double refreshPeriod) throws SecurityException
+    {
+      DirectoryInfo info = new DirectoryInfo
+        (Common.getNowMilliseconds() + refreshPeriod, refreshPeriod);
+      // Scan with an empty file map to load all the files.
+      HashMap newAnchors = new HashMap(anchors_);
+      HashMap newAnchorCounts = new HashMap(anchorCounts_);
+      scanDirectory(directoryName, info.files_, newAnchors, newAnchorCounts);
+      refreshDirectories_.put(directoryName, info);
+      anchorCounts_ = newAnchorCounts;
+      anchors_ = newAnchors;
+    }
+
+    /**
+     * For each directory whose refresh time has come, check the file
+     * modification times and sizes and only load the anchors from files which
+     * are new or changed, and remove the anchors of files which were changed
+     * or removed. The new anchor set replaces the old one at once, so
+     * getCertificate never sees a partly refreshed set. The file maps of the
+     * directories are also only replaced after all the directories are
+     * scanned, so if scanning a directory throws an exception then nothing is
+     * changed and the next refresh tries again from the same state.
+     */
+    public synchronized void
+    refreshAnchors() throws SecurityException
+    {
+      double refreshTime = Common.getNowMilliseconds();
+
+      HashMap newAnchors = null;
+      HashMap newAnchorCounts = null;
+      // The key is the DirectoryInfo. The value is its new file map.
+      HashMap newFiles = new HashMap();
+      for (Iterator i = refreshDirectories_.entrySet().iterator(); i.hasNext(); ) {
+        Map.Entry entry = (Map.Entry)i.next();
+        DirectoryInfo info = (DirectoryInfo)entry.getValue();
+
+        if (info.nextRefresh_ <= refreshTime) {
+          if (newAnchors == null) {
+            newAnchors = new HashMap(anchors_);
+            newAnchorCounts = new HashMap(anchorCounts_);
+          }
+          HashMap files = new HashMap(info.files_);
+          scanDirectory
+            ((String)entry.getKey(), files, newAnchors, newAnchorCounts);
+          newFiles.put(info, files);
+        }
+      }
+
+      if (newAnchors == null)
+        return;
+      for (Iterator i = newFiles.entrySet().iterator(); i.hasNext(); ) {
+        Map.Entry entry = (Map.Entry)i.next();
+        DirectoryInfo info = (DirectoryInfo)entry.getKey();
+        info.files_ = (HashMap)entry.getValue();
+        info.nextRefresh_ = refreshTime + info.refreshPeriod_;
+      }
+      anchorCounts_ = newAnchorCounts;
+      anchors_ = newAnchors;
+    }
+
+    /**
+     * Update files and anchors to match the certificate files now in the
+     * directory.
+     * @param directoryName The directory to scan.
+     * @param files The map of file path to AnchorFile from the previous scan,
+     * which is updated.
+     * @param anchors The map of certificate name to IdentityCertificate which
+     * is updated.
+     * @param anchorCounts The map of certificate name to the Integer number of
+     * files which have the certificate, which is updated.
+     */
+    private static void
+    scanDirectory
+      (String directoryName, HashMap files, HashMap anchors,
+       HashMap anchorCounts)
+      throws SecurityException
     {
       File[] allFiles = new File(directoryName).listFiles();
       if (allFiles == null)
         throw new SecurityException
           ("Cannot find files in directory " + directoryName);
 
-      // Use ArrayList without generics so it works with older Java compilers.
-      ArrayList certificateNames = new ArrayList();
+      HashSet foundPaths = new HashSet();
       for (int i = 0; i < allFiles.length; ++i) {
         File file = allFiles[i];
+        String path = file.getAbsolutePath();
+        foundPaths.add(path);
+        long lastModified = file.lastModified();
+        long length = file.length();
+
+        AnchorFile anchorFile = (AnchorFile)files.get(path);
+        if (anchorFile != null) {
+          if (anchorFile.lastModified_ == lastModified &&
+              anchorFile.length_ == length)
+            // Unchanged.
+            continue;
+          if (anchorFile.certificateName_ != null)
+            removeAnchor(anchorFile.certificateName_, anchors, anchorCounts);
+        }
 
-        IdentityCertificate cert;
+        Name certificateName = null;
         try {
-          cert = loadIdentityCertificateFromFile(file.getAbsolutePath());
+          IdentityCertificate cert = loadIdentityCertificateFromFile(path);
+          // Cut off the timestamp so it matches KeyLocator Name format.
+          certificateName = cert.getName().getPrefix(-1);
+          anchors.put(certificateName, cert);
+          Integer count = (Integer)anchorCounts.get(certificateName);
+          anchorCounts.put
+            (certificateName, count == null ? 1 : count.intValue() + 1);
         }
         catch (SecurityException ex) {
           // Allow files that are not certificates.
-          continue;
         }
-
-        // Cut off the timestamp so it matches KeyLocator Name format.
-        String certUri = cert.getName().getPrefix(-1).toUri();
-        certificateCache_.insertCertificate(cert);
-        certificateNames.add(certUri);
+        files.put(path, new AnchorFile(lastModified, length, certificateName));
       }
 
-      refreshDirectories_.put
-        (directoryName, new DirectoryInfo
-          (certificateNames, Common.getNowMilliseconds() + refreshPeriod,
-           refreshPeriod));
+      // Remove the anchors for files which were removed.
+      for (Iterator i = files.entrySet().iterator(); i.hasNext(); ) {
+        Map.Entry entry = (Map.Entry)i.next();
+        if (!foundPaths.contains(entry.getKey())) {
+          Name certificateName = ((AnchorFile)entry.getValue()).certificateName_;
+          if (certificateName != null)
+            removeAnchor(certificateName, anchors, anchorCounts);
+          i.remove();
+        }
+      }
     }
 
-    public void
-    refreshAnchors() throws SecurityException
+    /**
+     * Decrement the count of files with the certificate name, and remove the
+     * anchor only if no other file (in any directory) still has it.
+     * @param certificateName The certificate name without the timestamp.
+     * @param anchors The map of certificate name to IdentityCertificate.
+     * @param anchorCounts The map of certificate name to Integer count.
+     */
+    private static void
+    removeAnchor(Name certificateName, HashMap anchors, HashMap anchorCounts)
     {
-      double refreshTime = Common.getNowMilliseconds();
-
-      // We will modify refreshDirectories_ in the loop, so copy its keys.
-      Object[] directories = refreshDirectories_.keySet().toArray();
-      for (int iDirectory = 0; iDirectory < directories.length; ++iDirectory) {
-        String directory = (String)directories[iDirectory];
-        DirectoryInfo info = (DirectoryInfo)refreshDirectories_.get(directory);
-
-        double nextRefreshTime = info.nextRefresh_;
-        if (nextRefreshTime <= refreshTime) {
-          ArrayList certificateList = (ArrayList)info.certificateNames_.clone();
-
-          // Delete the certificates associated with this directory if possible
-          //   then re-import.
-          // IdentityStorage subclasses may not support deletion.
-          for (int i = 0; i < certificateList.size(); ++i)
-            certificateCache_.deleteCertificate
-              (new Name((String)certificateList.get(i)));
-
-          addDirectory(directory, info.refreshPeriod_);
-        }
+      Integer count = (Integer)anchorCounts.get(certificateName);
+      if (count == null || count.intValue() <= 1) {
+        anchorCounts.remove(certificateName);
+        anchors.remove(certificateName);
       }
+      else
+        anchorCounts.put(certificateName, count.intValue() - 1);
     }
 
+    private static class AnchorFile {
+      public AnchorFile(long lastModified, long length, Name certificateName)
+      {
+        lastModified_ = lastModified;
+        length_ = length;
+        certificateName_ = certificateName;
+      }
+
+      final long lastModified_;
+      final long length_;
+      final Name certificateName_; // null if the file is not a certificate.
+    };
+
     private static class DirectoryInfo {
-      public DirectoryInfo
-        (ArrayList certificateNames, double nextRefresh, double refreshPeriod)
+      public DirectoryInfo(double nextRefresh, double refreshPeriod)
       {
-        certificateNames_ = certificateNames;
         nextRefresh_ = nextRefresh;
         refreshPeriod_ = refreshPeriod;
       }
 
-      ArrayList certificateNames_; // of String.
+      // The key is the file path. The value is the AnchorFile. This is
+      // replaced by refreshAnchors after all the directories are scanned.
+      // Use HashMap without generics so it works with older Java compilers.
+      HashMap files_ = new HashMap();
       double nextRefresh_;
       double refreshPeriod_;
     };
 
-    private final CertificateCache certificateCache_ = new CertificateCache();
+    // anchors_ maps the certificate name without the timestamp to the
+    // IdentityCertificate. It is replaced, not modified, so that readers don't
+    // need to lock.
+    // Use HashMap without generics so it works with older Java compilers.
+    private volatile HashMap anchors_ = new HashMap();
+    // anchorCounts_ maps the certificate name without the timestamp to the
+    // Integer number of files in all the directories which have it, so that
+    // the anchor is only removed when the last one is changed or removed.
+    // Use HashMap without generics so it works with older Java compilers.
+    private HashMap anchorCounts_ = new HashMap();
     // refreshDirectories_ maps the directory name to a DirectoryInfo of
-    // the certificate names so they can be deleted when necessary, and the
-    // next refresh time.
+    // the files loaded from the directory, and the next refresh time.
     // Use HashMap without generics so it works with older Java compilers.
     private final HashMap refreshDirectories_ = new HashMap();
   };
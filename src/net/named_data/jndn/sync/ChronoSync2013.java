@@ -24,7 +24,10 @@ import com.google.protobuf.ByteString;
 import com.google.protobuf.InvalidProtocolBufferException;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import net.named_data.jndn.Data;
@@ -32,6 +35,7 @@ import net.named_data.jndn.Face;
 import net.named_data.jndn.Interest;
 import net.named_data.jndn.InterestFilter;
 import net.named_data.jndn.Name;
+import net.named_data.jndn.encoding.EncodingException;
 import net.named_data.jndn.OnData;
 import net.named_data.jndn.OnInterestCallback;
 import net.named_data.jndn.OnRegisterFailed;
@@ -128,7 +132,7 @@ public class ChronoSync2013 implements OnInterestCallback, OnData, OnTimeout {
 
     SyncStateProto.SyncStateMsg emptyContent =
       SyncStateProto.SyncStateMsg.newBuilder().build();
-    digestLog_.add(new DigestLogEntry("00", emptyContent.getSsList()));
+    addDigestLogEntry(new DigestLogEntry("00", emptyContent.getSsList()));
 
     // Register the prefix with the contentCache_ and use our own onInterest
     //   as the onDataNotFound fallback.
@@ -343,6 +347,77 @@ public class ChronoSync2013 implements OnInterestCallback, OnData, OnTimeout {
   public final long
   getSequenceNo() { return sequenceNo_; }
 
+  /**
+   * Get the maximum number of entries in the digest log.
+   * @return The maximum number of entries.
+   */
+  public final int
+  getMaxDigestLogSize() { return maxDigestLogSize_; }
+
+  /**
+   * Set the maximum number of entries in the digest log. When a new entry
+   * makes the log larger than this, the oldest entries are removed. A sync
+   * interest with a digest which is no longer in the log is treated as an
+   * unknown digest, so that the other side will use a recovery interest to get
+   * the full state.
+   * @param maxDigestLogSize The maximum number of entries, which must be at
+   * least 1.
+   */
+  public final void
+  setMaxDigestLogSize(int maxDigestLogSize)
+  {
+    if (maxDigestLogSize < 1)
+      throw new IllegalArgumentException
+        ("ChronoSync2013.setMaxDigestLogSize: The size must be at least 1");
+
+    maxDigestLogSize_ = maxDigestLogSize;
+    trimDigestLog();
+  }
+
+  /**
+   * Get the number of entries in the digest log.
+   * @return The number of entries.
+   */
+  public final int
+  getDigestLogSize() { return digestLog_.size(); }
+
+  public static final int DEFAULT_MAX_DIGEST_LOG_SIZE = 10000;
+
+  /**
+   * Check if delta sync is enabled, as set by setUseDeltaSync.
+   * @return True if delta sync is enabled.
+   */
+  public final boolean
+  getUseDeltaSync() { return useDeltaSync_; }
+
+  /**
+   * Enable or disable delta sync. When enabled, the sync state messages that
+   * this sends are encoded as compact NDN-TLV (see SyncStateTlv) instead of
+   * Protobuf, and the onReceivedSyncState callback for sync data (other than
+   * the initial sync data) only receives the sync states whose sequence number
+   * is newer than the last one seen for the producer prefix and session, so
+   * that the processing scales with the rate of updates instead of with the
+   * size of the group. Received sync data is accepted in either encoding, but
+   * other applications which only understand Protobuf (such as ChronoChat-js)
+   * can't decode the sync data sent by this, so you should only enable this
+   * if all members of the sync group support it. Delta sync is disabled by
+   * default.
+   * @param useDeltaSync True to enable delta sync, false to use the Protobuf
+   * encoding and report all received sync states.
+   */
+  public final void
+  setUseDeltaSync(boolean useDeltaSync)
+  {
+    if (useDeltaSync == useDeltaSync_)
+      return;
+
+    useDeltaSync_ = useDeltaSync;
+    // The cached replies have the previous encoding.
+    replyCache_.clear();
+    replyCacheRoot_ = "";
+    fullStateContent_ = null;
+  }
+
   private static class DigestLogEntry {
     public DigestLogEntry(String digest, List data)
     {
@@ -366,6 +441,64 @@ public class ChronoSync2013 implements OnInterestCallback, OnData, OnTimeout {
     List data_; // of SyncStateProto.SyncState
   }
 
+  /**
+   * A DigestLog is a ring buffer of DigestLogEntry so that removing the oldest
+   * entry when the log is full does not shift the other entries.
+   */
+  private static class DigestLog {
+    /**
+     * Get the number of entries.
+     * @return The number of entries.
+     */
+    public final int
+    size() { return size_; }
+
+    /**
+     * Get the entry at the index, where 0 is the oldest.
+     * @param i The index, from 0 to size() - 1.
+     * @return The entry.
+     */
+    public final DigestLogEntry
+    get(int i) { return entries_[(start_ + i) % entries_.length]; }
+
+    /**
+     * Append the entry, growing the buffer if it is full.
+     * @param entry The DigestLogEntry to append.
+     */
+    public final void
+    add(DigestLogEntry entry)
+    {
+      if (size_ == entries_.length) {
+        DigestLogEntry[] entries = new DigestLogEntry[entries_.length * 2];
+        for (int i = 0; i < size_; ++i)
+          entries[i] = get(i);
+        entries_ = entries;
+        start_ = 0;
+      }
+
+      entries_[(start_ + size_) % entries_.length] = entry;
+      ++size_;
+    }
+
+    /**
+     * Remove the oldest entry. The log must not be empty.
+     * @return The removed entry.
+     */
+    public final DigestLogEntry
+    removeOldest()
+    {
+      DigestLogEntry entry = entries_[start_];
+      entries_[start_] = null;
+      start_ = (start_ + 1) % entries_.length;
+      --size_;
+      return entry;
+    }
+
+    private DigestLogEntry[] entries_ = new DigestLogEntry[16];
+    private int start_ = 0;
+    private int size_ = 0;
+  }
+
   /**
    * Unregister callbacks so that this does not respond to interests anymore.
    * If you will discard this ChronoSync2013 object while your application is
@@ -396,11 +529,86 @@ public class ChronoSync2013 implements OnInterestCallback, OnData, OnTimeout {
   {
     Data data = new Data(applicationBroadcastPrefix_);
     data.getName().append(digest);
-    data.setContent(new Blob(syncMessage.toByteArray(), false));
+    data.setContent(encodeSyncStates(syncMessage.getSsList()));
     keyChain_.sign(data, certificateName_);
     contentCache_.add(data);
   }
 
+  /**
+   * Encode the sync states for the content of a sync Data packet, as NDN-TLV
+   * if useDeltaSync_, otherwise as a Protobuf SyncStateMsg. If a sync state is
+   * not an UPDATE, this uses Protobuf since the NDN-TLV can't encode it.
+   * @param syncStates The list of SyncStateProto.SyncState.
+   * @return The encoded content.
+   */
+  private Blob
+  encodeSyncStates(List syncStates)
+  {
+    if (useDeltaSync_ && SyncStateTlv.canEncode(syncStates))
+      return SyncStateTlv.encode(syncStates);
+    else {
+      SyncStateProto.SyncStateMsg.Builder builder =
+        SyncStateProto.SyncStateMsg.newBuilder();
+      builder.addAllSs(syncStates);
+      return new Blob(builder.build().toByteArray(), false);
+    }
+  }
+
+  /**
+   * Decode the content of a sync Data packet, which can be NDN-TLV or a
+   * Protobuf SyncStateMsg.
+   * @param content The Data content.
+   * @return The list of SyncStateProto.SyncState.
+   * @throws EncodingException For invalid encoding.
+   */
+  private static List
+  decodeSyncStates(Blob content) throws EncodingException
+  {
+    if (SyncStateTlv.isTlv(content))
+      return SyncStateTlv.decode(content.buf());
+    else {
+      try {
+        return SyncStateProto.SyncStateMsg.parseFrom
+          (content.getImmutableArray()).getSsList();
+      } catch (InvalidProtocolBufferException ex) {
+        throw new EncodingException
+          ("Error decoding the SyncStateMsg: " + ex.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Get the UPDATE sync states in content whose sequence number is newer than
+   * the sequence number in the digest tree for the same data prefix and
+   * session. This must be called before updating the digest tree.
+   * @param content The list of SyncStateProto.SyncState.
+   * @return The list of SyncStateProto.SyncState which are newer. If all are
+   * newer, this returns content.
+   */
+  private List
+  getNewerSyncStates(List content)
+  {
+    ArrayList result = null;
+    for (int i = 0; i < content.size(); ++i) {
+      SyncStateProto.SyncState syncState = (SyncStateProto.SyncState)content.get(i);
+      boolean isNewer = syncState.getType().equals
+          (SyncStateProto.SyncState.ActionType.UPDATE) &&
+        syncState.getSeqno().getSeq() > digestTree_.getSequenceNo
+          (syncState.getName(), syncState.getSeqno().getSession());
+
+      if (result == null) {
+        if (isNewer)
+          continue;
+        // This is the first one to skip, so copy the previous ones.
+        result = new ArrayList(content.subList(0, i));
+      }
+      else if (isNewer)
+        result.add(syncState);
+    }
+
+    return result == null ? content : result;
+  }
+
   /**
    * Update the digest tree with the messages in content. If the digest tree
    * root is not in the digest log, also add a log entry with the content.
@@ -427,23 +635,90 @@ public class ChronoSync2013 implements OnInterestCallback, OnData, OnTimeout {
     }
 
     if (logFind(digestTree_.getRoot()) == -1) {
-      digestLog_.add(new DigestLogEntry(digestTree_.getRoot(), content));
+      addDigestLogEntry(new DigestLogEntry(digestTree_.getRoot(), content));
       return true;
     }
     else
       return false;
   }
 
-  // Search the digest log by digest.
+  /**
+   * Search the digest log by digest.
+   * @param digest The digest as a hex string.
+   * @return The index in digestLog_ of the latest entry with the digest, or
+   * -1 if not found.
+   */
   private int
   logFind(String digest)
   {
-    for (int i = 0; i < digestLog_.size(); ++i) {
-      if (digest.equals(((DigestLogEntry)digestLog_.get(i)).getDigest()))
-        return i;
+    Long position = digestLogIndex_.get(digest);
+    if (position == null)
+      return -1;
+
+    return (int)(position - nRemovedDigestLogEntries_);
+  }
+
+  /**
+   * Append the entry to the digest log and index it by its digest. Then remove
+   * the oldest entries if the log exceeds maxDigestLogSize_. If the digest is
+   * already in the log, the index is moved to the new entry. The entries for a
+   * digest have the same state, and the latest one is trimmed last and has the
+   * fewest updates after it for processSyncInterest to send.
+   * @param entry The DigestLogEntry to add.
+   */
+  private void
+  addDigestLogEntry(DigestLogEntry entry)
+  {
+    digestLogIndex_.put
+      (entry.getDigest(), nRemovedDigestLogEntries_ + digestLog_.size());
+    digestLog_.add(entry);
+    trimDigestLog();
+  }
+
+  private void
+  trimDigestLog()
+  {
+    while (digestLog_.size() > maxDigestLogSize_) {
+      DigestLogEntry oldest = digestLog_.removeOldest();
+      ++nRemovedDigestLogEntries_;
+
+      Long position = digestLogIndex_.get(oldest.getDigest());
+      if (position != null && position < nRemovedDigestLogEntries_)
+        // The index refers to the removed entry.
+        digestLogIndex_.remove(oldest.getDigest());
     }
+  }
 
-    return -1;
+  /**
+   * Get the signed reply Data with the given name which was cached by
+   * cacheReply since the digest tree root last changed. The content of a reply
+   * only depends on the Interest name and the digest tree, so identical
+   * Interests from many peers can be answered with the same signed Data.
+   * @param name The name of the reply Data.
+   * @return The cached Data, or null if not found.
+   */
+  private Data
+  getCachedReply(Name name)
+  {
+    if (!digestTree_.getRoot().equals(replyCacheRoot_)) {
+      // The state changed, so the cached replies are out of date.
+      replyCache_.clear();
+      replyCacheRoot_ = digestTree_.getRoot();
+      fullStateContent_ = null;
+    }
+
+    return replyCache_.get(name);
+  }
+
+  /**
+   * Cache the signed reply Data for the current digest tree root. You must
+   * call getCachedReply first to clear out-of-date entries.
+   * @param data The signed Data, which should not be modified.
+   */
+  private void
+  cacheReply(Data data)
+  {
+    replyCache_.put(data.getName(), data);
   }
 
   /**
@@ -520,14 +795,13 @@ public class ChronoSync2013 implements OnInterestCallback, OnData, OnTimeout {
 
     logger_.log(Level.FINE, "Sync ContentObject received in callback");
     logger_.log(Level.FINE, "name: {0}", data.getName().toUri());
-    SyncStateProto.SyncStateMsg tempContent;
+    List content;
     try {
-      tempContent = SyncStateProto.SyncStateMsg.parseFrom(data.getContent().getImmutableArray());
-    } catch (InvalidProtocolBufferException ex) {
+      content = decodeSyncStates(data.getContent());
+    } catch (EncodingException ex) {
       logger_.log(Level.SEVERE, null, ex);
       return;
     }
-    List content = tempContent.getSsList();
     boolean isRecovery;
     if (digestTree_.getRoot().equals("00")) {
       isRecovery = true;
@@ -540,6 +814,9 @@ public class ChronoSync2013 implements OnInterestCallback, OnData, OnTimeout {
       }
     }
     else {
+      if (useDeltaSync_)
+        // Only process and report the changed sync states.
+        content = getNewerSyncStates(content);
       update(content);
       if (interest.getName().size() == applicationBroadcastPrefix_.size() + 2)
         // Assume this is a recovery interest.
@@ -642,32 +919,42 @@ public class ChronoSync2013 implements OnInterestCallback, OnData, OnTimeout {
   processRecoveryInterest(Interest interest, String syncDigest, Face face)
   {
     logger_.log(Level.FINE, "processRecoveryInterest");
-    if (logFind(syncDigest) != -1) {
-      SyncStateProto.SyncStateMsg.Builder builder =
-        SyncStateProto.SyncStateMsg.newBuilder();
-      for (int i = 0; i < digestTree_.size(); ++i) {
-        builder.addSsBuilder()
-          .setName(digestTree_.get(i).getDataPrefix())
-          .setType(SyncStateProto.SyncState.ActionType.UPDATE)
-          .getSeqnoBuilder().setSeq(digestTree_.get(i).getSequenceNo())
-                            .setSession(digestTree_.get(i).getSessionNo());
-      }
-      SyncStateProto.SyncStateMsg tempContent = builder.build();
+    // The "00" entry may have been removed from a bounded digest log, but we
+    // always answer a newcomer.
+    if (syncDigest.equals("00") || logFind(syncDigest) != -1) {
+      if (digestTree_.size() != 0) {
+        Data data = getCachedReply(interest.getName());
+        if (data == null) {
+          if (fullStateContent_ == null) {
+            SyncStateProto.SyncStateMsg.Builder builder =
+              SyncStateProto.SyncStateMsg.newBuilder();
+            for (int i = 0; i < digestTree_.size(); ++i) {
+              builder.addSsBuilder()
+                .setName(digestTree_.get(i).getDataPrefix())
+                .setType(SyncStateProto.SyncState.ActionType.UPDATE)
+                .getSeqnoBuilder().setSeq(digestTree_.get(i).getSequenceNo())
+                                  .setSession(digestTree_.get(i).getSessionNo());
+            }
+            fullStateContent_ = encodeSyncStates(builder.build().getSsList());
+          }
 
-      if (tempContent.getSsCount() != 0) {
-        byte[] array = tempContent.toByteArray();
-        Data data = new Data(interest.getName());
-        data.setContent(new Blob(array, false));
-        if (interest.getName().get(-1).toEscapedString().equals("00"))
-          // Limit the lifetime of replies to interest for "00" since they can be different.
-          data.getMetaInfo().setFreshnessPeriod(1000);
+          data = new Data(interest.getName());
+          data.setContent(fullStateContent_);
+          if (interest.getName().get(-1).toEscapedString().equals("00"))
+            // Limit the lifetime of replies to interest for "00" since they can be different.
+            data.getMetaInfo().setFreshnessPeriod(1000);
 
-        try {
-          keyChain_.sign(data, certificateName_);
-        } catch (SecurityException ex) {
-          logger_.log(Level.SEVERE, null, ex);
-          return;
+          try {
+            keyChain_.sign(data, certificateName_);
+          } catch (SecurityException ex) {
+            logger_.log(Level.SEVERE, null, ex);
+            return;
+          }
+          cacheReply(data);
         }
+        else
+          logger_.log(Level.FINE, "use the cached recovery data");
+
         try {
           face.putData(data);
         } catch (IOException ex) {
@@ -688,11 +975,28 @@ public class ChronoSync2013 implements OnInterestCallback, OnData, OnTimeout {
   private boolean
   processSyncInterest(int index, String syncDigest, Face face) throws SecurityException
   {
+    Name name = new Name(applicationBroadcastPrefix_);
+    name.append(syncDigest);
+    Data cachedData = getCachedReply(name);
+    if (cachedData != null) {
+      try {
+        face.putData(cachedData);
+      } catch (IOException ex) {
+        logger_.log(Level.SEVERE, ex.getMessage());
+        return false;
+      }
+
+      logger_.log(Level.FINE, "Sync Data send from the cache");
+      return true;
+    }
+
     ArrayList nameList = new ArrayList(); // of String
+    // The key is the name String. The value is the index in nameList.
+    HashMap<String, Integer> nameIndex = new HashMap<String, Integer>();
     ArrayList sequenceNoList = new ArrayList();  // of long
     ArrayList sessionNoList = new ArrayList(); // of long
     for (int j = index + 1; j < digestLog_.size(); ++j) {
-      List temp = ((DigestLogEntry)digestLog_.get(j)).getData(); // of SyncStateProto.SyncState.
+      List temp = digestLog_.get(j).getData(); // of SyncStateProto.SyncState.
       for (int i = 0; i < temp.size(); ++i) {
         SyncStateProto.SyncState syncState = (SyncStateProto.SyncState)temp.get(i);
         if (!syncState.getType().equals
@@ -701,14 +1005,9 @@ public class ChronoSync2013 implements OnInterestCallback, OnData, OnTimeout {
 
         if (digestTree_.find
             (syncState.getName(), syncState.getSeqno().getSession()) != -1) {
-          int n = -1;
-          for (int k = 0; k < nameList.size(); ++k) {
-            if (((String)nameList.get(k)).equals(syncState.getName())) {
-              n = k;
-              break;
-            }
-          }
-          if (n == -1) {
+          Integer n = nameIndex.get(syncState.getName());
+          if (n == null) {
+            nameIndex.put(syncState.getName(), nameList.size());
             nameList.add(syncState.getName());
             sequenceNoList.add(syncState.getSeqno().getSeq());
             sessionNoList.add(syncState.getSeqno().getSession());
@@ -734,12 +1033,10 @@ public class ChronoSync2013 implements OnInterestCallback, OnData, OnTimeout {
 
     boolean sent = false;
     if (tempContent.getSsCount() != 0) {
-      Name name = new Name(applicationBroadcastPrefix_);
-      name.append(syncDigest);
-      byte[] array = tempContent.toByteArray();
       Data data = new Data(name);
-      data.setContent(new Blob(array, false));
+      data.setContent(encodeSyncStates(tempContent.getSsList()));
       keyChain_.sign(data, certificateName_);
+      cacheReply(data);
 
       try {
         face.putData(data);
@@ -937,8 +1234,25 @@ public class ChronoSync2013 implements OnInterestCallback, OnData, OnTimeout {
   double syncLifetime_;
   OnReceivedSyncState onReceivedSyncState_;
   OnInitialized onInitialized_;
-  // Use ArrayList without generics so it works with older Java compilers.
-  ArrayList digestLog_ = new ArrayList(); // of DigestLogEntry
+  DigestLog digestLog_ = new DigestLog();
+  // The key is the digest. The value is the position of the latest entry with
+  // the digest, counting the removed entries, so the index in digestLog_ is
+  // the value minus nRemovedDigestLogEntries_.
+  HashMap<String, Long> digestLogIndex_ = new HashMap<String, Long>();
+  long nRemovedDigestLogEntries_ = 0;
+  int maxDigestLogSize_ = DEFAULT_MAX_DIGEST_LOG_SIZE;
+  // The replies signed since the digest tree root was replyCacheRoot_. The key
+  // is the Data name.
+  Map<Name, Data> replyCache_ = new LinkedHashMap<Name, Data>() {
+    protected boolean
+    removeEldestEntry(Map.Entry<Name, Data> eldest)
+    {
+      return size() > MAX_REPLY_CACHE_SIZE;
+    }
+  };
+  String replyCacheRoot_ = "";
+  Blob fullStateContent_ = null; /**< The encoded full state for replyCacheRoot_. */
+  private static final int MAX_REPLY_CACHE_SIZE = 100;
   DigestTree digestTree_ = new DigestTree();
   String applicationDataPrefixUri_;
   Name applicationBroadcastPrefix_;
@@ -946,5 +1260,6 @@ public class ChronoSync2013 implements OnInterestCallback, OnData, OnTimeout {
   long sequenceNo_ = -1;
   MemoryContentCache contentCache_;
   boolean enabled_ = true;
+  boolean useDeltaSync_ = false;
   private static final Logger logger_ = Logger.getLogger(ChronoSync2013.class.getName());
 }
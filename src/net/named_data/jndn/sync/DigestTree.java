@@ -24,14 +24,26 @@ import java.io.UnsupportedEncodingException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import net.named_data.jndn.util.Common;
 
+/**
+ * A DigestTree holds the sequence number of each (data prefix, session number)
+ * in a sorted list of nodes and maintains the root digest used in the
+ * ChronoSync2013 sync Interest names. The root is the SHA-256 of the
+ * concatenation of the node digests in sorted order (the same as ChronoChat-js)
+ * so that it interoperates with other ChronoSync implementations. Because of
+ * this, computing the root must digest every node, but each node keeps its
+ * digest as bytes and an update finds the node with a hash lookup and inserts
+ * a new node with a binary search.
+ */
 public class DigestTree {
   public DigestTree()
   {
     root_ = "00";
+    sha256_ = createSha256();
   }
 
   public static class Node {
@@ -42,11 +54,25 @@ public class DigestTree {
      * @param sequenceNo The sequence number.
      */
     public Node(String dataPrefix, long sessionNo, long sequenceNo)
+    {
+      this(dataPrefix, sessionNo, sequenceNo, createSha256());
+    }
+
+    private Node
+      (String dataPrefix, long sessionNo, long sequenceNo, MessageDigest sha256)
     {
       dataPrefix_ = dataPrefix;
       sessionNo_ = sessionNo;
       sequenceNo_ = sequenceNo;
-      recomputeDigest();
+
+      sha256.reset();
+      try {
+        nameDigest_ = sha256.digest(dataPrefix_.getBytes("UTF-8"));
+      } catch (UnsupportedEncodingException ex) {
+        // We don't expect this to happen.
+        throw new Error("UTF-8 encoder not supported: " + ex.getMessage());
+      }
+      recomputeDigest(sha256);
     }
 
     public final String
@@ -63,7 +89,12 @@ public class DigestTree {
      * @return The digest as a hex string.
      */
     public final String
-    getDigest() { return digest_; }
+    getDigest()
+    {
+      if (digestHex_ == null)
+        digestHex_ = Common.toHex(digest_);
+      return digestHex_;
+    }
 
 
     /**
@@ -73,8 +104,7 @@ public class DigestTree {
     public final void
     setSequenceNo(long sequenceNo)
     {
-      sequenceNo_ = sequenceNo;
-      recomputeDigest();
+      setSequenceNo(sequenceNo, createSha256());
     }
 
     /**
@@ -84,35 +114,47 @@ public class DigestTree {
      */
     public final boolean
     lessThan(Node node2)
+    {
+      return compare(node2.dataPrefix_, node2.sessionNo_) < 0;
+    }
+
+    /**
+     * Compare this Node with the given dataPrefix and sessionNo, first
+     * comparing the data prefix then the session number.
+     * @return A negative value if this node is less, zero if equal, or a
+     * positive value if this node is greater.
+     */
+    private int
+    compare(String dataPrefix, long sessionNo)
     {
       // We compare the Unicode strings which is OK because it has the same sort
       // order as the UTF-8 encoding: http://en.wikipedia.org/wiki/UTF-8#Advantages
       // "Sorting a set of UTF-8 encoded strings as strings of unsigned bytes
       // yields the same order as sorting the corresponding Unicode strings
       // lexicographically by codepoint."
-      int prefixComparison = dataPrefix_.compareTo(node2.dataPrefix_);
+      int prefixComparison = dataPrefix_.compareTo(dataPrefix);
       if (prefixComparison != 0)
-        return prefixComparison < 0;
+        return prefixComparison;
+
+      return sessionNo_ < sessionNo ? -1 : (sessionNo_ == sessionNo ? 0 : 1);
+    }
 
-      return sessionNo_ < node2.sessionNo_;
+    private void
+    setSequenceNo(long sequenceNo, MessageDigest sha256)
+    {
+      sequenceNo_ = sequenceNo;
+      recomputeDigest(sha256);
     }
 
     /**
-     * Digest the fields and set digest_ to the hex digest.
+     * Digest the fields and set digest_. The digest of the data prefix does not
+     * change, so this uses the saved nameDigest_.
+     * @param sha256 The MessageDigest to use, which is reset.
      */
     private void
-    recomputeDigest()
+    recomputeDigest(MessageDigest sha256)
     {
-      MessageDigest sha256;
-      try {
-        sha256 = MessageDigest.getInstance("SHA-256");
-      }
-      catch (NoSuchAlgorithmException exception) {
-        // Don't expect this to happen.
-        throw new Error
-          ("MessageDigest: SHA-256 is not supported: " + exception.getMessage());
-      }
-
+      sha256.reset();
       byte[] number = new byte[4];
       // Debug: sync-state-proto.proto defines seq and session as uint64, but
       //   the original ChronoChat-js only digests 32 bits.
@@ -122,20 +164,10 @@ public class DigestTree {
       sha256.update(number);
       byte[] sequenceDigest = sha256.digest();
 
-      sha256.reset();
-      try {
-        sha256.update(dataPrefix_.getBytes("UTF-8"));
-      } catch (UnsupportedEncodingException ex) {
-        // We don't expect this to happen.
-        throw new Error("UTF-8 encoder not supported: " + ex.getMessage());
-      }
-      byte[] nameDigest = sha256.digest();
-
-      sha256.reset();
-      sha256.update(nameDigest);
+      sha256.update(nameDigest_);
       sha256.update(sequenceDigest);
-      byte[] nodeDigest = sha256.digest();
-      digest_ = Common.toHex(nodeDigest);
+      digest_ = sha256.digest();
+      digestHex_ = null;
     }
 
     private static void
@@ -150,7 +182,9 @@ public class DigestTree {
     private final String dataPrefix_;
     private final long sessionNo_;
     private long sequenceNo_;
-    private String digest_;
+    private final byte[] nameDigest_;
+    private byte[] digest_;
+    private String digestHex_ = null; /**< Computed from digest_ when needed. */
   }
 
   /**
@@ -166,31 +200,27 @@ public class DigestTree {
   public final boolean
   update(String dataPrefix, long sessionNo, long sequenceNo)
   {
-    int nodeIndex = find(dataPrefix, sessionNo);
-    Logger.getLogger(DigestTree.class.getName()).log(Level.FINE,
-      "{0}, {1}",  new Object[]{dataPrefix, sessionNo});
-    Logger.getLogger(DigestTree.class.getName()).log(Level.FINE,
-      "DigestTree.update session {0}, nodeIndex {1}", new Object[]{sessionNo, nodeIndex});
-    if (nodeIndex >= 0) {
+    Node node = nodeIndex_.get(new NodeKey(dataPrefix, sessionNo));
+    if (logger_.isLoggable(Level.FINE)) {
+      logger_.log(Level.FINE, "{0}, {1}",  new Object[]{dataPrefix, sessionNo});
+      logger_.log(Level.FINE, "DigestTree.update session {0}, nodeIndex {1}",
+        new Object[]{sessionNo, find(dataPrefix, sessionNo)});
+    }
+    if (node != null) {
       // Only update to a  newer status.
-      if (digestNode_.get(nodeIndex).getSequenceNo() < sequenceNo)
-        digestNode_.get(nodeIndex).setSequenceNo(sequenceNo);
+      if (node.getSequenceNo() < sequenceNo)
+        node.setSequenceNo(sequenceNo, sha256_);
       else
         return false;
     }
     else {
-      Logger.getLogger(DigestTree.class.getName()).log(Level.FINE,
-        "new comer {0}, session {1}, sequence {2}", new Object[]{dataPrefix, sessionNo, sequenceNo});
+      logger_.log(Level.FINE, "new comer {0}, session {1}, sequence {2}",
+        new Object[]{dataPrefix, sessionNo, sequenceNo});
       // Insert into digestnode_ sorted.
-      Node temp = new Node(dataPrefix, sessionNo, sequenceNo);
-      // Find the index of the first node where it is not less than temp.
-      int i = 0;
-      while (i < digestNode_.size()) {
-        if (!digestNode_.get(i).lessThan(temp))
-          break;
-        ++i;
-      }
-      digestNode_.add(i, temp);
+      node = new Node(dataPrefix, sessionNo, sequenceNo, sha256_);
+      // binarySearch returns -(insertion point) - 1 since the node is new.
+      digestNode_.add(-binarySearch(dataPrefix, sessionNo) - 1, node);
+      nodeIndex_.put(new NodeKey(dataPrefix, sessionNo), node);
     }
 
     recomputeRoot();
@@ -200,13 +230,27 @@ public class DigestTree {
   public final int
   find(String dataPrefix, long sessionNo)
   {
-    for (int i = 0; i < digestNode_.size(); ++i) {
-      if (digestNode_.get(i).getDataPrefix().equals(dataPrefix) &&
-          digestNode_.get(i).getSessionNo() == sessionNo)
-        return i;
-    }
+    if (!nodeIndex_.containsKey(new NodeKey(dataPrefix, sessionNo)))
+      return -1;
 
-    return -1;
+    return binarySearch(dataPrefix, sessionNo);
+  }
+
+  /**
+   * Get the sequence number of the node with the dataPrefix and sessionNo.
+   * This uses the hash index, so it is faster than find().
+   * @param dataPrefix The name prefix.
+   * @param sessionNo The session number.
+   * @return The sequence number, or -1 if the node is not in the tree.
+   */
+  public final long
+  getSequenceNo(String dataPrefix, long sessionNo)
+  {
+    Node node = nodeIndex_.get(new NodeKey(dataPrefix, sessionNo));
+    if (node == null)
+      return -1;
+
+    return node.getSequenceNo();
   }
 
   public final int
@@ -223,64 +267,93 @@ public class DigestTree {
   getRoot() { return root_; }
 
   /**
-   * Convert the hex character to an integer from 0 to 15, or -1 if not a hex character.
+   * NodeKey is the (data prefix, session number) key of nodeIndex_.
    */
-  private static int
-  fromHexChar(char c)
-  {
-    if (c >= '0' && c <= '9')
-      return (int)c - (int)'0';
-    else if (c >= 'A' && c <= 'F')
-      return (int)c - (int)'A' + 10;
-    else if (c >= 'a' && c <= 'f')
-      return (int)c - (int)'a' + 10;
-    else
-      return -1;
+  private static class NodeKey {
+    public NodeKey(String dataPrefix, long sessionNo)
+    {
+      dataPrefix_ = dataPrefix;
+      sessionNo_ = sessionNo;
+    }
+
+    public boolean
+    equals(Object other)
+    {
+      if (!(other instanceof NodeKey))
+        return false;
+
+      NodeKey otherKey = (NodeKey)other;
+      return sessionNo_ == otherKey.sessionNo_ &&
+             dataPrefix_.equals(otherKey.dataPrefix_);
+    }
+
+    public int
+    hashCode()
+    {
+      return 37 * dataPrefix_.hashCode() + (int)(sessionNo_ ^ (sessionNo_ >>> 32));
+    }
+
+    private final String dataPrefix_;
+    private final long sessionNo_;
   }
 
   /**
-   * Convert the hex string to bytes and call messageDigest.update.
-   * @param messageDigest The MessageDigest to update.
-   * @param hex The hex string.
+   * Do a binary search in the sorted digestNode_ for the node with the
+   * dataPrefix and sessionNo.
+   * @return The index of the node if found, otherwise -(insertion point) - 1.
    */
-  private static void
-  updateHex(MessageDigest messageDigest, String hex)
+  private int
+  binarySearch(String dataPrefix, long sessionNo)
   {
-    byte[] data = new byte[hex.length() / 2];
-    for (int i = 0; i < data.length; ++i)
-      data[i] = (byte)((16 * fromHexChar(hex.charAt(2 * i)) +
-                        fromHexChar(hex.charAt(2 * i + 1))) & 0xff);
+    int low = 0;
+    int high = digestNode_.size() - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      int comparison = digestNode_.get(middle).compare(dataPrefix, sessionNo);
+      if (comparison < 0)
+        low = middle + 1;
+      else if (comparison > 0)
+        high = middle - 1;
+      else
+        return middle;
+    }
 
-    messageDigest.update(data);
+    return -(low + 1);
   }
 
-  /**
-   * Set root_ to the digest of all digests in digestnode_. This sets root_
-   * to the hex value of the digest.
-   */
-  private void
-  recomputeRoot()
+  private static MessageDigest
+  createSha256()
   {
-    MessageDigest sha256;
     try {
-      sha256 = MessageDigest.getInstance("SHA-256");
+      return MessageDigest.getInstance("SHA-256");
     }
     catch (NoSuchAlgorithmException exception) {
       // Don't expect this to happen.
       throw new Error
         ("MessageDigest: SHA-256 is not supported: " + exception.getMessage());
     }
+  }
 
+  /**
+   * Set root_ to the digest of all digests in digestnode_. This sets root_
+   * to the hex value of the digest.
+   */
+  private void
+  recomputeRoot()
+  {
+    sha256_.reset();
     for (int i = 0; i < digestNode_.size(); ++i)
-      updateHex(sha256, digestNode_.get(i).getDigest());
-    byte[] digestRoot = sha256.digest();
+      sha256_.update(digestNode_.get(i).digest_);
+    byte[] digestRoot = sha256_.digest();
     root_ = Common.toHex(digestRoot);
-    Logger.getLogger(DigestTree.class.getName()).log(Level.FINE,
-      "update root to: {0}", root_);
+    logger_.log(Level.FINE, "update root to: {0}", root_);
   }
 
   private final ArrayList<DigestTree.Node> digestNode_ = new ArrayList<DigestTree.Node>();
+  private final HashMap<NodeKey, DigestTree.Node> nodeIndex_ =
+    new HashMap<NodeKey, DigestTree.Node>();
+  private final MessageDigest sha256_;
   private String root_;
-  // This is to force an import of net.named_data.jndn.util.
-  private static Common dummyCommon_ = new Common();
+  private static final Logger logger_ =
+    Logger.getLogger(DigestTree.class.getName());
 }
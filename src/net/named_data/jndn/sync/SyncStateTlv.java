@@ -0,0 +1,161 @@
+/**
+ * Copyright (C) 2017 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+package net.named_data.jndn.sync;
+
+import com.google.protobuf.ByteString;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import net.named_data.jndn.encoding.EncodingException;
+import net.named_data.jndn.encoding.tlv.Tlv;
+import net.named_data.jndn.encoding.tlv.TlvDecoder;
+import net.named_data.jndn.encoding.tlv.TlvEncoder;
+import net.named_data.jndn.util.Blob;
+
+/**
+ * SyncStateTlv has static methods to encode and decode a list of
+ * SyncStateProto.SyncState as compact NDN-TLV, which is used by
+ * ChronoSync2013 when delta sync is enabled. Only UPDATE sync states can be
+ * encoded (see canEncode). Each is encoded as its (name, session, seq) tuple
+ * and optional application info,
+ * without the Protobuf field tags and the nested SeqNo message. The outer TLV
+ * type is chosen so that the first byte is never the first byte of an encoded
+ * SyncStateMsg, so a receiver can accept both encodings.
+ */
+public class SyncStateTlv {
+  /**
+   * Check if encode() can encode all the sync states in the list, which is
+   * true if they all have the type UPDATE.
+   * @param syncStates The list of SyncStateProto.SyncState. (Use List without
+   * generics so it works with older Java compilers.)
+   * @return True if the sync states can be encoded as NDN-TLV.
+   */
+  public static boolean
+  canEncode(List syncStates)
+  {
+    for (int i = 0; i < syncStates.size(); ++i) {
+      if (!((SyncStateProto.SyncState)syncStates.get(i)).getType().equals
+           (SyncStateProto.SyncState.ActionType.UPDATE))
+        return false;
+    }
+
+    return true;
+  }
+
+  /**
+   * Encode the sync states in the list as NDN-TLV.
+   * @param syncStates The list of SyncStateProto.SyncState, which must all
+   * have the type UPDATE. (Use List without generics so it works with older
+   * Java compilers.)
+   * @return The encoded buffer.
+   * @throws Error If a sync state does not have the type UPDATE. Check with
+   * canEncode and use the Protobuf encoding instead.
+   */
+  public static Blob
+  encode(List syncStates)
+  {
+    if (!canEncode(syncStates))
+      throw new Error
+        ("SyncStateTlv.encode: Only UPDATE sync states can be encoded");
+
+    TlvEncoder encoder = new TlvEncoder(16 + 32 * syncStates.size());
+    int saveLength = encoder.getLength();
+
+    // Encode backwards.
+    for (int i = syncStates.size() - 1; i >= 0; --i) {
+      SyncStateProto.SyncState syncState =
+        (SyncStateProto.SyncState)syncStates.get(i);
+      int saveLengthForSyncState = encoder.getLength();
+      if (syncState.hasApplicationInfo() &&
+          syncState.getApplicationInfo().size() > 0)
+        encoder.writeBlobTlv
+          (Tlv.SyncState_ApplicationInfo,
+           syncState.getApplicationInfo().asReadOnlyByteBuffer());
+      encoder.writeNonNegativeIntegerTlv
+        (Tlv.SyncState_Seq, syncState.getSeqno().getSeq());
+      encoder.writeNonNegativeIntegerTlv
+        (Tlv.SyncState_Session, syncState.getSeqno().getSession());
+      encoder.writeBlobTlv
+        (Tlv.SyncState_Name, new Blob(syncState.getName()).buf());
+      encoder.writeTypeAndLength
+        (Tlv.SyncState_SyncState,
+         encoder.getLength() - saveLengthForSyncState);
+    }
+
+    encoder.writeTypeAndLength
+      (Tlv.SyncState_SyncStateMsg, encoder.getLength() - saveLength);
+
+    return new Blob(encoder.getOutput(), false);
+  }
+
+  /**
+   * Decode the input as NDN-TLV encoded by encode().
+   * @param input The input buffer to decode. This reads from position() to
+   * limit(), but does not change the position.
+   * @return A new list of SyncStateProto.SyncState with type UPDATE. (Use List
+   * without generics so it works with older Java compilers.)
+   * @throws EncodingException For invalid encoding.
+   */
+  public static List
+  decode(ByteBuffer input) throws EncodingException
+  {
+    TlvDecoder decoder = new TlvDecoder(input);
+    ArrayList syncStates = new ArrayList();
+
+    int endOffset = decoder.readNestedTlvsStart(Tlv.SyncState_SyncStateMsg);
+    while (decoder.getOffset() < endOffset) {
+      int syncStateEndOffset = decoder.readNestedTlvsStart
+        (Tlv.SyncState_SyncState);
+
+      SyncStateProto.SyncState.Builder builder =
+        SyncStateProto.SyncState.newBuilder();
+      builder.setName
+        (new Blob(decoder.readBlobTlv(Tlv.SyncState_Name), false).toString());
+      builder.setType(SyncStateProto.SyncState.ActionType.UPDATE);
+      long session = decoder.readNonNegativeIntegerTlv(Tlv.SyncState_Session);
+      long seq = decoder.readNonNegativeIntegerTlv(Tlv.SyncState_Seq);
+      builder.getSeqnoBuilder().setSeq(seq).setSession(session);
+      ByteBuffer applicationInfo = decoder.readOptionalBlobTlv
+        (Tlv.SyncState_ApplicationInfo, syncStateEndOffset);
+      if (applicationInfo != null && applicationInfo.remaining() > 0)
+        builder.setApplicationInfo(ByteString.copyFrom(applicationInfo));
+
+      decoder.finishNestedTlvs(syncStateEndOffset);
+      syncStates.add(builder.build());
+    }
+    decoder.finishNestedTlvs(endOffset);
+
+    return syncStates;
+  }
+
+  /**
+   * Check if the content is encoded by encode() as opposed to a Protobuf
+   * SyncStateMsg.
+   * @param content The sync Data content.
+   * @return True if the content is NDN-TLV.
+   */
+  public static boolean
+  isTlv(Blob content)
+  {
+    return content.size() > 0 &&
+      (content.buf().get(content.buf().position()) & 0xff) ==
+        Tlv.SyncState_SyncStateMsg;
+  }
+}
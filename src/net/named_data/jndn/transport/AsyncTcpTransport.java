@@ -37,6 +37,7 @@ import net.named_data.jndn.encoding.ElementListener;
 import net.named_data.jndn.encoding.ElementReader;
 import net.named_data.jndn.encoding.EncodingException;
 import net.named_data.jndn.util.Common;
+import net.named_data.jndn.util.Metrics;
 
 /**
  * AsyncTcpTransport extends Transport for async communication over TCP by
@@ -79,7 +80,7 @@ public class AsyncTcpTransport extends Transport
         try {
           if (bytesRead > 0) {
             inputBuffer_.flip();
-            elementReader_.onReceivedData(inputBuffer_);
+            elementReader_.onReceivedData(inputBuffer_, getMetrics());
           }
 
           // Repeatedly do async read.
@@ -381,6 +382,7 @@ public class AsyncTcpTransport extends Transport
     // updated by write(). We assume that the sender won't change the bytes of
     // the buffer during send, so that we can avoid a costly copy operation.
     data = data.duplicate();
+    getMetrics().add(Metrics.Counter.BYTES_SENT, data.remaining());
 
     // The completion handler will call write again if needed, or will notify
     // to release the wait when finished writing.
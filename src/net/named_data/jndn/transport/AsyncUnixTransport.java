@@ -0,0 +1,241 @@
+/**
+ * Copyright (C) 2017 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+package net.named_data.jndn.transport;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import net.named_data.jndn.encoding.ElementListener;
+import net.named_data.jndn.encoding.ElementReader;
+import net.named_data.jndn.encoding.EncodingException;
+import net.named_data.jndn.util.Common;
+import net.named_data.jndn.util.Metrics;
+
+/**
+ * AsyncUnixTransport extends Transport for async communication over a
+ * Unix-domain socket by running a read loop as a task on a
+ * ScheduledExecutorService. The read loop occupies one thread of the thread
+ * pool while connected. (Java does not provide an AsynchronousSocketChannel for
+ * Unix-domain sockets.) Like UnixTransport, this requires Java 16 or later.
+ * See UnixTransport.getIsSupported().
+ */
+public class AsyncUnixTransport extends Transport {
+  public AsyncUnixTransport(ScheduledExecutorService threadPool)
+  {
+    threadPool_ = threadPool;
+  }
+
+  /**
+   * Override to return true since a Unix-domain socket is always to a node on
+   * the current machine.
+   * @param connectionInfo This is ignored.
+   * @return True.
+   */
+  public boolean
+  isLocal(Transport.ConnectionInfo connectionInfo) { return true; }
+
+  /**
+   * Override to return true since connect needs to use the onConnected callback.
+   * @return True.
+   */
+  public boolean
+  isAsync() { return true; }
+
+  /**
+   * Connect according to the info in ConnectionInfo, and use elementListener.
+   * This submits a task to the thread pool to connect and then to read from
+   * the socket.
+   * @param connectionInfo A UnixTransport.ConnectionInfo.
+   * @param elementListener The ElementListener must remain valid during the
+   * life of this object.
+   * @param onConnected This calls onConnected.run() when the connection is
+   * established. This is needed since connect is async.
+   * @throws IOException For I/O error.
+   */
+  public void
+  connect
+    (Transport.ConnectionInfo connectionInfo, ElementListener elementListener,
+     final Runnable onConnected)
+    throws IOException
+  {
+    close();
+
+    final String filePath =
+      ((UnixTransport.ConnectionInfo)connectionInfo).getFilePath();
+    final ElementReader elementReader = new ElementReader(elementListener);
+    threadPool_.submit(new Runnable() {
+      public void run() {
+        SocketChannel channel;
+        // Need to catch and log exceptions at this async entry point.
+        try {
+          channel = UnixTransport.openSocketChannel(filePath);
+        } catch (Throwable ex) {
+          logger_.log(Level.SEVERE, "Failed to connect", ex);
+          return;
+        }
+
+        synchronized (channelLock_) {
+          channel_ = channel;
+        }
+        logger_.log(Level.FINE, "Connected");
+        try {
+          if (onConnected != null)
+            onConnected.run();
+        } catch (Throwable ex) {
+          logger_.log(Level.SEVERE, null, ex);
+        }
+
+        readLoop(channel, elementReader);
+      }
+    });
+  }
+
+  /**
+   * Read from the channel and pass the data to the elementReader until the
+   * channel is closed.
+   */
+  private void
+  readLoop(SocketChannel channel, ElementReader elementReader)
+  {
+    ByteBuffer inputBuffer = ByteBuffer.allocate(Common.MAX_NDN_PACKET_SIZE);
+    while (true) {
+      try {
+        inputBuffer.limit(inputBuffer.capacity());
+        inputBuffer.position(0);
+        int bytesRead = channel.read(inputBuffer);
+        if (bytesRead < 0) {
+          logger_.log(Level.FINE, "The socket was closed by the other side");
+          close(channel);
+          return;
+        }
+
+        inputBuffer.flip();
+        elementReader.onReceivedData(inputBuffer, getMetrics());
+      } catch (ClosedChannelException ex) {
+        // We closed the channel, which also covers AsynchronousCloseException.
+        return;
+      } catch (EncodingException ex) {
+        // The ElementReader can't recover from a bad TLV in the stream.
+        logger_.log(Level.SEVERE, null, ex);
+        close(channel);
+        return;
+      } catch (Throwable ex) {
+        logger_.log(Level.SEVERE, "Failed to read from transport", ex);
+        close(channel);
+        return;
+      }
+    }
+  }
+
+  /**
+   * Send data to the host. This blocks until the data is written to the
+   * socket.
+   * @param data The buffer of data to send.  This reads from position() to
+   * limit(), but does not change the position.
+   * @throws IOException For I/O error.
+   */
+  public void
+  send(ByteBuffer data) throws IOException
+  {
+    SocketChannel channel;
+    synchronized (channelLock_) {
+      channel = channel_;
+    }
+    if (channel == null)
+      throw new IOException
+        ("Cannot send because the socket is not open.  Use connect.");
+
+    // Duplicate to not change the position. Serialize writes so that the
+    // bytes of two elements are not interleaved.
+    data = data.duplicate();
+    getMetrics().add(Metrics.Counter.BYTES_SENT, data.remaining());
+    synchronized (writeLock_) {
+      while (data.hasRemaining())
+        channel.write(data);
+    }
+  }
+
+  /**
+   * Do nothing since the read loop checks for incoming data.
+   */
+  public void
+  processEvents() throws IOException, EncodingException
+  {
+  }
+
+  /**
+   * Check if the transport is connected.
+   * @return True if connected.
+   */
+  public boolean
+  getIsConnected() throws IOException
+  {
+    synchronized (channelLock_) {
+      return channel_ != null && channel_.isConnected();
+    }
+  }
+
+  /**
+   * Close the connection, which also ends the read loop.  If not connected,
+   * this does nothing.
+   * @throws IOException For I/O error.
+   */
+  public void
+  close() throws IOException
+  {
+    SocketChannel channel;
+    synchronized (channelLock_) {
+      channel = channel_;
+      channel_ = null;
+    }
+
+    if (channel != null)
+      channel.close();
+  }
+
+  /**
+   * Close the channel if it is still the current channel_.
+   */
+  private void
+  close(SocketChannel channel)
+  {
+    synchronized (channelLock_) {
+      if (channel_ == channel)
+        channel_ = null;
+    }
+
+    try {
+      channel.close();
+    } catch (IOException ex) {
+      logger_.log(Level.SEVERE, null, ex);
+    }
+  }
+
+  private final ScheduledExecutorService threadPool_;
+  private SocketChannel channel_;
+  private final Object channelLock_ = new Object();
+  private final Object writeLock_ = new Object();
+  private static final Logger logger_ = Logger.getLogger
+    (AsyncUnixTransport.class.getName());
+}
@@ -0,0 +1,410 @@
+/**
+ * Copyright (C) 2017 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+package net.named_data.jndn.transport;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import net.named_data.jndn.ControlParameters;
+import net.named_data.jndn.ControlResponse;
+import net.named_data.jndn.Data;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.InterestMatcher;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.encoding.EncodingException;
+import net.named_data.jndn.impl.InterestAggregationTable;
+import net.named_data.jndn.util.Blob;
+import net.named_data.jndn.util.Common;
+
+/**
+ * A LoopbackForwarder is a minimal in-process NDN forwarder for Face objects
+ * in the same JVM which use a LoopbackTransport. Interest and Data objects are
+ * passed between the faces by reference without encoding. It has a FIB for
+ * longest prefix match, where a route is added by Face.registerPrefix (the
+ * forwarder answers the /localhost/nfd/rib/register command without checking
+ * the signature) or by addRoute. It has a PIT which aggregates an Interest
+ * with the same name and selectors as a pending Interest, and which drops an
+ * Interest with a duplicate nonce. An Interest is forwarded to all the
+ * matching routes except to the face where it came from. There is no content
+ * store and no Nack: an Interest with no route is dropped and times out.
+ * This is useful for co-located producers and consumers, and as a
+ * deterministic harness for tests and benchmarks without a running NFD.
+ * The methods are synchronized so that faces can use different threads.
+ */
+public class LoopbackForwarder {
+  /**
+   * Add a route so that an Interest whose name has the prefix is forwarded to
+   * the transport. If the transport already has a route for the prefix, do
+   * nothing.
+   * @param prefix The name prefix. This copies the Name.
+   * @param transport The LoopbackTransport of the face which receives the
+   * Interests.
+   */
+  public final synchronized void
+  addRoute(Name prefix, LoopbackTransport transport)
+  {
+    ArrayList<LoopbackTransport> nextHops = fib_.get(prefix);
+    if (nextHops == null) {
+      nextHops = new ArrayList<LoopbackTransport>();
+      fib_.put(new Name(prefix), nextHops);
+    }
+    if (!nextHops.contains(transport))
+      nextHops.add(transport);
+  }
+
+  /**
+   * Remove the route for the prefix to the transport. If there is no such
+   * route, do nothing.
+   * @param prefix The name prefix.
+   * @param transport The LoopbackTransport given to addRoute.
+   */
+  public final synchronized void
+  removeRoute(Name prefix, LoopbackTransport transport)
+  {
+    ArrayList<LoopbackTransport> nextHops = fib_.get(prefix);
+    if (nextHops != null) {
+      nextHops.remove(transport);
+      if (nextHops.isEmpty())
+        fib_.remove(prefix);
+    }
+  }
+
+  /**
+   * Get the number of entries in the PIT, after removing expired entries.
+   * @return The number of pending Interests.
+   */
+  public final synchronized int
+  getPendingInterestCount()
+  {
+    removeExpiredEntries(Common.getNowMilliseconds());
+
+    int count = 0;
+    for (Iterator<ArrayList<PitEntry>> i = pit_.values().iterator();
+         i.hasNext(); )
+      count += i.next().size();
+    return count;
+  }
+
+  /**
+   * Add the transport as a face of this forwarder. This is called by
+   * LoopbackTransport.connect.
+   */
+  final synchronized void
+  addFace(LoopbackTransport transport)
+  {
+    if (!faces_.contains(transport))
+      faces_.add(transport);
+  }
+
+  /**
+   * Remove the transport and its routes and PIT in-records. This is called by
+   * LoopbackTransport.close.
+   */
+  final synchronized void
+  removeFace(LoopbackTransport transport)
+  {
+    faces_.remove(transport);
+
+    for (Iterator<ArrayList<LoopbackTransport>> i = fib_.values().iterator();
+         i.hasNext(); ) {
+      ArrayList<LoopbackTransport> nextHops = i.next();
+      nextHops.remove(transport);
+      if (nextHops.isEmpty())
+        i.remove();
+    }
+
+    for (Iterator<ArrayList<PitEntry>> i = pit_.values().iterator();
+         i.hasNext(); ) {
+      ArrayList<PitEntry> entries = i.next();
+      for (int j = entries.size() - 1; j >= 0; --j) {
+        PitEntry entry = entries.get(j);
+        entry.inFaces_.remove(transport);
+        if (entry.inFaces_.isEmpty())
+          entries.remove(j);
+      }
+      if (entries.isEmpty())
+        i.remove();
+    }
+  }
+
+  /**
+   * Process an Interest received from the transport.
+   * @param interest The Interest, which the sender must not modify.
+   * @param inFace The LoopbackTransport which sent the Interest.
+   */
+  final synchronized void
+  onInterest(Interest interest, LoopbackTransport inFace)
+  {
+    double now = Common.getNowMilliseconds();
+    removeExpiredEntries(now);
+
+    if (registerCommandPrefix_.match(interest.getName())) {
+      processRegisterCommand(interest, inFace);
+      return;
+    }
+
+    ArrayList<PitEntry> entries = pit_.get(interest.getName());
+    for (int i = 0; entries != null && i < entries.size(); ++i) {
+      PitEntry entry = entries.get(i);
+      if (!InterestAggregationTable.isSameInterest(entry.interest_, interest))
+        continue;
+      if (now >= entry.expirationTime_) {
+        // Not removed yet by removeExpiredEntries, so forward as new.
+        entries.remove(i);
+        break;
+      }
+
+      if (entry.nonces_.contains(interest.getNonce()))
+        // A duplicate nonce, so drop it to prevent a loop.
+        return;
+
+      // Aggregate with the pending Interest.
+      entry.nonces_.add(interest.getNonce());
+      if (!entry.inFaces_.contains(inFace))
+        entry.inFaces_.add(inFace);
+      entry.expirationTime_ = Math.max
+        (entry.expirationTime_, getExpirationTime(interest, now));
+      return;
+    }
+
+    // Forward to all next hops of the longest prefix match.
+    ArrayList<LoopbackTransport> nextHops = null;
+    for (int prefixSize = interest.getName().size(); prefixSize >= 0;
+         --prefixSize) {
+      nextHops = fib_.get(interest.getName().getPrefix(prefixSize));
+      if (nextHops != null)
+        break;
+    }
+    if (nextHops == null) {
+      logger_.log(Level.FINE, "LoopbackForwarder: No route for {0}",
+        interest.getName().toUri());
+      return;
+    }
+
+    PitEntry entry = new PitEntry(interest, inFace, now);
+    boolean forwarded = false;
+    for (int i = 0; i < nextHops.size(); ++i) {
+      LoopbackTransport nextHop = nextHops.get(i);
+      if (nextHop != inFace) {
+        nextHop.enqueue(interest);
+        forwarded = true;
+      }
+    }
+    if (forwarded) {
+      if (entries == null) {
+        entries = new ArrayList<PitEntry>();
+        pit_.put(interest.getName(), entries);
+        if (hasImplicitDigest(interest.getName()))
+          ++nImplicitDigestKeys_;
+      }
+      entries.add(entry);
+    }
+  }
+
+  /**
+   * Process a Data packet received from the transport. Send it to the faces of
+   * each PIT entry which it satisfies and remove the entries.
+   * @param data The Data, which the receivers must not modify.
+   * @param inFace The LoopbackTransport which sent the Data.
+   */
+  final synchronized void
+  onData(Data data, LoopbackTransport inFace)
+  {
+    removeExpiredEntries(Common.getNowMilliseconds());
+
+    // A matching Interest name is a prefix of the Data name, or the full name
+    // with the implicit digest. The Candidate computes the full name only if
+    // a PIT entry needs it.
+    InterestMatcher.Candidate candidate = new InterestMatcher.Candidate(data);
+    ArrayList<LoopbackTransport> outFaces = new ArrayList<LoopbackTransport>();
+    Name dataName = data.getName();
+    for (int prefixSize = 0; prefixSize <= dataName.size() + 1; ++prefixSize) {
+      Name prefix;
+      if (prefixSize <= dataName.size())
+        prefix = dataName.getPrefix(prefixSize);
+      else {
+        if (nImplicitDigestKeys_ == 0)
+          // No pending Interest name has an implicit digest.
+          break;
+        try {
+          prefix = candidate.getFullName();
+        } catch (EncodingException ex) {
+          logger_.log(Level.FINE, null, ex);
+          continue;
+        }
+      }
+      ArrayList<PitEntry> entries = pit_.get(prefix);
+      if (entries == null)
+        continue;
+
+      for (int i = entries.size() - 1; i >= 0; --i) {
+        PitEntry entry = entries.get(i);
+        boolean isMatch;
+        try {
+          isMatch = entry.matcher_.matchesData(candidate);
+        } catch (EncodingException ex) {
+          logger_.log(Level.FINE, null, ex);
+          isMatch = false;
+        }
+        if (!isMatch)
+          continue;
+
+        entries.remove(i);
+        for (int j = 0; j < entry.inFaces_.size(); ++j) {
+          LoopbackTransport outFace = entry.inFaces_.get(j);
+          if (outFace != inFace && !outFaces.contains(outFace))
+            outFaces.add(outFace);
+        }
+      }
+      if (entries.isEmpty())
+        removePitKey(prefix);
+    }
+
+    // Each face gets the Data once, even if it matches more than one entry.
+    for (int i = 0; i < outFaces.size(); ++i)
+      outFaces.get(i).enqueue(data);
+  }
+
+  /**
+   * Add a route for the prefix in the ControlParameters of the register
+   * command and send a success response.
+   */
+  private void
+  processRegisterCommand(Interest interest, LoopbackTransport inFace)
+  {
+    ControlParameters controlParameters = new ControlParameters();
+    ControlResponse response = new ControlResponse();
+    if (interest.getName().size() <= registerCommandPrefix_.size())
+      response.setStatusCode(400).setStatusText("Malformed command");
+    else {
+      try {
+        controlParameters.wireDecode
+          (interest.getName().get(registerCommandPrefix_.size()).getValue());
+        addRoute(controlParameters.getName(), inFace);
+        response.setStatusCode(200).setStatusText("OK")
+          .setBodyAsControlParameters(controlParameters);
+      } catch (EncodingException ex) {
+        response.setStatusCode(400).setStatusText("Malformed command");
+      }
+    }
+
+    Data responseData = new Data(interest.getName());
+    responseData.setContent(response.wireEncode());
+    inFace.enqueue(responseData);
+  }
+
+  /**
+   * Remove the PIT entries which have expired. To avoid checking every entry
+   * for every packet, this only checks after EXPIRATION_CHECK_INTERVAL since
+   * the last check, so an expired entry may remain for that interval.
+   * @param now The current time in milliseconds from Common.getNowMilliseconds.
+   */
+  private void
+  removeExpiredEntries(double now)
+  {
+    if (now < lastExpirationCheckTime_ + EXPIRATION_CHECK_INTERVAL)
+      return;
+    lastExpirationCheckTime_ = now;
+
+    for (Iterator<Map.Entry<Name, ArrayList<PitEntry>>> i =
+           pit_.entrySet().iterator();
+         i.hasNext(); ) {
+      Map.Entry<Name, ArrayList<PitEntry>> pitEntry = i.next();
+      ArrayList<PitEntry> entries = pitEntry.getValue();
+      for (int j = entries.size() - 1; j >= 0; --j) {
+        if (now >= entries.get(j).expirationTime_)
+          entries.remove(j);
+      }
+      if (entries.isEmpty()) {
+        i.remove();
+        if (hasImplicitDigest(pitEntry.getKey()))
+          --nImplicitDigestKeys_;
+      }
+    }
+  }
+
+  /**
+   * Remove the PIT key and update nImplicitDigestKeys_.
+   * @param name The Interest name which is a key in pit_.
+   */
+  private void
+  removePitKey(Name name)
+  {
+    if (pit_.remove(name) != null && hasImplicitDigest(name))
+      --nImplicitDigestKeys_;
+  }
+
+  private static boolean
+  hasImplicitDigest(Name name)
+  {
+    return name.size() > 0 && name.get(-1).isImplicitSha256Digest();
+  }
+
+  private static double
+  getExpirationTime(Interest interest, double now)
+  {
+    double lifetime = interest.getInterestLifetimeMilliseconds();
+    if (lifetime < 0.0)
+      // Use the same default as Node.
+      lifetime = 4000.0;
+
+    return now + lifetime;
+  }
+
+  private static class PitEntry {
+    public PitEntry(Interest interest, LoopbackTransport inFace, double now)
+    {
+      interest_ = interest;
+      matcher_ = new InterestMatcher(interest);
+      inFaces_.add(inFace);
+      nonces_.add(interest.getNonce());
+      expirationTime_ = getExpirationTime(interest, now);
+    }
+
+    public final Interest interest_;
+    public final InterestMatcher matcher_;
+    public final ArrayList<LoopbackTransport> inFaces_ =
+      new ArrayList<LoopbackTransport>();
+    public final ArrayList<Blob> nonces_ = new ArrayList<Blob>();
+    public double expirationTime_;
+  }
+
+  private final ArrayList<LoopbackTransport> faces_ =
+    new ArrayList<LoopbackTransport>();
+  // The key is the route prefix.
+  private final HashMap<Name, ArrayList<LoopbackTransport>> fib_ =
+    new HashMap<Name, ArrayList<LoopbackTransport>>();
+  // The key is the Interest name. The value is the list of entries with the
+  // name, which have different selectors.
+  private final HashMap<Name, ArrayList<PitEntry>> pit_ =
+    new HashMap<Name, ArrayList<PitEntry>>();
+  // The number of keys in pit_ which end in an implicit digest, so that onData
+  // can skip computing the full name when there are none.
+  private int nImplicitDigestKeys_ = 0;
+  private double lastExpirationCheckTime_ = 0;
+  private static final double EXPIRATION_CHECK_INTERVAL = 100.0;
+  private final Name registerCommandPrefix_ =
+    new Name("/localhost/nfd/rib/register");
+  private static final Logger logger_ = Logger.getLogger
+    (LoopbackForwarder.class.getName());
+}
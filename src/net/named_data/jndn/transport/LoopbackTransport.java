@@ -0,0 +1,286 @@
+/**
+ * Copyright (C) 2017 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+package net.named_data.jndn.transport;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import net.named_data.jndn.Data;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.encoding.ElementListener;
+import net.named_data.jndn.encoding.EncodingException;
+import net.named_data.jndn.encoding.TlvWireFormat;
+import net.named_data.jndn.encoding.tlv.Tlv;
+import net.named_data.jndn.encoding.tlv.TlvDecoder;
+
+/**
+ * LoopbackTransport extends Transport to exchange Interest and Data objects
+ * with other faces in the same JVM through a LoopbackForwarder, without
+ * encoding or system calls. Received packets are queued and passed to the
+ * Node by processEvents, so the callbacks are called in the thread of
+ * Face.processEvents as with the other non-async transports.
+ *
+ * Packets are not encoded, but each hop costs two packet copies: the sender's
+ * Interest or Data is copied and frozen in sendInterest or sendData so that
+ * the forwarder doesn't share the sender's object, and processEvents copies
+ * the frozen packet again for each receiver so that the application can modify
+ * it. The copies are shallow where possible, since a Name component and the
+ * content Blob are immutable and shared. For example:
+ *
+ * LoopbackForwarder forwarder = new LoopbackForwarder();
+ * Face producerFace = new Face
+ *   (new LoopbackTransport(), new LoopbackTransport.ConnectionInfo(forwarder));
+ * Face consumerFace = new Face
+ *   (new LoopbackTransport(), new LoopbackTransport.ConnectionInfo(forwarder));
+ */
+public class LoopbackTransport extends Transport {
+  /**
+   * A LoopbackTransport.ConnectionInfo extends Transport.ConnectionInfo to hold
+   * the LoopbackForwarder which connects the faces.
+   */
+  public static class ConnectionInfo extends Transport.ConnectionInfo {
+    /**
+     * Create a ConnectionInfo with the given forwarder.
+     * @param forwarder The LoopbackForwarder shared by the faces.
+     */
+    public
+    ConnectionInfo(LoopbackForwarder forwarder)
+    {
+      forwarder_ = forwarder;
+    }
+
+    /**
+     * Get the forwarder given to the constructor.
+     * @return The LoopbackForwarder.
+     */
+    public final LoopbackForwarder
+    getForwarder() { return forwarder_; }
+
+    private final LoopbackForwarder forwarder_;
+  }
+
+  /**
+   * Override to return true since the forwarder is in the same process.
+   * @param connectionInfo This is ignored.
+   * @return True.
+   */
+  public boolean
+  isLocal(Transport.ConnectionInfo connectionInfo) { return true; }
+
+  /**
+   * Override to return false since connect does not need to use the onConnected
+   * callback.
+   * @return False.
+   */
+  public boolean
+  isAsync() { return false; }
+
+  /**
+   * Override to return true so that Node calls sendInterest and sendData.
+   * @return True.
+   */
+  public boolean
+  isPacketTransport() { return true; }
+
+  /**
+   * Add this as a face of the forwarder in connectionInfo. Received packets
+   * are passed to elementListener.onReceivedInterest and onReceivedData if it
+   * is a PacketListener (such as Node), otherwise they are encoded and passed
+   * to elementListener.onReceivedElement.
+   * @param connectionInfo A LoopbackTransport.ConnectionInfo.
+   * @param elementListener The ElementListener must remain valid during the
+   * life of this object.
+   * @param onConnected If not null, this calls onConnected.run() when the
+   * connection is established.
+   * @throws IOException For I/O error.
+   */
+  public void
+  connect
+    (Transport.ConnectionInfo connectionInfo, ElementListener elementListener,
+     Runnable onConnected)
+    throws IOException
+  {
+    close();
+
+    elementListener_ = elementListener;
+    forwarder_ = ((ConnectionInfo)connectionInfo).getForwarder();
+    forwarder_.addFace(this);
+
+    if (onConnected != null)
+      onConnected.run();
+  }
+
+  /**
+   * Copy the Interest and pass the copy to the forwarder without encoding, so
+   * that the forwarder and the receivers don't share the sender's Interest
+   * (which Node keeps in its pending interest table). The copy is frozen since
+   * the forwarder keeps it and shares it with the receivers (see
+   * processEvents).
+   * @param interest The Interest to send.
+   * @throws IOException If not connected.
+   */
+  public void
+  sendInterest(Interest interest) throws IOException
+  {
+    getConnectedForwarder().onInterest(new Interest(interest).freeze(), this);
+  }
+
+  /**
+   * Copy the Data and pass the copy to the forwarder without encoding. The
+   * copy shares the content Blob, which is immutable. The copy is frozen since
+   * the forwarder shares it with the receivers (see processEvents).
+   * @param data The Data to send.
+   * @throws IOException If not connected.
+   */
+  public void
+  sendData(Data data) throws IOException
+  {
+    getConnectedForwarder().onData(new Data(data).freeze(), this);
+  }
+
+  /**
+   * Decode the encoded Interest or Data and pass it to the forwarder. Node
+   * calls this for a packet which the application encoded itself.
+   * @param data The buffer with the encoded Interest or Data.  This reads from
+   * position() to limit(), but does not change the position.
+   * @throws IOException If not connected, or if data is not an Interest or
+   * Data packet.
+   */
+  public void
+  send(ByteBuffer data) throws IOException
+  {
+    LoopbackForwarder forwarder = getConnectedForwarder();
+
+    try {
+      TlvDecoder decoder = new TlvDecoder(data);
+      if (decoder.peekType(Tlv.Interest, data.remaining())) {
+        Interest interest = new Interest();
+        interest.wireDecode(data, TlvWireFormat.get());
+        forwarder.onInterest(interest.freeze(), this);
+      }
+      else if (decoder.peekType(Tlv.Data, data.remaining())) {
+        Data decodedData = new Data();
+        decodedData.wireDecode(data, TlvWireFormat.get());
+        forwarder.onData(decodedData.freeze(), this);
+      }
+      else
+        throw new IOException
+          ("LoopbackTransport.send: The packet is not an Interest or Data");
+    } catch (EncodingException ex) {
+      throw new IOException
+        ("LoopbackTransport.send: Error decoding the packet: " + ex.getMessage());
+    }
+  }
+
+  /**
+   * Pass each packet received from the forwarder to the element listener
+   * given to connect. The packets from the forwarder are frozen and shared, so
+   * this passes a PacketListener its own unfrozen copy of each Interest and
+   * Data. As with the other transports, the application can modify the
+   * packets it receives.
+   * This is non-blocking and will return immediately if there is no data to
+   * receive. You should normally not call this directly since it is called by
+   * Face.processEvents.
+   * @throws IOException For I/O error.
+   * @throws EncodingException For invalid encoding.
+   */
+  public void
+  processEvents() throws IOException, EncodingException
+  {
+    ElementListener elementListener = elementListener_;
+    if (elementListener == null)
+      return;
+
+    while (true) {
+      Object packet = receiveQueue_.poll();
+      if (packet == null)
+        return;
+
+      if (elementListener instanceof PacketListener) {
+        if (packet instanceof Interest)
+          ((PacketListener)elementListener).onReceivedInterest
+            (new Interest((Interest)packet));
+        else
+          ((PacketListener)elementListener).onReceivedData
+            (new Data((Data)packet));
+      }
+      else {
+        if (packet instanceof Interest)
+          elementListener.onReceivedElement
+            (((Interest)packet).wireEncode(TlvWireFormat.get()).buf());
+        else
+          elementListener.onReceivedElement
+            (((Data)packet).wireEncode(TlvWireFormat.get()).buf());
+      }
+    }
+  }
+
+  /**
+   * Check if the transport is connected.
+   * @return True if connected.
+   */
+  public boolean
+  getIsConnected() { return forwarder_ != null; }
+
+  /**
+   * Remove this face from the forwarder. If not connected, this does nothing.
+   */
+  public void
+  close()
+  {
+    if (forwarder_ != null) {
+      forwarder_.removeFace(this);
+      forwarder_ = null;
+    }
+    receiveQueue_.clear();
+  }
+
+  /**
+   * Get the number of received packets which have not been processed by
+   * processEvents.
+   * @return The number of queued packets.
+   */
+  public final int
+  getReceiveQueueSize() { return receiveQueue_.size(); }
+
+  /**
+   * Add the Interest or Data to the receive queue. This is called by the
+   * forwarder.
+   * @param packet The Interest or Data object.
+   */
+  final void
+  enqueue(Object packet) { receiveQueue_.add(packet); }
+
+  private LoopbackForwarder
+  getConnectedForwarder() throws IOException
+  {
+    LoopbackForwarder forwarder = forwarder_;
+    if (forwarder == null)
+      throw new IOException
+        ("Cannot send because the transport is not connected.  Use connect.");
+    return forwarder;
+  }
+
+  private volatile LoopbackForwarder forwarder_ = null;
+  private volatile ElementListener elementListener_ = null;
+  // Use Object for Interest or Data.
+  private final ConcurrentLinkedQueue<Object> receiveQueue_ =
+    new ConcurrentLinkedQueue<Object>();
+}
@@ -0,0 +1,47 @@
+/**
+ * Copyright (C) 2017 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+package net.named_data.jndn.transport;
+
+import net.named_data.jndn.Data;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.encoding.EncodingException;
+
+/**
+ * A class implements PacketListener if it can receive Interest and Data
+ * objects which were not encoded, from a transport where isPacketTransport()
+ * is true. Node implements this as well as ElementListener.
+ */
+public interface PacketListener {
+  /**
+   * This is called when an Interest is received.
+   * @param interest The received Interest. This may be shared with other
+   * receivers, so you must not modify it.
+   */
+  void onReceivedInterest(Interest interest);
+
+  /**
+   * This is called when a Data packet is received.
+   * @param data The received Data. This may be shared with other receivers, so
+   * you must not modify it.
+   * @throws EncodingException For error encoding the Data, for example to
+   * compute its implicit digest.
+   */
+  void onReceivedData(Data data) throws EncodingException;
+}
@@ -28,6 +28,7 @@ import net.named_data.jndn.encoding.ElementListener;
 import net.named_data.jndn.encoding.ElementReader;
 import net.named_data.jndn.encoding.EncodingException;
 import net.named_data.jndn.util.Common;
+import net.named_data.jndn.util.Metrics;
 
 public class TcpTransport extends Transport {
   /**
@@ -149,6 +150,7 @@ public class TcpTransport extends Transport {
       throw new IOException
         ("Cannot send because the socket is not open.  Use connect.");
 
+    getMetrics().add(Metrics.Counter.BYTES_SENT, data.remaining());
     // Save and restore the position.
     int savePosition = data.position();
     try {
@@ -185,7 +187,7 @@ public class TcpTransport extends Transport {
         return;
 
       inputBuffer_.flip();
-      elementReader_.onReceivedData(inputBuffer_);
+      elementReader_.onReceivedData(inputBuffer_, getMetrics());
     }
   }
 
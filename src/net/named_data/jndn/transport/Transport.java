@@ -21,9 +21,12 @@ package net.named_data.jndn.transport;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import net.named_data.jndn.Data;
+import net.named_data.jndn.Interest;
 import net.named_data.jndn.encoding.ElementListener;
 import net.named_data.jndn.encoding.EncodingException;
 import net.named_data.jndn.util.Common;
+import net.named_data.jndn.util.Metrics;
 
 public abstract class Transport {
   /**
@@ -83,6 +86,41 @@ public abstract class Transport {
     throw new UnsupportedOperationException("send is not implemented");
   }
 
+  /**
+   * Check if this transport sends and receives Interest and Data objects
+   * without encoding them, so that Node should call sendInterest and sendData
+   * instead of send. For example, see LoopbackTransport.
+   * @return True if this transport sends packet objects. This base class
+   * implementation returns false.
+   */
+  public boolean
+  isPacketTransport() { return false; }
+
+  /**
+   * Send the Interest object without encoding it. This is only called if
+   * isPacketTransport() is true.
+   * @param interest The Interest to send. The caller must not modify it
+   * after this call.
+   * @throws IOException For I/O error.
+   */
+  public void
+  sendInterest(Interest interest) throws IOException
+  {
+    throw new UnsupportedOperationException("sendInterest is not implemented");
+  }
+
+  /**
+   * Send the Data object without encoding it. This is only called if
+   * isPacketTransport() is true.
+   * @param data The Data to send. The transport makes a copy if needed.
+   * @throws IOException For I/O error.
+   */
+  public void
+  sendData(Data data) throws IOException
+  {
+    throw new UnsupportedOperationException("sendData is not implemented");
+  }
+
   /**
    * Process any data to receive.  For each element received, call
    * elementListener.onReceivedElement.
@@ -120,6 +158,25 @@ public abstract class Transport {
   {
   }
 
+  /**
+   * Set the Metrics which this transport updates with the number of bytes
+   * sent and received. Node calls this from Face.setMetrics.
+   * @param metrics The Metrics object, or Metrics.NONE to not record.
+   */
+  public final void
+  setMetrics(Metrics metrics) { metrics_ = metrics; }
+
+  /**
+   * Get the Metrics given to setMetrics. A derived class uses this to record
+   * the bytes it sends and receives.
+   * @return The Metrics object, which is Metrics.NONE if setMetrics was not
+   * called.
+   */
+  public final Metrics
+  getMetrics() { return metrics_; }
+
+  private volatile Metrics metrics_ = Metrics.NONE;
+
   // This is to force an import of net.named_data.jndn.util.
   private static Common dummyCommon_ = new Common();
 }
@@ -21,12 +21,16 @@ package net.named_data.jndn.transport;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.net.SocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.channels.DatagramChannel;
+import java.util.List;
 import net.named_data.jndn.encoding.ElementListener;
-import net.named_data.jndn.encoding.ElementReader;
 import net.named_data.jndn.encoding.EncodingException;
-import net.named_data.jndn.util.Common;
+import net.named_data.jndn.encoding.tlv.Tlv;
+import net.named_data.jndn.lp.LpFragmenter;
+import net.named_data.jndn.util.Blob;
+import net.named_data.jndn.util.Metrics;
 
 public class UdpTransport extends Transport {
   /**
@@ -75,6 +79,38 @@ public class UdpTransport extends Transport {
     private final int port_;
   }
 
+  /**
+   * A UdpTransport.UnconnectedInfo extends Transport.ConnectionInfo to hold
+   * the local port for a socket which is bound but not connected, so that one
+   * transport can receive from and reply to many peers. In this mode, send
+   * throws an exception since there is no single peer, so use sendTo with the
+   * peer address, for example getLastRemoteAddress() in an onReceivedElement
+   * callback to reply to the sender of the element. Because of this, an
+   * unconnected transport is used directly with an ElementListener, not with a
+   * Face.
+   */
+  public static class UnconnectedInfo extends Transport.ConnectionInfo {
+    /**
+     * Create an UnconnectedInfo with the given local port.
+     * @param localPort The local port to bind, or 0 to let the system choose
+     * (see getLocalAddress).
+     */
+    public
+    UnconnectedInfo(int localPort)
+    {
+      localPort_ = localPort;
+    }
+
+    /**
+     * Get the local port given to the constructor.
+     * @return The local port.
+     */
+    public final int
+    getLocalPort() { return localPort_; }
+
+    private final int localPort_;
+  }
+
   /**
    * Determine whether this transport connecting according to connectionInfo is
    * to a node on the current machine. According to
@@ -97,7 +133,9 @@ public class UdpTransport extends Transport {
 
   /**
    * Connect according to the info in ConnectionInfo, and use elementListener.
-   * @param connectionInfo A UdpTransport.ConnectionInfo.
+   * @param connectionInfo A UdpTransport.ConnectionInfo to connect to one
+   * host, or a UdpTransport.UnconnectedInfo to bind a local port and exchange
+   * packets with many peers.
    * @param elementListener The ElementListener must remain valid during the
    * life of this object.
    * @param onConnected If not null, this calls onConnected.run() when the
@@ -113,35 +151,71 @@ public class UdpTransport extends Transport {
     close();
 
     channel_ = DatagramChannel.open();
-    channel_.connect(new InetSocketAddress
-      (((ConnectionInfo)connectionInfo).getHost(),
-       ((ConnectionInfo)connectionInfo).getPort()));
+    if (connectionInfo instanceof UnconnectedInfo) {
+      channel_.bind(new InetSocketAddress
+        (((UnconnectedInfo)connectionInfo).getLocalPort()));
+      isUnconnected_ = true;
+    }
+    else {
+      channel_.connect(new InetSocketAddress
+        (((ConnectionInfo)connectionInfo).getHost(),
+         ((ConnectionInfo)connectionInfo).getPort()));
+      isUnconnected_ = false;
+    }
     channel_.configureBlocking(false);
 
-    elementReader_ = new ElementReader(elementListener);
+    elementListener_ = elementListener;
 
     if (onConnected != null)
       onConnected.run();
   }
 
   /**
-   * Send data to the host
+   * Send data to the host. If the data is larger than getMtu(), send it as
+   * NDNLPv2 fragments.
    * @param data The buffer of data to send.  This reads from position() to
    * limit(), but does not change the position.
-   * @throws IOException For I/O error.
+   * @throws IOException For I/O error, or if this transport is unconnected, in
+   * which case you must use sendTo.
    */
   public void
   send(ByteBuffer data) throws IOException
+  {
+    if (isUnconnected_)
+      throw new IOException
+        ("UdpTransport.send: The transport is unconnected. Use sendTo with the peer address.");
+    sendTo(data, null);
+  }
+
+  /**
+   * Send data to the given peer. If the data is larger than getMtu(), send it
+   * as NDNLPv2 fragments.
+   * @param data The buffer of data to send.  This reads from position() to
+   * limit(), but does not change the position.
+   * @param remoteAddress The address of the peer. If this transport is
+   * connected, this must be null to send to the connected host.
+   * @throws IOException For I/O error.
+   */
+  public void
+  sendTo(ByteBuffer data, SocketAddress remoteAddress) throws IOException
   {
     if (channel_ == null)
       throw new IOException
         ("Cannot send because the socket is not open.  Use connect.");
 
+    if (mtu_ > 0 && data.remaining() > mtu_ &&
+        data.get(data.position()) != Tlv.LpPacket_LpPacket) {
+      // Send as NDNLPv2 fragments so that we don't rely on IP fragmentation.
+      List fragments = fragmenter_.fragment(data, mtu_);
+      for (int i = 0; i < fragments.size(); ++i)
+        writeDatagram(((Blob)fragments.get(i)).buf(), remoteAddress);
+      return;
+    }
+
     // Save and restore the position.
     int savePosition = data.position();
     try {
-      while(data.hasRemaining())
-        channel_.write(data);
+      writeDatagram(data, remoteAddress);
     }
     finally {
       data.position(savePosition);
@@ -149,8 +223,59 @@ public class UdpTransport extends Transport {
   }
 
   /**
-   * Process any data to receive.  For each element received, call
-   * elementListener.onReceivedElement.
+   * Get the MTU used to fragment packets in send.
+   * @return The MTU, or 0 if packets are not fragmented.
+   */
+  public final int
+  getMtu() { return mtu_; }
+
+  /**
+   * Set the MTU used to fragment packets in send. A packet whose encoding is
+   * larger than the MTU is sent as NDNLPv2 LpPacket fragments. The receiving
+   * forwarder must support NDNLPv2 reassembly, as NFD does for UDP faces.
+   * @param mtu The maximum datagram size, or 0 to send each packet as one
+   * datagram. If not set, this uses DEFAULT_MTU.
+   * @throws Error if mtu is not 0 but too small to hold a fragment.
+   */
+  public final void
+  setMtu(int mtu)
+  {
+    if (mtu != 0 && mtu <= LpFragmenter.MAX_HEADER_SIZE)
+      throw new Error("UdpTransport.setMtu: The MTU " + mtu + " is too small");
+    mtu_ = mtu;
+  }
+
+  /**
+   * Get the address of the peer which sent the most recently received
+   * datagram if this transport is unconnected. In an onReceivedElement
+   * callback, this is the sender of the element, so pass it to sendTo to reply.
+   * Outside the callback, it may have been overwritten by a later datagram.
+   * @return The peer address, or null if this transport is connected or has
+   * not received a datagram.
+   */
+  public final SocketAddress
+  getLastRemoteAddress() { return lastRemoteAddress_; }
+
+  /**
+   * Get the local address of the socket, for example to get the port which
+   * the system chose for an UnconnectedInfo with local port 0.
+   * @return The local address, or null if not connected.
+   * @throws IOException For I/O error.
+   */
+  public final SocketAddress
+  getLocalAddress() throws IOException
+  {
+    if (channel_ == null)
+      return null;
+    return channel_.getLocalAddress();
+  }
+
+  /**
+   * Process any data to receive. Read all datagrams which are waiting and, for
+   * each one, call elementListener.onReceivedElement. Each datagram holds one
+   * complete element, so this does not need to buffer partial elements as
+   * with TCP. The element passed to onReceivedElement is only valid during the
+   * call since the buffer is reused for the next datagram.
    * This is non-blocking and will return immediately if there is no data to
    * receive. You should normally not call this directly since it is called by
    * Face.processEvents.
@@ -166,19 +291,29 @@ public class UdpTransport extends Transport {
       return;
 
     while (true) {
-      inputBuffer_.limit(inputBuffer_.capacity());
-      inputBuffer_.position(0);
-      int bytesRead = channel_.read(inputBuffer_);
-      if (bytesRead <= 0)
-        return;
+      inputBuffer_.clear();
+      if (isUnconnected_) {
+        SocketAddress remoteAddress = channel_.receive(inputBuffer_);
+        if (remoteAddress == null)
+          return;
+        lastRemoteAddress_ = remoteAddress;
+      }
+      else {
+        if (channel_.read(inputBuffer_) <= 0)
+          return;
+      }
 
       inputBuffer_.flip();
-      elementReader_.onReceivedData(inputBuffer_);
+      if (!inputBuffer_.hasRemaining())
+        continue;
+      getMetrics().add(Metrics.Counter.BYTES_RECEIVED, inputBuffer_.remaining());
+      elementListener_.onReceivedElement(inputBuffer_);
     }
   }
 
   /**
-   * Check if the transport is connected.
+   * Check if the transport is connected. An unconnected transport from
+   * UnconnectedInfo is considered connected while its socket is open.
    * @return True if connected.
    */
   public boolean
@@ -187,6 +322,8 @@ public class UdpTransport extends Transport {
     if (channel_ == null)
       return false;
 
+    if (isUnconnected_)
+      return channel_.isOpen();
     return channel_.isConnected();
   }
 
@@ -198,14 +335,43 @@ public class UdpTransport extends Transport {
   close() throws IOException
   {
     if (channel_ != null) {
-      if (channel_.isConnected())
+      if (channel_.isOpen())
         channel_.close();
       channel_ = null;
     }
+    lastRemoteAddress_ = null;
+  }
+
+  private void
+  writeDatagram(ByteBuffer datagram, SocketAddress remoteAddress)
+    throws IOException
+  {
+    getMetrics().add(Metrics.Counter.BYTES_SENT, datagram.remaining());
+    // A non-blocking write sends the whole datagram or nothing.
+    while (datagram.hasRemaining()) {
+      if (remoteAddress == null)
+        channel_.write(datagram);
+      else
+        channel_.send(datagram, remoteAddress);
+    }
   }
 
+  /**
+   * The default MTU: the 1500-byte Ethernet MTU minus the IPv6 and UDP headers.
+   */
+  public static final int DEFAULT_MTU = 1452;
+
+  /**
+   * The maximum UDP payload. The input buffer is this size so that a datagram
+   * with NDNLPv2 headers around a maximum size packet is not truncated.
+   */
+  public static final int MAX_DATAGRAM_SIZE = 65507;
+
   DatagramChannel channel_;
-  ByteBuffer inputBuffer_ = ByteBuffer.allocate(Common.MAX_NDN_PACKET_SIZE);
-  // TODO: This belongs in the socket listener.
-  private ElementReader elementReader_;
+  ByteBuffer inputBuffer_ = ByteBuffer.allocate(MAX_DATAGRAM_SIZE);
+  private ElementListener elementListener_;
+  private boolean isUnconnected_ = false;
+  private SocketAddress lastRemoteAddress_ = null;
+  private int mtu_ = DEFAULT_MTU;
+  private final LpFragmenter fragmenter_ = new LpFragmenter();
 }
@@ -0,0 +1,278 @@
+/**
+ * Copyright (C) 2017 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+package net.named_data.jndn.transport;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import net.named_data.jndn.encoding.ElementListener;
+import net.named_data.jndn.encoding.ElementReader;
+import net.named_data.jndn.encoding.EncodingException;
+import net.named_data.jndn.util.Common;
+import net.named_data.jndn.util.Metrics;
+
+/**
+ * UnixTransport extends Transport for communication over a Unix-domain socket,
+ * which is normally used to connect to the local NFD at /var/run/nfd.sock.
+ * This avoids the cost of the TCP stack for each packet. Unix-domain socket
+ * channels are only supported by Java 16 or later, so this uses reflection to
+ * find the support at run time. Use getIsSupported() to check.
+ */
+public class UnixTransport extends Transport {
+  /**
+   * A UnixTransport.ConnectionInfo extends Transport.ConnectionInfo to hold
+   * the socket file path for the Unix-domain socket connection.
+   */
+  public static class ConnectionInfo extends Transport.ConnectionInfo {
+    /**
+     * Create a ConnectionInfo with the given filePath.
+     * @param filePath The file path of the Unix-domain socket.
+     */
+    public
+    ConnectionInfo(String filePath)
+    {
+      filePath_ = filePath;
+    }
+
+    /**
+     * Create a ConnectionInfo with the default file path DEFAULT_FILE_PATH.
+     */
+    public
+    ConnectionInfo()
+    {
+      filePath_ = DEFAULT_FILE_PATH;
+    }
+
+    /**
+     * Get the filePath given to the constructor.
+     * @return The file path.
+     */
+    public final String
+    getFilePath() { return filePath_; }
+
+    private final String filePath_;
+  }
+
+  /**
+   * Override to return true since a Unix-domain socket is always to a node on
+   * the current machine.
+   * @param connectionInfo This is ignored.
+   * @return True.
+   */
+  public boolean
+  isLocal(Transport.ConnectionInfo connectionInfo) { return true; }
+
+  /**
+   * Override to return false since connect does not need to use the onConnected
+   * callback.
+   * @return False.
+   */
+  public boolean
+  isAsync() { return false; }
+
+  /**
+   * Connect according to the info in ConnectionInfo, and use elementListener.
+   * @param connectionInfo A UnixTransport.ConnectionInfo.
+   * @param elementListener The ElementListener must remain valid during the
+   * life of this object.
+   * @param onConnected If not null, this calls onConnected.run() when the
+   * connection is established.
+   * @throws IOException For I/O error, or if Unix-domain sockets are not
+   * supported by this Java version.
+   */
+  public void
+  connect
+    (Transport.ConnectionInfo connectionInfo, ElementListener elementListener,
+     Runnable onConnected)
+    throws IOException
+  {
+    close();
+
+    channel_ = openSocketChannel
+      (((ConnectionInfo)connectionInfo).getFilePath());
+    channel_.configureBlocking(false);
+
+    elementReader_ = new ElementReader(elementListener);
+
+    if (onConnected != null)
+      onConnected.run();
+  }
+
+  /**
+   * Send data to the host
+   * @param data The buffer of data to send.  This reads from position() to
+   * limit(), but does not change the position.
+   * @throws IOException For I/O error.
+   */
+  public void
+  send(ByteBuffer data) throws IOException
+  {
+    if (channel_ == null)
+      throw new IOException
+        ("Cannot send because the socket is not open.  Use connect.");
+
+    getMetrics().add(Metrics.Counter.BYTES_SENT, data.remaining());
+    // Save and restore the position.
+    int savePosition = data.position();
+    try {
+      while(data.hasRemaining())
+        channel_.write(data);
+    }
+    finally {
+      data.position(savePosition);
+    }
+  }
+
+  /**
+   * Process any data to receive.  For each element received, call
+   * elementListener.onReceivedElement.
+   * This is non-blocking and will return immediately if there is no data to
+   * receive. You should normally not call this directly since it is called by
+   * Face.processEvents.
+   * If you call this from an main event loop, you may want to catch and
+   * log/disregard all exceptions.
+   * @throws IOException For I/O error.
+   * @throws EncodingException For invalid encoding.
+   */
+  public void
+  processEvents() throws IOException, EncodingException
+  {
+    if (!getIsConnected())
+      return;
+
+    while (true) {
+      inputBuffer_.limit(inputBuffer_.capacity());
+      inputBuffer_.position(0);
+      int bytesRead = channel_.read(inputBuffer_);
+      if (bytesRead <= 0)
+        return;
+
+      inputBuffer_.flip();
+      elementReader_.onReceivedData(inputBuffer_, getMetrics());
+    }
+  }
+
+  /**
+   * Check if the transport is connected.
+   * @return True if connected.
+   */
+  public boolean
+  getIsConnected() throws IOException
+  {
+    if (channel_ == null)
+      return false;
+
+    return channel_.isConnected();
+  }
+
+  /**
+   * Close the connection.  If not connected, this does nothing.
+   * @throws IOException For I/O error.
+   */
+  public void
+  close() throws IOException
+  {
+    if (channel_ != null) {
+      if (channel_.isConnected())
+        channel_.close();
+      channel_ = null;
+    }
+  }
+
+  /**
+   * Check if this Java version supports Unix-domain socket channels, which
+   * requires Java 16 or later.
+   * @return True if supported.
+   */
+  public static boolean
+  getIsSupported() { return openMethod_ != null; }
+
+  /**
+   * Open a SocketChannel in blocking mode and connect it to the Unix-domain
+   * socket at filePath.
+   * @param filePath The file path of the Unix-domain socket.
+   * @return The connected SocketChannel.
+   * @throws IOException For I/O error, or if Unix-domain sockets are not
+   * supported by this Java version.
+   */
+  static SocketChannel
+  openSocketChannel(String filePath) throws IOException
+  {
+    if (!getIsSupported())
+      throw new IOException
+        ("Unix-domain sockets are not supported by this Java version");
+
+    SocketChannel channel;
+    SocketAddress address;
+    try {
+      address = (SocketAddress)socketAddressOfMethod_.invoke(null, filePath);
+      channel = (SocketChannel)openMethod_.invoke(null, unixProtocolFamily_);
+    } catch (IllegalAccessException ex) {
+      throw new IOException(ex);
+    } catch (InvocationTargetException ex) {
+      if (ex.getCause() instanceof IOException)
+        throw (IOException)ex.getCause();
+      throw new IOException(ex.getCause());
+    }
+
+    try {
+      channel.connect(address);
+    } catch (IOException ex) {
+      channel.close();
+      throw ex;
+    }
+    return channel;
+  }
+
+  /**
+   * The default file path of the NFD Unix-domain socket.
+   */
+  public static final String DEFAULT_FILE_PATH = "/var/run/nfd.sock";
+
+  SocketChannel channel_;
+  ByteBuffer inputBuffer_ = ByteBuffer.allocate(Common.MAX_NDN_PACKET_SIZE);
+  // TODO: This belongs in the socket listener.
+  private ElementReader elementReader_;
+
+  // These are null if Unix-domain sockets are not supported.
+  private static Method openMethod_;
+  private static Method socketAddressOfMethod_;
+  private static ProtocolFamily unixProtocolFamily_;
+
+  static {
+    try {
+      Class socketAddressClass = Class.forName
+        ("java.net.UnixDomainSocketAddress");
+      socketAddressOfMethod_ = socketAddressClass.getMethod("of", String.class);
+      unixProtocolFamily_ = StandardProtocolFamily.valueOf("UNIX");
+      openMethod_ = SocketChannel.class.getMethod("open", ProtocolFamily.class);
+    } catch (Exception ex) {
+      // Not supported before Java 16.
+      openMethod_ = null;
+      socketAddressOfMethod_ = null;
+      unixProtocolFamily_ = null;
+    }
+  }
+}
@@ -57,6 +57,27 @@ public class CommandInterestGenerator {
   generate
     (Interest interest, KeyChain keyChain, Name certificateName,
      WireFormat wireFormat) throws SecurityException
+  {
+    appendTimestampAndRandom(interest);
+
+    keyChain.sign(interest, certificateName, wireFormat);
+
+    if (interest.getInterestLifetimeMilliseconds() < 0)
+      // The caller has not set the interest lifetime, so set it here.
+      interest.setInterestLifetimeMilliseconds(1000.0);
+  }
+
+  /**
+   * Append a timestamp component and a random value component to interest's
+   * name as in generate, but do not sign. This ensures that the timestamp is
+   * greater than the timestamp used in the previous call. The caller can then
+   * sign a batch of command interests in parallel, but must send them in the
+   * order of this call since the forwarder rejects a command interest whose
+   * timestamp is not greater than the previous one.
+   * @param interest The interest whose name is append with components.
+   */
+  public void
+  appendTimestampAndRandom(Interest interest)
   {
     double timestamp;
     synchronized(lastTimestampLock_) {
@@ -79,12 +100,6 @@ public class CommandInterestGenerator {
     // Note: SecureRandom is thread safe.
     Common.getRandom().nextBytes(randomBuffer.array());
     interest.getName().append(new Blob(randomBuffer, false));
-
-    keyChain.sign(interest, certificateName, wireFormat);
-
-    if (interest.getInterestLifetimeMilliseconds() < 0)
-      // The caller has not set the interest lifetime, so set it here.
-      interest.setInterestLifetimeMilliseconds(1000.0);
   }
 
   /**
@@ -46,12 +46,41 @@ public class Common {
    * generator when a generator is not yet set will not throw an UnsupportedOperationException
    * @return the random number generator set in {@link #setRandom(Random)} or (by default) a SecureRandom
    */
-  public static synchronized Random
+  public static Random
   getRandom() {
-    if(randomNumberGenerator_ == null){
-      setRandom(new SecureRandom());
+    // Only synchronize until the generator is set.
+    Random random = randomNumberGenerator_;
+    if (random != null)
+      return random;
+
+    synchronized (Common.class) {
+      if(randomNumberGenerator_ == null){
+        setRandom(new SecureRandom());
+      }
+      return randomNumberGenerator_;
     }
-    return randomNumberGenerator_;
+  }
+
+  /**
+   * Get the library-wide source of Interest nonces. Unlike getRandom(), this
+   * is not a SecureRandom by default since a nonce only needs to be unique.
+   * @return The NonceSource set by setNonceSource, or (by default) a
+   * ThreadLocalNonceSource.
+   */
+  public static NonceSource
+  getNonceSource() { return nonceSource_; }
+
+  /**
+   * Set the library-wide source of Interest nonces, for example to use a
+   * SecureRandom or a deterministic generator for testing.
+   * @param nonceSource The NonceSource, which must be thread safe.
+   */
+  public static void
+  setNonceSource(NonceSource nonceSource)
+  {
+    if (nonceSource == null)
+      throw new Error("Common.setNonceSource: The nonceSource may not be null");
+    nonceSource_ = nonceSource;
   }
 
   /**
@@ -326,5 +355,7 @@ public class Common {
 
   private static Base64ConverterType base64ConverterType_ = Base64ConverterType.UNINITIALIZED;
   private static Class base64Converter_ = null;
-  private static Random randomNumberGenerator_;
+  private static volatile Random randomNumberGenerator_;
+  private static volatile NonceSource nonceSource_ =
+    new ThreadLocalNonceSource();
 }
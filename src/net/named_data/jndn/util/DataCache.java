@@ -0,0 +1,238 @@
+/**
+ * Copyright (C) 2017 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+package net.named_data.jndn.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import net.named_data.jndn.Data;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.InterestMatcher;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.encoding.EncodingException;
+
+/**
+ * A DataCache holds Data packets received by a consumer so that a later
+ * Interest which the Data satisfies can be answered without sending it to the
+ * network. Unlike MemoryContentCache which answers Interests for a producer,
+ * this is used by Node before sending an Interest (see
+ * Face.setDataCacheCapacity). The cache is bounded by the total size of the
+ * Data packets and evicts the least recently used Data. A Data packet matches
+ * an Interest as in Interest.matchesData, and also according to the Interest's
+ * ChildSelector and MustBeFresh, where the Data is fresh until its
+ * FreshnessPeriod has elapsed since it was added.
+ */
+public class DataCache {
+  /**
+   * Create a new DataCache with the given capacity.
+   * @param maxBytes The maximum total size in bytes of the cached Data packets.
+   */
+  public DataCache(long maxBytes)
+  {
+    maxBytes_ = maxBytes;
+  }
+
+  /**
+   * Add the Data packet to the cache, replacing any Data with the same name,
+   * then evict the least recently used Data until the total size is not more
+   * than getMaxBytes(). If the Data is larger than getMaxBytes(), don't add it.
+   * @param data The Data packet. This caches a frozen copy, so the caller may
+   * still modify the given Data.
+   */
+  public synchronized final void
+  add(Data data)
+  {
+    long size = getSize(data);
+    if (size > maxBytes_)
+      return;
+
+    // Copy and freeze so that the keys in nameTable_ and lruTable_ and the
+    // Data returned by find can't change.
+    Data dataCopy = new Data(data).freeze();
+    Entry entry = new Entry(dataCopy, size, Common.getNowMilliseconds());
+    Entry oldEntry = lruTable_.put(dataCopy.getName(), entry);
+    if (oldEntry != null)
+      byteCount_ -= oldEntry.size_;
+    nameTable_.put(dataCopy.getName(), entry);
+    byteCount_ += size;
+
+    for (Iterator<Map.Entry<Name, Entry>> i = lruTable_.entrySet().iterator();
+         byteCount_ > maxBytes_ && i.hasNext(); ) {
+      Map.Entry<Name, Entry> lruEntry = i.next();
+      i.remove();
+      nameTable_.remove(lruEntry.getKey());
+      byteCount_ -= lruEntry.getValue().size_;
+    }
+  }
+
+  /**
+   * Find a cached Data packet which satisfies the Interest, and update the
+   * hit or miss count.
+   * @param interest The Interest to match.
+   * @return The matching Data, or null if not found. The returned Data is
+   * frozen and shared with other callers (see Data.freeze). To modify it, make
+   * a copy with new Data(data).
+   */
+  public synchronized final Data
+  find(Interest interest)
+  {
+    Name prefix = interest.getName();
+    if (prefix.size() > 0 && prefix.get(-1).isImplicitSha256Digest())
+      // The Data name doesn't have the implicit digest. matchesData checks it.
+      prefix = prefix.getPrefix(-1);
+    double now = Common.getNowMilliseconds();
+    boolean rightmost = (interest.getChildSelector() == 1);
+    InterestMatcher matcher = new InterestMatcher(interest);
+    Entry found = null;
+
+    // In canonical order, the names with the prefix follow the prefix.
+    NavigableMap<Name, Entry> tail = nameTable_.tailMap(prefix, true);
+    for (Iterator<Map.Entry<Name, Entry>> i = tail.entrySet().iterator();
+         i.hasNext(); ) {
+      Map.Entry<Name, Entry> nameEntry = i.next();
+      if (!prefix.isPrefixOf(nameEntry.getKey()))
+        break;
+
+      Entry entry = nameEntry.getValue();
+      if (interest.getMustBeFresh() && !entry.isFresh(now))
+        continue;
+      try {
+        if (!matcher.matchesData(entry.data_))
+          continue;
+      } catch (EncodingException ex) {
+        continue;
+      }
+
+      found = entry;
+      if (!rightmost)
+        break;
+    }
+
+    if (found == null) {
+      ++missCount_;
+      return null;
+    }
+
+    ++hitCount_;
+    // Move to the most recently used position.
+    lruTable_.get(found.data_.getName());
+    return found.data_;
+  }
+
+  /**
+   * Remove all the cached Data packets. This does not reset the hit and miss
+   * counts.
+   */
+  public synchronized final void
+  clear()
+  {
+    nameTable_.clear();
+    lruTable_.clear();
+    byteCount_ = 0;
+  }
+
+  /**
+   * Get the number of cached Data packets.
+   * @return The number of Data packets.
+   */
+  public synchronized final int
+  size() { return lruTable_.size(); }
+
+  /**
+   * Get the total size of the cached Data packets.
+   * @return The total size in bytes.
+   */
+  public synchronized final long
+  getByteCount() { return byteCount_; }
+
+  /**
+   * Get the maximum total size given to the constructor.
+   * @return The maximum total size in bytes.
+   */
+  public final long
+  getMaxBytes() { return maxBytes_; }
+
+  /**
+   * Get the number of calls to find which returned a Data packet.
+   * @return The hit count.
+   */
+  public synchronized final long
+  getHitCount() { return hitCount_; }
+
+  /**
+   * Get the number of calls to find which returned null.
+   * @return The miss count.
+   */
+  public synchronized final long
+  getMissCount() { return missCount_; }
+
+  /**
+   * Get the size of the Data packet. If the Data has a default wire encoding
+   * (for example because it was decoded), use its size. Otherwise estimate it
+   * from the name and content so that the Data doesn't need to be encoded.
+   */
+  private static long
+  getSize(Data data)
+  {
+    Blob encoding = data.getDefaultWireEncoding();
+    if (encoding.size() > 0)
+      return encoding.size();
+
+    long size = data.getContent().size() + ESTIMATED_OVERHEAD;
+    Name name = data.getName();
+    for (int i = 0; i < name.size(); ++i)
+      size += name.get(i).getValue().size() + 2;
+    return size;
+  }
+
+  private static class Entry {
+    public Entry(Data data, long size, double addedTime)
+    {
+      data_ = data;
+      size_ = size;
+      double freshnessPeriod = data.getMetaInfo().getFreshnessPeriod();
+      // A Data without a FreshnessPeriod is stale right away.
+      staleTime_ = addedTime +
+        (freshnessPeriod >= 0.0 ? freshnessPeriod : 0.0);
+    }
+
+    public final boolean
+    isFresh(double now) { return now < staleTime_; }
+
+    public final Data data_;
+    public final long size_;
+    private final double staleTime_;
+  }
+
+  // An estimate of the encoding size of a Data packet not counting its name
+  // and content, including the signature.
+  private static final long ESTIMATED_OVERHEAD = 100;
+
+  private final long maxBytes_;
+  // The name table is sorted in canonical order to find names with a prefix.
+  private final TreeMap<Name, Entry> nameTable_ = new TreeMap<Name, Entry>();
+  // The LRU table is in access order with the least recently used first.
+  private final LinkedHashMap<Name, Entry> lruTable_ =
+    new LinkedHashMap<Name, Entry>(16, 0.75f, true);
+  private long byteCount_ = 0;
+  private long hitCount_ = 0;
+  private long missCount_ = 0;
+}
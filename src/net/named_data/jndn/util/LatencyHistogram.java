@@ -0,0 +1,187 @@
+/**
+ * Copyright (C) 2017 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+package net.named_data.jndn.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A LatencyHistogram counts recorded values such as nanosecond latencies in
+ * log-linear buckets, in the style of an HDR histogram. Each power of two is
+ * divided into SUB_BUCKET_COUNT / 2 linear buckets, so a percentile is
+ * reported with a relative error of less than 2 / SUB_BUCKET_COUNT over the
+ * full range of long values, using a fixed array of counts. record is thread
+ * safe and does not allocate. Use the copy constructor to get a snapshot.
+ */
+public class LatencyHistogram {
+  /**
+   * Create a new empty LatencyHistogram.
+   */
+  public LatencyHistogram()
+  {
+    counts_ = new AtomicLongArray(BUCKET_COUNT);
+  }
+
+  /**
+   * Create a new LatencyHistogram with a copy of the counts in histogram. If
+   * values are recorded in histogram during the copy, the copy may include
+   * some of them, but its total count is always the sum of its buckets.
+   * @param histogram The LatencyHistogram to copy.
+   */
+  public LatencyHistogram(LatencyHistogram histogram)
+  {
+    counts_ = new AtomicLongArray(BUCKET_COUNT);
+    long count = 0;
+    for (int i = 0; i < BUCKET_COUNT; ++i) {
+      long bucketCount = histogram.counts_.get(i);
+      counts_.set(i, bucketCount);
+      count += bucketCount;
+    }
+    count_.set(count);
+    sum_.set(histogram.sum_.get());
+    max_.set(histogram.max_.get());
+  }
+
+  /**
+   * Add the value to the histogram.
+   * @param value The value to record, such as a latency in nanoseconds. If
+   * negative, this records 0.
+   */
+  public final void
+  record(long value)
+  {
+    if (value < 0)
+      value = 0;
+
+    counts_.incrementAndGet(getBucketIndex(value));
+    count_.incrementAndGet();
+    sum_.addAndGet(value);
+    while (true) {
+      long max = max_.get();
+      if (value <= max || max_.compareAndSet(max, value))
+        break;
+    }
+  }
+
+  /**
+   * Get the number of recorded values.
+   * @return The number of values.
+   */
+  public final long
+  getCount() { return count_.get(); }
+
+  /**
+   * Get the largest recorded value.
+   * @return The maximum value, or 0 if no values were recorded.
+   */
+  public final long
+  getMax() { return max_.get(); }
+
+  /**
+   * Get the mean of the recorded values.
+   * @return The mean, or 0 if no values were recorded.
+   */
+  public final double
+  getMean()
+  {
+    long count = count_.get();
+    return count == 0 ? 0 : (double)sum_.get() / count;
+  }
+
+  /**
+   * Get the value at the given percentile, which is the largest value in the
+   * bucket which holds the value at that rank, but not more than getMax().
+   * @param percentile The percentile from 0 to 100, for example 99.9.
+   * @return The value at the percentile, or 0 if no values were recorded.
+   */
+  public final long
+  getValueAtPercentile(double percentile)
+  {
+    long count = count_.get();
+    if (count == 0)
+      return 0;
+
+    long rank = (long)Math.ceil(Math.min(percentile, 100.0) / 100.0 * count);
+    if (rank < 1)
+      rank = 1;
+
+    long cumulativeCount = 0;
+    for (int i = 0; i < BUCKET_COUNT; ++i) {
+      cumulativeCount += counts_.get(i);
+      if (cumulativeCount >= rank)
+        return Math.min(getBucketMaxValue(i), max_.get());
+    }
+
+    // Only reached if values are recorded concurrently.
+    return max_.get();
+  }
+
+  /**
+   * Remove all recorded values.
+   */
+  public final void
+  reset()
+  {
+    for (int i = 0; i < BUCKET_COUNT; ++i)
+      counts_.set(i, 0);
+    count_.set(0);
+    sum_.set(0);
+    max_.set(0);
+  }
+
+  /**
+   * Get the index in counts_ of the bucket for the value.
+   * @param value The non-negative value.
+   * @return The bucket index.
+   */
+  private static int
+  getBucketIndex(long value)
+  {
+    // The magnitude is the number of low bits dropped to fit the value in
+    // SUB_BUCKET_BITS + 1 bits.
+    int magnitude = Math.max
+      (0, 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+    return (magnitude << SUB_BUCKET_BITS) + (int)(value >>> magnitude);
+  }
+
+  /**
+   * Get the largest value which getBucketIndex maps to the index.
+   * @param index The bucket index.
+   * @return The largest value in the bucket.
+   */
+  private static long
+  getBucketMaxValue(int index)
+  {
+    int magnitude = Math.max(0, (index >> SUB_BUCKET_BITS) - 1);
+    long subBucket = index - ((long)magnitude << SUB_BUCKET_BITS);
+    return ((subBucket + 1) << magnitude) - 1;
+  }
+
+  private static final int SUB_BUCKET_BITS = 5;
+  public static final int SUB_BUCKET_COUNT = 1 << (SUB_BUCKET_BITS + 1);
+  // The largest long has 63 bits, so its magnitude is 63 - 1 - SUB_BUCKET_BITS.
+  private static final int BUCKET_COUNT =
+    ((63 - 1 - SUB_BUCKET_BITS) << SUB_BUCKET_BITS) + SUB_BUCKET_COUNT;
+
+  private final AtomicLongArray counts_;
+  private final AtomicLong count_ = new AtomicLong();
+  private final AtomicLong sum_ = new AtomicLong();
+  private final AtomicLong max_ = new AtomicLong();
+}
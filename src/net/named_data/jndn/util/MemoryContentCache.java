@@ -29,6 +29,7 @@ import net.named_data.jndn.Face;
 import net.named_data.jndn.ForwardingFlags;
 import net.named_data.jndn.Interest;
 import net.named_data.jndn.InterestFilter;
+import net.named_data.jndn.InterestMatcher;
 import net.named_data.jndn.Name;
 import net.named_data.jndn.OnInterestCallback;
 import net.named_data.jndn.OnRegisterFailed;
@@ -568,7 +569,7 @@ public class MemoryContentCache implements OnInterestCallback {
         continue;
       }
 
-      if (pendingInterest.getInterest().matchesName(data.getName())) {
+      if (pendingInterest.getMatcher().matchesName(data.getName())) {
         try {
           // Send to the same face from the original call to onInterest.
           // wireEncode returns the cached encoding if available.
@@ -621,6 +622,7 @@ public class MemoryContentCache implements OnInterestCallback {
   {
     doCleanup();
 
+    InterestMatcher matcher = new InterestMatcher(interest);
     Name.Component selectedComponent = null;
     Blob selectedEncoding = null;
     // We need to iterate over both arrays.
@@ -633,7 +635,7 @@ public class MemoryContentCache implements OnInterestCallback {
         // We have iterated over the first array. Get from the second.
         content = noStaleTimeCache_.get(i - staleTimeCache_.size());
 
-      if (interest.matchesName(content.getName())) {
+      if (matcher.matchesName(content.getName())) {
         if (interest.getChildSelector() < 0) {
           // No child selector, so send the first match that we have found.
           try {
@@ -782,6 +784,7 @@ public class MemoryContentCache implements OnInterestCallback {
     public PendingInterest(Interest interest, Face face)
     {
       interest_ = interest;
+      matcher_ = new InterestMatcher(interest);
       face_ = face;
 
       // Set up timeoutTimeMilliseconds_.
@@ -799,6 +802,12 @@ public class MemoryContentCache implements OnInterestCallback {
     public final Interest
     getInterest() { return interest_; }
 
+    /**
+     * Return the InterestMatcher for the interest given to the constructor.
+     */
+    public final InterestMatcher
+    getMatcher() { return matcher_; }
+
     /**
      * Return the face given to the constructor.
      */
@@ -818,6 +827,7 @@ public class MemoryContentCache implements OnInterestCallback {
     }
 
     private final Interest interest_;
+    private final InterestMatcher matcher_;
     private final Face face_;
     private final double timeoutTimeMilliseconds_; /**< The time when the
       * interest times out in milliseconds according to ndn_getNowMilliseconds,
@@ -0,0 +1,140 @@
+/**
+ * Copyright (C) 2017 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+package net.named_data.jndn.util;
+
+/**
+ * Metrics is the instrumentation interface which Face, Node, the pending
+ * interest table, the delayed call table, ElementReader and each Transport
+ * update on their hot paths. This base class ignores every update, so that
+ * instrumentation costs only a virtual call when it is not used. To collect the
+ * values, call Face.setMetrics with a MetricsRecorder, or with your own
+ * subclass which forwards the updates to your monitoring system. A subclass
+ * must be thread safe and should not allocate in the update methods since they
+ * are called for every packet.
+ */
+public class Metrics {
+  /**
+   * A Counter is a monotonically increasing count.
+   */
+  public enum Counter {
+    /** Interests sent to the transport. */
+    INTERESTS_SENT,
+    /** Interests not sent because Interest aggregation shared a sent one. */
+    INTERESTS_AGGREGATED,
+    /** Interests received from the transport. */
+    INTERESTS_RECEIVED,
+    /** Data packets sent to the transport by putData. */
+    DATA_SENT,
+    /** Data packets received from the transport. */
+    DATA_RECEIVED,
+    /** Received Data packets which did not match a pending Interest. */
+    DATA_UNSOLICITED,
+    /** Interests answered by the Data cache without sending. */
+    DATA_CACHE_HITS,
+    /** Network Nack packets received. */
+    NACKS_RECEIVED,
+    /** Pending Interests which timed out. */
+    INTEREST_TIMEOUTS,
+    /** Received elements which could not be decoded. */
+    DECODE_ERRORS,
+    /** Application callbacks which threw an exception. */
+    CALLBACK_ERRORS,
+    /** Bytes written by the transport. */
+    BYTES_SENT,
+    /** Bytes read by the transport. */
+    BYTES_RECEIVED
+  }
+
+  /**
+   * A Gauge is a value which is set to the current size of a table.
+   */
+  public enum Gauge {
+    /** The number of entries in the pending interest table. */
+    PENDING_INTERESTS,
+    /** The number of entries in the delayed call table. */
+    DELAYED_CALLS
+  }
+
+  /**
+   * A Timer is a latency distribution in nanoseconds.
+   */
+  public enum Timer {
+    /** The time from expressing an Interest to receiving its Data. */
+    INTEREST_RTT,
+    /** The time to execute an application callback such as onData. */
+    CALLBACK_TIME
+  }
+
+  /**
+   * Add 1 to the counter. This base class implementation does nothing.
+   * @param counter The Counter to update.
+   */
+  public void
+  increment(Counter counter) {}
+
+  /**
+   * Add the amount to the counter. This base class implementation does nothing.
+   * @param counter The Counter to update.
+   * @param amount The amount to add.
+   */
+  public void
+  add(Counter counter, long amount) {}
+
+  /**
+   * Set the current value of the gauge. This base class implementation does
+   * nothing.
+   * @param gauge The Gauge to set.
+   * @param value The current value.
+   */
+  public void
+  setGauge(Gauge gauge, long value) {}
+
+  /**
+   * Get the start time to pass to stopTimer. This base class implementation
+   * returns 0 without reading the clock.
+   * @return The start time in nanoseconds, as from System.nanoTime().
+   */
+  public long
+  startTimer() { return 0; }
+
+  /**
+   * Record the elapsed time since startTime for the timer. This base class
+   * implementation does nothing.
+   * @param timer The Timer to update.
+   * @param startTime The value returned by startTimer().
+   */
+  public void
+  stopTimer(Timer timer, long startTime) {}
+
+  /**
+   * Record the latency for the timer. This base class implementation does
+   * nothing.
+   * @param timer The Timer to update.
+   * @param nanoseconds The latency in nanoseconds.
+   */
+  public void
+  record(Timer timer, long nanoseconds) {}
+
+  /**
+   * The shared Metrics which ignores every update. This is the default for Face
+   * and Transport.
+   */
+  public static final Metrics NONE = new Metrics();
+}
@@ -0,0 +1,197 @@
+/**
+ * Copyright (C) 2017 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+package net.named_data.jndn.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * MetricsRecorder extends Metrics to keep the counters and gauges in memory
+ * and to record each Timer in a LatencyHistogram. Call getSnapshot to get the
+ * current values, for example to export them to your monitoring system. For
+ * example:
+ *
+ * MetricsRecorder metrics = new MetricsRecorder();
+ * face.setMetrics(metrics);
+ * ...
+ * MetricsRecorder.Snapshot snapshot = metrics.getSnapshot();
+ * long timeouts = snapshot.getCounter(Metrics.Counter.INTEREST_TIMEOUTS);
+ * long p99 = snapshot.getHistogram(Metrics.Timer.INTEREST_RTT)
+ *   .getValueAtPercentile(99);
+ */
+public class MetricsRecorder extends Metrics {
+  /**
+   * A MetricsRecorder.Snapshot holds a copy of the values at the time of
+   * getSnapshot.
+   */
+  public static class Snapshot {
+    private Snapshot(MetricsRecorder metrics)
+    {
+      timestamp_ = Common.getNowMilliseconds();
+      counters_ = new long[COUNTERS.length];
+      for (int i = 0; i < counters_.length; ++i)
+        counters_[i] = metrics.counters_.get(i);
+      gauges_ = new long[GAUGES.length];
+      for (int i = 0; i < gauges_.length; ++i)
+        gauges_[i] = metrics.gauges_.get(i);
+      histograms_ = new LatencyHistogram[TIMERS.length];
+      for (int i = 0; i < histograms_.length; ++i)
+        histograms_[i] = new LatencyHistogram(metrics.histograms_[i]);
+    }
+
+    /**
+     * Get the time when the snapshot was taken.
+     * @return The time in milliseconds, similar to Common.getNowMilliseconds().
+     */
+    public final double
+    getTimestamp() { return timestamp_; }
+
+    /**
+     * Get the value of the counter.
+     * @param counter The Counter.
+     * @return The counter value.
+     */
+    public final long
+    getCounter(Metrics.Counter counter) { return counters_[counter.ordinal()]; }
+
+    /**
+     * Get the value of the gauge.
+     * @param gauge The Gauge.
+     * @return The gauge value.
+     */
+    public final long
+    getGauge(Metrics.Gauge gauge) { return gauges_[gauge.ordinal()]; }
+
+    /**
+     * Get the copy of the histogram for the timer.
+     * @param timer The Timer.
+     * @return The LatencyHistogram of nanosecond values. You should not record
+     * values in it.
+     */
+    public final LatencyHistogram
+    getHistogram(Metrics.Timer timer) { return histograms_[timer.ordinal()]; }
+
+    /**
+     * Get a string with each counter and gauge, and the count, mean, 50th,
+     * 99th percentile and maximum of each histogram in microseconds.
+     * @return The string, with one value per line.
+     */
+    public String
+    toString()
+    {
+      StringBuffer result = new StringBuffer();
+      for (int i = 0; i < COUNTERS.length; ++i)
+        result.append(COUNTERS[i]).append(" ").append(counters_[i]).append("\n");
+      for (int i = 0; i < GAUGES.length; ++i)
+        result.append(GAUGES[i]).append(" ").append(gauges_[i]).append("\n");
+      for (int i = 0; i < TIMERS.length; ++i) {
+        LatencyHistogram histogram = histograms_[i];
+        result.append(TIMERS[i])
+          .append(" count ").append(histogram.getCount())
+          .append(" mean ").append(histogram.getMean() / 1000.0)
+          .append(" p50 ").append(histogram.getValueAtPercentile(50) / 1000.0)
+          .append(" p99 ").append(histogram.getValueAtPercentile(99) / 1000.0)
+          .append(" max ").append(histogram.getMax() / 1000.0)
+          .append(" us\n");
+      }
+      return result.toString();
+    }
+
+    private final double timestamp_;
+    private final long[] counters_;
+    private final long[] gauges_;
+    private final LatencyHistogram[] histograms_;
+  }
+
+  /**
+   * Create a new MetricsRecorder with all values 0.
+   */
+  public MetricsRecorder()
+  {
+    for (int i = 0; i < histograms_.length; ++i)
+      histograms_[i] = new LatencyHistogram();
+  }
+
+  public void
+  increment(Metrics.Counter counter)
+  {
+    counters_.incrementAndGet(counter.ordinal());
+  }
+
+  public void
+  add(Metrics.Counter counter, long amount)
+  {
+    counters_.addAndGet(counter.ordinal(), amount);
+  }
+
+  public void
+  setGauge(Metrics.Gauge gauge, long value)
+  {
+    gauges_.set(gauge.ordinal(), value);
+  }
+
+  /**
+   * Override to read the clock.
+   * @return System.nanoTime().
+   */
+  public long
+  startTimer() { return System.nanoTime(); }
+
+  public void
+  stopTimer(Metrics.Timer timer, long startTime)
+  {
+    histograms_[timer.ordinal()].record(System.nanoTime() - startTime);
+  }
+
+  public void
+  record(Metrics.Timer timer, long nanoseconds)
+  {
+    histograms_[timer.ordinal()].record(nanoseconds);
+  }
+
+  /**
+   * Get a copy of the current values.
+   * @return A new MetricsRecorder.Snapshot.
+   */
+  public final Snapshot
+  getSnapshot() { return new Snapshot(this); }
+
+  /**
+   * Set all counters to 0 and clear the histograms. This does not change the
+   * gauges which always hold the current value.
+   */
+  public final void
+  reset()
+  {
+    for (int i = 0; i < COUNTERS.length; ++i)
+      counters_.set(i, 0);
+    for (int i = 0; i < histograms_.length; ++i)
+      histograms_[i].reset();
+  }
+
+  // Cache the values() since each call copies the array.
+  private static final Metrics.Counter[] COUNTERS = Metrics.Counter.values();
+  private static final Metrics.Gauge[] GAUGES = Metrics.Gauge.values();
+  private static final Metrics.Timer[] TIMERS = Metrics.Timer.values();
+
+  private final AtomicLongArray counters_ = new AtomicLongArray(COUNTERS.length);
+  private final AtomicLongArray gauges_ = new AtomicLongArray(GAUGES.length);
+  private final LatencyHistogram[] histograms_ =
+    new LatencyHistogram[TIMERS.length];
+}
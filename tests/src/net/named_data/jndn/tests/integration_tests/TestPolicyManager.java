@@ -261,6 +261,8 @@ public class TestPolicyManager implements ConfigPolicyManager.Friend {
     policyConfigDirectory_ = IntegrationTestsCommon.getPolicyConfigDirectory();
 
     testCertFile_ = new File(new File(policyConfigDirectory_, "certs"), "test.cert");
+    testCertFile2_ = new File
+      (new File(policyConfigDirectory_, "certs"), "test2.cert");
 
     identityStorage_ = new MemoryIdentityStorage();
     privateKeyStorage_ = new MemoryPrivateKeyStorage();
@@ -299,11 +301,13 @@ public class TestPolicyManager implements ConfigPolicyManager.Friend {
   tearDown()
   {
     testCertFile_.delete();
+    testCertFile2_.delete();
     face_.shutdown();
   }
 
   File policyConfigDirectory_;
   File testCertFile_;
+  File testCertFile2_;
   Name identityName_;
   Name keyName_;
   MemoryIdentityStorage identityStorage_;
@@ -414,6 +418,19 @@ public class TestPolicyManager implements ConfigPolicyManager.Friend {
        1, vr.failureCount_);
   }
 
+  private static void
+  writeCertFile(File file, String encodedCert) throws IOException
+  {
+    BufferedWriter certFile = new BufferedWriter
+      (new FileWriter(file.getAbsolutePath()));
+    try {
+      certFile.write(encodedCert, 0, encodedCert.length());
+      certFile.flush();
+    } finally {
+      certFile.close();
+    }
+  }
+
   @Test
   public void
   testRefresh10s() throws SecurityException, InterruptedException, IOException, EncodingException
@@ -458,14 +475,7 @@ public class TestPolicyManager implements ConfigPolicyManager.Friend {
     keyChain_.signByIdentity(cert, identityName_);
     Blob signedCertBlob = cert.wireEncode();
     String encodedCert = Common.base64Encode(signedCertBlob.getImmutableArray());
-    BufferedWriter certFile = new BufferedWriter
-      (new FileWriter(testCertFile_.getAbsolutePath()));
-    try {
-      certFile.write(encodedCert, 0, encodedCert.length());
-      certFile.flush();
-    } finally {
-      certFile.close();
-    }
+    writeCertFile(testCertFile_, encodedCert);
 
     // Still too early for refresh to pick it up.
     vr = doVerify(policyManager_, data);
@@ -494,5 +504,30 @@ public class TestPolicyManager implements ConfigPolicyManager.Friend {
     assertEquals
       ("ConfigPolicyManager did not verify valid signed data",
        0, vr.failureCount_);
+
+    // Add a second file with the same certificate and remove the first. The
+    // certificate is kept since the second file still has it.
+    writeCertFile(testCertFile2_, encodedCert);
+    Thread.sleep(6000);
+    testCertFile_.delete();
+    Thread.sleep(6000);
+
+    vr = doVerify(policyManager_, data);
+
+    assertFalse
+      ("ConfigPolicyManager refresh removed a certificate still in another file",
+       vr.hasFurtherSteps_);
+    assertEquals(1, vr.successCount_);
+
+    // Remove the last anchor file, and wait for the refresh to drop its
+    // certificate.
+    testCertFile2_.delete();
+    Thread.sleep(6000);
+
+    vr = doVerify(policyManager_, data);
+
+    assertTrue
+      ("ConfigPolicyManager refresh did not remove the deleted certificate",
+       vr.hasFurtherSteps_);
   }
 }
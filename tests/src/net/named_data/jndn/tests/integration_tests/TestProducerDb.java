@@ -23,6 +23,8 @@ package src.net.named_data.jndn.tests.integration_tests;
 
 import java.io.File;
 import java.text.ParseException;
+import java.util.HashMap;
+import java.util.Map;
 import net.named_data.jndn.encoding.EncodingException;
 import net.named_data.jndn.encrypt.ConsumerDb;
 import net.named_data.jndn.encrypt.ProducerDb;
@@ -117,6 +119,64 @@ public class TestProducerDb {
       database.deleteContentKey(point4);
     } catch (Exception ex) { fail("deleteContentKey threw an exception"); }
   }
-  
+
+  @Test
+  public void
+  testBatchFunctions() throws ProducerDb.Error, ParseException, EncodingException
+  {
+    Sqlite3ProducerDb database = new Sqlite3ProducerDb
+      (databaseFilePath.getAbsolutePath());
+
+    AesKeyParams params = new AesKeyParams(128);
+    Blob keyBlob1 = AesAlgorithm.generateKey(params).getKeyBits();
+    Blob keyBlob2 = AesAlgorithm.generateKey(params).getKeyBits();
+
+    double point1 = fromIsoString("20150101T100000");
+    double point2 = fromIsoString("20150102T100000");
+    double point3 = fromIsoString("20150103T100000");
+
+    // Add keys in one transaction.
+    Map keys = new HashMap();
+    keys.put(point1, keyBlob1);
+    keys.put(point2, keyBlob2);
+    database.addContentKeys(keys);
+
+    assertEquals(true, database.hasContentKey(point1));
+    assertEquals(true, database.hasContentKey(point2));
+    assertTrue(database.getContentKey(point2).equals(keyBlob2));
+
+    // A batch with an existing time slot fails and adds none of its keys.
+    keys = new HashMap();
+    keys.put(point3, keyBlob1);
+    keys.put(point1, keyBlob1);
+    try {
+      database.addContentKeys(keys);
+      fail("addContentKeys did not throw an exception");
+    }
+    catch (ProducerDb.Error ex) {}
+    assertEquals(false, database.hasContentKey(point3));
+
+    // The statements can be reused after the error.
+    database.addContentKey(point3, keyBlob1);
+    assertEquals(true, database.hasContentKey(point3));
+
+    // An explicit transaction which is rolled back.
+    database.beginTransaction();
+    database.deleteContentKey(point1);
+    database.deleteContentKey(point2);
+    assertEquals(false, database.hasContentKey(point1));
+    database.rollbackTransaction();
+    assertEquals(true, database.hasContentKey(point1));
+    assertEquals(true, database.hasContentKey(point2));
+
+    // An explicit transaction which is committed.
+    database.beginTransaction();
+    database.deleteContentKey(point1);
+    database.commitTransaction();
+    assertEquals(false, database.hasContentKey(point1));
+
+    database.close();
+  }
+
   private File databaseFilePath;
 }
@@ -0,0 +1,109 @@
+/**
+ * Copyright (C) 2017 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+package net.named_data.jndn.tests.unit_tests;
+
+import net.named_data.jndn.Name;
+import net.named_data.jndn.security.KeyType;
+import net.named_data.jndn.security.SecurityException;
+import net.named_data.jndn.security.identity.CachedIdentityStorage;
+import net.named_data.jndn.security.identity.MemoryIdentityStorage;
+import net.named_data.jndn.util.Blob;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class TestCachedIdentityStorage {
+  @Test
+  public void
+  testKeyLookup() throws SecurityException
+  {
+    MemoryIdentityStorage memoryStorage = new MemoryIdentityStorage();
+    CachedIdentityStorage storage = new CachedIdentityStorage(memoryStorage);
+    Name keyName = new Name("/test/identity/ksk-1");
+    Blob keyDer = new Blob(new byte[] { 1, 2, 3 });
+
+    // The negative result is cached, then removed by addKey.
+    assertEquals(false, storage.doesKeyExist(keyName));
+    assertEquals(false, storage.doesKeyExist(keyName));
+    assertEquals(1, storage.getHitCount());
+    storage.addKey(keyName, KeyType.RSA, keyDer);
+    assertEquals(true, storage.doesKeyExist(keyName));
+    assertEquals(2, storage.getMissCount());
+
+    assertTrue(storage.getKey(keyName).equals(keyDer));
+    assertTrue(storage.getKey(new Name(keyName)).equals(keyDer));
+    assertEquals(2, storage.getHitCount());
+    assertEquals(3, storage.getMissCount());
+    assertEquals(0.4, storage.getHitRate(), 1e-9);
+  }
+
+  @Test
+  public void
+  testDefaultInvalidation() throws SecurityException
+  {
+    CachedIdentityStorage storage = new CachedIdentityStorage
+      (new MemoryIdentityStorage());
+    Name identityName = new Name("/test/identity");
+    Name keyName1 = new Name(identityName).append("ksk-1");
+    Name keyName2 = new Name(identityName).append("ksk-2");
+    storage.addKey(keyName1, KeyType.RSA, new Blob(new byte[] { 1 }));
+    storage.addKey(keyName2, KeyType.RSA, new Blob(new byte[] { 2 }));
+
+    storage.setDefaultKeyNameForIdentity(keyName1);
+    assertTrue(storage.getDefaultKeyNameForIdentity(identityName).equals
+      (keyName1));
+    storage.getDefaultKeyNameForIdentity(identityName);
+    assertEquals(1, storage.getHitCount());
+
+    // Modifying the returned name must not modify the cache.
+    storage.getDefaultKeyNameForIdentity(identityName).append("x");
+    assertTrue(storage.getDefaultKeyNameForIdentity(identityName).equals
+      (keyName1));
+
+    storage.setDefaultKeyNameForIdentity(keyName2);
+    assertTrue(storage.getDefaultKeyNameForIdentity(identityName).equals
+      (keyName2));
+
+    storage.setDefaultIdentity(identityName);
+    assertTrue(storage.getDefaultIdentity().equals(identityName));
+  }
+
+  @Test
+  public void
+  testEviction() throws SecurityException
+  {
+    CachedIdentityStorage storage = new CachedIdentityStorage
+      (new MemoryIdentityStorage(), 2);
+    for (int i = 0; i < 3; ++i)
+      storage.addKey
+        (new Name("/test/identity/ksk-" + i), KeyType.RSA,
+         new Blob(new byte[] { (byte)i }));
+
+    storage.getKey(new Name("/test/identity/ksk-0"));
+    storage.getKey(new Name("/test/identity/ksk-1"));
+    storage.getKey(new Name("/test/identity/ksk-2"));
+    // ksk-0 was evicted.
+    storage.getKey(new Name("/test/identity/ksk-0"));
+    assertEquals(0, storage.getHitCount());
+    // ksk-2 is still cached.
+    storage.getKey(new Name("/test/identity/ksk-2"));
+    assertEquals(1, storage.getHitCount());
+  }
+}
@@ -0,0 +1,142 @@
+/**
+ * Copyright (C) 2017 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+package net.named_data.jndn.tests.unit_tests;
+
+import net.named_data.jndn.Name;
+import net.named_data.jndn.security.EcdsaKeyParams;
+import net.named_data.jndn.security.KeyChain;
+import net.named_data.jndn.security.certificate.IdentityCertificate;
+import net.named_data.jndn.security.identity.IdentityManager;
+import net.named_data.jndn.security.identity.MemoryIdentityStorage;
+import net.named_data.jndn.security.identity.MemoryPrivateKeyStorage;
+import net.named_data.jndn.security.policy.CertificateCache;
+import net.named_data.jndn.security.policy.SelfVerifyPolicyManager;
+import net.named_data.jndn.util.Common;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestCertificateCache {
+  @Before
+  public void
+  setUp() throws Exception
+  {
+    MemoryIdentityStorage identityStorage = new MemoryIdentityStorage();
+    keyChain_ = new KeyChain
+      (new IdentityManager(identityStorage, new MemoryPrivateKeyStorage()),
+       new SelfVerifyPolicyManager(identityStorage));
+  }
+
+  private IdentityCertificate
+  makeCertificate(String identity) throws Exception
+  {
+    Name certificateName = keyChain_.createIdentityAndCertificate
+      (new Name(identity), new EcdsaKeyParams());
+    return keyChain_.getCertificate(certificateName);
+  }
+
+  private static Name
+  getCacheName(IdentityCertificate certificate)
+  {
+    return certificate.getName().getPrefix(-1);
+  }
+
+  @Test
+  public void
+  testDecodedLookup() throws Exception
+  {
+    CertificateCache cache = new CertificateCache();
+    IdentityCertificate certificate = makeCertificate("/test/cache");
+    cache.insertCertificate(certificate);
+
+    IdentityCertificate found = cache.getCertificate(getCacheName(certificate));
+    assertTrue(found.wireEncode().equals(certificate.wireEncode()));
+    assertTrue(found.getPublicKeyInfo().getKeyDer().equals
+      (certificate.getPublicKeyInfo().getKeyDer()));
+    // The lookup returns the decoded certificate without decoding again.
+    assertSame(found, cache.getCertificate(getCacheName(certificate)));
+
+    // The cached certificate is frozen, so a caller can't change it for the
+    // other callers.
+    assertTrue(found.isFrozen());
+    boolean gotError = true;
+    try {
+      found.setNotAfter(0);
+      gotError = false;
+    } catch (Error ex) {}
+    if (!gotError)
+      fail("Expected an error changing a cached certificate");
+    gotError = true;
+    try {
+      found.getName().append("x");
+      gotError = false;
+    } catch (Error ex) {}
+    if (!gotError)
+      fail("Expected an error changing the name of a cached certificate");
+    // A copy can be changed.
+    IdentityCertificate copy = new IdentityCertificate(found);
+    copy.setNotAfter(0);
+
+    cache.deleteCertificate(getCacheName(certificate));
+    assertNull(cache.getCertificate(getCacheName(certificate)));
+  }
+
+  @Test
+  public void
+  testEviction() throws Exception
+  {
+    CertificateCache cache = new CertificateCache(2);
+    IdentityCertificate certificate1 = makeCertificate("/test/cache/1");
+    IdentityCertificate certificate2 = makeCertificate("/test/cache/2");
+    IdentityCertificate certificate3 = makeCertificate("/test/cache/3");
+    cache.insertCertificate(certificate1);
+    cache.insertCertificate(certificate2);
+    // Use certificate1 so that certificate2 is the least recently used.
+    cache.getCertificate(getCacheName(certificate1));
+    cache.insertCertificate(certificate3);
+
+    assertEquals(2, cache.size());
+    assertTrue(cache.getCertificate(getCacheName(certificate1)) != null);
+    assertNull(cache.getCertificate(getCacheName(certificate2)));
+    assertTrue(cache.getCertificate(getCacheName(certificate3)) != null);
+  }
+
+  @Test
+  public void
+  testExpiry() throws Exception
+  {
+    CertificateCache cache = new CertificateCache();
+    IdentityCertificate certificate = new IdentityCertificate
+      (makeCertificate("/test/cache"));
+    certificate.setNotBefore(Common.getNowMilliseconds() - 2000);
+    certificate.setNotAfter(Common.getNowMilliseconds() - 1000);
+    certificate.encode();
+    cache.insertCertificate(certificate);
+
+    assertEquals(1, cache.size());
+    assertNull(cache.getCertificate(getCacheName(certificate)));
+    assertEquals(0, cache.size());
+  }
+
+  private KeyChain keyChain_;
+}
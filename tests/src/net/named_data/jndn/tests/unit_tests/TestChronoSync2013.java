@@ -0,0 +1,389 @@
+/**
+ * Copyright (C) 2017 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+
+package net.named_data.jndn.tests.unit_tests;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import net.named_data.jndn.Data;
+import net.named_data.jndn.Face;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.OnRegisterFailed;
+import net.named_data.jndn.security.EcdsaKeyParams;
+import net.named_data.jndn.security.KeyChain;
+import net.named_data.jndn.security.SecurityException;
+import net.named_data.jndn.security.identity.IdentityManager;
+import net.named_data.jndn.security.identity.MemoryIdentityStorage;
+import net.named_data.jndn.security.identity.MemoryPrivateKeyStorage;
+import net.named_data.jndn.security.policy.SelfVerifyPolicyManager;
+import net.named_data.jndn.sync.ChronoSync2013;
+import net.named_data.jndn.sync.DigestTree;
+import net.named_data.jndn.sync.SyncStateProto;
+import net.named_data.jndn.sync.SyncStateTlv;
+import net.named_data.jndn.transport.LoopbackForwarder;
+import net.named_data.jndn.transport.LoopbackTransport;
+import net.named_data.jndn.util.Blob;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestChronoSync2013 {
+  // A Face which saves the Data from putData instead of sending it.
+  private static class ReplyFace extends Face {
+    public ReplyFace(LoopbackForwarder forwarder)
+    {
+      super(new LoopbackTransport(),
+            new LoopbackTransport.ConnectionInfo(forwarder));
+    }
+
+    public void
+    putData(Data data) throws IOException
+    {
+      replies_.add(data);
+    }
+
+    public final List<Data> replies_ = new ArrayList<Data>();
+  }
+
+  @Before
+  public void
+  setUp() throws IOException, SecurityException
+  {
+    MemoryIdentityStorage identityStorage = new MemoryIdentityStorage();
+    KeyChain keyChain = new KeyChain
+      (new IdentityManager(identityStorage, new MemoryPrivateKeyStorage()),
+       new SelfVerifyPolicyManager(identityStorage));
+    Name certificateName = keyChain.createIdentityAndCertificate
+      (new Name("/test/identity"), new EcdsaKeyParams());
+
+    LoopbackForwarder forwarder = new LoopbackForwarder();
+    Face face = new Face
+      (new LoopbackTransport(), new LoopbackTransport.ConnectionInfo(forwarder));
+    face.setCommandSigningInfo(keyChain, certificateName);
+    replyFace_ = new ReplyFace(forwarder);
+
+    sync_ = new ChronoSync2013
+      (new ChronoSync2013.OnReceivedSyncState() {
+         public void onReceivedSyncState(List syncStates, boolean isRecovery) {
+           receivedSyncStates_.add(syncStates);
+         }
+       },
+       new ChronoSync2013.OnInitialized() {
+         public void onInitialized() {}
+       },
+       new Name(DATA_PREFIX), new Name(BROADCAST_PREFIX), SESSION_NO, face,
+       keyChain, certificateName, 5000,
+       new OnRegisterFailed() {
+         public void onRegisterFailed(Name prefix) {}
+       });
+
+    // roots_.get(i) is the digest tree root after publishing sequence no. i.
+    // The first published sequence no. is 0.
+    DigestTree tree = new DigestTree();
+    for (int i = 0; i <= 40; ++i) {
+      tree.update(DATA_PREFIX, SESSION_NO, i);
+      roots_.add(tree.getRoot());
+    }
+  }
+
+  private void
+  publish(int sequenceNo) throws IOException, SecurityException
+  {
+    while (sync_.getSequenceNo() < sequenceNo)
+      sync_.publishNextSequenceNo();
+  }
+
+  /**
+   * Call onInterest for a sync interest (or a recovery interest) for the
+   * digest and return the reply, or null if ChronoSync2013 didn't reply yet.
+   */
+  private Data
+  sendInterest(String digest, boolean isRecovery)
+  {
+    Name name = new Name(BROADCAST_PREFIX);
+    if (isRecovery)
+      name.append("recovery");
+    name.append(digest);
+
+    replyFace_.replies_.clear();
+    sync_.onInterest
+      (new Name(BROADCAST_PREFIX), new Interest(name), replyFace_, 0, null);
+    for (int i = 0; i < replyFace_.replies_.size(); ++i) {
+      Data data = replyFace_.replies_.get(i);
+      if (data.getName().equals(name))
+        return data;
+    }
+    return null;
+  }
+
+  /**
+   * Get the highest sequence number for DATA_PREFIX in the reply content.
+   */
+  private static long
+  getSequenceNo(Data reply) throws InvalidProtocolBufferException
+  {
+    SyncStateProto.SyncStateMsg message = SyncStateProto.SyncStateMsg.parseFrom
+      (reply.getContent().getImmutableArray());
+    long sequenceNo = -1;
+    for (int i = 0; i < message.getSsCount(); ++i) {
+      if (message.getSs(i).getName().equals(DATA_PREFIX))
+        sequenceNo = Math.max(sequenceNo, message.getSs(i).getSeqno().getSeq());
+    }
+    return sequenceNo;
+  }
+
+  @Test
+  public void
+  testDigestLogTrim()
+    throws IOException, SecurityException, InvalidProtocolBufferException
+  {
+    assertEquals(ChronoSync2013.DEFAULT_MAX_DIGEST_LOG_SIZE,
+                 sync_.getMaxDigestLogSize());
+    publish(2);
+    // "00", then the roots after sequence no. 0, 1 and 2.
+    assertEquals(4, sync_.getDigestLogSize());
+
+    sync_.setMaxDigestLogSize(3);
+    publish(6);
+    // The log has the roots after sequence no. 4, 5 and 6.
+    assertEquals(3, sync_.getDigestLogSize());
+
+    // A digest in the log gets the newer sync states. This checks the index
+    // computed from the position which counts the removed entries.
+    Data reply = sendInterest(roots_.get(4), false);
+    assertTrue(reply != null);
+    assertEquals(6, getSequenceNo(reply));
+    reply = sendInterest(roots_.get(5), false);
+    assertTrue(reply != null);
+    assertEquals(6, getSequenceNo(reply));
+
+    // A removed digest is unknown, so there is no reply before the timer.
+    assertEquals(null, sendInterest(roots_.get(3), false));
+    assertEquals(null, sendInterest(roots_.get(1), false));
+    // The current root is not answered until it changes.
+    assertEquals(null, sendInterest(roots_.get(6), false));
+
+    // A recovery interest is only answered for a digest in the log, except a
+    // newcomer's "00".
+    assertTrue(sendInterest(roots_.get(4), true) != null);
+    assertEquals(null, sendInterest(roots_.get(3), true));
+    reply = sendInterest("00", true);
+    assertTrue(reply != null);
+    assertEquals(6, getSequenceNo(reply));
+
+    // Shrinking the limit removes the oldest entries now.
+    sync_.setMaxDigestLogSize(1);
+    assertEquals(1, sync_.getDigestLogSize());
+    assertEquals(null, sendInterest(roots_.get(5), false));
+    assertTrue(sendInterest(roots_.get(6), true) != null);
+
+    boolean gotError = true;
+    try {
+      sync_.setMaxDigestLogSize(0);
+      gotError = false;
+    } catch (IllegalArgumentException ex) {}
+    if (!gotError)
+      fail("Expected an error for a maximum size of 0");
+  }
+
+  @Test
+  public void
+  testDigestLogWrap()
+    throws IOException, SecurityException, InvalidProtocolBufferException
+  {
+    // Grow the log past its initial capacity.
+    publish(20);
+    assertEquals(22, sync_.getDigestLogSize());
+    Data reply = sendInterest(roots_.get(0), false);
+    assertTrue(reply != null);
+    assertEquals(20, getSequenceNo(reply));
+
+    // Trim and publish more than the size, so that the oldest entry wraps
+    // around the ring buffer several times.
+    sync_.setMaxDigestLogSize(5);
+    publish(40);
+    assertEquals(5, sync_.getDigestLogSize());
+    for (int i = 36; i < 40; ++i) {
+      reply = sendInterest(roots_.get(i), false);
+      assertTrue(reply != null);
+      assertEquals(40, getSequenceNo(reply));
+    }
+    assertEquals(null, sendInterest(roots_.get(35), false));
+  }
+
+  @Test
+  public void
+  testRepeatedDigest()
+    throws IOException, SecurityException, InvalidProtocolBufferException
+  {
+    sync_.setMaxDigestLogSize(3);
+    publish(4);
+    assertEquals(3, sync_.getDigestLogSize());
+
+    // Receive sync data with an old sequence number, which doesn't change the
+    // digest tree root. The root is already in the log, so the log doesn't get
+    // a second entry for it and older entries are not removed.
+    SyncStateProto.SyncStateMsg.Builder builder =
+      SyncStateProto.SyncStateMsg.newBuilder();
+    builder.addSsBuilder()
+      .setName(DATA_PREFIX)
+      .setType(SyncStateProto.SyncState.ActionType.UPDATE)
+      .getSeqnoBuilder().setSeq(3).setSession(SESSION_NO);
+    Name name = new Name(BROADCAST_PREFIX).append(roots_.get(3));
+    Data data = new Data(name);
+    data.setContent(new Blob(builder.build().toByteArray(), false));
+    sync_.onData(new Interest(name), data);
+    sync_.onData(new Interest(name), data);
+    assertEquals(3, sync_.getDigestLogSize());
+
+    // The entries are still found at their positions.
+    Data reply = sendInterest(roots_.get(2), false);
+    assertTrue(reply != null);
+    assertEquals(4, getSequenceNo(reply));
+    reply = sendInterest(roots_.get(3), false);
+    assertTrue(reply != null);
+    assertEquals(4, getSequenceNo(reply));
+
+    // After more publishing, the repeated root is removed once, normally.
+    publish(7);
+    assertEquals(3, sync_.getDigestLogSize());
+    assertEquals(null, sendInterest(roots_.get(4), false));
+    reply = sendInterest(roots_.get(5), false);
+    assertTrue(reply != null);
+    assertEquals(7, getSequenceNo(reply));
+  }
+
+  @Test
+  public void
+  testReplyCache()
+    throws IOException, SecurityException, InvalidProtocolBufferException
+  {
+    publish(3);
+
+    // The same sync interest gets the same signed reply.
+    Data reply1 = sendInterest(roots_.get(1), false);
+    assertTrue(reply1 != null);
+    assertEquals(3, getSequenceNo(reply1));
+    assertSame(reply1, sendInterest(roots_.get(1), false));
+
+    Data recovery1 = sendInterest(roots_.get(1), true);
+    assertTrue(recovery1 != null);
+    assertEquals(3, getSequenceNo(recovery1));
+    assertSame(recovery1, sendInterest(roots_.get(1), true));
+
+    // When the root changes, the cached replies and full state are cleared.
+    publish(4);
+    Data reply2 = sendInterest(roots_.get(1), false);
+    assertTrue(reply2 != null);
+    assertNotSame(reply1, reply2);
+    assertEquals(4, getSequenceNo(reply2));
+
+    Data recovery2 = sendInterest(roots_.get(1), true);
+    assertTrue(recovery2 != null);
+    assertNotSame(recovery1, recovery2);
+    assertEquals(4, getSequenceNo(recovery2));
+
+    // Changing the encoding also clears the cache.
+    sync_.setUseDeltaSync(true);
+    assertNotSame(reply2, sendInterest(roots_.get(1), false));
+  }
+
+  /**
+   * Make sync Data with the NDN-TLV encoding of the UPDATE sync states for
+   * OTHER_PREFIX with the given sequence numbers.
+   */
+  private static Data
+  makeDeltaSyncData(long[] sequenceNos)
+  {
+    SyncStateProto.SyncStateMsg.Builder builder =
+      SyncStateProto.SyncStateMsg.newBuilder();
+    for (int i = 0; i < sequenceNos.length; ++i)
+      builder.addSsBuilder()
+        .setName(OTHER_PREFIX)
+        .setType(SyncStateProto.SyncState.ActionType.UPDATE)
+        .getSeqnoBuilder().setSeq(sequenceNos[i]).setSession(SESSION_NO);
+
+    Data data = new Data(new Name(BROADCAST_PREFIX).append("delta"));
+    data.setContent(SyncStateTlv.encode(builder.build().getSsList()));
+    return data;
+  }
+
+  /**
+   * Get the sequence numbers of the sync states in the list given to
+   * onReceivedSyncState.
+   */
+  private static List<Long>
+  getSequenceNos(List syncStates)
+  {
+    List<Long> result = new ArrayList<Long>();
+    for (int i = 0; i < syncStates.size(); ++i)
+      result.add(((ChronoSync2013.SyncState)syncStates.get(i)).getSequenceNo());
+    return result;
+  }
+
+  @Test
+  public void
+  testDeltaSyncFiltering() throws IOException, SecurityException
+  {
+    sync_.setUseDeltaSync(true);
+    publish(2);
+    Interest interest = new Interest(new Name(BROADCAST_PREFIX).append("delta"));
+
+    sync_.onData(interest, makeDeltaSyncData(new long[] { 5 }));
+    assertEquals(1, receivedSyncStates_.size());
+    assertEquals(Arrays.asList(5L), getSequenceNos(receivedSyncStates_.get(0)));
+
+    // Only the sync states newer than the last one seen are reported.
+    sync_.onData(interest, makeDeltaSyncData(new long[] { 3, 7, 5 }));
+    assertEquals(2, receivedSyncStates_.size());
+    assertEquals
+      (Arrays.asList(7L), getSequenceNos(receivedSyncStates_.get(1)));
+
+    // Old sync states alone are not reported.
+    sync_.onData(interest, makeDeltaSyncData(new long[] { 4, 7 }));
+    assertEquals(3, receivedSyncStates_.size());
+    assertEquals(0, receivedSyncStates_.get(2).size());
+
+    // Without delta sync, all the sync states are reported.
+    sync_.setUseDeltaSync(false);
+    sync_.onData(interest, makeDeltaSyncData(new long[] { 4, 8 }));
+    assertEquals(4, receivedSyncStates_.size());
+    assertEquals
+      (Arrays.asList(4L, 8L), getSequenceNos(receivedSyncStates_.get(3)));
+  }
+
+  private static final String DATA_PREFIX = "/test/user";
+  private static final String OTHER_PREFIX = "/test/other";
+  private static final String BROADCAST_PREFIX = "/test/broadcast";
+  private static final long SESSION_NO = 1;
+
+  private ChronoSync2013 sync_;
+  private ReplyFace replyFace_;
+  private final List<String> roots_ = new ArrayList<String>();
+  private final List<List> receivedSyncStates_ = new ArrayList<List>();
+}
@@ -0,0 +1,145 @@
+/**
+ * Copyright (C) 2017 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+package net.named_data.jndn.tests.unit_tests;
+
+import net.named_data.jndn.Data;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.util.Blob;
+import net.named_data.jndn.util.DataCache;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+public class TestDataCache {
+  private static Data
+  makeData(String uri, double freshnessPeriod)
+  {
+    Data data = new Data(new Name(uri));
+    data.setContent(new Blob(new byte[100], false));
+    data.getMetaInfo().setFreshnessPeriod(freshnessPeriod);
+    // Encode so that the cache uses the encoding size.
+    data.wireEncode();
+    return data;
+  }
+
+  private static Interest
+  makeInterest(String uri)
+  {
+    Interest interest = new Interest(new Name(uri));
+    interest.setMustBeFresh(false);
+    return interest;
+  }
+
+  @Test
+  public void
+  testSelectors()
+  {
+    DataCache cache = new DataCache(100000);
+    cache.add(makeData("/test/a/1", -1));
+    cache.add(makeData("/test/a/2", -1));
+    cache.add(makeData("/test/a/3", 60000));
+    cache.add(makeData("/test/b/1", -1));
+    assertEquals(4, cache.size());
+
+    assertTrue(cache.find(makeInterest("/test/a")).getName().equals
+      (new Name("/test/a/1")));
+
+    Interest rightmost = makeInterest("/test/a");
+    rightmost.setChildSelector(1);
+    assertTrue(cache.find(rightmost).getName().equals(new Name("/test/a/3")));
+
+    Interest exclude = makeInterest("/test/a");
+    exclude.getExclude().appendComponent(new Name.Component("1"));
+    assertTrue(cache.find(exclude).getName().equals(new Name("/test/a/2")));
+
+    // Only /test/a/3 has a FreshnessPeriod.
+    Interest fresh = makeInterest("/test/a");
+    fresh.setMustBeFresh(true);
+    assertTrue(cache.find(fresh).getName().equals(new Name("/test/a/3")));
+    fresh.setName(new Name("/test/b"));
+    assertNull(cache.find(fresh));
+
+    assertNull(cache.find(makeInterest("/test/c")));
+    assertEquals(4, cache.getHitCount());
+    assertEquals(2, cache.getMissCount());
+  }
+
+  @Test
+  public void
+  testEviction()
+  {
+    Data data = makeData("/test/0", -1);
+    long dataSize = data.wireEncode().size();
+    DataCache cache = new DataCache(3 * dataSize);
+    cache.add(data);
+    cache.add(makeData("/test/1", -1));
+    cache.add(makeData("/test/2", -1));
+    assertEquals(3, cache.size());
+    assertEquals(3 * dataSize, cache.getByteCount());
+
+    // Use /test/0 so that /test/1 is the least recently used.
+    cache.find(makeInterest("/test/0"));
+    cache.add(makeData("/test/3", -1));
+    assertEquals(3, cache.size());
+    assertNull(cache.find(makeInterest("/test/1")));
+    assertTrue(cache.find(makeInterest("/test/0")) != null);
+
+    // Replacing a name doesn't change the size.
+    cache.add(makeData("/test/0", -1));
+    assertEquals(3, cache.size());
+    assertEquals(3 * dataSize, cache.getByteCount());
+
+    cache.clear();
+    assertEquals(0, cache.size());
+    assertEquals(0, cache.getByteCount());
+  }
+
+  @Test
+  public void
+  testCopy()
+  {
+    DataCache cache = new DataCache(100000);
+    Data data = makeData("/test/a/1", -1);
+    cache.add(data);
+
+    // Modifying the added Data doesn't change the cache.
+    data.getName().append("x");
+    data.setContent(new Blob("changed"));
+    Data found = cache.find(makeInterest("/test/a/1"));
+    assertTrue(found != data);
+    assertTrue(found.getName().equals(new Name("/test/a/1")));
+    assertEquals(100, found.getContent().size());
+    assertTrue(cache.find(makeInterest("/test/a/1/x")) == null);
+
+    // The cached Data can't be modified.
+    assertTrue(found.isFrozen());
+    boolean gotError = true;
+    try {
+      found.getName().append("y");
+      gotError = false;
+    } catch (Error ex) {}
+    if (!gotError)
+      fail("Expected an error modifying the cached Data");
+    assertTrue(cache.find(makeInterest("/test/a/1")).getName().equals
+      (new Name("/test/a/1")));
+  }
+}
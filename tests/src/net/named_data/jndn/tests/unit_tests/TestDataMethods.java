@@ -639,4 +639,55 @@ public class TestDataMethods {
     data.setContent(new Blob());
     assertFalse(data.getFullName().get(-1).equals(saveFullName.get(-1)));
   }
+
+  @Test
+  public void
+  testFreeze() throws EncodingException
+  {
+    Data data = new Data();
+    data.wireDecode(codedData);
+    Name fullName = data.getFullName();
+
+    data.freeze();
+    assertTrue(data.isFrozen());
+    assertTrue(data.getName().isFrozen());
+    assertTrue(data.getMetaInfo().isFrozen());
+    // The frozen Data keeps its encoding and full name.
+    assertTrue(fullName == data.getFullName());
+    assertTrue(data.getDefaultWireEncoding().equals(new Blob(codedData, false)));
+
+    boolean gotError = true;
+    try {
+      data.setContent(new Blob());
+      gotError = false;
+    } catch (Error ex) {}
+    if (!gotError)
+      fail("Expected error changing a frozen Data");
+
+    gotError = true;
+    try {
+      data.getMetaInfo().setFreshnessPeriod(1000);
+      gotError = false;
+    } catch (Error ex) {}
+    if (!gotError)
+      fail("Expected error changing the MetaInfo of a frozen Data");
+
+    gotError = true;
+    try {
+      data.getName().clear();
+      gotError = false;
+    } catch (Error ex) {}
+    if (!gotError)
+      fail("Expected error changing the name of a frozen Data");
+
+    // The signature can still be changed, which changes the full name.
+    data.getSignature().setSignature(new Blob(new int[] { 1, 2, 3 }));
+    assertFalse(data.getFullName().get(-1).equals(fullName.get(-1)));
+
+    // A copy is not frozen.
+    Data copy = new Data(data);
+    assertFalse(copy.isFrozen());
+    copy.setContent(new Blob());
+    assertTrue(data.getContent().size() > 0);
+  }
 }
@@ -0,0 +1,169 @@
+/**
+ * Copyright (C) 2017 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+package net.named_data.jndn.tests.unit_tests;
+
+import java.nio.ByteBuffer;
+import java.security.KeyFactory;
+import java.security.interfaces.RSAPrivateCrtKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.RSAPublicKeySpec;
+import net.named_data.jndn.encoding.der.DerDecodingException;
+import net.named_data.jndn.encoding.der.DerNode;
+import net.named_data.jndn.encoding.der.DerNodeType;
+import net.named_data.jndn.encoding.der.DerReader;
+import net.named_data.jndn.encrypt.DecryptKey;
+import net.named_data.jndn.encrypt.EncryptKey;
+import net.named_data.jndn.encrypt.algo.RsaAlgorithm;
+import net.named_data.jndn.security.RsaKeyParams;
+import net.named_data.jndn.security.certificate.Certificate;
+import net.named_data.jndn.security.certificate.CertificateExtension;
+import net.named_data.jndn.security.certificate.CertificateSubjectDescription;
+import net.named_data.jndn.security.certificate.PublicKey;
+import net.named_data.jndn.util.Blob;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+public class TestDerReader {
+  @Test
+  public void
+  testPrimitives() throws Exception
+  {
+    String oid = "1.2.840.113549.1.1.11";
+    DerReader reader = new DerReader(new DerNode.DerOid(oid).encode().buf());
+    assertEquals("OID does not match", oid, reader.readOid());
+
+    double[] times = new double[] {
+      UnitTestsCommon.fromIsoString("20131226T232254"),
+      // Check a leap day and a time before 1970.
+      UnitTestsCommon.fromIsoString("20160229T120000"),
+      UnitTestsCommon.fromIsoString("19691231T235959")
+    };
+    for (int i = 0; i < times.length; ++i) {
+      Blob encoding = new DerNode.DerGeneralizedTime(times[i]).encode();
+      assertEquals("GeneralizedTime does not match", times[i],
+        new DerReader(encoding.buf()).readGeneralizedTime(), 0);
+      assertEquals("GeneralizedTime does not match DerNode",
+        (Double)DerNode.parse(encoding.buf()).toVal(),
+        new DerReader(encoding.buf()).readGeneralizedTime(), 0);
+    }
+
+    reader = new DerReader(new DerNode.DerBoolean(true).encode().buf());
+    assertTrue("Boolean does not match", reader.readBoolean());
+  }
+
+  @Test
+  public void
+  testNested() throws Exception
+  {
+    DerNode.DerSequence inner = new DerNode.DerSequence();
+    inner.addChild(new DerNode.DerInteger(7));
+    DerNode.DerSequence root = new DerNode.DerSequence();
+    root.addChild(new DerNode.DerOid("2.5.4.41"));
+    root.addChild(inner);
+    root.addChild(new DerNode.DerOctetString(new Blob("value").buf()));
+    Blob encoding = root.encode();
+
+    DerReader reader = new DerReader(encoding.buf());
+    int endOffset = reader.readNestedStart(DerNodeType.Sequence);
+    assertTrue(reader.peekType(DerNodeType.ObjectIdentifier, endOffset));
+    assertFalse(reader.peekType(DerNodeType.Sequence, endOffset));
+    reader.skip();
+    // Skip the inner sequence without reading its children.
+    int innerEndOffset = reader.readNestedStart(DerNodeType.Sequence);
+    reader.finishNested(innerEndOffset);
+    assertEquals("Octet string does not match", new Blob("value"),
+      new Blob(reader.readValue(DerNodeType.OctetString), false));
+    assertFalse(reader.hasMore(endOffset));
+    reader.finishNested(endOffset);
+    assertEquals(encoding.size(), reader.getOffset());
+
+    reader = new DerReader(encoding.buf());
+    try {
+      reader.readValue(DerNodeType.Integer);
+      fail("Did not throw for the wrong type");
+    } catch (DerDecodingException ex) {}
+
+    // Truncate the encoding so that the length exceeds the buffer.
+    ByteBuffer truncated = encoding.buf();
+    truncated.limit(truncated.limit() - 1);
+    reader = new DerReader(truncated);
+    try {
+      reader.readValue(DerNodeType.Sequence);
+      fail("Did not throw for a truncated value");
+    } catch (DerDecodingException ex) {}
+  }
+
+  @Test
+  public void
+  testCertificate() throws Exception
+  {
+    DecryptKey decryptKey = RsaAlgorithm.generateKey(new RsaKeyParams());
+    EncryptKey encryptKey = RsaAlgorithm.deriveEncryptKey
+      (decryptKey.getKeyBits());
+
+    Certificate certificate = new Certificate();
+    certificate.setNotBefore(UnitTestsCommon.fromIsoString("20131226T232254"));
+    certificate.setNotAfter(UnitTestsCommon.fromIsoString("20131226T232302"));
+    certificate.addSubjectDescription
+      (new CertificateSubjectDescription("2.5.4.41", "TEST NAME"));
+    certificate.addExtension(new CertificateExtension
+      ("1.3.6.1.5.32.1", true, new Blob(new byte[] { 1, 2, 3 })));
+    certificate.setPublicKeyInfo(new PublicKey(encryptKey.getKeyBits()));
+    certificate.encode();
+
+    Certificate decoded = new Certificate(certificate);
+    assertEquals(certificate.getNotBefore(), decoded.getNotBefore(), 0);
+    assertEquals(certificate.getNotAfter(), decoded.getNotAfter(), 0);
+    assertEquals(1, decoded.getSubjectDescriptionList().size());
+    CertificateSubjectDescription description = (CertificateSubjectDescription)
+      decoded.getSubjectDescriptionList().get(0);
+    assertEquals("2.5.4.41", description.getOidString());
+    assertEquals("TEST NAME", description.getValue());
+    assertEquals(1, decoded.getExtensionList().size());
+    CertificateExtension extension =
+      (CertificateExtension)decoded.getExtensionList().get(0);
+    assertEquals("1.3.6.1.5.32.1", extension.getOid().toString());
+    assertTrue(extension.getIsCritical());
+    assertEquals(new Blob(new byte[] { 1, 2, 3 }), extension.getValue());
+    assertEquals(encryptKey.getKeyBits(),
+      decoded.getPublicKeyInfo().getKeyDer());
+  }
+
+  @Test
+  public void
+  testDeriveEncryptKey() throws Exception
+  {
+    DecryptKey decryptKey = RsaAlgorithm.generateKey(new RsaKeyParams());
+    EncryptKey encryptKey = RsaAlgorithm.deriveEncryptKey
+      (decryptKey.getKeyBits());
+
+    // Compare with the public key derived by the Java security provider.
+    KeyFactory keyFactory = KeyFactory.getInstance("RSA");
+    RSAPrivateCrtKey privateKey = (RSAPrivateCrtKey)keyFactory.generatePrivate
+      (new PKCS8EncodedKeySpec(decryptKey.getKeyBits().getImmutableArray()));
+    java.security.PublicKey expected = keyFactory.generatePublic
+      (new RSAPublicKeySpec(privateKey.getModulus(),
+       privateKey.getPublicExponent()));
+    assertEquals("Derived encrypt key does not match",
+      new Blob(expected.getEncoded()), encryptKey.getKeyBits());
+  }
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright (C) 2017 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+package net.named_data.jndn.tests.unit_tests;
+
+import net.named_data.jndn.sync.DigestTree;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+public class TestDigestTree {
+  @Test
+  public void
+  testRoot()
+  {
+    DigestTree tree = new DigestTree();
+    assertEquals("00", tree.getRoot());
+
+    // These roots are the same as ChronoChat-js.
+    assertEquals(true, tree.update("/a/b", 1, 1));
+    assertEquals
+      ("9d01dae1d25cc301eaf23820262aeda7d247c8f7095136c588c65c21522c557b",
+       tree.getRoot());
+    assertEquals(true, tree.update("/c", 2, 3));
+    assertEquals
+      ("7c3372379e3737d9801f124347e90fdc55f7bcc6c91095144687771cef3ab585",
+       tree.getRoot());
+    assertEquals(true, tree.update("/a/b", 1, 5));
+    assertEquals
+      ("535490b73d88f098516dcd2cfabd839ca8a268cff4e18a6beefb9fdb80a69b94",
+       tree.getRoot());
+    assertEquals
+      ("c2e21eacff08b835f106e4189a273136ad7ea40b9d3f703583da744c73085fed",
+       tree.get(tree.find("/a/b", 1)).getDigest());
+
+    // An older sequence number doesn't change the tree.
+    assertEquals(false, tree.update("/a/b", 1, 4));
+    assertEquals
+      ("535490b73d88f098516dcd2cfabd839ca8a268cff4e18a6beefb9fdb80a69b94",
+       tree.getRoot());
+  }
+
+  @Test
+  public void
+  testOrder()
+  {
+    DigestTree tree1 = new DigestTree();
+    DigestTree tree2 = new DigestTree();
+
+    tree1.update("/b", 1, 1);
+    tree1.update("/a", 2, 1);
+    tree1.update("/a", 1, 1);
+    tree1.update("/c", 1, 1);
+
+    tree2.update("/c", 1, 1);
+    tree2.update("/a", 1, 1);
+    tree2.update("/b", 1, 1);
+    tree2.update("/a", 2, 1);
+
+    // The nodes are sorted by data prefix then session number.
+    assertEquals(4, tree1.size());
+    assertEquals(0, tree1.find("/a", 1));
+    assertEquals(1, tree1.find("/a", 2));
+    assertEquals(2, tree1.find("/b", 1));
+    assertEquals(3, tree1.find("/c", 1));
+    assertEquals(-1, tree1.find("/b", 2));
+    assertEquals(tree1.getRoot(), tree2.getRoot());
+  }
+}
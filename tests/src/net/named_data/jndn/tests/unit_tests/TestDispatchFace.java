@@ -0,0 +1,182 @@
+/**
+ * Copyright (C) 2017 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+package net.named_data.jndn.tests.unit_tests;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import net.named_data.jndn.Data;
+import net.named_data.jndn.DispatchFace;
+import net.named_data.jndn.Face;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.InterestFilter;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.OnData;
+import net.named_data.jndn.OnInterestCallback;
+import net.named_data.jndn.OnTimeout;
+import net.named_data.jndn.transport.LoopbackForwarder;
+import net.named_data.jndn.transport.LoopbackTransport;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestDispatchFace {
+  private static class Producer implements OnInterestCallback {
+    public void
+    onInterest
+      (Name prefix, Interest interest, Face face, long interestFilterId,
+       InterestFilter filter)
+    {
+      try {
+        face.putData(new Data(interest.getName()));
+      } catch (IOException ex) {
+        throw new Error(ex.getMessage());
+      }
+    }
+  }
+
+  private static class Consumer implements OnData, OnTimeout {
+    public void
+    onData(Interest interest, Data data)
+    {
+      synchronized (this) {
+        received_.add(data.getName());
+        threads_.add(Thread.currentThread());
+        notifyAll();
+      }
+    }
+
+    public void
+    onTimeout(Interest interest)
+    {
+      synchronized (this) {
+        ++nTimeouts_;
+        notifyAll();
+      }
+    }
+
+    public final List<Name> received_ = new ArrayList<Name>();
+    public final List<Thread> threads_ = new ArrayList<Thread>();
+    public int nTimeouts_ = 0;
+  }
+
+  @Before
+  public void
+  setUp() throws IOException
+  {
+    threadPool_ = new ScheduledThreadPoolExecutor(4);
+    forwarder_ = new LoopbackForwarder();
+    LoopbackTransport producerTransport = new LoopbackTransport();
+    producerFace_ = new Face
+      (producerTransport, new LoopbackTransport.ConnectionInfo(forwarder_));
+    producerFace_.setInterestFilter(new Name("/test"), new Producer());
+    // Connect the producer face so that the forwarder has its route.
+    producerFace_.expressInterest(new Interest(new Name("/local/timeout")), null);
+    forwarder_.addRoute(new Name("/test"), producerTransport);
+  }
+
+  @After
+  public void
+  tearDown()
+  {
+    threadPool_.shutdownNow();
+  }
+
+  private void
+  process(Face consumerFace, Consumer consumer, int nExpected)
+    throws Exception
+  {
+    long endTime = System.currentTimeMillis() + 5000;
+    while (System.currentTimeMillis() < endTime) {
+      producerFace_.processEvents();
+      consumerFace.processEvents();
+      synchronized (consumer) {
+        if (consumer.received_.size() + consumer.nTimeouts_ >= nExpected)
+          return;
+        consumer.wait(5);
+      }
+    }
+  }
+
+  private Face
+  makeConsumerFace(DispatchFace.DispatchPolicy policy)
+  {
+    return new DispatchFace
+      (threadPool_, policy, new LoopbackTransport(),
+       new LoopbackTransport.ConnectionInfo(forwarder_));
+  }
+
+  @Test
+  public void
+  testAffinityOrder() throws Exception
+  {
+    Face consumerFace = makeConsumerFace(DispatchFace.DispatchPolicy.AFFINITY);
+    Consumer consumer = new Consumer();
+    int nInterests = 100;
+    for (int i = 0; i < nInterests; ++i)
+      consumerFace.expressInterest
+        (new Name("/test/stream").appendSegment(i), consumer, consumer);
+
+    process(consumerFace, consumer, nInterests);
+    assertEquals(nInterests, consumer.received_.size());
+    // The callbacks for one stream are called in order.
+    for (int i = 0; i < nInterests; ++i)
+      assertTrue(consumer.received_.get(i).equals
+        (new Name("/test/stream").appendSegment(i)));
+  }
+
+  @Test
+  public void
+  testDirect() throws Exception
+  {
+    Face consumerFace = makeConsumerFace(DispatchFace.DispatchPolicy.DIRECT);
+    Consumer consumer = new Consumer();
+    consumerFace.expressInterest(new Name("/test/direct"), consumer, consumer);
+
+    process(consumerFace, consumer, 1);
+    assertEquals(1, consumer.received_.size());
+    // The loopback transport receives in the thread of processEvents.
+    assertEquals(Thread.currentThread(), consumer.threads_.get(0));
+  }
+
+  @Test
+  public void
+  testPooledTimeout() throws Exception
+  {
+    Face consumerFace = makeConsumerFace(DispatchFace.DispatchPolicy.POOLED);
+    Consumer consumer = new Consumer();
+    consumerFace.expressInterest(new Name("/test/pooled"), consumer, consumer);
+    Interest interest = new Interest(new Name("/other/pooled"));
+    interest.setInterestLifetimeMilliseconds(10);
+    consumerFace.expressInterest(interest, consumer, consumer);
+
+    process(consumerFace, consumer, 2);
+    assertEquals(1, consumer.received_.size());
+    assertEquals(1, consumer.nTimeouts_);
+    assertTrue(consumer.threads_.get(0) != Thread.currentThread());
+  }
+
+  private ScheduledExecutorService threadPool_;
+  private LoopbackForwarder forwarder_;
+  private Face producerFace_;
+}
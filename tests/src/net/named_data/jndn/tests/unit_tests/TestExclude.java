@@ -0,0 +1,160 @@
+/**
+ * Copyright (C) 2017 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+package net.named_data.jndn.tests.unit_tests;
+
+import net.named_data.jndn.Exclude;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.encoding.EncodingException;
+import net.named_data.jndn.util.Blob;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+public class TestExclude {
+  private static Name.Component
+  component(String value) { return new Name.Component(value); }
+
+  /**
+   * Check that exclude matches exactly the components in excluded, out of all
+   * the single-letter components from "a" to "j".
+   */
+  private static void
+  checkMatches(Exclude exclude, String excluded)
+  {
+    for (char c = 'a'; c <= 'j'; ++c) {
+      String value = "" + c;
+      assertEquals
+        (exclude.toUri() + " matches " + value, excluded.indexOf(c) >= 0,
+         exclude.matches(component(value)));
+    }
+  }
+
+  @Test
+  public void
+  testMatches()
+  {
+    Exclude exclude = new Exclude();
+    checkMatches(exclude, "");
+
+    exclude.appendComponent(component("c")).appendAny()
+      .appendComponent(component("e")).appendComponent(component("h"));
+    checkMatches(exclude, "cdeh");
+
+    exclude.clear();
+    exclude.appendAny().appendComponent(component("b"))
+      .appendComponent(component("g")).appendAny();
+    checkMatches(exclude, "abghij");
+
+    exclude.clear();
+    exclude.appendAny();
+    checkMatches(exclude, "abcdefghij");
+
+    // Entries which are not sorted or have repeated ANY.
+    exclude.clear();
+    exclude.appendComponent(component("h")).appendAny().appendAny()
+      .appendComponent(component("c")).appendComponent(component("e"))
+      .appendAny().appendComponent(component("f"))
+      .appendComponent(component("a"));
+    checkMatches(exclude, "acefh");
+
+    // The ranges are recomputed after a change. The final ANY excludes all
+    // components after "a".
+    exclude.appendAny();
+    checkMatches(exclude, "abcdefghij");
+  }
+
+  @Test
+  public void
+  testExcludeRanges()
+  {
+    Exclude exclude = new Exclude();
+    exclude.excludeOne(component("e"));
+    assertEquals("e", exclude.toUri());
+    exclude.excludeRange(component("b"), component("c"));
+    assertEquals("b,*,c,e", exclude.toUri());
+    // Overlapping ranges are merged.
+    exclude.excludeRange(component("c"), component("d"));
+    assertEquals("b,*,d,e", exclude.toUri());
+    exclude.excludeOne(component("c"));
+    assertEquals("b,*,d,e", exclude.toUri());
+    exclude.excludeRange(component("d"), component("g"));
+    assertEquals("b,*,g", exclude.toUri());
+    checkMatches(exclude, "bcdefg");
+
+    exclude.excludeAfter(component("i"));
+    assertEquals("b,*,g,i,*", exclude.toUri());
+    exclude.excludeBefore(component("a"));
+    assertEquals("*,a,b,*,g,i,*", exclude.toUri());
+    checkMatches(exclude, "abcdefgij");
+    exclude.excludeAfter(component("f"));
+    assertEquals("*,a,b,*", exclude.toUri());
+    exclude.excludeBefore(component("c"));
+    assertEquals("*", exclude.toUri());
+    checkMatches(exclude, "abcdefghij");
+
+    // Inserting sets non-canonical entries to the canonical form.
+    exclude.clear();
+    exclude.appendComponent(component("h")).appendComponent(component("c"))
+      .appendComponent(component("h"));
+    exclude.excludeOne(component("e"));
+    assertEquals("c,e,h", exclude.toUri());
+
+    boolean gotError = true;
+    try {
+      exclude.excludeRange(component("d"), component("c"));
+      gotError = false;
+    } catch (Error ex) {}
+    if (!gotError)
+      fail("Expected error for an invalid range");
+  }
+
+  @Test
+  public void
+  testEncoding() throws EncodingException
+  {
+    // The wire encoding keeps the entries as appended, even if not canonical.
+    Interest interest = new Interest(new Name("/A"));
+    interest.getExclude().appendComponent(component("h")).appendAny()
+      .appendAny().appendComponent(component("c"));
+    Blob encoding = interest.wireEncode();
+
+    Interest decodedInterest = new Interest();
+    decodedInterest.wireDecode(encoding);
+    assertEquals("h,*,*,c", decodedInterest.getExclude().toUri());
+    assertTrue(decodedInterest.wireEncode().equals(encoding));
+    checkMatches(decodedInterest.getExclude(), "ch");
+
+    // The canonical form from excludeRange is encoded the same as appending.
+    Interest interest2 = new Interest(new Name("/A"));
+    interest2.getExclude().excludeBefore(component("b"))
+      .excludeRange(component("d"), component("f"));
+    Interest interest3 = new Interest(new Name("/A"));
+    interest3.getExclude().appendAny().appendComponent(component("b"))
+      .appendComponent(component("d")).appendAny()
+      .appendComponent(component("f"));
+    interest2.setNonce(new Blob(new int[] { 1, 2, 3, 4 }));
+    interest3.setNonce(new Blob(new int[] { 1, 2, 3, 4 }));
+    assertTrue(interest2.wireEncode().equals(interest3.wireEncode()));
+    assertFalse(interest2.getExclude().matches(component("c")));
+  }
+}
@@ -0,0 +1,225 @@
+/**
+ * Copyright (C) 2017 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+package net.named_data.jndn.tests.unit_tests;
+
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.named_data.jndn.Data;
+import net.named_data.jndn.Face;
+import net.named_data.jndn.FaceEventLoop;
+import net.named_data.jndn.FetchFuture;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.InterestFilter;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.OnInterestCallback;
+import net.named_data.jndn.transport.LoopbackForwarder;
+import net.named_data.jndn.transport.LoopbackTransport;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestFaceEventLoop {
+  @Before
+  public void
+  setUp() throws IOException
+  {
+    LoopbackForwarder forwarder = new LoopbackForwarder();
+    LoopbackTransport producerTransport = new LoopbackTransport();
+    Face producerFace = new Face
+      (producerTransport, new LoopbackTransport.ConnectionInfo(forwarder));
+    producerFace.setInterestFilter(new Name("/test"), new OnInterestCallback() {
+      public void onInterest
+        (Name prefix, Interest interest, Face face, long interestFilterId,
+         InterestFilter filter) {
+        try {
+          face.putData(new Data(interest.getName()));
+        } catch (IOException ex) {
+          throw new Error(ex.getMessage());
+        }
+      }
+    });
+    // Connect the producer face so that the forwarder has its route.
+    producerFace.expressInterest(new Interest(new Name("/local/timeout")), null);
+    forwarder.addRoute(new Name("/test"), producerTransport);
+
+    producerLoop_ = new FaceEventLoop(producerFace);
+    consumerLoop_ = new FaceEventLoop(new Face
+      (new LoopbackTransport(), new LoopbackTransport.ConnectionInfo(forwarder)));
+    producerLoop_.start();
+    consumerLoop_.start();
+  }
+
+  @After
+  public void
+  tearDown() throws InterruptedException
+  {
+    consumerLoop_.stop();
+    producerLoop_.stop();
+  }
+
+  @Test
+  public void
+  testConcurrentFetch() throws InterruptedException
+  {
+    final int nThreads = 50;
+    final AtomicInteger nReceived = new AtomicInteger();
+    Thread[] threads = new Thread[nThreads];
+    for (int i = 0; i < nThreads; ++i) {
+      final Name name = new Name("/test/fetch").appendSegment(i);
+      threads[i] = new Thread(new Runnable() {
+        public void run() {
+          try {
+            Data data = consumerLoop_.fetch(new Interest(name));
+            if (data != null && data.getName().equals(name))
+              nReceived.incrementAndGet();
+          } catch (InterruptedException ex) {
+          }
+        }
+      });
+      threads[i].start();
+    }
+    for (int i = 0; i < nThreads; ++i)
+      threads[i].join(10000);
+
+    assertEquals(nThreads, nReceived.get());
+  }
+
+  @Test
+  public void
+  testOnCompleted() throws Exception
+  {
+    final AtomicInteger nCompleted = new AtomicInteger();
+    final CountDownLatch completed = new CountDownLatch(1);
+    FetchFuture future = new FetchFuture() {
+      protected void onCompleted() {
+        nCompleted.incrementAndGet();
+        completed.countDown();
+      }
+    };
+
+    Name name = new Name("/test/completed");
+    assertSame(future, consumerLoop_.fetchAsync(new Interest(name), future));
+    assertTrue(completed.await(10, TimeUnit.SECONDS));
+    assertEquals(name, future.getData().getName());
+    // A late cancel does not complete the future again.
+    assertFalse(future.cancel(false));
+    assertEquals(1, nCompleted.get());
+  }
+
+  @Test
+  public void
+  testTimeout() throws InterruptedException
+  {
+    Interest interest = new Interest(new Name("/other/fetch"));
+    interest.setInterestLifetimeMilliseconds(20);
+    assertNull(consumerLoop_.fetch(interest));
+
+    FetchFuture future = consumerLoop_.fetchAsync(interest);
+    try {
+      future.get();
+      fail("Expected ExecutionException");
+    } catch (ExecutionException ex) {
+      assertTrue(ex.getCause() instanceof IOException);
+    }
+    assertTrue(future.isDone());
+    assertTrue(future.getIsTimedOut());
+  }
+
+  @Test
+  public void
+  testConcurrentCancelAndData() throws Exception
+  {
+    final Interest interest = new Interest(new Name("/test/race"));
+    final Data data = new Data(interest.getName());
+    for (int i = 0; i < 1000; ++i) {
+      final FetchFuture future = new FetchFuture();
+      final CountDownLatch start = new CountDownLatch(1);
+      final boolean[] cancelResult = new boolean[1];
+      Thread canceller = new Thread(new Runnable() {
+        public void run() {
+          try {
+            start.await();
+          } catch (InterruptedException ex) {
+            return;
+          }
+          cancelResult[0] = future.cancel(false);
+        }
+      });
+      canceller.start();
+      start.countDown();
+      future.onData(interest, data);
+      canceller.join(10000);
+
+      assertTrue(future.isDone());
+      assertEquals(cancelResult[0], future.isCancelled());
+      try {
+        assertSame(data, future.get());
+        assertFalse("get() returned Data for a cancelled future",
+          future.isCancelled());
+      } catch (CancellationException ex) {
+        assertTrue("get() was cancelled but cancel() returned false",
+          future.isCancelled());
+        assertNull(future.getData());
+      }
+      // A late outcome must not change the result.
+      assertFalse(future.cancel(false));
+      future.onTimeout(interest);
+      assertFalse(future.getIsTimedOut());
+    }
+  }
+
+  @Test
+  public void
+  testStop() throws Exception
+  {
+    // There is no route, so the Interest is pending until the loop is stopped.
+    Interest interest = new Interest(new Name("/other/stop"));
+    interest.setInterestLifetimeMilliseconds(60000);
+    FetchFuture future = consumerLoop_.fetchAsync(interest);
+    FetchFuture future2 = consumerLoop_.fetchAsync(interest);
+    consumerLoop_.stop();
+
+    assertTrue(future.isDone());
+    assertTrue(future.getIsTimedOut());
+    assertTrue(future2.isDone());
+    assertTrue(future2.getIsTimedOut());
+
+    // A fetch after stop fails immediately instead of waiting forever.
+    boolean gotError = true;
+    try {
+      consumerLoop_.fetch(interest);
+      gotError = false;
+    } catch (Error ex) {}
+    if (!gotError)
+      fail("Expected an error for fetch on a stopped loop");
+  }
+
+  private FaceEventLoop producerLoop_;
+  private FaceEventLoop consumerLoop_;
+}
@@ -30,6 +30,7 @@ import net.named_data.jndn.DigestSha256Signature;
 import net.named_data.jndn.Exclude;
 import net.named_data.jndn.Interest;
 import net.named_data.jndn.InterestFilter;
+import net.named_data.jndn.InterestMatcher;
 import net.named_data.jndn.KeyLocator;
 import net.named_data.jndn.KeyLocatorType;
 import net.named_data.jndn.Name;
@@ -44,6 +45,8 @@ import net.named_data.jndn.security.identity.MemoryIdentityStorage;
 import net.named_data.jndn.security.identity.MemoryPrivateKeyStorage;
 import net.named_data.jndn.security.policy.SelfVerifyPolicyManager;
 import net.named_data.jndn.util.Blob;
+import net.named_data.jndn.util.Common;
+import net.named_data.jndn.util.NonceSource;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
@@ -330,6 +333,32 @@ public class TestInterestMethods {
                interest.getNonce().equals(oldNonce));
   }
 
+  @Test
+  public void
+  testNonceSource() throws EncodingException
+  {
+    NonceSource saveNonceSource = Common.getNonceSource();
+    final byte[] value = new byte[] { 1 };
+    Common.setNonceSource(new NonceSource() {
+      public void nextBytes(byte[] nonce) {
+        Arrays.fill(nonce, value[0]++);
+      }
+    });
+    try {
+      // The encoder uses the nonce source to generate a nonce.
+      Interest interest = new Interest();
+      interest.wireDecode(new Interest(new Name("/A")).wireEncode());
+      assertTrue(interest.getNonce().equals
+        (new Blob(new byte[] { 1, 1, 1, 1 })));
+
+      interest.refreshNonce();
+      assertTrue(interest.getNonce().equals
+        (new Blob(new byte[] { 2, 2, 2, 2 })));
+    } finally {
+      Common.setNonceSource(saveNonceSource);
+    }
+  }
+
   @Test
   public void
   testExcludeMatches()
@@ -467,6 +496,111 @@ public class TestInterestMethods {
     assertEquals(false, interest8.matchesData(data7));
 }
 
+  @Test
+  public void
+  testInterestMatcher() throws EncodingException
+  {
+    Interest interest = new Interest(new Name("/A"));
+    interest.setMinSuffixComponents(2);
+    interest.setMaxSuffixComponents(3);
+    interest.getExclude().appendComponent(new Name.Component("J"));
+    InterestMatcher matcher = new InterestMatcher(interest);
+    assertTrue(matcher.getInterest() == interest);
+
+    // The suffix count includes the implicit digest, so /A/B has 2 suffix
+    // components. /A/J is excluded.
+    String[] uris = new String[] { "/A", "/A/B", "/A/B/C", "/A/B/C/D", "/A/J",
+                                   "/A/J/C", "/B/C" };
+    boolean[] expected = new boolean[] { false, true, true, false, false,
+                                         false, false };
+    for (int i = 0; i < uris.length; ++i) {
+      Name name = new Name(uris[i]);
+      assertEquals(uris[i], expected[i], matcher.matchesName(name));
+      assertEquals(uris[i], expected[i], interest.matchesName(name));
+      Data data = new Data(name);
+      assertEquals(uris[i], expected[i], matcher.matchesData(data));
+      assertEquals(uris[i], expected[i], interest.matchesData(data));
+    }
+
+    // The candidate computes the full name once for many matchers.
+    Data data = new Data(new Name("/A/B"));
+    InterestMatcher.Candidate candidate = new InterestMatcher.Candidate(data);
+    Name fullName = candidate.getFullName();
+    assertTrue(fullName == candidate.getFullName());
+    assertEquals(data.getFullName(), fullName);
+
+    InterestMatcher digestMatcher = new InterestMatcher(new Interest(fullName));
+    assertEquals(true, digestMatcher.matchesData(candidate));
+    assertEquals(true, matcher.matchesData(candidate));
+    Interest excludeDigestInterest = new Interest(new Name("/A/B"));
+    excludeDigestInterest.getExclude().appendComponent(fullName.get(-1));
+    assertEquals
+      (false, new InterestMatcher(excludeDigestInterest).matchesData(candidate));
+    assertEquals
+      (false, new InterestMatcher(new Interest(new Name("/A/C")))
+       .matchesData(candidate));
+  }
+
+  @Test
+  public void
+  testFreeze()
+  {
+    Interest interest = new Interest(referenceInterest).freeze();
+    assertTrue(interest.isFrozen());
+    assertTrue(interest.getName().isFrozen());
+    assertTrue(interest.getKeyLocator().isFrozen());
+    assertTrue(interest.getExclude().isFrozen());
+    assertTrue("Frozen interest does not match original",
+               interestDumpsEqual(dumpInterest(interest),
+                                  dumpInterest(referenceInterest)));
+
+    // The frozen Interest keeps its nonce and encoding.
+    Blob encoding = interest.wireEncode();
+    assertTrue(encoding == interest.wireEncode());
+    assertTrue(interest.getNonce().equals(referenceInterest.getNonce()));
+
+    boolean gotError = true;
+    try {
+      interest.setMustBeFresh(false);
+      gotError = false;
+    } catch (Error ex) {}
+    if (!gotError)
+      fail("Expected error changing a frozen Interest");
+
+    gotError = true;
+    try {
+      interest.getName().append("x");
+      gotError = false;
+    } catch (Error ex) {}
+    if (!gotError)
+      fail("Expected error changing the name of a frozen Interest");
+
+    gotError = true;
+    try {
+      interest.getExclude().appendAny();
+      gotError = false;
+    } catch (Error ex) {}
+    if (!gotError)
+      fail("Expected error changing the Exclude of a frozen Interest");
+
+    gotError = true;
+    try {
+      interest.wireDecode(encoding);
+      gotError = false;
+    } catch (Error ex) {
+    } catch (EncodingException ex) {}
+    if (!gotError)
+      fail("Expected error decoding into a frozen Interest");
+
+    // A copy is not frozen.
+    Interest copy = new Interest(interest);
+    assertFalse(copy.isFrozen());
+    assertFalse(copy.getName().isFrozen());
+    assertTrue(copy.getNonce().equals(interest.getNonce()));
+    copy.getName().append("x");
+    assertEquals(interest.getName().size() + 1, copy.getName().size());
+  }
+
   @Test
   public void
   testInterestFilterMatching()
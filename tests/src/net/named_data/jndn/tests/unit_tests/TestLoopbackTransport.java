@@ -0,0 +1,521 @@
+/**
+ * Copyright (C) 2017 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+package net.named_data.jndn.tests.unit_tests;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import net.named_data.jndn.Data;
+import net.named_data.jndn.Face;
+import net.named_data.jndn.ForwardingFlags;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.InterestFilter;
+import net.named_data.jndn.KeyLocatorType;
+import net.named_data.jndn.Link;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.OnData;
+import net.named_data.jndn.OnInterestCallback;
+import net.named_data.jndn.OnRegisterFailed;
+import net.named_data.jndn.OnRegisterPrefixesComplete;
+import net.named_data.jndn.OnRegisterSuccess;
+import net.named_data.jndn.OnTimeout;
+import net.named_data.jndn.encoding.EncodingException;
+import net.named_data.jndn.encoding.TlvWireFormat;
+import net.named_data.jndn.security.EcdsaKeyParams;
+import net.named_data.jndn.security.KeyChain;
+import net.named_data.jndn.security.SecurityException;
+import net.named_data.jndn.security.identity.IdentityManager;
+import net.named_data.jndn.security.identity.MemoryIdentityStorage;
+import net.named_data.jndn.security.identity.MemoryPrivateKeyStorage;
+import net.named_data.jndn.security.policy.SelfVerifyPolicyManager;
+import net.named_data.jndn.transport.LoopbackForwarder;
+import net.named_data.jndn.transport.LoopbackTransport;
+import net.named_data.jndn.util.Blob;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+public class TestLoopbackTransport {
+  // A producer which answers each Interest with a Data packet of the same name.
+  private static class Producer implements OnInterestCallback {
+    public void
+    onInterest
+      (Name prefix, Interest interest, Face face, long interestFilterId,
+       InterestFilter filter)
+    {
+      ++nInterests_;
+      Data data = new Data(interest.getName());
+      data.setContent(content_);
+      try {
+        face.putData(data);
+      } catch (IOException ex) {
+        throw new Error(ex.getMessage());
+      }
+    }
+
+    public int nInterests_ = 0;
+    public final Blob content_ = new Blob("Hello");
+  }
+
+  private static class Consumer implements OnData {
+    public void
+    onData(Interest interest, Data data)
+    {
+      received_.add(data);
+    }
+
+    public final List<Data> received_ = new ArrayList<Data>();
+  }
+
+  // A LoopbackTransport which counts the Interests sent by the Node.
+  private static class CountingTransport extends LoopbackTransport {
+    public void
+    sendInterest(Interest interest) throws IOException
+    {
+      ++nSentInterests_;
+      super.sendInterest(interest);
+    }
+
+    public int nSentInterests_ = 0;
+  }
+
+  private static void
+  processEvents(Face[] faces) throws IOException, EncodingException
+  {
+    // The loopback transport is deterministic, so a few rounds are enough.
+    for (int round = 0; round < 5; ++round) {
+      for (int i = 0; i < faces.length; ++i)
+        faces[i].processEvents();
+    }
+  }
+
+  @Test
+  public void
+  testExpressInterest() throws IOException, EncodingException
+  {
+    LoopbackForwarder forwarder = new LoopbackForwarder();
+    LoopbackTransport producerTransport = new LoopbackTransport();
+    Face producerFace = new Face
+      (producerTransport, new LoopbackTransport.ConnectionInfo(forwarder));
+    Face consumerFace = new Face
+      (new LoopbackTransport(), new LoopbackTransport.ConnectionInfo(forwarder));
+    Face[] faces = new Face[] { producerFace, consumerFace };
+
+    Producer producer = new Producer();
+    producerFace.setInterestFilter(new Name("/test/loopback"), producer);
+    // Connect the producer face so that the forwarder has its route.
+    producerFace.expressInterest(new Interest(new Name("/local/timeout")), null);
+    forwarder.addRoute(new Name("/test/loopback"), producerTransport);
+
+    Consumer consumer = new Consumer();
+    consumerFace.expressInterest(new Name("/test/loopback/1"), consumer);
+    processEvents(faces);
+
+    assertEquals(1, producer.nInterests_);
+    assertEquals(1, consumer.received_.size());
+    assertTrue(consumer.received_.get(0).getName().equals
+      (new Name("/test/loopback/1")));
+    // The content is passed by reference without encoding.
+    assertSame(producer.content_, consumer.received_.get(0).getContent());
+    assertEquals(0, forwarder.getPendingInterestCount());
+
+    // There is no route for this prefix.
+    consumerFace.expressInterest(new Name("/test/other"), consumer);
+    processEvents(faces);
+    assertEquals(1, producer.nInterests_);
+    assertEquals(0, forwarder.getPendingInterestCount());
+  }
+
+  @Test
+  public void
+  testInterestCopy() throws IOException, EncodingException
+  {
+    LoopbackForwarder forwarder = new LoopbackForwarder();
+    LoopbackTransport producerTransport = new LoopbackTransport();
+    Face producerFace = new Face
+      (producerTransport, new LoopbackTransport.ConnectionInfo(forwarder));
+    Face consumerFace = new Face
+      (new LoopbackTransport(), new LoopbackTransport.ConnectionInfo(forwarder));
+
+    // A producer which modifies the received Interest after answering it.
+    producerFace.setInterestFilter(new Name("/test"), new OnInterestCallback() {
+      public void onInterest
+        (Name prefix, Interest interest, Face face, long interestFilterId,
+         InterestFilter filter) {
+        try {
+          face.putData(new Data(interest.getName()));
+        } catch (IOException ex) {
+          throw new Error(ex.getMessage());
+        }
+        interest.getName().append("changed");
+      }
+    });
+    producerFace.expressInterest(new Interest(new Name("/local/timeout")), null);
+    forwarder.addRoute(new Name("/test"), producerTransport);
+
+    // The Data is returned after the producer changed its Interest, so it only
+    // matches the consumer's pending Interest if the producer got a copy.
+    Consumer consumer = new Consumer();
+    consumerFace.expressInterest(new Name("/test/copy"), consumer);
+    processEvents(new Face[] { producerFace, consumerFace });
+    assertEquals(1, consumer.received_.size());
+    assertTrue(consumer.received_.get(0).getName().equals
+      (new Name("/test/copy")));
+
+    // As with the other transports, the received Data is not frozen.
+    Data data = consumer.received_.get(0);
+    assertFalse(data.isFrozen());
+    data.getName().append("changed");
+    data.setContent(new Blob("changed"));
+  }
+
+  @Test
+  public void
+  testAggregation() throws IOException, EncodingException
+  {
+    LoopbackForwarder forwarder = new LoopbackForwarder();
+    LoopbackTransport producerTransport = new LoopbackTransport();
+    Face producerFace = new Face
+      (producerTransport, new LoopbackTransport.ConnectionInfo(forwarder));
+    Face consumerFace1 = new Face
+      (new LoopbackTransport(), new LoopbackTransport.ConnectionInfo(forwarder));
+    Face consumerFace2 = new Face
+      (new LoopbackTransport(), new LoopbackTransport.ConnectionInfo(forwarder));
+
+    producerFace.expressInterest(new Interest(new Name("/local/timeout")), null);
+    forwarder.addRoute(new Name("/test"), producerTransport);
+
+    Consumer consumer1 = new Consumer();
+    Consumer consumer2 = new Consumer();
+    consumerFace1.expressInterest(new Name("/test/aggregate"), consumer1);
+    consumerFace2.expressInterest(new Name("/test/aggregate"), consumer2);
+    assertEquals(1, forwarder.getPendingInterestCount());
+
+    // Only one Interest reached the producer, but both consumers get the Data.
+    Producer producer = new Producer();
+    producerFace.setInterestFilter(new Name("/test"), producer);
+    processEvents(new Face[] { producerFace, consumerFace1, consumerFace2 });
+    assertEquals(1, producer.nInterests_);
+    assertEquals(1, consumer1.received_.size());
+    assertEquals(1, consumer2.received_.size());
+
+    // Interests which differ only in the KeyLocator selector are not
+    // aggregated, since Data for one may not satisfy the other.
+    Interest interest1 = new Interest(new Name("/test/keyLocator"));
+    interest1.getKeyLocator().setType(KeyLocatorType.KEYNAME);
+    interest1.getKeyLocator().setKeyName(new Name("/key1"));
+    Interest interest2 = new Interest(new Name("/test/keyLocator"));
+    interest2.getKeyLocator().setType(KeyLocatorType.KEYNAME);
+    interest2.getKeyLocator().setKeyName(new Name("/key2"));
+    consumerFace1.expressInterest(interest1, consumer1);
+    consumerFace2.expressInterest(interest2, consumer2);
+    assertEquals(2, forwarder.getPendingInterestCount());
+  }
+
+  @Test
+  public void
+  testImplicitDigest() throws IOException, EncodingException
+  {
+    LoopbackForwarder forwarder = new LoopbackForwarder();
+    LoopbackTransport producerTransport = new LoopbackTransport();
+    Face producerFace = new Face
+      (producerTransport, new LoopbackTransport.ConnectionInfo(forwarder));
+    Face consumerFace = new Face
+      (new LoopbackTransport(), new LoopbackTransport.ConnectionInfo(forwarder));
+
+    final Data data = new Data(new Name("/test/digest/1"));
+    data.setContent(new Blob("Hello"));
+    producerFace.setInterestFilter(new Name("/test"), new OnInterestCallback() {
+      public void onInterest
+        (Name prefix, Interest interest, Face face, long interestFilterId,
+         InterestFilter filter) {
+        try {
+          face.putData(data);
+        } catch (IOException ex) {
+          throw new Error(ex.getMessage());
+        }
+      }
+    });
+    producerFace.expressInterest(new Interest(new Name("/local/timeout")), null);
+    forwarder.addRoute(new Name("/test"), producerTransport);
+
+    // The forwarder matches the full name with the implicit digest.
+    Consumer consumer = new Consumer();
+    consumerFace.expressInterest(new Interest(data.getFullName()), consumer);
+    processEvents(new Face[] { producerFace, consumerFace });
+    assertEquals(1, consumer.received_.size());
+    assertEquals(0, forwarder.getPendingInterestCount());
+  }
+
+  @Test
+  public void
+  testInterestAggregation()
+    throws IOException, EncodingException, InterruptedException
+  {
+    LoopbackForwarder forwarder = new LoopbackForwarder();
+    LoopbackTransport producerTransport = new LoopbackTransport();
+    Face producerFace = new Face
+      (producerTransport, new LoopbackTransport.ConnectionInfo(forwarder));
+    CountingTransport consumerTransport = new CountingTransport();
+    Face consumerFace = new Face
+      (consumerTransport, new LoopbackTransport.ConnectionInfo(forwarder));
+    Face[] faces = new Face[] { producerFace, consumerFace };
+    assertEquals(false, consumerFace.getInterestAggregation());
+
+    Producer producer = new Producer();
+    producerFace.setInterestFilter(new Name("/test"), producer);
+    producerFace.expressInterest(new Interest(new Name("/local/timeout")), null);
+    forwarder.addRoute(new Name("/test"), producerTransport);
+
+    // Without aggregation, each Interest is sent.
+    Consumer consumer = new Consumer();
+    consumerFace.expressInterest(new Name("/test/separate"), consumer);
+    consumerFace.expressInterest(new Name("/test/separate"), consumer);
+    assertEquals(2, consumerTransport.nSentInterests_);
+    processEvents(faces);
+    assertEquals(2, consumer.received_.size());
+
+    // With aggregation, one Interest is sent and each caller gets the Data.
+    consumerFace.setInterestAggregation(true);
+    consumer.received_.clear();
+    consumerTransport.nSentInterests_ = 0;
+    for (int i = 0; i < 3; ++i)
+      consumerFace.expressInterest(new Name("/test/aggregate"), consumer);
+    // A different selector is not aggregated.
+    Interest staleInterest = new Interest(new Name("/test/aggregate"));
+    staleInterest.setMustBeFresh(false);
+    consumerFace.expressInterest(staleInterest, consumer);
+    assertEquals(2, consumerTransport.nSentInterests_);
+    processEvents(faces);
+    assertEquals(4, consumer.received_.size());
+
+    // The Interest is sent again once satisfied.
+    consumerFace.expressInterest(new Name("/test/aggregate"), consumer);
+    assertEquals(3, consumerTransport.nSentInterests_);
+    processEvents(faces);
+    assertEquals(5, consumer.received_.size());
+
+    // Interests with a different Link or selected delegation are not
+    // aggregated, since they are forwarded differently.
+    Link link1 = new Link(new Name("/test/link1"));
+    link1.addDelegation(10, new Name("/hub1"));
+    Link link2 = new Link(new Name("/test/link2"));
+    link2.addDelegation(10, new Name("/hub2"));
+    Interest linkInterest1 = new Interest(new Name("/test/link"));
+    linkInterest1.setLinkWireEncoding(link1.wireEncode());
+    Interest linkInterest2 = new Interest(new Name("/test/link"));
+    linkInterest2.setLinkWireEncoding(link2.wireEncode());
+    Interest delegationInterest = new Interest(linkInterest2);
+    delegationInterest.setSelectedDelegationIndex(0);
+    consumerTransport.nSentInterests_ = 0;
+    consumerFace.expressInterest(linkInterest1, consumer);
+    consumerFace.expressInterest(linkInterest2, consumer);
+    consumerFace.expressInterest(delegationInterest, consumer);
+    assertEquals(3, consumerTransport.nSentInterests_);
+    // The same Link is aggregated.
+    consumerFace.expressInterest(new Interest(linkInterest1), consumer);
+    assertEquals(3, consumerTransport.nSentInterests_);
+    processEvents(faces);
+    assertEquals(9, consumer.received_.size());
+
+    // There is no route, so check that a longer lifetime is preserved.
+    final int[] nTimeouts = new int[] { 0 };
+    OnTimeout onTimeout = new OnTimeout() {
+      public void onTimeout(Interest interest) { ++nTimeouts[0]; }
+    };
+    consumerTransport.nSentInterests_ = 0;
+    Interest shortInterest = new Interest(new Name("/none/aggregate"));
+    shortInterest.setInterestLifetimeMilliseconds(50);
+    Interest longInterest = new Interest(new Name("/none/aggregate"));
+    longInterest.setInterestLifetimeMilliseconds(200);
+    consumerFace.expressInterest(shortInterest, consumer, onTimeout);
+    consumerFace.expressInterest(longInterest, consumer, onTimeout);
+    assertEquals(1, consumerTransport.nSentInterests_);
+
+    Thread.sleep(100);
+    processEvents(faces);
+    // The short Interest timed out and the long one was sent again.
+    assertEquals(1, nTimeouts[0]);
+    assertEquals(2, consumerTransport.nSentInterests_);
+
+    Thread.sleep(150);
+    processEvents(faces);
+    assertEquals(2, nTimeouts[0]);
+  }
+
+  @Test
+  public void
+  testDataCache() throws IOException, EncodingException
+  {
+    LoopbackForwarder forwarder = new LoopbackForwarder();
+    LoopbackTransport producerTransport = new LoopbackTransport();
+    Face producerFace = new Face
+      (producerTransport, new LoopbackTransport.ConnectionInfo(forwarder));
+    CountingTransport consumerTransport = new CountingTransport();
+    Face consumerFace = new Face
+      (consumerTransport, new LoopbackTransport.ConnectionInfo(forwarder));
+    Face[] faces = new Face[] { producerFace, consumerFace };
+    consumerFace.setDataCacheCapacity(100000);
+
+    Producer producer = new Producer();
+    producerFace.setInterestFilter(new Name("/test"), producer);
+    producerFace.expressInterest(new Interest(new Name("/test/cache/0")), null);
+    forwarder.addRoute(new Name("/test"), producerTransport);
+
+    Interest interest = new Interest(new Name("/test/cache/1"));
+    interest.setMustBeFresh(false);
+    Consumer consumer = new Consumer();
+    consumerFace.expressInterest(interest, consumer);
+    processEvents(faces);
+    assertEquals(1, consumer.received_.size());
+    assertEquals(1, consumerTransport.nSentInterests_);
+    assertEquals(1, consumerFace.getDataCache().size());
+
+    // The cache hit calls onData before returning, without sending.
+    consumerFace.expressInterest(interest, consumer);
+    assertEquals(2, consumer.received_.size());
+    assertEquals(1, consumerTransport.nSentInterests_);
+    assertEquals(1, producer.nInterests_);
+    assertEquals(1, consumerFace.getDataCache().getHitCount());
+
+    // The Data has no FreshnessPeriod, so MustBeFresh is a miss.
+    interest.setMustBeFresh(true);
+    consumerFace.expressInterest(interest, consumer);
+    assertEquals(2, consumerTransport.nSentInterests_);
+    processEvents(faces);
+    assertEquals(3, consumer.received_.size());
+    assertEquals(2, consumerFace.getDataCache().getMissCount());
+  }
+
+  @Test
+  public void
+  testRegisterPrefix() throws IOException, EncodingException, SecurityException
+  {
+    MemoryIdentityStorage identityStorage = new MemoryIdentityStorage();
+    KeyChain keyChain = new KeyChain
+      (new IdentityManager(identityStorage, new MemoryPrivateKeyStorage()),
+       new SelfVerifyPolicyManager(identityStorage));
+    Name certificateName = keyChain.createIdentityAndCertificate
+      (new Name("/test/identity"), new EcdsaKeyParams());
+
+    LoopbackForwarder forwarder = new LoopbackForwarder();
+    Face producerFace = new Face
+      (new LoopbackTransport(), new LoopbackTransport.ConnectionInfo(forwarder));
+    Face consumerFace = new Face
+      (new LoopbackTransport(), new LoopbackTransport.ConnectionInfo(forwarder));
+    Face[] faces = new Face[] { producerFace, consumerFace };
+    producerFace.setCommandSigningInfo(keyChain, certificateName);
+
+    final boolean[] registered = new boolean[] { false };
+    Producer producer = new Producer();
+    producerFace.registerPrefix
+      (new Name("/test/register"), producer,
+       new OnRegisterFailed() {
+         public void onRegisterFailed(Name prefix) {}
+       },
+       new OnRegisterSuccess() {
+         public void onRegisterSuccess(Name prefix, long registeredPrefixId) {
+           registered[0] = true;
+         }
+       });
+    processEvents(faces);
+    assertEquals(true, registered[0]);
+
+    Consumer consumer = new Consumer();
+    consumerFace.expressInterest(new Name("/test/register/1"), consumer);
+    processEvents(faces);
+    assertEquals(1, producer.nInterests_);
+    assertEquals(1, consumer.received_.size());
+  }
+
+  @Test
+  public void
+  testRegisterPrefixes()
+    throws IOException, EncodingException, SecurityException
+  {
+    MemoryIdentityStorage identityStorage = new MemoryIdentityStorage();
+    KeyChain keyChain = new KeyChain
+      (new IdentityManager(identityStorage, new MemoryPrivateKeyStorage()),
+       new SelfVerifyPolicyManager(identityStorage));
+    Name certificateName = keyChain.createIdentityAndCertificate
+      (new Name("/test/identity"), new EcdsaKeyParams());
+
+    LoopbackForwarder forwarder = new LoopbackForwarder();
+    Face producerFace = new Face
+      (new LoopbackTransport(), new LoopbackTransport.ConnectionInfo(forwarder));
+    Face consumerFace = new Face
+      (new LoopbackTransport(), new LoopbackTransport.ConnectionInfo(forwarder));
+    Face[] faces = new Face[] { producerFace, consumerFace };
+    producerFace.setCommandSigningInfo(keyChain, certificateName);
+
+    int nPrefixes = 20;
+    List<Name> prefixes = new ArrayList<Name>();
+    for (int i = 0; i < nPrefixes; ++i)
+      prefixes.add(new Name("/test/batch").appendSegment(i));
+
+    final List[] results = new List[2];
+    Producer producer = new Producer();
+    ExecutorService signingExecutor = Executors.newFixedThreadPool(4);
+    long[] registeredPrefixIds;
+    try {
+      registeredPrefixIds = producerFace.registerPrefixes
+        (prefixes, producer, new OnRegisterPrefixesComplete() {
+           public void onRegisterPrefixesComplete
+             (List registeredPrefixes, List failedPrefixes) {
+             results[0] = registeredPrefixes;
+             results[1] = failedPrefixes;
+           }
+         },
+         new ForwardingFlags(), 4, signingExecutor, TlvWireFormat.get());
+    } finally {
+      signingExecutor.shutdown();
+    }
+    assertEquals(nPrefixes, registeredPrefixIds.length);
+    // Removing a prefix before its response arrives still completes the batch.
+    producerFace.removeRegisteredPrefix(registeredPrefixIds[0]);
+
+    // Each round of processEvents gets one window of responses.
+    for (int i = 0; i < nPrefixes / 4 + 1; ++i)
+      processEvents(faces);
+    assertEquals(nPrefixes - 1, results[0].size());
+    assertEquals(1, results[1].size());
+    assertEquals(prefixes.get(0), results[1].get(0));
+    // The results are a snapshot which the application can't change.
+    boolean gotError = true;
+    try {
+      results[0].clear();
+      gotError = false;
+    } catch (UnsupportedOperationException ex) {}
+    if (!gotError)
+      fail("Expected the registered prefixes list to be unmodifiable");
+
+    Consumer consumer = new Consumer();
+    consumerFace.expressInterest
+      (new Name("/test/batch").appendSegment(7).append("data"), consumer);
+    processEvents(faces);
+    assertEquals(1, producer.nInterests_);
+    assertEquals(1, consumer.received_.size());
+  }
+}
@@ -0,0 +1,147 @@
+/**
+ * Copyright (C) 2017 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+package net.named_data.jndn.tests.unit_tests;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import net.named_data.jndn.Data;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.encoding.EncodingException;
+import net.named_data.jndn.encoding.TlvWireFormat;
+import net.named_data.jndn.lp.IncomingFaceId;
+import net.named_data.jndn.lp.LpFragmenter;
+import net.named_data.jndn.lp.LpPacket;
+import net.named_data.jndn.lp.LpReassembler;
+import net.named_data.jndn.util.Blob;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class TestLpFragmentation {
+  private static Blob
+  makeLargeData()
+  {
+    Data data = new Data(new Name("/test/fragmentation"));
+    byte[] content = new byte[8000];
+    for (int i = 0; i < content.length; ++i)
+      content[i] = (byte)i;
+    data.setContent(new Blob(content));
+    return data.wireEncode();
+  }
+
+  private static LpPacket
+  decode(Blob encoding) throws EncodingException
+  {
+    LpPacket lpPacket = new LpPacket();
+    TlvWireFormat.get().decodeLpPacket(lpPacket, encoding.buf());
+    return lpPacket;
+  }
+
+  @Test
+  public void
+  testEncodeDecode() throws EncodingException
+  {
+    LpPacket lpPacket = new LpPacket();
+    lpPacket.setSequence(0x123456789L);
+    lpPacket.setFragIndex(2);
+    lpPacket.setFragCount(3);
+    IncomingFaceId incomingFaceId = new IncomingFaceId();
+    incomingFaceId.setFaceId(7);
+    lpPacket.addHeaderField(incomingFaceId);
+    lpPacket.setFragmentWireEncoding(new Blob(new byte[] { 1, 2, 3 }));
+
+    LpPacket decoded = decode(TlvWireFormat.get().encodeLpPacket(lpPacket));
+    assertEquals(0x123456789L, decoded.getSequence());
+    assertEquals(2, decoded.getFragIndex());
+    assertEquals(3, decoded.getFragCount());
+    assertTrue(decoded.isFragmented());
+    assertEquals(7, IncomingFaceId.getFirstHeader(decoded).getFaceId());
+    assertTrue(decoded.getFragmentWireEncoding().equals
+      (new Blob(new byte[] { 1, 2, 3 })));
+  }
+
+  @Test
+  public void
+  testFragmentReassemble() throws EncodingException
+  {
+    Blob encoding = makeLargeData();
+    int mtu = 1452;
+    List fragments = new LpFragmenter().fragment(encoding.buf(), mtu);
+    assertTrue(fragments.size() > 1);
+    for (int i = 0; i < fragments.size(); ++i)
+      assertTrue(((Blob)fragments.get(i)).size() <= mtu);
+
+    // Deliver in reverse order with a duplicate.
+    LpReassembler reassembler = new LpReassembler();
+    LpPacket result = null;
+    for (int i = fragments.size() - 1; i >= 0; --i) {
+      assertNull(result);
+      result = reassembler.receive(decode((Blob)fragments.get(i)));
+      if (i == fragments.size() - 1)
+        assertNull(reassembler.receive(decode((Blob)fragments.get(i))));
+    }
+
+    assertNotNull(result);
+    assertTrue(!result.isFragmented());
+    assertTrue(result.getFragmentWireEncoding().equals(encoding));
+    assertEquals(0, reassembler.getPartialPacketCount());
+
+    Data data = new Data();
+    data.wireDecode(result.getFragmentWireEncoding());
+    assertTrue(data.getName().equals(new Name("/test/fragmentation")));
+  }
+
+  @Test
+  public void
+  testLimits() throws EncodingException
+  {
+    LpFragmenter fragmenter = new LpFragmenter();
+
+    // Only keep the most recent partial packet.
+    LpReassembler reassembler = new LpReassembler(1, 10000.0);
+    List fragments1 = fragmenter.fragment(makeLargeData().buf(), 1000);
+    List fragments2 = fragmenter.fragment(makeLargeData().buf(), 1000);
+    assertNull(reassembler.receive(decode((Blob)fragments1.get(0))));
+    assertNull(reassembler.receive(decode((Blob)fragments2.get(0))));
+    assertEquals(1, reassembler.getPartialPacketCount());
+    for (int i = 1; i < fragments1.size(); ++i)
+      assertNull(reassembler.receive(decode((Blob)fragments1.get(i))));
+
+    // A partial packet is dropped after the timeout.
+    reassembler = new LpReassembler(10, -1.0);
+    List fragments = fragmenter.fragment(makeLargeData().buf(), 1000);
+    for (int i = 0; i < fragments.size(); ++i)
+      assertNull(reassembler.receive(decode((Blob)fragments.get(i))));
+  }
+
+  @Test
+  public void
+  testNoFragmentation() throws EncodingException
+  {
+    // A packet which fits in the MTU is one fragment.
+    Blob encoding = new Data(new Name("/test/small")).wireEncode();
+    List fragments = new LpFragmenter().fragment(encoding.buf(), 1452);
+    assertEquals(1, fragments.size());
+    LpPacket lpPacket = decode((Blob)fragments.get(0));
+    assertTrue(!lpPacket.isFragmented());
+    assertTrue(lpPacket.getFragmentWireEncoding().equals(encoding));
+  }
+}
@@ -0,0 +1,245 @@
+/**
+ * Copyright (C) 2017 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+package net.named_data.jndn.tests.unit_tests;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import net.named_data.jndn.Data;
+import net.named_data.jndn.Face;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.InterestFilter;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.OnData;
+import net.named_data.jndn.OnInterestCallback;
+import net.named_data.jndn.OnTimeout;
+import net.named_data.jndn.encoding.ElementListener;
+import net.named_data.jndn.encoding.ElementReader;
+import net.named_data.jndn.encoding.EncodingException;
+import net.named_data.jndn.transport.LoopbackForwarder;
+import net.named_data.jndn.transport.LoopbackTransport;
+import net.named_data.jndn.util.Blob;
+import net.named_data.jndn.util.LatencyHistogram;
+import net.named_data.jndn.util.Metrics;
+import net.named_data.jndn.util.MetricsRecorder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+public class TestMetrics {
+  @Test
+  public void
+  testLatencyHistogram()
+  {
+    LatencyHistogram histogram = new LatencyHistogram();
+    assertEquals(0, histogram.getValueAtPercentile(50));
+
+    for (long value = 1; value <= 1000; ++value)
+      histogram.record(value * 1000);
+    assertEquals(1000, histogram.getCount());
+    assertEquals(1000000, histogram.getMax());
+    assertEquals(500500.0, histogram.getMean(), 0);
+
+    // The error is less than 2 / SUB_BUCKET_COUNT of the value.
+    double maxError = 2.0 / LatencyHistogram.SUB_BUCKET_COUNT;
+    long p50 = histogram.getValueAtPercentile(50);
+    assertTrue("p50 " + p50, p50 >= 500000 && p50 <= 500000 * (1 + maxError));
+    long p99 = histogram.getValueAtPercentile(99);
+    assertTrue("p99 " + p99, p99 >= 990000 && p99 <= 990000 * (1 + maxError));
+    assertEquals(1000000, histogram.getValueAtPercentile(100));
+
+    // Small values are exact.
+    LatencyHistogram small = new LatencyHistogram();
+    small.record(3);
+    small.record(7);
+    assertEquals(3, small.getValueAtPercentile(50));
+    assertEquals(7, small.getValueAtPercentile(99));
+
+    LatencyHistogram copy = new LatencyHistogram(histogram);
+    histogram.reset();
+    assertEquals(0, histogram.getCount());
+    assertEquals(1000, copy.getCount());
+    assertEquals(p99, copy.getValueAtPercentile(99));
+
+    // Check the largest value.
+    histogram.record(Long.MAX_VALUE);
+    assertEquals(Long.MAX_VALUE, histogram.getValueAtPercentile(50));
+  }
+
+  @Test
+  public void
+  testFaceMetrics() throws Exception
+  {
+    LoopbackForwarder forwarder = new LoopbackForwarder();
+    LoopbackTransport producerTransport = new LoopbackTransport();
+    final Face producerFace = new Face
+      (producerTransport, new LoopbackTransport.ConnectionInfo(forwarder));
+    Face consumerFace = new Face
+      (new LoopbackTransport(), new LoopbackTransport.ConnectionInfo(forwarder));
+    assertSame(Metrics.NONE, consumerFace.getMetrics());
+    MetricsRecorder producerMetrics = new MetricsRecorder();
+    producerFace.setMetrics(producerMetrics);
+    MetricsRecorder consumerMetrics = new MetricsRecorder();
+    consumerFace.setMetrics(consumerMetrics);
+
+    producerFace.setInterestFilter
+      (new Name("/test"), new OnInterestCallback() {
+        public void onInterest
+          (Name prefix, Interest interest, Face face, long interestFilterId,
+           InterestFilter filter) {
+          try {
+            face.putData(new Data(interest.getName()));
+          } catch (IOException ex) {
+            throw new Error(ex.getMessage());
+          }
+        }
+      });
+    // Connect the producer face so that the forwarder has its route.
+    producerFace.expressInterest(new Interest(new Name("/local/timeout")), null);
+    forwarder.addRoute(new Name("/test"), producerTransport);
+
+    final int[] nData = new int[] { 0 };
+    final int[] nTimeouts = new int[] { 0 };
+    OnData onData = new OnData() {
+      public void onData(Interest interest, Data data) {
+        ++nData[0];
+        throw new Error("Test the callback error count");
+      }
+    };
+    OnTimeout onTimeout = new OnTimeout() {
+      public void onTimeout(Interest interest) { ++nTimeouts[0]; }
+    };
+
+    consumerFace.expressInterest(new Name("/test/1"), onData, onTimeout);
+    consumerFace.expressInterest(new Name("/test/2"), onData, onTimeout);
+    Interest unrouted = new Interest(new Name("/unrouted"), 10);
+    consumerFace.expressInterest(unrouted, onData, onTimeout);
+    MetricsRecorder.Snapshot snapshot = consumerMetrics.getSnapshot();
+    assertEquals(3, snapshot.getCounter(Metrics.Counter.INTERESTS_SENT));
+    assertEquals(3, snapshot.getGauge(Metrics.Gauge.PENDING_INTERESTS));
+    assertEquals(3, snapshot.getGauge(Metrics.Gauge.DELAYED_CALLS));
+
+    long endTime = System.currentTimeMillis() + 1000;
+    while (nTimeouts[0] == 0 && System.currentTimeMillis() < endTime) {
+      producerFace.processEvents();
+      consumerFace.processEvents();
+      Thread.sleep(5);
+    }
+    assertEquals(2, nData[0]);
+    assertEquals(1, nTimeouts[0]);
+
+    snapshot = consumerMetrics.getSnapshot();
+    assertEquals(2, snapshot.getCounter(Metrics.Counter.DATA_RECEIVED));
+    assertEquals(1, snapshot.getCounter(Metrics.Counter.INTEREST_TIMEOUTS));
+    assertEquals(2, snapshot.getCounter(Metrics.Counter.CALLBACK_ERRORS));
+    assertEquals(0, snapshot.getGauge(Metrics.Gauge.PENDING_INTERESTS));
+    assertEquals
+      (2, snapshot.getHistogram(Metrics.Timer.INTEREST_RTT).getCount());
+    assertEquals
+      (3, snapshot.getHistogram(Metrics.Timer.CALLBACK_TIME).getCount());
+
+    snapshot = producerMetrics.getSnapshot();
+    assertEquals(2, snapshot.getCounter(Metrics.Counter.INTERESTS_RECEIVED));
+    assertEquals(2, snapshot.getCounter(Metrics.Counter.DATA_SENT));
+    // The /local/timeout Interest is not sent.
+    assertEquals(0, snapshot.getCounter(Metrics.Counter.INTERESTS_SENT));
+
+    consumerMetrics.reset();
+    assertEquals(0, consumerMetrics.getSnapshot().getCounter
+      (Metrics.Counter.DATA_RECEIVED));
+  }
+
+  @Test
+  public void
+  testRttAfterSetMetrics() throws Exception
+  {
+    LoopbackForwarder forwarder = new LoopbackForwarder();
+    LoopbackTransport producerTransport = new LoopbackTransport();
+    Face producerFace = new Face
+      (producerTransport, new LoopbackTransport.ConnectionInfo(forwarder));
+    Face consumerFace = new Face
+      (new LoopbackTransport(), new LoopbackTransport.ConnectionInfo(forwarder));
+    producerFace.setInterestFilter
+      (new Name("/test"), new OnInterestCallback() {
+        public void onInterest
+          (Name prefix, Interest interest, Face face, long interestFilterId,
+           InterestFilter filter) {
+          try {
+            face.putData(new Data(interest.getName()));
+          } catch (IOException ex) {
+            throw new Error(ex.getMessage());
+          }
+        }
+      });
+    producerFace.expressInterest(new Interest(new Name("/local/timeout")), null);
+    forwarder.addRoute(new Name("/test"), producerTransport);
+
+    // Express while recording, then change to a Metrics which doesn't read
+    // the clock but does record.
+    consumerFace.setMetrics(new MetricsRecorder());
+    final int[] nData = new int[] { 0 };
+    consumerFace.expressInterest(new Name("/test/1"), new OnData() {
+      public void onData(Interest interest, Data data) { ++nData[0]; }
+    });
+    final int[] nRtts = new int[] { 0 };
+    consumerFace.setMetrics(new Metrics() {
+      public void record(Timer timer, long nanoseconds) {
+        if (timer == Metrics.Timer.INTEREST_RTT)
+          ++nRtts[0];
+      }
+    });
+
+    for (int i = 0; i < 5; ++i) {
+      producerFace.processEvents();
+      consumerFace.processEvents();
+    }
+    assertEquals(1, nData[0]);
+    // Without a start time, the RTT would be negative, so it isn't recorded.
+    assertEquals(0, nRtts[0]);
+  }
+
+  @Test
+  public void
+  testElementReader() throws Exception
+  {
+    final int[] nElements = new int[] { 0 };
+    ElementReader reader = new ElementReader(new ElementListener() {
+      public void onReceivedElement(ByteBuffer element) { ++nElements[0]; }
+    });
+    MetricsRecorder metrics = new MetricsRecorder();
+
+    Blob encoding = new Data(new Name("/test")).wireEncode();
+    reader.onReceivedData(encoding.buf(), metrics);
+    assertEquals(1, nElements[0]);
+    assertEquals(encoding.size(), metrics.getSnapshot().getCounter
+      (Metrics.Counter.BYTES_RECEIVED));
+
+    // An element with a length which overflows.
+    try {
+      reader.onReceivedData
+        (ByteBuffer.wrap(new byte[] { 6, (byte)0xff, (byte)0xff, (byte)0xff,
+          (byte)0xff, (byte)0xff, (byte)0xff, (byte)0xff, (byte)0xff, 0 }),
+         metrics);
+      fail("Did not throw for an invalid element");
+    } catch (EncodingException ex) {}
+    assertEquals(1, metrics.getSnapshot().getCounter
+      (Metrics.Counter.DECODE_ERRORS));
+  }
+}
@@ -411,4 +411,43 @@ public class TestNameMethods {
       ("Hash codes for same Name value after changes are not equal",
        bar1.hashCode(), bar2.hashCode());
   }
+
+  @Test
+  public void
+  testFreeze()
+  {
+    Name name = new Name("/foo");
+    int fooHashCode = name.hashCode();
+    // Change the name after computing the hash code, then freeze.
+    name.append("bar");
+    name.freeze();
+    assertTrue(name.isFrozen());
+    assertTrue("Frozen Name has the hash code from before a change",
+               name.hashCode() != fooHashCode);
+    assertEquals(new Name("/foo/bar").hashCode(), name.hashCode());
+
+    boolean gotError = true;
+    try {
+      name.append("baz");
+      gotError = false;
+    } catch (Error ex) {}
+    if (!gotError)
+      fail("Expected error changing a frozen Name");
+
+    gotError = true;
+    try {
+      name.set("/baz");
+      gotError = false;
+    } catch (Error ex) {}
+    if (!gotError)
+      fail("Expected error setting a frozen Name");
+    assertEquals(new Name("/foo/bar"), name);
+
+    // A copy is not frozen and has the same hash code.
+    Name copy = new Name(name);
+    assertFalse(copy.isFrozen());
+    assertEquals(name.hashCode(), copy.hashCode());
+    copy.append("baz");
+    assertEquals(new Name("/foo/bar/baz").hashCode(), copy.hashCode());
+  }
 }
@@ -0,0 +1,381 @@
+/**
+ * Copyright (C) 2017 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+
+package net.named_data.jndn.tests.unit_tests;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.DescriptorProtos.DescriptorProto;
+import com.google.protobuf.DescriptorProtos.EnumDescriptorProto;
+import com.google.protobuf.DescriptorProtos.EnumValueDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FieldDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.DescriptorValidationException;
+import com.google.protobuf.Descriptors.EnumDescriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Descriptors.FileDescriptor;
+import com.google.protobuf.DynamicMessage;
+import com.google.protobuf.Message;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.encoding.EncodingException;
+import net.named_data.jndn.encoding.ProtobufTlv;
+import net.named_data.jndn.sync.SyncStateProto;
+import net.named_data.jndn.util.Blob;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestProtobufTlv {
+  // The messages are built with DynamicMessage from descriptors which match
+  // fib-entry-proto.proto and rib-entry-proto.proto in the examples, plus a
+  // message with the field kinds which those don't have:
+  //
+  // message TypesMessage {
+  //   enum Color { RED = 0; GREEN = 1; BLUE = 2; }
+  //   message Inner {
+  //     optional uint64 value = 1;
+  //     optional string text = 2;
+  //   }
+  //   repeated Color colors = 10;
+  //   optional Color color = 11;
+  //   optional Inner inner = 12;
+  //   repeated Inner inners = 13;
+  //   optional bool flag = 14;
+  //   required string label = 15;
+  // }
+
+  private static FieldDescriptorProto
+  makeField
+    (String name, int number, FieldDescriptorProto.Label label,
+     FieldDescriptorProto.Type type, String typeName)
+  {
+    FieldDescriptorProto.Builder field = FieldDescriptorProto.newBuilder()
+      .setName(name).setNumber(number).setLabel(label).setType(type);
+    if (typeName != null)
+      field.setTypeName(typeName);
+    return field.build();
+  }
+
+  private static final FieldDescriptorProto.Label REQUIRED =
+    FieldDescriptorProto.Label.LABEL_REQUIRED;
+  private static final FieldDescriptorProto.Label OPTIONAL =
+    FieldDescriptorProto.Label.LABEL_OPTIONAL;
+  private static final FieldDescriptorProto.Label REPEATED =
+    FieldDescriptorProto.Label.LABEL_REPEATED;
+
+  private static DescriptorProto
+  makeNameType()
+  {
+    return DescriptorProto.newBuilder().setName("Name")
+      .addField(makeField
+        ("component", 8, REPEATED, FieldDescriptorProto.Type.TYPE_BYTES, null))
+      .build();
+  }
+
+  @Before
+  public void
+  setUp() throws DescriptorValidationException
+  {
+    FieldDescriptorProto.Type UINT32 = FieldDescriptorProto.Type.TYPE_UINT32;
+    FieldDescriptorProto.Type MESSAGE = FieldDescriptorProto.Type.TYPE_MESSAGE;
+
+    DescriptorProto fibEntryMessage = DescriptorProto.newBuilder()
+      .setName("FibEntryMessage")
+      .addNestedType(makeNameType())
+      .addNestedType(DescriptorProto.newBuilder().setName("NextHopRecord")
+        .addField(makeField("face_id", 105, REQUIRED, UINT32, null))
+        .addField(makeField("cost", 106, REQUIRED, UINT32, null)))
+      .addNestedType(DescriptorProto.newBuilder().setName("FibEntry")
+        .addField(makeField
+          ("name", 7, REQUIRED, MESSAGE, ".FibEntryMessage.Name"))
+        .addField(makeField
+          ("next_hop_records", 129, REPEATED, MESSAGE,
+           ".FibEntryMessage.NextHopRecord")))
+      .addField(makeField
+        ("fib_entry", 128, REQUIRED, MESSAGE, ".FibEntryMessage.FibEntry"))
+      .build();
+
+    DescriptorProto ribEntryMessage = DescriptorProto.newBuilder()
+      .setName("RibEntryMessage")
+      .addNestedType(makeNameType())
+      .addNestedType(DescriptorProto.newBuilder().setName("Route")
+        .addField(makeField("face_id", 105, REQUIRED, UINT32, null))
+        .addField(makeField("origin", 111, REQUIRED, UINT32, null))
+        .addField(makeField("cost", 106, REQUIRED, UINT32, null))
+        .addField(makeField("flags", 108, REQUIRED, UINT32, null))
+        .addField(makeField("expiration_period", 109, OPTIONAL, UINT32, null)))
+      .addNestedType(DescriptorProto.newBuilder().setName("RibEntry")
+        .addField(makeField
+          ("name", 7, REQUIRED, MESSAGE, ".RibEntryMessage.Name"))
+        .addField(makeField
+          ("routes", 129, REPEATED, MESSAGE, ".RibEntryMessage.Route")))
+      .addField(makeField
+        ("rib_entry", 128, REPEATED, MESSAGE, ".RibEntryMessage.RibEntry"))
+      .build();
+
+    FieldDescriptorProto.Type ENUM = FieldDescriptorProto.Type.TYPE_ENUM;
+    DescriptorProto typesMessage = DescriptorProto.newBuilder()
+      .setName("TypesMessage")
+      .addEnumType(EnumDescriptorProto.newBuilder().setName("Color")
+        .addValue(EnumValueDescriptorProto.newBuilder()
+          .setName("RED").setNumber(0))
+        .addValue(EnumValueDescriptorProto.newBuilder()
+          .setName("GREEN").setNumber(1))
+        .addValue(EnumValueDescriptorProto.newBuilder()
+          .setName("BLUE").setNumber(2)))
+      .addNestedType(DescriptorProto.newBuilder().setName("Inner")
+        .addField(makeField
+          ("value", 1, OPTIONAL, FieldDescriptorProto.Type.TYPE_UINT64, null))
+        .addField(makeField
+          ("text", 2, OPTIONAL, FieldDescriptorProto.Type.TYPE_STRING, null)))
+      .addField(makeField
+        ("colors", 10, REPEATED, ENUM, ".TypesMessage.Color"))
+      .addField(makeField("color", 11, OPTIONAL, ENUM, ".TypesMessage.Color"))
+      .addField(makeField
+        ("inner", 12, OPTIONAL, MESSAGE, ".TypesMessage.Inner"))
+      .addField(makeField
+        ("inners", 13, REPEATED, MESSAGE, ".TypesMessage.Inner"))
+      .addField(makeField
+        ("flag", 14, OPTIONAL, FieldDescriptorProto.Type.TYPE_BOOL, null))
+      .addField(makeField
+        ("label", 15, REQUIRED, FieldDescriptorProto.Type.TYPE_STRING, null))
+      .build();
+
+    FileDescriptor file = FileDescriptor.buildFrom
+      (FileDescriptorProto.newBuilder().setName("test-protobuf-tlv.proto")
+       .addMessageType(fibEntryMessage)
+       .addMessageType(ribEntryMessage)
+       .addMessageType(typesMessage)
+       .build(),
+       new FileDescriptor[0]);
+    fibEntryMessage_ = file.findMessageTypeByName("FibEntryMessage");
+    ribEntryMessage_ = file.findMessageTypeByName("RibEntryMessage");
+    typesMessage_ = file.findMessageTypeByName("TypesMessage");
+  }
+
+  private static FieldDescriptor
+  getField(Descriptor descriptor, String name)
+  {
+    return descriptor.findFieldByName(name);
+  }
+
+  private static DynamicMessage
+  makeName(Descriptor nameType, String uri)
+  {
+    Name name = new Name(uri);
+    DynamicMessage.Builder builder = DynamicMessage.newBuilder(nameType);
+    for (int i = 0; i < name.size(); ++i)
+      builder.addRepeatedField
+        (getField(nameType, "component"),
+         ByteString.copyFrom(name.get(i).getValue().getImmutableArray()));
+    return builder.build();
+  }
+
+  private DynamicMessage
+  makeFibEntryMessage(String uri, int[] faceIds)
+  {
+    Descriptor fibEntryType = fibEntryMessage_.findNestedTypeByName("FibEntry");
+    Descriptor nextHopType =
+      fibEntryMessage_.findNestedTypeByName("NextHopRecord");
+    DynamicMessage.Builder fibEntry = DynamicMessage.newBuilder(fibEntryType);
+    fibEntry.setField
+      (getField(fibEntryType, "name"),
+       makeName(fibEntryMessage_.findNestedTypeByName("Name"), uri));
+    for (int i = 0; i < faceIds.length; ++i)
+      fibEntry.addRepeatedField
+        (getField(fibEntryType, "next_hop_records"),
+         DynamicMessage.newBuilder(nextHopType)
+         .setField(getField(nextHopType, "face_id"), faceIds[i])
+         .setField(getField(nextHopType, "cost"), i + 1)
+         .build());
+
+    return DynamicMessage.newBuilder(fibEntryMessage_)
+      .setField(getField(fibEntryMessage_, "fib_entry"), fibEntry.build())
+      .build();
+  }
+
+  /**
+   * Encode the message, decode it into a new builder of the same type, check
+   * that the decoded message equals the original, and return the encoding.
+   */
+  private static Blob
+  roundTrip(Message message) throws EncodingException
+  {
+    Blob encoding = ProtobufTlv.encode(message);
+    Message.Builder decoded = message.newBuilderForType();
+    ProtobufTlv.decode(decoded, encoding);
+    assertEquals(message, decoded.build());
+    // Encoding again gives the same TLV.
+    assertTrue(encoding.equals(ProtobufTlv.encode(decoded.build())));
+    return encoding;
+  }
+
+  @Test
+  public void
+  testFibEntry() throws EncodingException
+  {
+    Blob encoding = roundTrip(makeFibEntryMessage("/ndn/abc", new int[] { 16 }));
+    // The expected TLV, to check the encoding itself and not only the round
+    // trip.
+    Blob expected = new Blob(new byte[] {
+      (byte)0x80, 0x14,                            // FibEntry
+        0x07, 0x0a,                                // Name
+          0x08, 0x03, 0x6e, 0x64, 0x6e,            // "ndn"
+          0x08, 0x03, 0x61, 0x62, 0x63,            // "abc"
+        (byte)0x81, 0x06,                          // NextHopRecord
+          0x69, 0x01, 0x10,                        // FaceId = 16
+          0x6a, 0x01, 0x01                         // Cost = 1
+    });
+    assertTrue(expected.equals(encoding));
+
+    // Repeated nested messages keep their order. An empty name has no
+    // components.
+    roundTrip(makeFibEntryMessage("/a/b/c/d", new int[] { 300, 1, 70000 }));
+    roundTrip(makeFibEntryMessage("/", new int[0]));
+  }
+
+  @Test
+  public void
+  testRibEntry() throws EncodingException
+  {
+    Descriptor ribEntryType = ribEntryMessage_.findNestedTypeByName("RibEntry");
+    Descriptor routeType = ribEntryMessage_.findNestedTypeByName("Route");
+    DynamicMessage.Builder message = DynamicMessage.newBuilder(ribEntryMessage_);
+    for (int iEntry = 0; iEntry < 3; ++iEntry) {
+      DynamicMessage.Builder ribEntry = DynamicMessage.newBuilder(ribEntryType);
+      ribEntry.setField
+        (getField(ribEntryType, "name"),
+         makeName(ribEntryMessage_.findNestedTypeByName("Name"),
+                  "/test/rib/" + iEntry));
+      for (int iRoute = 0; iRoute < iEntry + 1; ++iRoute) {
+        DynamicMessage.Builder route = DynamicMessage.newBuilder(routeType)
+          .setField(getField(routeType, "face_id"), 260 + iRoute)
+          .setField(getField(routeType, "origin"), 255)
+          .setField(getField(routeType, "cost"), iRoute)
+          .setField(getField(routeType, "flags"), 1);
+        if (iRoute % 2 == 1)
+          // Only some routes have the optional ExpirationPeriod.
+          route.setField(getField(routeType, "expiration_period"), 3600000);
+        ribEntry.addRepeatedField(getField(ribEntryType, "routes"), route.build());
+      }
+      message.addRepeatedField
+        (getField(ribEntryMessage_, "rib_entry"), ribEntry.build());
+    }
+
+    Blob encoding = roundTrip(message.build());
+    Message.Builder builder = DynamicMessage.newBuilder(ribEntryMessage_);
+    ProtobufTlv.decode(builder, encoding);
+    Message decoded = builder.build();
+    FieldDescriptor ribEntryField = getField(ribEntryMessage_, "rib_entry");
+    assertEquals(3, decoded.getRepeatedFieldCount(ribEntryField));
+    Message ribEntry2 = (Message)decoded.getRepeatedField(ribEntryField, 2);
+    assertEquals
+      (new Name("/test/rib/2"),
+       ProtobufTlv.toName((Message)ribEntry2.getField
+         (getField(ribEntryType, "name"))));
+    FieldDescriptor routesField = getField(ribEntryType, "routes");
+    assertEquals(3, ribEntry2.getRepeatedFieldCount(routesField));
+    FieldDescriptor expirationField = getField(routeType, "expiration_period");
+    assertFalse
+      (((Message)ribEntry2.getRepeatedField(routesField, 0)).hasField
+       (expirationField));
+    assertEquals
+      (3600000,
+       ((Message)ribEntry2.getRepeatedField(routesField, 1)).getField
+       (expirationField));
+
+    // An empty repeated field encodes nothing.
+    assertEquals
+      (0, ProtobufTlv.encode
+       (DynamicMessage.newBuilder(ribEntryMessage_).build()).size());
+  }
+
+  @Test
+  public void
+  testFieldTypes() throws EncodingException
+  {
+    EnumDescriptor color = typesMessage_.findEnumTypeByName("Color");
+    Descriptor innerType = typesMessage_.findNestedTypeByName("Inner");
+
+    // Only the required field.
+    roundTrip(DynamicMessage.newBuilder(typesMessage_)
+      .setField(getField(typesMessage_, "label"), "only label")
+      .build());
+
+    DynamicMessage.Builder message = DynamicMessage.newBuilder(typesMessage_)
+      .setField(getField(typesMessage_, "label"), "all fields \u00e9")
+      .setField(getField(typesMessage_, "color"), color.findValueByName("RED"))
+      .setField
+        (getField(typesMessage_, "inner"),
+         DynamicMessage.newBuilder(innerType)
+         .setField(getField(innerType, "value"), 0x100000000L)
+         .setField(getField(innerType, "text"), "inner")
+         .build())
+      .setField(getField(typesMessage_, "flag"), true);
+    // A repeated enum, including the zero value.
+    String[] colors = new String[] { "BLUE", "RED", "GREEN", "BLUE" };
+    for (int i = 0; i < colors.length; ++i)
+      message.addRepeatedField
+        (getField(typesMessage_, "colors"), color.findValueByName(colors[i]));
+    // Repeated nested messages with and without their optional fields.
+    message.addRepeatedField
+      (getField(typesMessage_, "inners"),
+       DynamicMessage.newBuilder(innerType).build());
+    message.addRepeatedField
+      (getField(typesMessage_, "inners"),
+       DynamicMessage.newBuilder(innerType)
+       .setField(getField(innerType, "text"), "second")
+       .build());
+    roundTrip(message.build());
+  }
+
+  @Test
+  public void
+  testGeneratedMessage() throws EncodingException
+  {
+    // A message class generated by protoc, with a repeated nested message, an
+    // enum, an optional nested message and optional bytes.
+    SyncStateProto.SyncStateMsg.Builder builder =
+      SyncStateProto.SyncStateMsg.newBuilder();
+    builder.addSsBuilder()
+      .setName("/test/a")
+      .setType(SyncStateProto.SyncState.ActionType.UPDATE)
+      .getSeqnoBuilder().setSeq(5).setSession(1234567890123L);
+    builder.addSsBuilder()
+      .setName("/test/b")
+      .setType(SyncStateProto.SyncState.ActionType.OTHER)
+      .setApplicationInfo(ByteString.copyFromUtf8("info"));
+    SyncStateProto.SyncStateMsg message = builder.build();
+
+    Blob encoding = ProtobufTlv.encode(message);
+    SyncStateProto.SyncStateMsg.Builder decoded =
+      SyncStateProto.SyncStateMsg.newBuilder();
+    ProtobufTlv.decode(decoded, encoding);
+    assertEquals(message, decoded.build());
+    assertFalse(decoded.getSs(1).hasSeqno());
+    assertEquals(1234567890123L, decoded.getSs(0).getSeqno().getSession());
+  }
+
+  private Descriptor fibEntryMessage_;
+  private Descriptor ribEntryMessage_;
+  private Descriptor typesMessage_;
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright (C) 2017 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+package net.named_data.jndn.tests.unit_tests;
+
+import com.google.protobuf.ByteString;
+import java.util.List;
+import net.named_data.jndn.encoding.EncodingException;
+import net.named_data.jndn.sync.SyncStateProto;
+import net.named_data.jndn.sync.SyncStateTlv;
+import net.named_data.jndn.util.Blob;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+public class TestSyncStateTlv {
+  @Test
+  public void
+  testEncodeDecode() throws EncodingException
+  {
+    SyncStateProto.SyncStateMsg.Builder builder =
+      SyncStateProto.SyncStateMsg.newBuilder();
+    builder.addSsBuilder()
+      .setName("/ndn/edu/ucla/remap/alice")
+      .setType(SyncStateProto.SyncState.ActionType.UPDATE)
+      .getSeqnoBuilder().setSeq(5).setSession(1490000000L);
+    builder.addSsBuilder()
+      .setName("/ndn/edu/ucla/remap/bob")
+      .setType(SyncStateProto.SyncState.ActionType.UPDATE)
+      .setApplicationInfo(ByteString.copyFrom(new byte[] { 1, 2, 3 }))
+      .getSeqnoBuilder().setSeq(300).setSession(7);
+    SyncStateProto.SyncStateMsg message = builder.build();
+
+    assertTrue(SyncStateTlv.canEncode(message.getSsList()));
+    Blob encoding = SyncStateTlv.encode(message.getSsList());
+    assertTrue(SyncStateTlv.isTlv(encoding));
+    assertTrue(!SyncStateTlv.isTlv(new Blob(message.toByteArray(), false)));
+    assertTrue(encoding.size() < message.getSerializedSize());
+
+    List decoded = SyncStateTlv.decode(encoding.buf());
+    assertEquals(2, decoded.size());
+    assertEquals(message.getSs(0), decoded.get(0));
+    assertEquals(message.getSs(1), decoded.get(1));
+  }
+
+  @Test
+  public void
+  testNonUpdate()
+  {
+    SyncStateProto.SyncStateMsg.Builder builder =
+      SyncStateProto.SyncStateMsg.newBuilder();
+    builder.addSsBuilder()
+      .setName("/ndn/edu/ucla/remap/alice")
+      .setType(SyncStateProto.SyncState.ActionType.UPDATE)
+      .getSeqnoBuilder().setSeq(5).setSession(1490000000L);
+    builder.addSsBuilder()
+      .setName("/ndn/edu/ucla/remap/carol")
+      .setType(SyncStateProto.SyncState.ActionType.DELETE);
+    List syncStates = builder.build().getSsList();
+
+    // A DELETE state can't be encoded, so encode doesn't silently drop it.
+    assertTrue(!SyncStateTlv.canEncode(syncStates));
+    boolean gotError = true;
+    try {
+      SyncStateTlv.encode(syncStates);
+      gotError = false;
+    } catch (Error ex) {}
+    if (!gotError)
+      fail("Expected an error encoding a DELETE sync state");
+  }
+
+  @Test
+  public void
+  testEmpty() throws EncodingException
+  {
+    Blob encoding = SyncStateTlv.encode
+      (SyncStateProto.SyncStateMsg.newBuilder().build().getSsList());
+    assertTrue(SyncStateTlv.isTlv(encoding));
+    assertEquals(0, SyncStateTlv.decode(encoding.buf()).size());
+  }
+}
@@ -0,0 +1,176 @@
+/**
+ * Copyright (C) 2017 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+package net.named_data.jndn.tests.unit_tests;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import net.named_data.jndn.Data;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.encoding.ElementListener;
+import net.named_data.jndn.encoding.EncodingException;
+import net.named_data.jndn.transport.UdpTransport;
+import net.named_data.jndn.util.Blob;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestUdpTransport {
+  private static class ElementCollector implements ElementListener {
+    public void
+    onReceivedElement(ByteBuffer element)
+    {
+      // Copy since the transport reuses the buffer.
+      elements_.add(new Blob(element, true));
+    }
+
+    public final List<Blob> elements_ = new ArrayList<Blob>();
+  }
+
+  // Echo each element back to the peer which sent it.
+  private static class Echo implements ElementListener {
+    public void
+    onReceivedElement(ByteBuffer element)
+    {
+      try {
+        server_.sendTo(element, server_.getLastRemoteAddress());
+      } catch (IOException ex) {
+        throw new Error(ex.getMessage());
+      }
+    }
+
+    public UdpTransport server_;
+  }
+
+  @Before
+  public void
+  setUp() throws IOException
+  {
+    server_ = new UdpTransport();
+    echo_ = new Echo();
+    echo_.server_ = server_;
+    server_.connect(new UdpTransport.UnconnectedInfo(0), echo_, null);
+    serverPort_ = ((InetSocketAddress)server_.getLocalAddress()).getPort();
+  }
+
+  @After
+  public void
+  tearDown() throws IOException
+  {
+    server_.close();
+  }
+
+  private static void
+  waitForElements
+    (UdpTransport server, UdpTransport client, ElementCollector collector,
+     int nElements)
+    throws IOException, EncodingException, InterruptedException
+  {
+    long endTime = System.currentTimeMillis() + 5000;
+    while (collector.elements_.size() < nElements &&
+           System.currentTimeMillis() < endTime) {
+      server.processEvents();
+      client.processEvents();
+      Thread.sleep(5);
+    }
+  }
+
+  @Test
+  public void
+  testUnconnectedEcho() throws Exception
+  {
+    assertEquals(true, server_.getIsConnected());
+
+    // Two clients are served by the one unconnected server socket.
+    UdpTransport client1 = new UdpTransport();
+    UdpTransport client2 = new UdpTransport();
+    ElementCollector collector1 = new ElementCollector();
+    ElementCollector collector2 = new ElementCollector();
+    client1.connect
+      (new UdpTransport.ConnectionInfo("127.0.0.1", serverPort_), collector1,
+       null);
+    client2.connect
+      (new UdpTransport.ConnectionInfo("127.0.0.1", serverPort_), collector2,
+       null);
+
+    Blob element1 = new Interest(new Name("/test/udp/1")).wireEncode();
+    Blob element2 = new Interest(new Name("/test/udp/2")).wireEncode();
+    Blob element3 = new Interest(new Name("/test/udp/3")).wireEncode();
+    // Send several datagrams before the server processes any.
+    client1.send(element1.buf());
+    client1.send(element2.buf());
+    client2.send(element3.buf());
+
+    waitForElements(server_, client1, collector1, 2);
+    waitForElements(server_, client2, collector2, 1);
+    assertEquals(2, collector1.elements_.size());
+    assertTrue(element1.equals(collector1.elements_.get(0)));
+    assertTrue(element2.equals(collector1.elements_.get(1)));
+    assertEquals(1, collector2.elements_.size());
+    assertTrue(element3.equals(collector2.elements_.get(0)));
+
+    client1.close();
+    client2.close();
+    assertEquals(false, client1.getIsConnected());
+
+    // An unconnected transport has no single peer for send.
+    boolean gotError = true;
+    try {
+      server_.send(element1.buf());
+      gotError = false;
+    } catch (IOException ex) {}
+    if (!gotError)
+      fail("Expected an exception for send on an unconnected transport");
+  }
+
+  @Test
+  public void
+  testFragmentation() throws Exception
+  {
+    UdpTransport client = new UdpTransport();
+    client.setMtu(1000);
+    ElementCollector collector = new ElementCollector();
+    client.connect
+      (new UdpTransport.ConnectionInfo("127.0.0.1", serverPort_), collector,
+       null);
+
+    Data data = new Data(new Name("/test/udp/large"));
+    data.setContent(new Blob(new byte[5000]));
+    Blob encoding = data.wireEncode();
+    client.send(encoding.buf());
+
+    // The server echoes each LpPacket fragment, which each fit in the MTU.
+    waitForElements(server_, client, collector, 6);
+    assertEquals(6, collector.elements_.size());
+    for (int i = 0; i < collector.elements_.size(); ++i)
+      assertTrue(collector.elements_.get(i).size() <= 1000);
+
+    client.close();
+  }
+
+  private UdpTransport server_;
+  private Echo echo_;
+  private int serverPort_;
+}
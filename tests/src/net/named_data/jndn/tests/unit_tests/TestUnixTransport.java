@@ -0,0 +1,220 @@
+/**
+ * Copyright (C) 2017 Regents of the University of California.
+ * @author: Jeff Thompson <jefft0@remap.ucla.edu>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * A copy of the GNU Lesser General Public License is in the file COPYING.
+ */
+
+package net.named_data.jndn.tests.unit_tests;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import net.named_data.jndn.Interest;
+import net.named_data.jndn.Name;
+import net.named_data.jndn.encoding.ElementListener;
+import net.named_data.jndn.transport.AsyncUnixTransport;
+import net.named_data.jndn.transport.Transport;
+import net.named_data.jndn.transport.UnixTransport;
+import net.named_data.jndn.util.Blob;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestUnixTransport {
+  // A server which echoes the bytes received on one connection.
+  private static class EchoServer implements Runnable {
+    public EchoServer(ServerSocketChannel serverChannel)
+    {
+      serverChannel_ = serverChannel;
+    }
+
+    public void
+    run()
+    {
+      try {
+        SocketChannel channel = serverChannel_.accept();
+        try {
+          ByteBuffer buffer = ByteBuffer.allocate(1000);
+          while (channel.read(buffer) >= 0) {
+            buffer.flip();
+            while (buffer.hasRemaining())
+              channel.write(buffer);
+            buffer.clear();
+          }
+        } finally {
+          channel.close();
+        }
+      } catch (IOException ex) {
+        // The test closed the server.
+      }
+    }
+
+    private final ServerSocketChannel serverChannel_;
+  }
+
+  private static class ElementCollector implements ElementListener {
+    public void
+    onReceivedElement(ByteBuffer element)
+    {
+      synchronized (elements_) {
+        elements_.add(new Blob(element, true));
+        elements_.notifyAll();
+      }
+    }
+
+    public Blob
+    waitForElement(long timeoutMilliseconds) throws InterruptedException
+    {
+      long endTime = System.currentTimeMillis() + timeoutMilliseconds;
+      synchronized (elements_) {
+        while (elements_.isEmpty()) {
+          long remaining = endTime - System.currentTimeMillis();
+          if (remaining <= 0)
+            return null;
+          elements_.wait(remaining);
+        }
+        return elements_.remove(0);
+      }
+    }
+
+    private final List<Blob> elements_ = new ArrayList<Blob>();
+  }
+
+  @Before
+  public void
+  setUp() throws Exception
+  {
+    Assume.assumeTrue(UnixTransport.getIsSupported());
+
+    socketFile_ = File.createTempFile("jndn-test", ".sock");
+    socketFile_.delete();
+
+    // Use reflection since Unix-domain sockets need Java 16.
+    serverChannel_ = (ServerSocketChannel)ServerSocketChannel.class.getMethod
+      ("open", ProtocolFamily.class).invoke
+      (null, StandardProtocolFamily.valueOf("UNIX"));
+    SocketAddress address = (SocketAddress)Class.forName
+      ("java.net.UnixDomainSocketAddress").getMethod("of", String.class).invoke
+      (null, socketFile_.getAbsolutePath());
+    serverChannel_.bind(address);
+
+    serverThread_ = new Thread(new EchoServer(serverChannel_));
+    serverThread_.start();
+  }
+
+  @After
+  public void
+  tearDown() throws Exception
+  {
+    if (serverChannel_ != null) {
+      serverChannel_.close();
+      serverThread_.join(1000);
+    }
+    if (socketFile_ != null)
+      socketFile_.delete();
+  }
+
+  private static Blob
+  makeElement(String uri)
+  {
+    return new Interest(new Name(uri)).wireEncode();
+  }
+
+  @Test
+  public void
+  testEcho() throws Exception
+  {
+    UnixTransport transport = new UnixTransport();
+    UnixTransport.ConnectionInfo connectionInfo =
+      new UnixTransport.ConnectionInfo(socketFile_.getAbsolutePath());
+    assertEquals(true, transport.isLocal(connectionInfo));
+
+    ElementCollector collector = new ElementCollector();
+    transport.connect(connectionInfo, collector, null);
+    assertEquals(true, transport.getIsConnected());
+
+    Blob element = makeElement("/test/unix");
+    transport.send(element.buf());
+    Blob received = null;
+    long endTime = System.currentTimeMillis() + 5000;
+    while (received == null && System.currentTimeMillis() < endTime) {
+      transport.processEvents();
+      received = collector.waitForElement(10);
+    }
+    assertTrue(element.equals(received));
+
+    transport.close();
+    assertEquals(false, transport.getIsConnected());
+  }
+
+  @Test
+  public void
+  testAsyncEcho() throws Exception
+  {
+    ScheduledExecutorService threadPool = new ScheduledThreadPoolExecutor(1);
+    try {
+      AsyncUnixTransport transport = new AsyncUnixTransport(threadPool);
+      Transport.ConnectionInfo connectionInfo =
+        new UnixTransport.ConnectionInfo(socketFile_.getAbsolutePath());
+      assertEquals(true, transport.isLocal(connectionInfo));
+
+      final Object connectedLock = new Object();
+      final boolean[] connected = new boolean[] { false };
+      ElementCollector collector = new ElementCollector();
+      transport.connect(connectionInfo, collector, new Runnable() {
+        public void run() {
+          synchronized (connectedLock) {
+            connected[0] = true;
+            connectedLock.notifyAll();
+          }
+        }
+      });
+      synchronized (connectedLock) {
+        if (!connected[0])
+          connectedLock.wait(5000);
+      }
+      assertEquals(true, transport.getIsConnected());
+
+      Blob element1 = makeElement("/test/unix/1");
+      Blob element2 = makeElement("/test/unix/2");
+      transport.send(element1.buf());
+      transport.send(element2.buf());
+      assertTrue(element1.equals(collector.waitForElement(5000)));
+      assertTrue(element2.equals(collector.waitForElement(5000)));
+
+      transport.close();
+      assertEquals(false, transport.getIsConnected());
+    } finally {
+      threadPool.shutdownNow();
+    }
+  }
+
+  private File socketFile_;
+  private ServerSocketChannel serverChannel_;
+  private Thread serverThread_;
+}